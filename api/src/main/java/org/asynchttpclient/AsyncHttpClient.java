@@ -19,6 +19,8 @@ package org.asynchttpclient;
 import java.io.Closeable;
 import java.util.concurrent.Future;
 
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
+
 /**
  * This class support asynchronous and synchronous HTTP request.
  * <p/>
@@ -260,4 +262,21 @@ public interface AsyncHttpClient extends Closeable {
      * @return a {@link Future} of type Response
      */
     ListenableFuture<Response> executeRequest(Request request);
+
+    /**
+     * Open connections to a host in the background and offer them to the pool, so that the first requests don't pay
+     * for DNS resolution, TCP and TLS handshakes. Connections beyond the per host limit are not opened.
+     *
+     * @param url the url of the host
+     * @param connections the number of connections to open
+     * @return a {@link Future} of the number of connections that were opened and pooled
+     */
+    ListenableFuture<Integer> warmUp(String url, int connections);
+
+    /**
+     * Take a snapshot of the connections: idle, in use and being opened, along with cumulative counters.
+     *
+     * @return the statistics of the whole client and of each partition
+     */
+    ConnectionPoolSnapshot getConnectionPoolSnapshot();
 }
@@ -28,12 +28,17 @@ import java.util.concurrent.Executors;
 
 import javax.net.ssl.SSLContext;
 
+import org.asynchttpclient.cache.HttpResponseCache;
 import org.asynchttpclient.channel.SSLEngineFactory;
+import org.asynchttpclient.cookie.CookieStore;
 import org.asynchttpclient.filter.IOExceptionFilter;
 import org.asynchttpclient.filter.RequestFilter;
 import org.asynchttpclient.filter.ResponseFilter;
+import org.asynchttpclient.metrics.ClientMetrics;
 import org.asynchttpclient.proxy.ProxyServer;
 import org.asynchttpclient.proxy.ProxyServerSelector;
+import org.asynchttpclient.retry.RetryPolicy;
+import org.asynchttpclient.spnego.SpnegoEngine;
 import org.asynchttpclient.util.PrefixIncrementThreadFactory;
 import org.asynchttpclient.util.ProxyUtils;
 
@@ -116,6 +121,24 @@ public class AsyncHttpClientConfig {
     protected int webSocketMaxBufferSize = 128000000;
     protected int webSocketMaxFrameSize = 10 * 1024;
     protected boolean keepEncodingHeader = false;
+    protected HttpResponseCache responseCache;
+    protected boolean coalesceRequests;
+    protected HedgingPolicy hedgingPolicy;
+    protected RetryPolicy retryPolicy;
+    protected int circuitBreakerFailureThreshold;
+    protected int circuitBreakerOpenDuration;
+    protected int connectionAttemptDelay;
+    protected int minIdleConnectionsPerHost;
+    protected SpnegoEngine spnegoEngine;
+    protected CookieStore cookieStore;
+    protected int maxPipelinedRequests;
+    protected RequestTimingsListener requestTimingsListener;
+    protected ClientMetrics clientMetrics;
+    protected boolean offloadCallbacks;
+    protected int maxQueuedCallbacks;
+    protected String[] acceptEncodings;
+    protected String requestCompression;
+    protected int requestCompressionThreshold;
     protected AsyncHttpProviderConfig<?, ?> providerConfig;
 
     protected AsyncHttpClientConfig() {
@@ -162,6 +185,24 @@ public class AsyncHttpClientConfig {
             int webSocketMaxBufferSize,//
             int webSocketMaxFrameSize,//
             boolean keepEncodingHeader,//
+            HttpResponseCache responseCache,//
+            boolean coalesceRequests,//
+            HedgingPolicy hedgingPolicy,//
+            RetryPolicy retryPolicy,//
+            int circuitBreakerFailureThreshold,//
+            int circuitBreakerOpenDuration,//
+            int connectionAttemptDelay,//
+            int minIdleConnectionsPerHost,//
+            SpnegoEngine spnegoEngine,//
+            CookieStore cookieStore,//
+            int maxPipelinedRequests,//
+            RequestTimingsListener requestTimingsListener,//
+            ClientMetrics clientMetrics,//
+            boolean offloadCallbacks,//
+            int maxQueuedCallbacks,//
+            String[] acceptEncodings,//
+            String requestCompression,//
+            int requestCompressionThreshold,//
             AsyncHttpProviderConfig<?, ?> providerConfig) {
 
         this.name = name;
@@ -214,6 +255,24 @@ public class AsyncHttpClientConfig {
         this.webSocketMaxBufferSize = webSocketMaxBufferSize;
         this.webSocketMaxFrameSize = webSocketMaxFrameSize;
         this.keepEncodingHeader = keepEncodingHeader;
+        this.responseCache = responseCache;
+        this.coalesceRequests = coalesceRequests;
+        this.hedgingPolicy = hedgingPolicy;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+        this.connectionAttemptDelay = connectionAttemptDelay;
+        this.minIdleConnectionsPerHost = minIdleConnectionsPerHost;
+        this.spnegoEngine = spnegoEngine;
+        this.cookieStore = cookieStore;
+        this.maxPipelinedRequests = maxPipelinedRequests;
+        this.requestTimingsListener = requestTimingsListener;
+        this.clientMetrics = clientMetrics;
+        this.offloadCallbacks = offloadCallbacks;
+        this.maxQueuedCallbacks = maxQueuedCallbacks;
+        this.acceptEncodings = acceptEncodings;
+        this.requestCompression = requestCompression;
+        this.requestCompressionThreshold = requestCompressionThreshold;
     }
 
     /**
@@ -612,6 +671,78 @@ public class AsyncHttpClientConfig {
         return keepEncodingHeader;
     }
 
+    public HttpResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public int getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public int getConnectionAttemptDelay() {
+        return connectionAttemptDelay;
+    }
+
+    public int getMinIdleConnectionsPerHost() {
+        return minIdleConnectionsPerHost;
+    }
+
+    public SpnegoEngine getSpnegoEngine() {
+        return spnegoEngine;
+    }
+
+    public CookieStore getCookieStore() {
+        return cookieStore;
+    }
+
+    public int getMaxPipelinedRequests() {
+        return maxPipelinedRequests;
+    }
+
+    public RequestTimingsListener getRequestTimingsListener() {
+        return requestTimingsListener;
+    }
+
+    public ClientMetrics getClientMetrics() {
+        return clientMetrics;
+    }
+
+    public boolean isOffloadCallbacks() {
+        return offloadCallbacks;
+    }
+
+    public int getMaxQueuedCallbacks() {
+        return maxQueuedCallbacks;
+    }
+
+    public String[] getAcceptEncodings() {
+        return acceptEncodings;
+    }
+
+    public String getRequestCompression() {
+        return requestCompression;
+    }
+
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
     /**
      * Builder for an {@link AsyncHttpClient}
      */
@@ -659,6 +790,24 @@ public class AsyncHttpClientConfig {
         private int webSocketMaxBufferSize = defaultWebSocketMaxBufferSize();
         private int webSocketMaxFrameSize = defaultWebSocketMaxFrameSize();
         private boolean keepEncodingHeader = defaultKeepEncodingHeader();
+        private HttpResponseCache responseCache;
+        private boolean coalesceRequests = defaultCoalesceRequests();
+        private HedgingPolicy hedgingPolicy;
+        private RetryPolicy retryPolicy;
+        private int circuitBreakerFailureThreshold = defaultCircuitBreakerFailureThreshold();
+        private int circuitBreakerOpenDuration = defaultCircuitBreakerOpenDuration();
+        private int connectionAttemptDelay = defaultConnectionAttemptDelay();
+        private int minIdleConnectionsPerHost = defaultMinIdleConnectionsPerHost();
+        private SpnegoEngine spnegoEngine = SpnegoEngine.instance();
+        private CookieStore cookieStore;
+        private int maxPipelinedRequests = defaultMaxPipelinedRequests();
+        private RequestTimingsListener requestTimingsListener;
+        private ClientMetrics clientMetrics;
+        private boolean offloadCallbacks = defaultOffloadCallbacks();
+        private int maxQueuedCallbacks = defaultMaxQueuedCallbacks();
+        private String[] acceptEncodings = defaultAcceptEncodings();
+        private String requestCompression;
+        private int requestCompressionThreshold = defaultRequestCompressionThreshold();
         private AsyncHttpProviderConfig<?, ?> providerConfig;
 
         public Builder() {
@@ -1156,6 +1305,218 @@ public class AsyncHttpClientConfig {
             return this;
         }
 
+        /**
+         * Set the {@link HttpResponseCache} used to serve and store responses, disabled when null.
+         *
+         * @param responseCache the cache
+         * @return a {@link Builder}
+         */
+        public Builder setResponseCache(HttpResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Enable single-flight mode: concurrent identical GET and HEAD requests share one in-flight exchange
+         * and its buffered response is replayed to each of their handlers.
+         *
+         * @param coalesceRequests true to enable
+         * @return a {@link Builder}
+         */
+        public Builder setCoalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        /**
+         * Set the default {@link HedgingPolicy} of idempotent requests, disabled when null.
+         * Can be overridden per request.
+         *
+         * @param hedgingPolicy the policy
+         * @return a {@link Builder}
+         */
+        public Builder setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        /**
+         * Set the {@link RetryPolicy} that decides if and when failed requests get retried.
+         * When none is set, requests that can be replayed get retried immediately.
+         *
+         * @param retryPolicy the retry policy, shared by all requests
+         * @return a {@link Builder}
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Set the number of consecutive failures (connect failures and timeouts) after which requests to a host fail fast.
+         * Set it to 0 to disable circuit breaking.
+         *
+         * @param circuitBreakerFailureThreshold the number of consecutive failures
+         * @return a {@link Builder}
+         */
+        public Builder setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+            this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+            return this;
+        }
+
+        /**
+         * Set the time in millis during which requests to a host fail fast once its circuit is open, before a probe request is let through.
+         *
+         * @param circuitBreakerOpenDuration the open duration in millis
+         * @return a {@link Builder}
+         */
+        public Builder setCircuitBreakerOpenDuration(int circuitBreakerOpenDuration) {
+            this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+            return this;
+        }
+
+        /**
+         * Set the delay in millis after which a connection attempt to the next address of a host is started while the previous one is still
+         * pending (RFC 8305 Happy Eyeballs). An attempt that fails starts the next one right away.
+         *
+         * @param connectionAttemptDelay the delay in millis between connection attempts
+         * @return a {@link Builder}
+         */
+        public Builder setConnectionAttemptDelay(int connectionAttemptDelay) {
+            this.connectionAttemptDelay = connectionAttemptDelay;
+            return this;
+        }
+
+        /**
+         * Set the number of idle connections to keep pooled for each host that was already requested. The pool is topped up in the
+         * background, within the maxConnectionsPerHost limit. Set it to 0 to only pool connections lazily.
+         *
+         * @param minIdleConnectionsPerHost the number of idle connections to keep per host
+         * @return a {@link Builder}
+         */
+        public Builder setMinIdleConnectionsPerHost(int minIdleConnectionsPerHost) {
+            this.minIdleConnectionsPerHost = minIdleConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * Set the engine that generates SPNEGO/Kerberos tokens, e.g. one that caches them
+         *
+         * @param spnegoEngine the engine
+         * @return a {@link Builder}
+         */
+        public Builder setSpnegoEngine(SpnegoEngine spnegoEngine) {
+            this.spnegoEngine = spnegoEngine;
+            return this;
+        }
+
+        /**
+         * Set the store where cookies received with responses are kept and picked from to be sent with
+         * later requests, or null to disable automatic cookie handling
+         *
+         * @param cookieStore the cookie store
+         * @return a {@link Builder}
+         */
+        public Builder setCookieStore(CookieStore cookieStore) {
+            this.cookieStore = cookieStore;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of idempotent requests without a body that can wait for their response on a single
+         * connection, i.e. HTTP/1.1 pipelining. Only enable it against servers known to support pipelining.
+         *
+         * @param maxPipelinedRequests the maximum number of requests in flight per connection, 1 to disable pipelining
+         * @return a {@link Builder}
+         */
+        public Builder setMaxPipelinedRequests(int maxPipelinedRequests) {
+            this.maxPipelinedRequests = maxPipelinedRequests;
+            return this;
+        }
+
+        /**
+         * Set a listener notified with the timings of every request once done
+         *
+         * @param requestTimingsListener the listener, or null
+         * @return a {@link Builder}
+         */
+        public Builder setRequestTimingsListener(RequestTimingsListener requestTimingsListener) {
+            this.requestTimingsListener = requestTimingsListener;
+            return this;
+        }
+
+        /**
+         * Set the metrics notified with the events of every request, or null to disable metrics
+         *
+         * @param clientMetrics the metrics, e.g. a {@link org.asynchttpclient.metrics.DefaultClientMetrics}
+         * @return a {@link Builder}
+         */
+        public Builder setClientMetrics(ClientMetrics clientMetrics) {
+            this.clientMetrics = clientMetrics;
+            return this;
+        }
+
+        /**
+         * Set to true to run the {@link AsyncHandler} callbacks on the {@link ExecutorService} instead of the I/O threads, so that a
+         * slow handler doesn't stall the other connections. The callbacks of a given connection still run one at a time, in
+         * order.
+         *
+         * @param offloadCallbacks true to run the callbacks on the executor service
+         * @return a {@link Builder}
+         */
+        public Builder setOffloadCallbacks(boolean offloadCallbacks) {
+            this.offloadCallbacks = offloadCallbacks;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of offloaded callbacks that can wait for a connection: once reached, the connection stops
+         * reading from the socket until the handler catches up.
+         *
+         * @param maxQueuedCallbacks the maximum number of queued callbacks per connection
+         * @return a {@link Builder}
+         */
+        public Builder setMaxQueuedCallbacks(int maxQueuedCallbacks) {
+            this.maxQueuedCallbacks = maxQueuedCallbacks;
+            return this;
+        }
+
+        /**
+         * Set the content codings advertised in the Accept-Encoding header when compression is enforced, most preferred first,
+         * e.g. "zstd", "gzip", "deflate". Codings can carry a quality value, e.g. "gzip;q=0.5". The codings the provider
+         * can't decode are left out.
+         *
+         * @param acceptEncodings the content codings, most preferred first
+         * @return a {@link Builder}
+         */
+        public Builder setAcceptEncodings(String... acceptEncodings) {
+            this.acceptEncodings = acceptEncodings;
+            return this;
+        }
+
+        /**
+         * Compress request bodies with the given content coding, e.g. gzip, deflate or zstd, and set their
+         * Content-Encoding header. Bodies that already have a Content-Encoding header are sent as is.
+         *
+         * @param requestCompression the content coding, or null to send request bodies uncompressed
+         * @return this
+         */
+        public Builder setRequestCompression(String requestCompression) {
+            this.requestCompression = requestCompression;
+            return this;
+        }
+
+        /**
+         * Request bodies smaller than this threshold are not compressed. Bodies of unknown length always are.
+         *
+         * @param requestCompressionThreshold the minimum body size in bytes for compression
+         * @return this
+         */
+        public Builder setRequestCompressionThreshold(int requestCompressionThreshold) {
+            this.requestCompressionThreshold = requestCompressionThreshold;
+            return this;
+        }
+
         /**
          * Create a config builder with values taken from the given prototype
          * configuration.
@@ -1209,6 +1570,24 @@ public class AsyncHttpClientConfig {
             webSocketMaxBufferSize = prototype.webSocketMaxBufferSize;
             webSocketMaxFrameSize = prototype.webSocketMaxFrameSize;
             keepEncodingHeader = prototype.keepEncodingHeader;
+            responseCache = prototype.responseCache;
+            coalesceRequests = prototype.coalesceRequests;
+            hedgingPolicy = prototype.hedgingPolicy;
+            retryPolicy = prototype.retryPolicy;
+            circuitBreakerFailureThreshold = prototype.circuitBreakerFailureThreshold;
+            circuitBreakerOpenDuration = prototype.circuitBreakerOpenDuration;
+            connectionAttemptDelay = prototype.connectionAttemptDelay;
+            minIdleConnectionsPerHost = prototype.minIdleConnectionsPerHost;
+            spnegoEngine = prototype.spnegoEngine;
+            cookieStore = prototype.cookieStore;
+            maxPipelinedRequests = prototype.maxPipelinedRequests;
+            requestTimingsListener = prototype.requestTimingsListener;
+            clientMetrics = prototype.clientMetrics;
+            offloadCallbacks = prototype.offloadCallbacks;
+            maxQueuedCallbacks = prototype.maxQueuedCallbacks;
+            acceptEncodings = prototype.acceptEncodings;
+            requestCompression = prototype.requestCompression;
+            requestCompressionThreshold = prototype.requestCompressionThreshold;
 
             providerConfig = prototype.getAsyncHttpProviderConfig();
         }
@@ -1270,6 +1649,24 @@ public class AsyncHttpClientConfig {
                     webSocketMaxBufferSize, //
                     webSocketMaxFrameSize, //
                     keepEncodingHeader, //
+                    responseCache, //
+                    coalesceRequests, //
+                    hedgingPolicy, //
+                    retryPolicy, //
+                    circuitBreakerFailureThreshold, //
+                    circuitBreakerOpenDuration, //
+                    connectionAttemptDelay, //
+                    minIdleConnectionsPerHost, //
+                    spnegoEngine, //
+                    cookieStore, //
+                    maxPipelinedRequests, //
+                    requestTimingsListener, //
+                    clientMetrics, //
+                    offloadCallbacks, //
+                    maxQueuedCallbacks, //
+                    acceptEncodings, //
+                    requestCompression, //
+                    requestCompressionThreshold, //
                     providerConfig);
         }
     }
@@ -17,6 +17,8 @@ package org.asynchttpclient;
 
 import java.io.Closeable;
 
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
+
 /**
  * Interface to be used when implementing custom asynchronous I/O HTTP client.
  */
@@ -30,6 +32,20 @@ public interface AsyncHttpProvider extends Closeable {
      */
     <T> ListenableFuture<T> execute(Request request, AsyncHandler<T> handler);
 
+    /**
+     * Open connections for the request's target and offer them to the pool.
+     *
+     * @param request the request whose uri, proxy and partitioning are used
+     * @param connections the number of connections to open
+     * @return a {@link ListenableFuture} of the number of connections that were opened and pooled
+     */
+    ListenableFuture<Integer> warmUp(Request request, int connections);
+
+    /**
+     * @return a snapshot of the connection statistics
+     */
+    ConnectionPoolSnapshot getConnectionPoolSnapshot();
+
     /**
      * Close the current underlying TCP/HTTP connection.
      */
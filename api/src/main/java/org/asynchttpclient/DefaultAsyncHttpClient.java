@@ -20,6 +20,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.asynchttpclient.cache.HttpResponseCache;
+import org.asynchttpclient.cache.RequestCoalescer;
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
 import org.asynchttpclient.filter.FilterContext;
 import org.asynchttpclient.filter.FilterException;
 import org.asynchttpclient.filter.RequestFilter;
@@ -31,6 +34,8 @@ import org.slf4j.LoggerFactory;
 public class DefaultAsyncHttpClient implements AsyncHttpClient {
 
     private final AsyncHttpProvider httpProvider;
+    // the provider requests go through, either httpProvider or a decorator
+    private final AsyncHttpProvider executingProvider;
     private final AsyncHttpClientConfig config;
     private final static Logger logger = LoggerFactory.getLogger(DefaultAsyncHttpClient.class);
     private final AtomicBoolean isClosed = new AtomicBoolean(false);
@@ -83,6 +88,7 @@ public class DefaultAsyncHttpClient implements AsyncHttpClient {
     public DefaultAsyncHttpClient(AsyncHttpProvider httpProvider, AsyncHttpClientConfig config) {
         this.config = config;
         this.httpProvider = httpProvider;
+        this.executingProvider = config.isCoalesceRequests() ? new RequestCoalescer(httpProvider, config) : httpProvider;
     }
 
     @Override
@@ -193,7 +199,7 @@ public class DefaultAsyncHttpClient implements AsyncHttpClient {
     public <T> ListenableFuture<T> executeRequest(Request request, AsyncHandler<T> handler) {
 
         if (config.getRequestFilters().isEmpty()) {
-            return httpProvider.execute(request, handler);
+            return execute(request, handler);
 
         } else {
             FilterContext<T> fc = new FilterContext.FilterContextBuilder<T>().asyncHandler(handler).request(request).build();
@@ -204,15 +210,30 @@ public class DefaultAsyncHttpClient implements AsyncHttpClient {
                 return new ListenableFuture.CompletedFailure<>("preProcessRequest failed", e);
             }
 
-            return httpProvider.execute(fc.getRequest(), fc.getAsyncHandler());
+            return execute(fc.getRequest(), fc.getAsyncHandler());
         }
     }
 
+    private <T> ListenableFuture<T> execute(Request request, AsyncHandler<T> handler) {
+        HttpResponseCache responseCache = config.getResponseCache();
+        return responseCache != null ? responseCache.execute(request, handler, executingProvider, config) : executingProvider.execute(request, handler);
+    }
+
     @Override
     public ListenableFuture<Response> executeRequest(Request request) {
         return executeRequest(request, new AsyncCompletionHandlerBase());
     }
 
+    @Override
+    public ListenableFuture<Integer> warmUp(String url, int connections) {
+        return httpProvider.warmUp(prepareGet(url).build(), connections);
+    }
+
+    @Override
+    public ConnectionPoolSnapshot getConnectionPoolSnapshot() {
+        return httpProvider.getConnectionPoolSnapshot();
+    }
+
     /**
      * Configure and execute the associated {@link RequestFilter}. This class may decorate the {@link Request} and {@link AsyncHandler}
      *
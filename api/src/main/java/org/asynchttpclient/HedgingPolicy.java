@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient;
+
+/**
+ * Hedged requests: when no status line has been received after a given delay, a duplicate of an idempotent request
+ * is sent over another connection, preferably to another address of the host. The first one to receive a status
+ * wins and the other one is aborted.
+ *
+ * The delay is either fixed, or learnt from the recent time-to-status-line of the host, e.g. its 95th percentile.
+ * Hedges are capped to a fraction of the hedgeable traffic so that they never multiply the load on a struggling
+ * backend.
+ */
+public final class HedgingPolicy {
+
+    private final long delay;
+    private final double latencyPercentile;
+    private final double maxExtraLoad;
+
+    private HedgingPolicy(long delay, double latencyPercentile, double maxExtraLoad) {
+        this.delay = delay;
+        this.latencyPercentile = latencyPercentile;
+        this.maxExtraLoad = maxExtraLoad;
+    }
+
+    /**
+     * @return the delay in millis after which a hedge is sent, used until enough latencies were observed when a
+     *         percentile is configured
+     */
+    public long getDelay() {
+        return delay;
+    }
+
+    /**
+     * @return the percentile of the recent latencies to use as delay, or 0 to always use the fixed delay
+     */
+    public double getLatencyPercentile() {
+        return latencyPercentile;
+    }
+
+    /**
+     * @return the maximum ratio of hedges to hedgeable requests, e.g. 0.05 for at most 5% extra requests
+     */
+    public double getMaxExtraLoad() {
+        return maxExtraLoad;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingPolicy(delay=" + delay + ", latencyPercentile=" + latencyPercentile + ", maxExtraLoad=" + maxExtraLoad + ")";
+    }
+
+    public static class Builder {
+
+        private long delay = 50L;
+        private double latencyPercentile;
+        private double maxExtraLoad = 0.05;
+
+        public Builder setDelay(long delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        public Builder setLatencyPercentile(double latencyPercentile) {
+            this.latencyPercentile = latencyPercentile;
+            return this;
+        }
+
+        public Builder setMaxExtraLoad(double maxExtraLoad) {
+            this.maxExtraLoad = maxExtraLoad;
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            if (delay < 0)
+                throw new IllegalArgumentException("delay can't be negative");
+            if (latencyPercentile < 0 || latencyPercentile >= 100)
+                throw new IllegalArgumentException("latencyPercentile must be in [0, 100)");
+            if (maxExtraLoad < 0 || maxExtraLoad > 1)
+                throw new IllegalArgumentException("maxExtraLoad must be in [0, 1]");
+            return new HedgingPolicy(delay, latencyPercentile, maxExtraLoad);
+        }
+    }
+}
@@ -110,4 +110,13 @@ public abstract class HttpResponseStatus {
      *         if asynchronous provider is unable to provide the local address
      */
     public abstract SocketAddress getLocalAddress();
+
+    /**
+     * Get the timings of the phases of the request.
+     * 
+     * @return the timings, may be {@code null} if the provider doesn't record them
+     */
+    public RequestTimings getTimings() {
+        return null;
+    }
 }
@@ -138,4 +138,56 @@ public interface ListenableFuture<V> extends Future<V> {
             return this;
         }
     }
+
+    class CompletedSuccess<T> implements ListenableFuture<T> {
+
+        private final T value;
+
+        public CompletedSuccess(T value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public T get() {
+            return value;
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) {
+            return value;
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public void abort(Throwable t) {
+        }
+
+        @Override
+        public void touch() {
+        }
+
+        @Override
+        public ListenableFuture<T> addListener(Runnable listener, Executor exec) {
+            exec.execute(listener);
+            return this;
+        }
+    }
 }
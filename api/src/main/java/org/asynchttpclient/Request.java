@@ -205,4 +205,6 @@ public interface Request {
     ConnectionPoolPartitioning getConnectionPoolPartitioning();
 
     NameResolver getNameResolver();
+
+    HedgingPolicy getHedgingPolicy();
 }
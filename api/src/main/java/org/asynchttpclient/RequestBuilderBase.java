@@ -79,6 +79,7 @@ public abstract class RequestBuilderBase<T extends RequestBuilderBase<T>> {
         public Charset charset;
         private ConnectionPoolPartitioning connectionPoolPartitioning = ConnectionPoolPartitioning.PerHostConnectionPoolPartitioning.INSTANCE;
         private NameResolver nameResolver = NameResolver.JdkNameResolver.INSTANCE;
+        private HedgingPolicy hedgingPolicy;
         private List<Param> queryParams;
 
         public RequestImpl() {
@@ -111,6 +112,7 @@ public abstract class RequestBuilderBase<T extends RequestBuilderBase<T>> {
                 this.charset = prototype.getBodyCharset();
                 this.connectionPoolPartitioning = prototype.getConnectionPoolPartitioning();
                 this.nameResolver = prototype.getNameResolver();
+                this.hedgingPolicy = prototype.getHedgingPolicy();
             }
         }
 
@@ -244,6 +246,11 @@ public abstract class RequestBuilderBase<T extends RequestBuilderBase<T>> {
             return nameResolver;
         }
 
+        @Override
+        public HedgingPolicy getHedgingPolicy() {
+            return hedgingPolicy;
+        }
+
         @Override
         public List<Param> getQueryParams() {
             if (queryParams == null)
@@ -599,6 +606,11 @@ public abstract class RequestBuilderBase<T extends RequestBuilderBase<T>> {
         return derived.cast(this);
     }
 
+    public T setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        request.hedgingPolicy = hedgingPolicy;
+        return derived.cast(this);
+    }
+
     public T setSignatureCalculator(SignatureCalculator signatureCalculator) {
         this.signatureCalculator = signatureCalculator;
         return derived.cast(this);
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monotonic timestamps, from {@link System#nanoTime()}, of the phases of a request. When a request is retried or
+ * follows a redirect, only the phases of the last attempt are kept.
+ *
+ * Durations are in nanoseconds, and are -1 when a phase didn't happen, e.g. there's no DNS resolution, TCP connect
+ * or TLS handshake when a pooled connection is reused.
+ */
+public final class RequestTimings {
+
+    public enum Event {
+        REQUEST_START, //
+        POOL_POLL_START, //
+        POOL_POLL_END, //
+        DNS_START, //
+        DNS_END, //
+        CONNECT_START, //
+        CONNECT_END, //
+        TLS_HANDSHAKE_START, //
+        TLS_HANDSHAKE_END, //
+        REQUEST_WRITTEN, //
+        FIRST_BYTE, //
+        LAST_BYTE;
+    }
+
+    private final AtomicLongArray timestamps = new AtomicLongArray(Event.values().length);
+
+    public RequestTimings() {
+        record(Event.REQUEST_START);
+    }
+
+    /**
+     * Record that an event happened now. Looking for a connection starts a new attempt and discards the events of
+     * the previous one.
+     *
+     * @param event the event
+     */
+    public void record(Event event) {
+        if (event == Event.POOL_POLL_START) {
+            for (int i = Event.POOL_POLL_END.ordinal(); i < timestamps.length(); i++)
+                timestamps.set(i, 0L);
+        }
+        timestamps.set(event.ordinal(), System.nanoTime());
+    }
+
+    /**
+     * @param event the event
+     * @return the {@link System#nanoTime()} when the event happened, or 0 if it didn't
+     */
+    public long getTimestamp(Event event) {
+        return timestamps.get(event.ordinal());
+    }
+
+    /**
+     * @param from the first event
+     * @param to the second event
+     * @return the nanos elapsed between both events, or -1 if one of them didn't happen
+     */
+    public long between(Event from, Event to) {
+        long start = getTimestamp(from);
+        long end = getTimestamp(to);
+        return start != 0L && end != 0L && end - start >= 0L ? end - start : -1L;
+    }
+
+    /**
+     * @return the time between the request being handed to the provider and looking for a connection
+     */
+    public long getQueueWaitNanos() {
+        return between(Event.REQUEST_START, Event.POOL_POLL_START);
+    }
+
+    public long getPoolPollNanos() {
+        return between(Event.POOL_POLL_START, Event.POOL_POLL_END);
+    }
+
+    public long getDnsResolutionNanos() {
+        return between(Event.DNS_START, Event.DNS_END);
+    }
+
+    public long getConnectNanos() {
+        return between(Event.CONNECT_START, Event.CONNECT_END);
+    }
+
+    public long getTlsHandshakeNanos() {
+        return between(Event.TLS_HANDSHAKE_START, Event.TLS_HANDSHAKE_END);
+    }
+
+    /**
+     * @return the time between the connection being ready and the request being fully written
+     */
+    public long getRequestWriteNanos() {
+        Event connectionReady = getTimestamp(Event.TLS_HANDSHAKE_END) != 0L ? Event.TLS_HANDSHAKE_END
+                : getTimestamp(Event.CONNECT_END) != 0L ? Event.CONNECT_END : Event.POOL_POLL_END;
+        return between(connectionReady, Event.REQUEST_WRITTEN);
+    }
+
+    /**
+     * @return the time between the request being fully written and the response status line being received
+     */
+    public long getTimeToFirstByteNanos() {
+        return between(Event.REQUEST_WRITTEN, Event.FIRST_BYTE);
+    }
+
+    /**
+     * @return the time between the response status line and the end of the response
+     */
+    public long getContentDownloadNanos() {
+        return between(Event.FIRST_BYTE, Event.LAST_BYTE);
+    }
+
+    /**
+     * @return the time between the request being handed to the provider and the end of the response
+     */
+    public long getTotalNanos() {
+        return between(Event.REQUEST_START, Event.LAST_BYTE);
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTimings(queueWait=" + getQueueWaitNanos() + ", poolPoll=" + getPoolPollNanos() + ", dnsResolution=" + getDnsResolutionNanos()
+                + ", connect=" + getConnectNanos() + ", tlsHandshake=" + getTlsHandshakeNanos() + ", requestWrite=" + getRequestWriteNanos()
+                + ", timeToFirstByte=" + getTimeToFirstByteNanos() + ", contentDownload=" + getContentDownloadNanos() + ", total=" + getTotalNanos()
+                + ")";
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient;
+
+/**
+ * Notified with the {@link RequestTimings} of every request once it's completed, failed or cancelled, e.g. to feed
+ * latency histograms per phase and per host without wrapping every {@link AsyncHandler}.
+ *
+ * Invoked from an I/O thread, or from the thread cancelling the request: implementations must be fast and thread
+ * safe.
+ */
+public interface RequestTimingsListener {
+
+    /**
+     * @param request the request as last sent, e.g. after redirects
+     * @param timings the timings of the request
+     * @param cause the failure, or null if the request completed
+     */
+    void onRequestTimings(Request request, RequestTimings timings, Throwable cause);
+}
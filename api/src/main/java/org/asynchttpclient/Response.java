@@ -174,6 +174,13 @@ public interface Response {
      *         if asynchronous provider is unable to provide the local address
      */
     SocketAddress getLocalAddress();
+
+    /**
+     * Get the timings of the phases of the request.
+     * 
+     * @return the timings, may be {@code null} if the provider doesn't record them, e.g. for a cached response
+     */
+    RequestTimings getTimings();
     
     class ResponseBuilder {
         private final List<HttpResponseBodyPart> bodyParts = new ArrayList<>();
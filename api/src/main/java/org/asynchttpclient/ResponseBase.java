@@ -63,6 +63,11 @@ public abstract class ResponseBase implements Response {
         return status.getLocalAddress();
     }
 
+    @Override
+    public RequestTimings getTimings() {
+        return status.getTimings();
+    }
+
     @Override
     public final String getContentType() {
         return headers != null ? getHeader("Content-Type") : null;
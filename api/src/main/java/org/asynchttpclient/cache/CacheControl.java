@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import java.util.List;
+
+/**
+ * Parsed <code>Cache-Control</code> directives, see <a href="http://tools.ietf.org/html/rfc7234#section-5.2">RFC 7234 section 5.2</a>.
+ * Delta-seconds directives that are absent are reported as <code>-1</code>.
+ */
+public final class CacheControl {
+
+    private static final CacheControl EMPTY = new CacheControl(false, false, false, false, false, false, -1, -1, -1, -1);
+
+    private final boolean noStore;
+    private final boolean noCache;
+    private final boolean mustRevalidate;
+    private final boolean privateCache;
+    private final boolean publicCache;
+    private final boolean onlyIfCached;
+    private final long maxAge;
+    private final long sMaxAge;
+    private final long maxStale;
+    private final long minFresh;
+
+    private CacheControl(boolean noStore, boolean noCache, boolean mustRevalidate, boolean privateCache, boolean publicCache, boolean onlyIfCached,
+            long maxAge, long sMaxAge, long maxStale, long minFresh) {
+        this.noStore = noStore;
+        this.noCache = noCache;
+        this.mustRevalidate = mustRevalidate;
+        this.privateCache = privateCache;
+        this.publicCache = publicCache;
+        this.onlyIfCached = onlyIfCached;
+        this.maxAge = maxAge;
+        this.sMaxAge = sMaxAge;
+        this.maxStale = maxStale;
+        this.minFresh = minFresh;
+    }
+
+    /**
+     * Parse the values of all the <code>Cache-Control</code> headers of a message.
+     *
+     * @param values the header values, may be null
+     * @return the parsed directives, never null
+     */
+    public static CacheControl parse(List<String> values) {
+        if (values == null || values.isEmpty())
+            return EMPTY;
+
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean mustRevalidate = false;
+        boolean privateCache = false;
+        boolean publicCache = false;
+        boolean onlyIfCached = false;
+        long maxAge = -1;
+        long sMaxAge = -1;
+        long maxStale = -1;
+        long minFresh = -1;
+
+        for (String value : values) {
+            if (value == null)
+                continue;
+            for (String directive : value.split(",")) {
+                directive = directive.trim();
+                if (directive.isEmpty())
+                    continue;
+
+                String name;
+                String argument;
+                int eq = directive.indexOf('=');
+                if (eq == -1) {
+                    name = directive;
+                    argument = null;
+                } else {
+                    name = directive.substring(0, eq).trim();
+                    argument = unquote(directive.substring(eq + 1).trim());
+                }
+
+                switch (name.toLowerCase()) {
+                case "no-store":
+                    noStore = true;
+                    break;
+                case "no-cache":
+                    noCache = true;
+                    break;
+                case "must-revalidate":
+                case "proxy-revalidate":
+                    mustRevalidate = true;
+                    break;
+                case "private":
+                    privateCache = true;
+                    break;
+                case "public":
+                    publicCache = true;
+                    break;
+                case "only-if-cached":
+                    onlyIfCached = true;
+                    break;
+                case "max-age":
+                    maxAge = parseDeltaSeconds(argument, maxAge);
+                    break;
+                case "s-maxage":
+                    sMaxAge = parseDeltaSeconds(argument, sMaxAge);
+                    break;
+                case "max-stale":
+                    // max-stale without argument means any staleness is acceptable
+                    maxStale = argument == null ? Long.MAX_VALUE : parseDeltaSeconds(argument, maxStale);
+                    break;
+                case "min-fresh":
+                    minFresh = parseDeltaSeconds(argument, minFresh);
+                    break;
+                default:
+                    // unknown extensions must be ignored
+                }
+            }
+        }
+
+        return new CacheControl(noStore, noCache, mustRevalidate, privateCache, publicCache, onlyIfCached, maxAge, sMaxAge, maxStale, minFresh);
+    }
+
+    private static String unquote(String s) {
+        return s.length() > 1 && s.charAt(0) == '"' && s.charAt(s.length() - 1) == '"' ? s.substring(1, s.length() - 1) : s;
+    }
+
+    private static long parseDeltaSeconds(String argument, long defaultValue) {
+        if (argument == null)
+            return defaultValue;
+        try {
+            long value = Long.parseLong(argument);
+            return value < 0 ? defaultValue : value;
+        } catch (NumberFormatException e) {
+            // RFC 7234 section 1.2.1: overflowing values must be treated as 2^31
+            return argument.matches("\\d+") ? Integer.MAX_VALUE : defaultValue;
+        }
+    }
+
+    public boolean isNoStore() {
+        return noStore;
+    }
+
+    public boolean isNoCache() {
+        return noCache;
+    }
+
+    public boolean isMustRevalidate() {
+        return mustRevalidate;
+    }
+
+    public boolean isPrivate() {
+        return privateCache;
+    }
+
+    public boolean isPublic() {
+        return publicCache;
+    }
+
+    public boolean isOnlyIfCached() {
+        return onlyIfCached;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public long getSMaxAge() {
+        return sMaxAge;
+    }
+
+    public long getMaxStale() {
+        return maxStale;
+    }
+
+    public long getMinFresh() {
+        return minFresh;
+    }
+}
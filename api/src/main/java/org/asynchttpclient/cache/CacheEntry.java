@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import java.nio.ByteBuffer;
+import java.text.ParsePosition;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.cookie.RFC2616DateParser;
+
+/**
+ * An immutable stored response, along with what's needed to compute its age and to select it again, see
+ * <a href="http://tools.ietf.org/html/rfc7234#section-4">RFC 7234 section 4</a>.
+ */
+public final class CacheEntry {
+
+    /**
+     * Fraction of the time since <code>Last-Modified</code> used as heuristic freshness, as suggested by RFC 7234 section 4.2.2.
+     */
+    private static final double HEURISTIC_FRACTION = 0.1;
+
+    private final int statusCode;
+    private final String statusText;
+    private final FluentCaseInsensitiveStringsMap headers;
+    private final ByteBuffer body;
+    private final long requestTime;
+    private final long responseTime;
+    private final Map<String, List<String>> varyHeaders;
+
+    /**
+     * @param statusCode the response status code
+     * @param statusText the response status text
+     * @param headers the response headers
+     * @param body the response body, must not be modified afterwards
+     * @param requestTime wall clock time in millis when the request was sent
+     * @param responseTime wall clock time in millis when the response was received
+     * @param varyHeaders values of the request headers nominated by the response <code>Vary</code> header
+     */
+    public CacheEntry(int statusCode, String statusText, FluentCaseInsensitiveStringsMap headers, ByteBuffer body, long requestTime, long responseTime,
+            Map<String, List<String>> varyHeaders) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.headers = headers;
+        this.body = body.asReadOnlyBuffer();
+        this.requestTime = requestTime;
+        this.responseTime = responseTime;
+        this.varyHeaders = varyHeaders != null ? varyHeaders : Collections.<String, List<String>> emptyMap();
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getStatusText() {
+        return statusText;
+    }
+
+    public FluentCaseInsensitiveStringsMap getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return a new read-only view over the body, so that concurrent readers don't share positions
+     */
+    public ByteBuffer getBody() {
+        return body.duplicate();
+    }
+
+    public int getBodyLength() {
+        return body.remaining();
+    }
+
+    public long getRequestTime() {
+        return requestTime;
+    }
+
+    public long getResponseTime() {
+        return responseTime;
+    }
+
+    public Map<String, List<String>> getVaryHeaders() {
+        return varyHeaders;
+    }
+
+    public String getETag() {
+        return headers.getFirstValue("ETag");
+    }
+
+    public String getLastModified() {
+        return headers.getFirstValue("Last-Modified");
+    }
+
+    public boolean hasValidators() {
+        return getETag() != null || getLastModified() != null;
+    }
+
+    public CacheControl getCacheControl() {
+        return CacheControl.parse(headers.get("Cache-Control"));
+    }
+
+    /**
+     * @param request a request about to be sent
+     * @return true if the request header fields nominated by <code>Vary</code> match the ones of the original request
+     */
+    public boolean matchesVary(Request request) {
+        for (Map.Entry<String, List<String>> vary : varyHeaders.entrySet()) {
+            if (!Objects.equals(vary.getValue(), request.getHeaders().get(vary.getKey())))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * See <a href="http://tools.ietf.org/html/rfc7234#section-4.2.3">RFC 7234 section 4.2.3</a>.
+     *
+     * @param now the current wall clock time in millis
+     * @return the current age in millis
+     */
+    public long currentAge(long now) {
+        long date = parseDate(headers.getFirstValue("Date"), responseTime);
+        long apparentAge = Math.max(0, responseTime - date);
+        long responseDelay = responseTime - requestTime;
+        long correctedAgeValue = parseAgeHeader() * 1000 + responseDelay;
+        long correctedInitialAge = Math.max(apparentAge, correctedAgeValue);
+        return correctedInitialAge + now - responseTime;
+    }
+
+    /**
+     * See <a href="http://tools.ietf.org/html/rfc7234#section-4.2.1">RFC 7234 section 4.2.1</a>. A private cache ignores
+     * <code>s-maxage</code>.
+     *
+     * @return the freshness lifetime in millis
+     */
+    public long freshnessLifetime() {
+        CacheControl cacheControl = getCacheControl();
+        if (cacheControl.getMaxAge() >= 0)
+            return cacheControl.getMaxAge() * 1000;
+
+        String expiresHeader = headers.getFirstValue("Expires");
+        if (expiresHeader != null) {
+            long date = parseDate(headers.getFirstValue("Date"), responseTime);
+            // invalid dates such as "0" represent a time in the past
+            long expires = parseDate(expiresHeader, 0L);
+            return Math.max(0, expires - date);
+        }
+
+        String lastModifiedHeader = getLastModified();
+        if (lastModifiedHeader != null && isHeuristicallyCacheable()) {
+            long date = parseDate(headers.getFirstValue("Date"), responseTime);
+            long lastModified = parseDate(lastModifiedHeader, date);
+            return (long) (Math.max(0, date - lastModified) * HEURISTIC_FRACTION);
+        }
+
+        return 0L;
+    }
+
+    /**
+     * @param requestCacheControl the request directives
+     * @param now the current wall clock time in millis
+     * @return true if the entry can be served without validation
+     */
+    public boolean isFresh(CacheControl requestCacheControl, long now) {
+        long lifetime = freshnessLifetime();
+        if (requestCacheControl.getMaxAge() >= 0)
+            lifetime = Math.min(lifetime, requestCacheControl.getMaxAge() * 1000);
+
+        long age = currentAge(now);
+        if (requestCacheControl.getMinFresh() >= 0)
+            age += requestCacheControl.getMinFresh() * 1000;
+
+        if (age < lifetime)
+            return true;
+
+        // stale, but the client is fine with it unless the origin forbids it
+        long maxStale = requestCacheControl.getMaxStale();
+        return maxStale >= 0 && !getCacheControl().isMustRevalidate()
+                && (maxStale == Long.MAX_VALUE || age - lifetime < maxStale * 1000);
+    }
+
+    /**
+     * Build a new entry after a successful validation: the stored headers get updated with the ones of the 304
+     * response, see <a href="http://tools.ietf.org/html/rfc7234#section-4.3.4">RFC 7234 section 4.3.4</a>.
+     *
+     * @param notModifiedHeaders the headers of the 304 response
+     * @param requestTime wall clock time in millis when the validation request was sent
+     * @param responseTime wall clock time in millis when the 304 response was received
+     * @return the refreshed entry
+     */
+    public CacheEntry withRevalidatedHeaders(FluentCaseInsensitiveStringsMap notModifiedHeaders, long requestTime, long responseTime) {
+        FluentCaseInsensitiveStringsMap merged = new FluentCaseInsensitiveStringsMap(headers);
+        for (Map.Entry<String, List<String>> header : notModifiedHeaders) {
+            String name = header.getKey();
+            // the 304 doesn't describe the stored payload
+            if (!name.equalsIgnoreCase("Content-Length") && !name.equalsIgnoreCase("Transfer-Encoding"))
+                merged.replaceWith(name, header.getValue());
+        }
+        return new CacheEntry(statusCode, statusText, merged, body, requestTime, responseTime, varyHeaders);
+    }
+
+    private boolean isHeuristicallyCacheable() {
+        switch (statusCode) {
+        case 200:
+        case 203:
+        case 204:
+        case 206:
+        case 300:
+        case 301:
+        case 404:
+        case 405:
+        case 410:
+        case 414:
+        case 501:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private long parseAgeHeader() {
+        String age = headers.getFirstValue("Age");
+        if (age != null) {
+            try {
+                return Math.max(0, Long.parseLong(age.trim()));
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return 0L;
+    }
+
+    static long parseDate(String value, long defaultValue) {
+        if (value == null)
+            return defaultValue;
+        Date date = RFC2616DateParser.get().parse(value.trim(), new ParsePosition(0));
+        return date != null ? date.getTime() : defaultValue;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+/**
+ * Storage backend of an {@link HttpResponseCache}. Implementations must be thread safe and are expected to bound
+ * their footprint by evicting entries on their own.
+ */
+public interface CacheStore {
+
+    /**
+     * @param key the primary cache key
+     * @return the stored entry, or null
+     */
+    CacheEntry get(String key);
+
+    /**
+     * Store an entry, replacing any previous one with the same key.
+     *
+     * @param key the primary cache key
+     * @param entry the entry
+     */
+    void put(String key, CacheEntry entry);
+
+    /**
+     * @param key the primary cache key
+     */
+    void remove(String key);
+
+    /**
+     * Drop all the entries.
+     */
+    void clear();
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import static org.asynchttpclient.util.MiscUtils.isNonEmpty;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.ResponseBase;
+import org.asynchttpclient.cookie.Cookie;
+import org.asynchttpclient.cookie.CookieDecoder;
+
+/**
+ * A {@link org.asynchttpclient.Response} built from replayed or buffered parts, that doesn't depend on any provider.
+ */
+public class CachedResponse extends ResponseBase {
+
+    public CachedResponse(HttpResponseStatus status, HttpResponseHeaders headers, List<HttpResponseBodyPart> bodyParts) {
+        super(status, headers, bodyParts);
+    }
+
+    @Override
+    protected List<Cookie> buildCookies() {
+
+        List<String> setCookieHeaders = headers.getHeaders().get("Set-Cookie2");
+
+        if (!isNonEmpty(setCookieHeaders)) {
+            setCookieHeaders = headers.getHeaders().get("Set-Cookie");
+        }
+
+        if (isNonEmpty(setCookieHeaders)) {
+            List<Cookie> cookies = new ArrayList<>();
+            for (String value : setCookieHeaders) {
+                Cookie c = CookieDecoder.decode(value);
+                if (c != null)
+                    cookies.add(c);
+            }
+            return Collections.unmodifiableList(cookies);
+        }
+
+        return Collections.emptyList();
+    }
+
+    @Override
+    public byte[] getResponseBodyAsBytes() throws IOException {
+        return getResponseBodyAsByteBuffer().array();
+    }
+
+    @Override
+    public ByteBuffer getResponseBodyAsByteBuffer() throws IOException {
+
+        int length = 0;
+        for (HttpResponseBodyPart part : bodyParts)
+            length += part.length();
+
+        ByteBuffer target = ByteBuffer.wrap(new byte[length]);
+        for (HttpResponseBodyPart part : bodyParts)
+            target.put(part.getBodyByteBuffer());
+
+        return target;
+    }
+
+    @Override
+    public String getResponseBody() throws IOException {
+        return getResponseBody(null);
+    }
+
+    @Override
+    public String getResponseBody(Charset charset) throws IOException {
+        return new String(getResponseBodyAsBytes(), calculateCharset(charset));
+    }
+
+    @Override
+    public InputStream getResponseBodyAsStream() throws IOException {
+        return new ByteArrayInputStream(getResponseBodyAsBytes());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.asynchttpclient.HttpResponseBodyPart;
+
+/**
+ * A {@link HttpResponseBodyPart} replayed from a {@link CacheEntry}. The whole body is delivered as a single last part.
+ */
+public class CachedResponseBodyPart extends HttpResponseBodyPart {
+
+    private final ByteBuffer body;
+    private final boolean last;
+
+    public CachedResponseBodyPart(ByteBuffer body, boolean last) {
+        this.body = body;
+        this.last = last;
+    }
+
+    @Override
+    public int length() {
+        return body.remaining();
+    }
+
+    @Override
+    public byte[] getBodyPartBytes() {
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public InputStream readBodyPartBytes() {
+        return new ByteArrayInputStream(getBodyPartBytes());
+    }
+
+    @Override
+    public int writeTo(OutputStream outputStream) throws IOException {
+        byte[] bytes = getBodyPartBytes();
+        outputStream.write(bytes);
+        return bytes.length;
+    }
+
+    @Override
+    public ByteBuffer getBodyByteBuffer() {
+        return body.duplicate();
+    }
+
+    @Override
+    public boolean isLast() {
+        return last;
+    }
+
+    @Override
+    public void markUnderlyingConnectionAsToBeClosed() {
+    }
+
+    @Override
+    public boolean isUnderlyingConnectionToBeClosed() {
+        return false;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import java.net.SocketAddress;
+import java.util.List;
+
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.uri.Uri;
+
+/**
+ * A {@link HttpResponseStatus} replayed from a {@link CacheEntry}. There's no connection, so addresses are null.
+ */
+public class CachedResponseStatus extends HttpResponseStatus {
+
+    private final int statusCode;
+    private final String statusText;
+
+    public CachedResponseStatus(Uri uri, AsyncHttpClientConfig config, int statusCode, String statusText) {
+        super(uri, config);
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+    }
+
+    @Override
+    public Response prepareResponse(HttpResponseHeaders headers, List<HttpResponseBodyPart> bodyParts) {
+        return new CachedResponse(this, headers, bodyParts);
+    }
+
+    @Override
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String getStatusText() {
+        return statusText;
+    }
+
+    @Override
+    public String getProtocolName() {
+        return "HTTP";
+    }
+
+    @Override
+    public int getProtocolMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getProtocolMinorVersion() {
+        return 1;
+    }
+
+    @Override
+    public String getProtocolText() {
+        return "HTTP/1.1";
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return null;
+    }
+}
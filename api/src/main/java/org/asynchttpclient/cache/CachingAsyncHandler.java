@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.handler.DelegatingAsyncHandler;
+import org.asynchttpclient.uri.Uri;
+
+/**
+ * An {@link AsyncHandler} wrapper that records the response while passing it through, and stores it in a
+ * {@link HttpResponseCache} once completed if it's cacheable. When the request is a revalidation, a 304 response is
+ * hidden from the wrapped handler that gets the stored response instead. When the request is unsafe, nothing is
+ * recorded and the cache gets invalidated once the response completed without an error status.
+ *
+ * @param <T> the result type
+ */
+public class CachingAsyncHandler<T> extends DelegatingAsyncHandler<T> {
+
+    private final HttpResponseCache cache;
+    private final String key;
+    private final Request request;
+    private final CacheEntry validated;
+    private final AsyncHttpClientConfig config;
+    private final long requestTime;
+    private final boolean invalidating;
+
+    private Uri responseUri;
+    private boolean recording;
+    private boolean notModified;
+    private int statusCode;
+    private String statusText;
+    private FluentCaseInsensitiveStringsMap headers;
+    private ByteArrayOutputStream body;
+
+    /**
+     * @param delegate the wrapped handler
+     * @param cache the cache where to store the response
+     * @param key the primary cache key, or null when the request is unsafe
+     * @param request the request as sent
+     * @param validated the stored entry being revalidated, or null
+     * @param config the client config
+     * @param requestTime wall clock time in millis when the request was issued
+     */
+    public CachingAsyncHandler(AsyncHandler<T> delegate, HttpResponseCache cache, String key, Request request, CacheEntry validated,
+            AsyncHttpClientConfig config, long requestTime) {
+        super(delegate);
+        this.cache = cache;
+        this.key = key;
+        this.request = request;
+        this.validated = validated;
+        this.config = config;
+        this.requestTime = requestTime;
+        invalidating = key == null;
+    }
+
+    /**
+     * Feed a stored response to a handler, stopping as soon as the handler doesn't want more.
+     * {@link AsyncHandler#onCompleted()} is not invoked.
+     *
+     * @param handler the handler
+     * @param entry the stored response
+     * @param uri the request uri
+     * @param config the client config
+     * @return the last state returned by the handler
+     * @throws Exception if the handler crashed
+     */
+    public static State replay(AsyncHandler<?> handler, CacheEntry entry, Uri uri, AsyncHttpClientConfig config) throws Exception {
+        State state = handler.onStatusReceived(new CachedResponseStatus(uri, config, entry.getStatusCode(), entry.getStatusText()));
+        if (state == State.CONTINUE)
+            state = handler.onHeadersReceived(new CachedResponseHeaders(entry.getHeaders()));
+        if (state == State.CONTINUE && entry.getBodyLength() > 0)
+            state = handler.onBodyPartReceived(new CachedResponseBodyPart(entry.getBody(), true));
+        return state;
+    }
+
+    @Override
+    public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+        if (invalidating) {
+            // the final response, after redirects, is the one that tells if the request succeeded
+            responseUri = responseStatus.getUri();
+            statusCode = responseStatus.getStatusCode();
+            headers = null;
+            return delegate.onStatusReceived(responseStatus);
+        }
+
+        // redirects and authentication are followed with the same handler: only the original uri is ours
+        boolean sameUri = request.getUri().equals(responseStatus.getUri());
+
+        if (validated != null && sameUri && responseStatus.getStatusCode() == 304) {
+            notModified = true;
+            return State.CONTINUE;
+        }
+
+        recording = sameUri && isCacheableStatus(responseStatus.getStatusCode());
+        if (recording) {
+            statusCode = responseStatus.getStatusCode();
+            statusText = responseStatus.getStatusText();
+            headers = new FluentCaseInsensitiveStringsMap();
+            body = new ByteArrayOutputStream();
+        }
+        return delegate.onStatusReceived(responseStatus);
+    }
+
+    @Override
+    public State onHeadersReceived(HttpResponseHeaders responseHeaders) throws Exception {
+        if (notModified) {
+            CacheEntry refreshed = validated.withRevalidatedHeaders(responseHeaders.getHeaders(), requestTime, System.currentTimeMillis());
+            if (CacheControl.parse(refreshed.getHeaders().get("Cache-Control")).isNoStore())
+                cache.getStore().remove(key);
+            else
+                cache.store(key, refreshed);
+            return replay(delegate, refreshed, request.getUri(), config);
+        }
+
+        if (recording)
+            headers.addAll(responseHeaders.getHeaders());
+        else if (invalidating)
+            headers = responseHeaders.getHeaders();
+        return delegate.onHeadersReceived(responseHeaders);
+    }
+
+    @Override
+    public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+        if (notModified)
+            // a 304 has no content, the stored body was already replayed
+            return State.CONTINUE;
+
+        if (recording)
+            record(bodyPart);
+        return delegate.onBodyPartReceived(bodyPart);
+    }
+
+    private void record(HttpResponseBodyPart bodyPart) {
+        ByteBuffer buffer;
+        try {
+            buffer = bodyPart.getBodyByteBuffer();
+        } catch (UnsupportedOperationException e) {
+            // lazy parts can't be retained once the callback returns
+            recording = false;
+            return;
+        }
+
+        if (body.size() + buffer.remaining() > cache.getMaxEntrySize()) {
+            recording = false;
+            body = null;
+        } else if (buffer.hasArray()) {
+            body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            body.write(bytes, 0, bytes.length);
+        }
+    }
+
+    @Override
+    public T onCompleted() throws Exception {
+        if (recording)
+            storeIfCacheable();
+        else if (invalidating && statusCode > 0 && statusCode < 400)
+            cache.invalidate(request.getUri(), responseUri, headers != null ? headers : new FluentCaseInsensitiveStringsMap());
+        return delegate.onCompleted();
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+        delegate.onThrowable(t);
+    }
+
+    private void storeIfCacheable() {
+        CacheControl cacheControl = CacheControl.parse(headers.get("Cache-Control"));
+        if (cacheControl.isNoStore())
+            return;
+
+        Map<String, List<String>> varyHeaders = new HashMap<>();
+        List<String> varies = headers.get("Vary");
+        if (varies != null) {
+            for (String vary : varies) {
+                for (String name : vary.split(",")) {
+                    name = name.trim();
+                    if (name.equals("*"))
+                        // can never be selected again
+                        return;
+                    if (!name.isEmpty())
+                        varyHeaders.put(name, request.getHeaders().get(name));
+                }
+            }
+        }
+
+        CacheEntry entry = new CacheEntry(statusCode, statusText, headers, ByteBuffer.wrap(body.toByteArray()), requestTime, System.currentTimeMillis(),
+                varyHeaders);
+
+        // storing responses that can neither be fresh nor be revalidated is pointless
+        if (entry.freshnessLifetime() > 0 || entry.hasValidators())
+            cache.store(key, entry);
+    }
+
+    private static boolean isCacheableStatus(int statusCode) {
+        switch (statusCode) {
+        case 200:
+        case 203:
+        case 204:
+        case 300:
+        case 301:
+        case 404:
+        case 405:
+        case 410:
+        case 414:
+        case 501:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.AsyncHttpProvider;
+import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.handler.StreamedAsyncHandler;
+import org.asynchttpclient.handler.TransferCompletionHandler;
+import org.asynchttpclient.handler.resumable.ResumableAsyncHandler;
+import org.asynchttpclient.uri.Uri;
+import org.asynchttpclient.ws.UpgradeHandler;
+
+/**
+ * A private client side HTTP cache, as described by <a href="http://tools.ietf.org/html/rfc7234">RFC 7234</a>.
+ *
+ * Fresh stored responses are replayed to the {@link AsyncHandler} without any network I/O. Stale ones that carry
+ * validators are revalidated with <code>If-None-Match</code>/<code>If-Modified-Since</code>, and a 304 is answered
+ * from the stored body. Successful responses to unsafe methods invalidate what's stored for the request {@link Uri} and
+ * for the same host {@link Uri}s in their <code>Location</code> and <code>Content-Location</code> headers.
+ *
+ * Only GET and HEAD requests without <code>Range</code> are served from the cache. Streamed, resumable and upgrade
+ * handlers always bypass it.
+ */
+public class HttpResponseCache {
+
+    public static final int DEFAULT_MAX_ENTRY_SIZE = 8 * 1024 * 1024;
+
+    private static final List<String> CACHED_METHODS = Collections.unmodifiableList(Arrays.asList("GET", "HEAD"));
+
+    private final CacheStore store;
+    private final int maxEntrySize;
+
+    public HttpResponseCache(CacheStore store) {
+        this(store, DEFAULT_MAX_ENTRY_SIZE);
+    }
+
+    /**
+     * @param store where to store the responses
+     * @param maxEntrySize responses with a larger body don't get stored
+     */
+    public HttpResponseCache(CacheStore store, int maxEntrySize) {
+        this.store = store;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public CacheStore getStore() {
+        return store;
+    }
+
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Execute a request, going through the cache when possible.
+     *
+     * @param request the request, after the {@link org.asynchttpclient.filter.RequestFilter}s were applied
+     * @param handler the handler
+     * @param provider the provider to use when the network has to be hit
+     * @param config the client config
+     * @return a {@link ListenableFuture}, already completed when the response was served from the cache
+     */
+    public <T> ListenableFuture<T> execute(Request request, AsyncHandler<T> handler, AsyncHttpProvider provider, AsyncHttpClientConfig config) {
+
+        String method = request.getMethod();
+        if (!CACHED_METHODS.contains(method)) {
+            if (isWrappable(handler))
+                return provider.execute(request, new CachingAsyncHandler<>(handler, this, null, request, null, config, System.currentTimeMillis()));
+            // the response can't be seen, so don't wait for it
+            invalidate(request.getUri());
+            return provider.execute(request, handler);
+        }
+
+        CacheControl requestCacheControl = CacheControl.parse(request.getHeaders().get("Cache-Control"));
+        if (!isCacheable(request, handler) || requestCacheControl.isNoStore())
+            return provider.execute(request, handler);
+
+        String key = key(method, request.getUri());
+        long now = System.currentTimeMillis();
+
+        CacheEntry entry = store.get(key);
+        if (entry != null && !entry.matchesVary(request))
+            entry = null;
+
+        boolean noCache = requestCacheControl.isNoCache() || isPragmaNoCache(request);
+
+        if (entry != null && !noCache && !entry.getCacheControl().isNoCache() && entry.isFresh(requestCacheControl, now))
+            return replay(entry, request.getUri(), handler, config, now);
+
+        if (requestCacheControl.isOnlyIfCached())
+            return replay(gatewayTimeout(now), request.getUri(), handler, config, now);
+
+        CacheEntry validated = null;
+        if (entry != null && entry.hasValidators() && !isConditional(request)) {
+            RequestBuilder builder = new RequestBuilder(request);
+            if (entry.getETag() != null)
+                builder.setHeader("If-None-Match", entry.getETag());
+            if (entry.getLastModified() != null)
+                builder.setHeader("If-Modified-Since", entry.getLastModified());
+            request = builder.build();
+            validated = entry;
+        }
+
+        return provider.execute(request, new CachingAsyncHandler<>(handler, this, key, request, validated, config, now));
+    }
+
+    /**
+     * Remove everything stored for a given {@link Uri}.
+     *
+     * @param uri the uri
+     */
+    public void invalidate(Uri uri) {
+        for (String method : CACHED_METHODS)
+            store.remove(key(method, uri));
+    }
+
+    /**
+     * Invalidate after an unsafe request got a non-error response, see RFC 7234 section 4.4.
+     */
+    void invalidate(Uri requestUri, Uri responseUri, FluentCaseInsensitiveStringsMap responseHeaders) {
+        invalidate(requestUri);
+        invalidateLocation(requestUri, responseUri, responseHeaders.getFirstValue("Location"));
+        invalidateLocation(requestUri, responseUri, responseHeaders.getFirstValue("Content-Location"));
+    }
+
+    private void invalidateLocation(Uri requestUri, Uri responseUri, String location) {
+        if (location == null)
+            return;
+        Uri uri;
+        try {
+            uri = Uri.create(responseUri, location.trim());
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        // another host can't have its entries invalidated, that would allow denial of service
+        if (requestUri.getHost().equalsIgnoreCase(uri.getHost()))
+            invalidate(uri);
+    }
+
+    void store(String key, CacheEntry entry) {
+        store.put(key, entry);
+    }
+
+    static String key(String method, Uri uri) {
+        return method + ' ' + uri.toUrl();
+    }
+
+    private static boolean isCacheable(Request request, AsyncHandler<?> handler) {
+        return request.getRangeOffset() == 0//
+                && !request.getHeaders().containsKey("Range")//
+                && isWrappable(handler);
+    }
+
+    private static boolean isWrappable(AsyncHandler<?> handler) {
+        return !(handler instanceof StreamedAsyncHandler)//
+                && !(handler instanceof ResumableAsyncHandler)//
+                && !(handler instanceof UpgradeHandler)//
+                // the provider only feeds its transfer listeners when it sees it unwrapped
+                && !(handler instanceof TransferCompletionHandler);
+    }
+
+    private static boolean isConditional(Request request) {
+        FluentCaseInsensitiveStringsMap headers = request.getHeaders();
+        return headers.containsKey("If-None-Match") || headers.containsKey("If-Modified-Since")//
+                || headers.containsKey("If-Match") || headers.containsKey("If-Unmodified-Since");
+    }
+
+    private static boolean isPragmaNoCache(Request request) {
+        // Pragma only matters when there's no Cache-Control, see RFC 7234 section 5.4
+        if (request.getHeaders().containsKey("Cache-Control"))
+            return false;
+        List<String> pragmas = request.getHeaders().get("Pragma");
+        if (pragmas != null) {
+            for (String pragma : pragmas) {
+                if (pragma.toLowerCase().contains("no-cache"))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static CacheEntry gatewayTimeout(long now) {
+        // RFC 7234 section 5.2.1.7: only-if-cached with nothing suitable stored gets a 504
+        return new CacheEntry(504, "Gateway Timeout", new FluentCaseInsensitiveStringsMap(), ByteBuffer.allocate(0), now, now, null);
+    }
+
+    private static <T> ListenableFuture<T> replay(CacheEntry entry, Uri uri, AsyncHandler<T> handler, AsyncHttpClientConfig config, long now) {
+        FluentCaseInsensitiveStringsMap headers = new FluentCaseInsensitiveStringsMap(entry.getHeaders());
+        headers.replaceWith("Age", String.valueOf(Math.max(0, entry.currentAge(now) / 1000)));
+        try {
+            CachingAsyncHandler.replay(handler, new CacheEntry(entry.getStatusCode(), entry.getStatusText(), headers, entry.getBody(),
+                    entry.getRequestTime(), entry.getResponseTime(), entry.getVaryHeaders()), uri, config);
+            return new ListenableFuture.CompletedSuccess<>(handler.onCompleted());
+        } catch (Throwable t) {
+            handler.onThrowable(t);
+            return new ListenableFuture.CompletedFailure<>(t);
+        }
+    }
+}
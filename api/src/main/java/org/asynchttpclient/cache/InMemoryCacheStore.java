@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+
+/**
+ * A {@link CacheStore} that keeps entries on the heap and evicts the least recently used ones once the total size
+ * of the stored bodies and headers goes above a given number of bytes.
+ */
+public class InMemoryCacheStore implements CacheStore {
+
+    private final long maxSize;
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * @param maxSize the maximum number of bytes this store may hold
+     */
+    public InMemoryCacheStore(long maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize must be strictly positive");
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public synchronized CacheEntry get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized void put(String key, CacheEntry entry) {
+        long entrySize = sizeOf(entry);
+        remove(key);
+        if (entrySize > maxSize)
+            return;
+
+        entries.put(key, entry);
+        size += entrySize;
+
+        Iterator<CacheEntry> it = entries.values().iterator();
+        while (size > maxSize && it.hasNext()) {
+            size -= sizeOf(it.next());
+            it.remove();
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        CacheEntry removed = entries.remove(key);
+        if (removed != null)
+            size -= sizeOf(removed);
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        size = 0L;
+    }
+
+    /**
+     * @return the number of bytes currently held
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    static long sizeOf(CacheEntry entry) {
+        long size = entry.getBodyLength();
+        FluentCaseInsensitiveStringsMap headers = entry.getHeaders();
+        for (Map.Entry<String, List<String>> header : headers) {
+            size += header.getKey().length();
+            for (String value : header.getValue())
+                size += value.length();
+        }
+        return size;
+    }
+}
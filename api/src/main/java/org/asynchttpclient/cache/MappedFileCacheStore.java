@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CacheStore} that writes one file per entry in a directory and reads them through read-only memory mapped
+ * buffers, so that cached payloads stay out of the heap between hits and survive restarts.
+ *
+ * Each file is mapped once and the mapping is released as soon as its entry is removed or evicted. A hit copies its
+ * body out of the mapping into a heap buffer, so that no reader can be left with an unmapped buffer. Hits are read
+ * concurrently, only writes and evictions are exclusive.
+ *
+ * Files are named after the SHA-1 of the key and written through a temporary file and an atomic rename. The least
+ * recently used files get deleted once their total size goes above a given number of bytes.
+ */
+public class MappedFileCacheStore implements CacheStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileCacheStore.class);
+
+    private static final int MAGIC = 0xAC4C0001;
+    private static final String SUFFIX = ".entry";
+
+    // Java 9+ releases mappings through Unsafe.invokeCleaner, older versions through the buffer's own cleaner
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Exception e) {
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final File directory;
+    private final long maxSize;
+    // readers copy out of the mappings under the read lock, mappings are only released under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // key -> file size, in access order. A lookup reorders it and may add a mapping, so readers also lock on it
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, MappedByteBuffer> mappings = new HashMap<>();
+    private long size;
+
+    /**
+     * @param directory the directory where to store the entries, created if needed
+     * @param maxSize the maximum number of bytes the entry files may use
+     * @throws IOException if the directory can't be created or read
+     */
+    public MappedFileCacheStore(File directory, long maxSize) throws IOException {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize must be strictly positive");
+        this.directory = directory;
+        this.maxSize = maxSize;
+        Files.createDirectories(directory.toPath());
+        loadIndex();
+    }
+
+    private void loadIndex() {
+        File[] files = directory.listFiles();
+        if (files == null)
+            return;
+
+        // oldest first, so that access order roughly matches modification order
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+
+        for (File file : files) {
+            if (!file.getName().endsWith(SUFFIX))
+                continue;
+            try {
+                String key = readKey(file);
+                if (key != null && file.equals(fileFor(key))) {
+                    index.put(key, file.length());
+                    size += file.length();
+                    continue;
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Can't read cache entry {}", file, e);
+            }
+            delete(file);
+        }
+        evict();
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        File file = fileFor(key);
+        lock.readLock().lock();
+        try {
+            MappedByteBuffer mapped;
+            synchronized (index) {
+                if (index.get(key) == null)
+                    return null;
+                mapped = mappings.get(key);
+                if (mapped == null) {
+                    mapped = map(file);
+                    mappings.put(key, mapped);
+                }
+            }
+            CacheEntry entry = read(mapped.duplicate(), key);
+            if (entry != null)
+                return entry;
+        } catch (IOException e) {
+            LOGGER.debug("Can't read cache entry {}", file, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        remove(key);
+        return null;
+    }
+
+    @Override
+    public void put(String key, CacheEntry entry) {
+        lock.writeLock().lock();
+        try {
+            put0(key, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put0(String key, CacheEntry entry) {
+        remove0(key);
+
+        File file = fileFor(key);
+        File tmp = new File(directory, file.getName() + ".tmp");
+        try {
+            byte[] meta = encodeMeta(key, entry);
+            ByteBuffer body = entry.getBody();
+            long fileSize = 8L + meta.length + body.remaining();
+            if (fileSize > maxSize)
+                return;
+
+            try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer prefix = ByteBuffer.allocate(8).putInt(MAGIC).putInt(meta.length);
+                prefix.flip();
+                writeFully(channel, prefix);
+                writeFully(channel, ByteBuffer.wrap(meta));
+                writeFully(channel, body);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            index.put(key, fileSize);
+            size += fileSize;
+            evict();
+
+        } catch (IOException e) {
+            LOGGER.debug("Can't write cache entry {}", file, e);
+            delete(tmp);
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            remove0(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove0(String key) {
+        Long removed = index.remove(key);
+        if (removed != null) {
+            size -= removed;
+            release(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (String key : new ArrayList<>(index.keySet()))
+                remove0(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of bytes currently used by the entry files
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            size -= eldest.getValue();
+            release(eldest.getKey());
+        }
+    }
+
+    private void release(String key) {
+        MappedByteBuffer mapped = mappings.remove(key);
+        if (mapped != null)
+            unmap(mapped);
+        delete(fileFor(key));
+    }
+
+    private File fileFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return new File(directory, sb.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete())
+            LOGGER.debug("Can't delete cache file {}", file);
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid once the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void unmap(MappedByteBuffer mapped) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, mapped);
+            } else {
+                Method cleanerMethod = mapped.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(mapped);
+                if (cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            // the mapping will be released when the buffer gets collected
+            LOGGER.debug("Can't unmap cache entry", e);
+        }
+    }
+
+    private static DataInputStream metaStream(ByteBuffer mapped) throws IOException {
+        if (mapped.remaining() < 8 || mapped.getInt() != MAGIC)
+            throw new IOException("Not a cache entry");
+        int metaLength = mapped.getInt();
+        if (metaLength < 0 || metaLength > mapped.remaining())
+            throw new IOException("Corrupted cache entry");
+        byte[] meta = new byte[metaLength];
+        mapped.get(meta);
+        return new DataInputStream(new ByteArrayInputStream(meta));
+    }
+
+    private static String readKey(File file) throws IOException {
+        MappedByteBuffer mapped = map(file);
+        try {
+            return metaStream(mapped.duplicate()).readUTF();
+        } finally {
+            unmap(mapped);
+        }
+    }
+
+    private static CacheEntry read(ByteBuffer mapped, String expectedKey) throws IOException {
+        DataInputStream in = metaStream(mapped);
+
+        if (!expectedKey.equals(in.readUTF()))
+            return null;
+
+        int statusCode = in.readInt();
+        String statusText = in.readUTF();
+        long requestTime = in.readLong();
+        long responseTime = in.readLong();
+
+        FluentCaseInsensitiveStringsMap headers = new FluentCaseInsensitiveStringsMap();
+        int headerCount = in.readInt();
+        for (int i = 0; i < headerCount; i++) {
+            String name = in.readUTF();
+            headers.add(name, readValues(in));
+        }
+
+        Map<String, List<String>> varyHeaders = new HashMap<>();
+        int varyCount = in.readInt();
+        for (int i = 0; i < varyCount; i++) {
+            String name = in.readUTF();
+            varyHeaders.put(name, in.readBoolean() ? readValues(in) : null);
+        }
+
+        // body is what's left after the meta section, copied so that the mapping can go away with the entry
+        ByteBuffer body = ByteBuffer.allocate(mapped.remaining());
+        body.put(mapped).flip();
+        return new CacheEntry(statusCode, statusText, headers, body, requestTime, responseTime, varyHeaders);
+    }
+
+    private static List<String> readValues(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            values.add(in.readUTF());
+        return values;
+    }
+
+    private static byte[] encodeMeta(String key, CacheEntry entry) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeUTF(key);
+            out.writeInt(entry.getStatusCode());
+            out.writeUTF(entry.getStatusText() != null ? entry.getStatusText() : "");
+            out.writeLong(entry.getRequestTime());
+            out.writeLong(entry.getResponseTime());
+
+            out.writeInt(entry.getHeaders().size());
+            for (Map.Entry<String, List<String>> header : entry.getHeaders()) {
+                out.writeUTF(header.getKey());
+                writeValues(out, header.getValue());
+            }
+
+            out.writeInt(entry.getVaryHeaders().size());
+            for (Map.Entry<String, List<String>> vary : entry.getVaryHeaders().entrySet()) {
+                out.writeUTF(vary.getKey());
+                out.writeBoolean(vary.getValue() != null);
+                if (vary.getValue() != null)
+                    writeValues(out, vary.getValue());
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static void writeValues(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values)
+            out.writeUTF(value);
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.AsyncHttpProvider;
+import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Realm;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
+import org.asynchttpclient.cookie.Cookie;
+import org.asynchttpclient.future.AbstractListenableFuture;
+import org.asynchttpclient.handler.StreamedAsyncHandler;
+import org.asynchttpclient.handler.TransferCompletionHandler;
+import org.asynchttpclient.handler.resumable.ResumableAsyncHandler;
+import org.asynchttpclient.proxy.ProxyServer;
+import org.asynchttpclient.uri.Uri;
+import org.asynchttpclient.ws.UpgradeHandler;
+
+/**
+ * An {@link AsyncHttpProvider} decorator that implements single-flight: concurrent GET and HEAD requests with the
+ * same uri, headers, cookies, realm and proxy share one in-flight exchange. The response is buffered, then replayed
+ * to every waiting {@link AsyncHandler}. Each waiter gets its own future and can be cancelled on its own; the
+ * exchange is only cancelled once nobody waits for it anymore.
+ *
+ * A response that can't be buffered, because its body is larger than a given size or because the provider delivers
+ * lazy body parts, falls back to no coalescing: the first waiter gets the response passed through, the other ones
+ * send their own request. Once a lazy body part was seen, requests are no longer coalesced at all.
+ */
+public class RequestCoalescer implements AsyncHttpProvider {
+
+    public static final int DEFAULT_MAX_BODY_SIZE = 8 * 1024 * 1024;
+
+    private static final Executor SAME_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final AsyncHttpProvider delegate;
+    private final AsyncHttpClientConfig config;
+    private final int maxBodySize;
+    private final ConcurrentHashMap<String, Exchange> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean lazyBodyParts;
+
+    public RequestCoalescer(AsyncHttpProvider delegate, AsyncHttpClientConfig config) {
+        this(delegate, config, DEFAULT_MAX_BODY_SIZE);
+    }
+
+    /**
+     * @param delegate the provider that sends the requests
+     * @param config the client config
+     * @param maxBodySize responses with a larger body are not shared
+     */
+    public RequestCoalescer(AsyncHttpProvider delegate, AsyncHttpClientConfig config, int maxBodySize) {
+        this.delegate = delegate;
+        this.config = config;
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public <T> ListenableFuture<T> execute(Request request, AsyncHandler<T> handler) {
+        if (!isCoalescable(request, handler))
+            return delegate.execute(request, handler);
+
+        String key = key(request);
+        Waiter<T> waiter = new Waiter<>(handler);
+
+        while (true) {
+            Exchange exchange = inFlight.get(key);
+            if (exchange == null) {
+                exchange = new Exchange(key);
+                if (inFlight.putIfAbsent(key, exchange) == null) {
+                    exchange.add(waiter);
+                    exchange.start(request);
+                    return waiter;
+                }
+            } else if (exchange.add(waiter)) {
+                return waiter;
+            }
+            // exchange completed in the meantime, try again
+        }
+    }
+
+    @Override
+    public ListenableFuture<Integer> warmUp(Request request, int connections) {
+        return delegate.warmUp(request, connections);
+    }
+
+    @Override
+    public ConnectionPoolSnapshot getConnectionPoolSnapshot() {
+        return delegate.getConnectionPoolSnapshot();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * @return the number of exchanges currently in flight
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private boolean isCoalescable(Request request, AsyncHandler<?> handler) {
+        String method = request.getMethod();
+        return !lazyBodyParts//
+                && (method.equals("GET") || method.equals("HEAD"))//
+                && request.getRangeOffset() == 0//
+                && !(handler instanceof StreamedAsyncHandler)//
+                && !(handler instanceof ResumableAsyncHandler)//
+                && !(handler instanceof UpgradeHandler)//
+                && !(handler instanceof TransferCompletionHandler);
+    }
+
+    static String key(Request request) {
+        StringBuilder sb = new StringBuilder(128).append(request.getMethod()).append(' ').append(request.getUri().toUrl());
+
+        // header order doesn't change the semantics
+        TreeMap<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : request.getHeaders())
+            headers.put(header.getKey(), header.getValue());
+        for (Map.Entry<String, List<String>> header : headers.entrySet())
+            sb.append('\n').append(header.getKey().toLowerCase()).append(':').append(header.getValue());
+
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies())
+                sb.append("\ncookie:").append(cookie.getName()).append('=').append(cookie.getValue());
+        }
+
+        Realm realm = request.getRealm();
+        if (realm != null)
+            sb.append("\nrealm:").append(realm.getScheme()).append(':').append(realm.getPrincipal()).append(':').append(realm.getPassword());
+
+        ProxyServer proxy = request.getProxyServer();
+        if (proxy != null)
+            sb.append("\nproxy:").append(proxy.getUrl());
+
+        if (request.getVirtualHost() != null)
+            sb.append("\nvhost:").append(request.getVirtualHost());
+
+        return sb.toString();
+    }
+
+    /**
+     * One exchange on the wire, and the handlers waiting for its outcome.
+     */
+    private final class Exchange implements AsyncHandler<Void> {
+
+        private final String key;
+        private final List<Waiter<?>> waiters = new ArrayList<>();
+        private boolean completed;
+        private ListenableFuture<Void> networkFuture;
+        private Request request;
+        // the waiter the response is handed to once it can't be buffered
+        private volatile Waiter<?> passThrough;
+
+        private Uri uri;
+        private int statusCode;
+        private String statusText;
+        private FluentCaseInsensitiveStringsMap headers;
+        private ByteArrayOutputStream body;
+
+        Exchange(String key) {
+            this.key = key;
+        }
+
+        void start(Request request) {
+            this.request = request;
+            ListenableFuture<Void> future = delegate.execute(request, this);
+            synchronized (this) {
+                networkFuture = future;
+                if (waiters.isEmpty())
+                    // every waiter was cancelled before the exchange even started
+                    future.cancel(true);
+            }
+        }
+
+        synchronized boolean add(Waiter<?> waiter) {
+            if (completed)
+                return false;
+            waiters.add(waiter);
+            waiter.exchange = this;
+            return true;
+        }
+
+        void remove(Waiter<?> waiter) {
+            ListenableFuture<Void> toCancel = null;
+            synchronized (this) {
+                if (waiter == passThrough) {
+                    toCancel = networkFuture;
+                } else if (waiters.remove(waiter) && waiters.isEmpty() && !completed) {
+                    completed = true;
+                    inFlight.remove(key, this);
+                    toCancel = networkFuture;
+                }
+            }
+            if (toCancel != null)
+                toCancel.cancel(true);
+        }
+
+        void touch() {
+            ListenableFuture<Void> future;
+            synchronized (this) {
+                future = networkFuture;
+            }
+            if (future != null)
+                future.touch();
+        }
+
+        private List<Waiter<?>> complete() {
+            List<Waiter<?>> snapshot;
+            synchronized (this) {
+                completed = true;
+                snapshot = new ArrayList<>(waiters);
+            }
+            // new requests start a new exchange from now on
+            inFlight.remove(key, this);
+            return snapshot;
+        }
+
+        /**
+         * Stop buffering: hand the response to the first waiter and let the other ones send their own request.
+         */
+        private State passThrough(HttpResponseBodyPart pending) throws Exception {
+            List<Waiter<?>> snapshot;
+            synchronized (this) {
+                completed = true;
+                snapshot = new ArrayList<>(waiters);
+                if (!snapshot.isEmpty())
+                    passThrough = snapshot.get(0);
+            }
+            inFlight.remove(key, this);
+            if (snapshot.isEmpty())
+                return State.ABORT;
+
+            for (Waiter<?> waiter : snapshot.subList(1, snapshot.size()))
+                waiter.resend(request);
+            return snapshot.get(0).passThrough(uri, statusCode, statusText, headers, body.toByteArray(), pending);
+        }
+
+        @Override
+        public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+            Waiter<?> target = passThrough;
+            if (target != null)
+                return target.handler.onStatusReceived(responseStatus);
+
+            // called again if the provider retries or follows a redirect
+            uri = responseStatus.getUri();
+            statusCode = responseStatus.getStatusCode();
+            statusText = responseStatus.getStatusText();
+            headers = new FluentCaseInsensitiveStringsMap();
+            body = new ByteArrayOutputStream();
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onHeadersReceived(HttpResponseHeaders responseHeaders) throws Exception {
+            Waiter<?> target = passThrough;
+            if (target != null)
+                return target.handler.onHeadersReceived(responseHeaders);
+
+            headers.addAll(responseHeaders.getHeaders());
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+            Waiter<?> target = passThrough;
+            if (target != null)
+                return target.handler.onBodyPartReceived(bodyPart);
+
+            // parts might be recycled once the callback returns, so bytes have to be copied
+            ByteBuffer buffer;
+            try {
+                buffer = bodyPart.getBodyByteBuffer();
+            } catch (UnsupportedOperationException e) {
+                // lazy parts can't be retained once the callback returns
+                lazyBodyParts = true;
+                return passThrough(bodyPart);
+            }
+
+            if (body.size() + buffer.remaining() > maxBodySize) {
+                return passThrough(bodyPart);
+            } else if (buffer.hasArray()) {
+                body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.duplicate().get(bytes);
+                body.write(bytes, 0, bytes.length);
+            }
+            return State.CONTINUE;
+        }
+
+        @Override
+        public Void onCompleted() throws Exception {
+            Waiter<?> target = passThrough;
+            if (target != null) {
+                target.complete();
+                return null;
+            }
+
+            if (statusText == null) {
+                onThrowable(new IllegalStateException("Exchange completed without a response"));
+                return null;
+            }
+            CacheEntry response = new CacheEntry(statusCode, statusText, headers, ByteBuffer.wrap(body.toByteArray()), 0L, 0L, null);
+            for (Waiter<?> waiter : complete())
+                waiter.replay(response, uri);
+            return null;
+        }
+
+        @Override
+        public void onThrowable(Throwable t) {
+            Waiter<?> target = passThrough;
+            if (target != null) {
+                target.fail(t);
+                return;
+            }
+
+            for (Waiter<?> waiter : complete())
+                waiter.fail(t);
+        }
+    }
+
+    /**
+     * The future handed to one caller.
+     */
+    private final class Waiter<T> extends AbstractListenableFuture<T> {
+
+        private final AsyncHandler<T> handler;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile Exchange exchange;
+        private volatile ListenableFuture<T> resent;
+        private volatile T value;
+        private volatile ExecutionException exception;
+        private volatile boolean cancelled;
+
+        Waiter(AsyncHandler<T> handler) {
+            this.handler = handler;
+        }
+
+        void replay(CacheEntry response, Uri uri) {
+            if (!done.compareAndSet(false, true))
+                return;
+            try {
+                CachingAsyncHandler.replay(handler, response, uri, config);
+                value = handler.onCompleted();
+            } catch (Throwable t) {
+                handler.onThrowable(t);
+                exception = new ExecutionException(t);
+            }
+            finish();
+        }
+
+        AsyncHandler.State passThrough(Uri uri, int statusCode, String statusText, FluentCaseInsensitiveStringsMap headers, byte[] buffered,
+                HttpResponseBodyPart pending) throws Exception {
+            AsyncHandler.State state = handler.onStatusReceived(new CachedResponseStatus(uri, config, statusCode, statusText));
+            if (state == AsyncHandler.State.CONTINUE)
+                state = handler.onHeadersReceived(new CachedResponseHeaders(headers));
+            if (state == AsyncHandler.State.CONTINUE && buffered.length > 0)
+                state = handler.onBodyPartReceived(new CachedResponseBodyPart(ByteBuffer.wrap(buffered), false));
+            if (state == AsyncHandler.State.CONTINUE)
+                state = handler.onBodyPartReceived(pending);
+            return state;
+        }
+
+        void resend(Request request) {
+            if (done.get())
+                return;
+            final ListenableFuture<T> future = delegate.execute(request, handler);
+            resent = future;
+            if (done.get())
+                // cancelled in the meantime
+                future.cancel(true);
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (!done.compareAndSet(false, true))
+                        return;
+                    try {
+                        value = future.get();
+                    } catch (ExecutionException e) {
+                        exception = e;
+                    } catch (CancellationException e) {
+                        cancelled = true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        exception = new ExecutionException(e);
+                    }
+                    finish();
+                }
+            }, SAME_THREAD);
+        }
+
+        void complete() {
+            if (!done.compareAndSet(false, true))
+                return;
+            try {
+                value = handler.onCompleted();
+            } catch (Throwable t) {
+                handler.onThrowable(t);
+                exception = new ExecutionException(t);
+            }
+            finish();
+        }
+
+        void fail(Throwable t) {
+            if (!done.compareAndSet(false, true))
+                return;
+            try {
+                handler.onThrowable(t);
+            } finally {
+                exception = new ExecutionException(t);
+                finish();
+            }
+        }
+
+        private void finish() {
+            latch.countDown();
+            runListeners();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!done.compareAndSet(false, true))
+                return false;
+            cancelled = true;
+            ListenableFuture<T> r = resent;
+            if (r != null) {
+                // the provider notifies the handler
+                r.cancel(true);
+            } else {
+                try {
+                    handler.onThrowable(new CancellationException());
+                } catch (Throwable t) {
+                    // ignore
+                }
+                Exchange e = exchange;
+                if (e != null)
+                    e.remove(this);
+            }
+            finish();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return result();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!latch.await(timeout, unit))
+                throw new TimeoutException();
+            return result();
+        }
+
+        private T result() throws ExecutionException {
+            if (cancelled)
+                throw new CancellationException();
+            if (exception != null)
+                throw exception;
+            return value;
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public void abort(Throwable t) {
+            if (done.get())
+                return;
+            Exchange e = exchange;
+            if (e != null)
+                e.remove(this);
+            fail(t);
+        }
+
+        @Override
+        public void touch() {
+            ListenableFuture<T> r = resent;
+            Exchange e = exchange;
+            if (r != null)
+                r.touch();
+            else if (e != null)
+                e.touch();
+        }
+    }
+}
@@ -14,18 +14,25 @@ package org.asynchttpclient.channel;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
 
 public interface NameResolver {
 
-    InetAddress resolve(String name) throws UnknownHostException;
+    /**
+     * @param name the host name
+     * @return all the addresses of the host, in order of preference, never empty
+     * @throws UnknownHostException if the name can't be resolved
+     */
+    List<InetAddress> resolve(String name) throws UnknownHostException;
 
     enum JdkNameResolver implements NameResolver {
 
         INSTANCE;
 
         @Override
-        public InetAddress resolve(String name) throws UnknownHostException {
-            return InetAddress.getByName(name);
+        public List<InetAddress> resolve(String name) throws UnknownHostException {
+            return Arrays.asList(InetAddress.getAllByName(name));
         }
     }
 }
@@ -19,12 +19,30 @@ import org.asynchttpclient.util.AsyncHttpProviderUtils;
 public interface ConnectionPoolPartitioning {
 
     class ProxyPartitionKey {
+
         private final String proxyUrl;
         private final String targetHostBaseUrl;
+        private final int hashCode;
 
         public ProxyPartitionKey(String proxyUrl, String targetHostBaseUrl) {
             this.proxyUrl = proxyUrl;
             this.targetHostBaseUrl = targetHostBaseUrl;
+            hashCode = 31 * proxyUrl.hashCode() + targetHostBaseUrl.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof ProxyPartitionKey))
+                return false;
+            ProxyPartitionKey other = (ProxyPartitionKey) o;
+            return hashCode == other.hashCode && proxyUrl.equals(other.proxyUrl) && targetHostBaseUrl.equals(other.targetHostBaseUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
         }
 
         @Override
@@ -44,7 +62,12 @@ public interface ConnectionPoolPartitioning {
 
         public Object getPartitionKey(Uri uri, String virtualHost, ProxyServer proxyServer) {
             String targetHostBaseUrl = virtualHost != null ? virtualHost : AsyncHttpProviderUtils.getBaseUrl(uri);
-            return proxyServer != null ? new ProxyPartitionKey(proxyServer.getUrl(), targetHostBaseUrl) : targetHostBaseUrl;
+            if (proxyServer == null)
+                return targetHostBaseUrl;
+            // SOCKS credentials are bound to the connection, HTTP proxy ones are sent with each request
+            String proxyUrl = proxyServer.getProtocol().isSocks() && proxyServer.getPrincipal() != null ? proxyServer.getPrincipal() + "@"
+                    + proxyServer.getUrl() : proxyServer.getUrl();
+            return new ProxyPartitionKey(proxyUrl, targetHostBaseUrl);
         }
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.channel.pool;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A snapshot of the connections of a client, per partition key as produced by the {@link ConnectionPoolPartitioning}.
+ */
+public final class ConnectionPoolSnapshot {
+
+    public static final ConnectionPoolStats NO_STATS = new ConnectionPoolStats(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+
+    private final Map<Object, ConnectionPoolStats> partitions;
+    private final ConnectionPoolStats total;
+
+    public ConnectionPoolSnapshot(Map<Object, ConnectionPoolStats> partitions) {
+        this.partitions = Collections.unmodifiableMap(new HashMap<>(partitions));
+        ConnectionPoolStats total = NO_STATS;
+        for (ConnectionPoolStats stats : partitions.values())
+            total = total.plus(stats);
+        this.total = total;
+    }
+
+    /**
+     * @return the statistics of the whole client
+     */
+    public ConnectionPoolStats getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the statistics of every partition that ever had a connection
+     */
+    public Map<Object, ConnectionPoolStats> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @param partitionKey a partition key
+     * @return the statistics of the partition, all zero if it never had a connection
+     */
+    public ConnectionPoolStats getPartition(Object partitionKey) {
+        ConnectionPoolStats stats = partitions.get(partitionKey);
+        return stats != null ? stats : NO_STATS;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolSnapshot(total=" + total + ", partitions=" + partitions + ")";
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.channel.pool;
+
+/**
+ * Connection statistics, either of one pool partition or of the whole client. The counts are a snapshot, the
+ * counters are cumulative since the client was created.
+ */
+public final class ConnectionPoolStats {
+
+    private final long idle;
+    private final long active;
+    private final long pendingAcquire;
+    private final long created;
+    private final long reused;
+    private final long evictedIdle;
+    private final long evictedTtl;
+    private final long closedRemotely;
+
+    public ConnectionPoolStats(long idle, long active, long pendingAcquire, long created, long reused, long evictedIdle, long evictedTtl,
+            long closedRemotely) {
+        this.idle = idle;
+        this.active = active;
+        this.pendingAcquire = pendingAcquire;
+        this.created = created;
+        this.reused = reused;
+        this.evictedIdle = evictedIdle;
+        this.evictedTtl = evictedTtl;
+        this.closedRemotely = closedRemotely;
+    }
+
+    /**
+     * @return the number of connections sitting in the pool
+     */
+    public long getIdle() {
+        return idle;
+    }
+
+    /**
+     * @return the number of open connections that are not in the pool, i.e. in use
+     */
+    public long getActive() {
+        return active;
+    }
+
+    /**
+     * @return the number of connections being established for requests
+     */
+    public long getPendingAcquire() {
+        return pendingAcquire;
+    }
+
+    /**
+     * @return the number of connections opened so far
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return the number of times a pooled connection was handed out
+     */
+    public long getReused() {
+        return reused;
+    }
+
+    /**
+     * @return the number of pooled connections closed because they stayed idle for too long
+     */
+    public long getEvictedIdle() {
+        return evictedIdle;
+    }
+
+    /**
+     * @return the number of pooled connections closed because they exceeded the connection TTL
+     */
+    public long getEvictedTtl() {
+        return evictedTtl;
+    }
+
+    /**
+     * @return the number of pooled connections found closed by the remote peer
+     */
+    public long getClosedRemotely() {
+        return closedRemotely;
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public long getOpen() {
+        return idle + active;
+    }
+
+    /**
+     * @param other other statistics
+     * @return the sum of both statistics
+     */
+    public ConnectionPoolStats plus(ConnectionPoolStats other) {
+        return new ConnectionPoolStats(idle + other.idle,//
+                active + other.active,//
+                pendingAcquire + other.pendingAcquire,//
+                created + other.created,//
+                reused + other.reused,//
+                evictedIdle + other.evictedIdle,//
+                evictedTtl + other.evictedTtl,//
+                closedRemotely + other.closedRemotely);
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats(idle=" + idle + ", active=" + active + ", pendingAcquire=" + pendingAcquire + ", created=" + created
+                + ", reused=" + reused + ", evictedIdle=" + evictedIdle + ", evictedTtl=" + evictedTtl + ", closedRemotely=" + closedRemotely + ")";
+    }
+}
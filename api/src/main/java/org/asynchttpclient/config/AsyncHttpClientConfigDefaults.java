@@ -154,4 +154,44 @@ public final class AsyncHttpClientConfigDefaults {
     public static boolean defaultKeepEncodingHeader() {
         return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getBoolean(ASYNC_CLIENT_CONFIG_ROOT + "keepEncodingHeader");
     }
+    
+    public static boolean defaultCoalesceRequests() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getBoolean(ASYNC_CLIENT_CONFIG_ROOT + "coalesceRequests");
+    }
+    
+    public static int defaultCircuitBreakerFailureThreshold() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getInt(ASYNC_CLIENT_CONFIG_ROOT + "circuitBreakerFailureThreshold");
+    }
+    
+    public static int defaultCircuitBreakerOpenDuration() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getInt(ASYNC_CLIENT_CONFIG_ROOT + "circuitBreakerOpenDuration");
+    }
+    
+    public static int defaultConnectionAttemptDelay() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getInt(ASYNC_CLIENT_CONFIG_ROOT + "connectionAttemptDelay");
+    }
+    
+    public static int defaultMinIdleConnectionsPerHost() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getInt(ASYNC_CLIENT_CONFIG_ROOT + "minIdleConnectionsPerHost");
+    }
+    
+    public static int defaultMaxPipelinedRequests() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getInt(ASYNC_CLIENT_CONFIG_ROOT + "maxPipelinedRequests");
+    }
+    
+    public static boolean defaultOffloadCallbacks() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getBoolean(ASYNC_CLIENT_CONFIG_ROOT + "offloadCallbacks");
+    }
+    
+    public static int defaultMaxQueuedCallbacks() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getInt(ASYNC_CLIENT_CONFIG_ROOT + "maxQueuedCallbacks");
+    }
+    
+    public static String[] defaultAcceptEncodings() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getStringArray(ASYNC_CLIENT_CONFIG_ROOT + "acceptEncodings");
+    }
+    
+    public static int defaultRequestCompressionThreshold() {
+        return AsyncHttpClientConfigHelper.getAsyncHttpClientConfig().getInt(ASYNC_CLIENT_CONFIG_ROOT + "requestCompressionThreshold");
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cookie;
+
+import java.util.List;
+
+import org.asynchttpclient.uri.Uri;
+
+/**
+ * Keeps the cookies received with responses so that they get sent back with the next requests they match, as
+ * described in RFC 6265. Implementations are shared by all the requests of a client, so they must be thread safe.
+ */
+public interface CookieStore {
+
+    /**
+     * Store a cookie received in a response, or delete the stored one if it's already expired.
+     *
+     * @param uri the uri of the request the cookie was received for
+     * @param cookie the cookie
+     */
+    void add(Uri uri, Cookie cookie);
+
+    /**
+     * @param uri the uri of a request
+     * @return the non-expired cookies to send with the request, most specific paths first
+     */
+    List<Cookie> get(Uri uri);
+
+    /**
+     * @return all the non-expired stored cookies
+     */
+    List<Cookie> getAll();
+
+    /**
+     * Remove all the stored cookies.
+     */
+    void clear();
+}
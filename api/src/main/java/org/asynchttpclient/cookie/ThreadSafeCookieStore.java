@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cookie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.asynchttpclient.uri.Uri;
+import org.asynchttpclient.util.HttpUtils;
+
+/**
+ * A thread safe {@link CookieStore}. Cookies are indexed by the domain they apply to, so a lookup only probes the
+ * request host and its parent domains, i.e. costs one hash lookup per label instead of a scan over all the cookies.
+ * Lookups don't lock. Expired cookies are evicted lazily, when they're looked up.
+ */
+public class ThreadSafeCookieStore implements CookieStore {
+
+    private static final Comparator<StoredCookie> MOST_SPECIFIC_PATH_FIRST = new Comparator<StoredCookie>() {
+        @Override
+        public int compare(StoredCookie c1, StoredCookie c2) {
+            return c2.path.length() - c1.path.length();
+        }
+    };
+
+    // domain -> cookies applying to this domain, host-only cookies being stored under the host that set them
+    private final ConcurrentHashMap<String, ConcurrentHashMap<CookieKey, StoredCookie>> cookieJar = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(Uri uri, Cookie cookie) {
+        String host = uri.getHost().toLowerCase(Locale.ENGLISH);
+
+        String domain;
+        boolean hostOnly;
+        if (cookie.getDomain() == null || cookie.getDomain().isEmpty()) {
+            domain = host;
+            hostOnly = true;
+        } else {
+            domain = cookie.getDomain().toLowerCase(Locale.ENGLISH);
+            if (domain.charAt(0) == '.')
+                domain = domain.substring(1);
+            if (!domain.equals(host) && (isIpAddress(host) || domain.indexOf('.') < 0 || !host.endsWith("." + domain)))
+                // a server can't set cookies for another domain, nor for a whole top level domain
+                return;
+            hostOnly = false;
+        }
+
+        String path = cookie.getPath() != null && cookie.getPath().startsWith("/") ? cookie.getPath() : defaultPath(uri.getPath());
+        CookieKey key = new CookieKey(cookie.getName(), path);
+
+        long maxAge = cookie.getMaxAge();
+        if (maxAge != Long.MIN_VALUE && maxAge <= 0) {
+            ConcurrentHashMap<CookieKey, StoredCookie> cookies = cookieJar.get(domain);
+            if (cookies != null)
+                cookies.remove(key);
+            return;
+        }
+        long expires = maxAge == Long.MIN_VALUE || maxAge > (Long.MAX_VALUE - System.currentTimeMillis()) / 1000 ? Long.MAX_VALUE : System
+                .currentTimeMillis() + maxAge * 1000;
+        StoredCookie stored = new StoredCookie(cookie, path, hostOnly, expires);
+
+        while (true) {
+            ConcurrentHashMap<CookieKey, StoredCookie> cookies = cookieJar.get(domain);
+            if (cookies == null) {
+                cookies = new ConcurrentHashMap<>();
+                ConcurrentHashMap<CookieKey, StoredCookie> previous = cookieJar.putIfAbsent(domain, cookies);
+                if (previous != null)
+                    cookies = previous;
+            }
+            synchronized (cookies) {
+                // live() drops emptied maps under the same lock, so only write into a map that's still in the jar
+                if (cookieJar.get(domain) == cookies) {
+                    cookies.put(key, stored);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Cookie> get(Uri uri) {
+        String host = uri.getHost().toLowerCase(Locale.ENGLISH);
+        String path = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        boolean secure = HttpUtils.isSecure(uri);
+        long now = System.currentTimeMillis();
+
+        List<StoredCookie> matching = new ArrayList<>();
+        String domain = host;
+        while (true) {
+            ConcurrentHashMap<CookieKey, StoredCookie> cookies = cookieJar.get(domain);
+            if (cookies != null) {
+                for (StoredCookie stored : live(domain, cookies, now)) {
+                    if ((!stored.hostOnly || domain.equals(host)) && (secure || !stored.cookie.isSecure()) && pathMatches(path, stored.path))
+                        matching.add(stored);
+                }
+            }
+
+            int dot = domain.indexOf('.');
+            if (dot < 0 || isIpAddress(host))
+                break;
+            domain = domain.substring(dot + 1);
+        }
+
+        if (matching.isEmpty())
+            return Collections.emptyList();
+
+        Collections.sort(matching, MOST_SPECIFIC_PATH_FIRST);
+        List<Cookie> result = new ArrayList<>(matching.size());
+        for (StoredCookie stored : matching)
+            result.add(stored.cookie);
+        return result;
+    }
+
+    @Override
+    public List<Cookie> getAll() {
+        long now = System.currentTimeMillis();
+        List<Cookie> result = new ArrayList<>();
+        for (Map.Entry<String, ConcurrentHashMap<CookieKey, StoredCookie>> entry : cookieJar.entrySet()) {
+            for (StoredCookie stored : live(entry.getKey(), entry.getValue(), now))
+                result.add(stored.cookie);
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        cookieJar.clear();
+    }
+
+    private List<StoredCookie> live(String domain, ConcurrentHashMap<CookieKey, StoredCookie> cookies, long now) {
+        List<StoredCookie> live = new ArrayList<>(cookies.size());
+        for (Map.Entry<CookieKey, StoredCookie> entry : cookies.entrySet()) {
+            StoredCookie stored = entry.getValue();
+            if (stored.expires > now)
+                live.add(stored);
+            else
+                cookies.remove(entry.getKey(), stored);
+        }
+        if (cookies.isEmpty()) {
+            synchronized (cookies) {
+                if (cookies.isEmpty())
+                    cookieJar.remove(domain, cookies);
+            }
+        }
+        return live;
+    }
+
+    private static String defaultPath(String requestPath) {
+        // RFC 6265 5.1.4: the directory of the request path
+        if (requestPath == null || !requestPath.startsWith("/"))
+            return "/";
+        int lastSlash = requestPath.lastIndexOf('/');
+        return lastSlash == 0 ? "/" : requestPath.substring(0, lastSlash);
+    }
+
+    private static boolean pathMatches(String requestPath, String cookiePath) {
+        // RFC 6265 5.1.4
+        return requestPath.startsWith(cookiePath)
+                && (requestPath.length() == cookiePath.length() || cookiePath.endsWith("/") || requestPath.charAt(cookiePath.length()) == '/');
+    }
+
+    private static boolean isIpAddress(String host) {
+        return host.indexOf(':') >= 0 || Character.isDigit(host.charAt(host.length() - 1));
+    }
+
+    private static final class CookieKey {
+
+        private final String name;
+        private final String path;
+
+        CookieKey(String name, String path) {
+            this.name = name;
+            this.path = path;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + path.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof CookieKey))
+                return false;
+            CookieKey other = (CookieKey) obj;
+            return name.equals(other.name) && path.equals(other.path);
+        }
+    }
+
+    private static final class StoredCookie {
+
+        private final Cookie cookie;
+        private final String path;
+        private final boolean hostOnly;
+        private final long expires;
+
+        StoredCookie(Cookie cookie, String path, boolean hostOnly, long expires) {
+            this.cookie = cookie;
+            this.path = path;
+            this.hostOnly = hostOnly;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.handler;
+
+import java.net.InetAddress;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+
+/**
+ * A base class for {@link AsyncHandler} wrappers. Every callback is forwarded to the wrapped handler, including the
+ * {@link ProgressAsyncHandler} and {@link AsyncHandlerExtensions} ones when the wrapped handler implements them.
+ *
+ * @param <T> the result type
+ */
+public class DelegatingAsyncHandler<T> implements ProgressAsyncHandler<T>, AsyncHandlerExtensions {
+
+    protected final AsyncHandler<T> delegate;
+
+    /**
+     * @param delegate the wrapped handler
+     */
+    public DelegatingAsyncHandler(AsyncHandler<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return the handler that gets the progress and connection events, or null to drop them
+     */
+    protected AsyncHandler<T> eventDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+        return delegate.onStatusReceived(responseStatus);
+    }
+
+    @Override
+    public State onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+        return delegate.onHeadersReceived(headers);
+    }
+
+    @Override
+    public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+        return delegate.onBodyPartReceived(bodyPart);
+    }
+
+    @Override
+    public T onCompleted() throws Exception {
+        return delegate.onCompleted();
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+        delegate.onThrowable(t);
+    }
+
+    // ProgressAsyncHandler
+
+    private ProgressAsyncHandler<T> progressHandler() {
+        AsyncHandler<T> handler = eventDelegate();
+        return handler instanceof ProgressAsyncHandler ? (ProgressAsyncHandler<T>) handler : null;
+    }
+
+    @Override
+    public State onHeadersWritten() {
+        ProgressAsyncHandler<T> handler = progressHandler();
+        return handler != null ? handler.onHeadersWritten() : State.CONTINUE;
+    }
+
+    @Override
+    public State onContentWritten() {
+        ProgressAsyncHandler<T> handler = progressHandler();
+        return handler != null ? handler.onContentWritten() : State.CONTINUE;
+    }
+
+    @Override
+    public State onContentWriteProgress(long amount, long current, long total) {
+        ProgressAsyncHandler<T> handler = progressHandler();
+        return handler != null ? handler.onContentWriteProgress(amount, current, total) : State.CONTINUE;
+    }
+
+    // AsyncHandlerExtensions
+
+    private AsyncHandlerExtensions extensions() {
+        AsyncHandler<T> handler = eventDelegate();
+        return handler instanceof AsyncHandlerExtensions ? (AsyncHandlerExtensions) handler : null;
+    }
+
+    @Override
+    public void onConnectionOpen() {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onConnectionOpen();
+    }
+
+    @Override
+    public void onConnectionOpened(Object connection) {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onConnectionOpened(connection);
+    }
+
+    @Override
+    public void onConnectionPool() {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onConnectionPool();
+    }
+
+    @Override
+    public void onConnectionPooled(Object connection) {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onConnectionPooled(connection);
+    }
+
+    @Override
+    public void onConnectionOffer(Object connection) {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onConnectionOffer(connection);
+    }
+
+    @Override
+    public void onRequestSend(Object request) {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onRequestSend(request);
+    }
+
+    @Override
+    public void onRetry() {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onRetry();
+    }
+
+    @Override
+    public void onDnsResolved(InetAddress address) {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onDnsResolved(address);
+    }
+
+    @Override
+    public void onSslHandshakeCompleted() {
+        AsyncHandlerExtensions extensions = extensions();
+        if (extensions != null)
+            extensions.onSslHandshakeCompleted();
+    }
+}
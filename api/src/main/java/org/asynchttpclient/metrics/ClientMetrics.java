@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.metrics;
+
+/**
+ * Receives the events of the requests of a client, e.g. to maintain per host rates and latency histograms.
+ *
+ * Partition keys are the ones produced by the request's
+ * {@link org.asynchttpclient.channel.pool.ConnectionPoolPartitioning}, i.e. the base url of the target host by
+ * default. Durations are in nanoseconds. Methods are invoked from I/O threads: implementations must be fast, non
+ * blocking and thread safe.
+ */
+public interface ClientMetrics {
+
+    /**
+     * A request is about to be sent for the first time.
+     *
+     * @param partitionKey the partition of the request
+     */
+    void requestStarted(Object partitionKey);
+
+    /**
+     * A new connection was established for a request.
+     *
+     * @param partitionKey the partition of the request
+     * @param connectNanos the duration of the TCP connect
+     */
+    void connected(Object partitionKey, long connectNanos);
+
+    /**
+     * A response status line was received.
+     *
+     * @param partitionKey the partition of the request
+     * @param statusCode the response status code
+     * @param timeToFirstByteNanos the duration since the request was started
+     */
+    void firstByteReceived(Object partitionKey, int statusCode, long timeToFirstByteNanos);
+
+    /**
+     * A request completed.
+     *
+     * @param partitionKey the partition of the request
+     * @param durationNanos the duration since the request was started
+     */
+    void requestCompleted(Object partitionKey, long durationNanos);
+
+    /**
+     * A request failed, timed out or was cancelled.
+     *
+     * @param partitionKey the partition of the request
+     * @param cause the failure
+     * @param durationNanos the duration since the request was started
+     */
+    void requestAborted(Object partitionKey, Throwable cause, long durationNanos);
+
+    /**
+     * A request is being retried after an I/O failure.
+     *
+     * @param partitionKey the partition of the request
+     */
+    void requestRetried(Object partitionKey);
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ClientMetrics} that maintains counters and {@link LatencyHistogram}s per partition. Recording is lock free,
+ * only the first event of a partition allocates.
+ */
+public class DefaultClientMetrics implements ClientMetrics {
+
+    private final ConcurrentHashMap<Object, PartitionMetrics> partitions = new ConcurrentHashMap<>();
+    private final long window;
+    private final TimeUnit unit;
+
+    /**
+     * Histograms with one minute windows.
+     */
+    public DefaultClientMetrics() {
+        this(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param window the length of the histogram windows
+     * @param unit the unit of the window
+     */
+    public DefaultClientMetrics(long window, TimeUnit unit) {
+        if (unit.toNanos(window) <= 0)
+            throw new IllegalArgumentException("window must be positive");
+        this.window = window;
+        this.unit = unit;
+    }
+
+    private PartitionMetrics partition(Object partitionKey) {
+        PartitionMetrics metrics = partitions.get(partitionKey);
+        if (metrics == null) {
+            PartitionMetrics newMetrics = new PartitionMetrics(window, unit);
+            metrics = partitions.putIfAbsent(partitionKey, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+                onNewPartition(partitionKey, metrics);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Invoked the first time an event is recorded for a partition, e.g. to export its metrics.
+     *
+     * @param partitionKey the partition key
+     * @param metrics the metrics of the partition
+     */
+    protected void onNewPartition(Object partitionKey, PartitionMetrics metrics) {
+    }
+
+    /**
+     * @return the metrics of every partition seen so far
+     */
+    public Map<Object, PartitionMetrics> getPartitions() {
+        return Collections.unmodifiableMap(partitions);
+    }
+
+    /**
+     * @param partitionKey a partition key
+     * @return the metrics of the partition, or null if none was recorded
+     */
+    public PartitionMetrics getPartition(Object partitionKey) {
+        return partitions.get(partitionKey);
+    }
+
+    @Override
+    public void requestStarted(Object partitionKey) {
+        partition(partitionKey).requestStarted();
+    }
+
+    @Override
+    public void connected(Object partitionKey, long connectNanos) {
+        partition(partitionKey).connected(connectNanos);
+    }
+
+    @Override
+    public void firstByteReceived(Object partitionKey, int statusCode, long timeToFirstByteNanos) {
+        partition(partitionKey).firstByteReceived(statusCode, timeToFirstByteNanos);
+    }
+
+    @Override
+    public void requestCompleted(Object partitionKey, long durationNanos) {
+        partition(partitionKey).requestCompleted(durationNanos);
+    }
+
+    @Override
+    public void requestAborted(Object partitionKey, Throwable cause, long durationNanos) {
+        partition(partitionKey).requestAborted(durationNanos);
+    }
+
+    @Override
+    public void requestRetried(Object partitionKey) {
+        partition(partitionKey).requestRetried();
+    }
+}
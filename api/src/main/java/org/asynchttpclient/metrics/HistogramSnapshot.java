@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The values recorded by a {@link LatencyHistogram} over a period of time. Values are in nanoseconds, with
+ * microsecond resolution.
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+
+    HistogramSnapshot(long[] counts, long totalMicros, long maxMicros) {
+        this.counts = counts;
+        long count = 0L;
+        for (long bucketCount : counts)
+            count += bucketCount;
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the highest recorded value, or 0 if none was recorded
+     */
+    public long getMax() {
+        return TimeUnit.MICROSECONDS.toNanos(maxMicros);
+    }
+
+    /**
+     * @return the mean of the recorded values, or 0 if none was recorded
+     */
+    public double getMean() {
+        return count == 0L ? 0.0 : TimeUnit.MICROSECONDS.toNanos(totalMicros) / (double) count;
+    }
+
+    /**
+     * @param percentile a percentile in [0, 100]
+     * @return the value below which the given percentage of the recorded values fall, or 0 if none was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0)
+            throw new IllegalArgumentException("percentile must be in [0, 100]");
+        if (count == 0L)
+            return 0L;
+
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                // a bucket never exceeds the max value
+                return TimeUnit.MICROSECONDS.toNanos(Math.min(LatencyHistogram.highestEquivalentValue(i), maxMicros));
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot(count=" + count + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50.0) + ", p99="
+                + getValueAtPercentile(99.0) + ", max=" + getMax() + ")";
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.asynchttpclient.internal.chmv8.LongAdder;
+
+/**
+ * A lock-free latency histogram with a bounded relative error, in the fashion of HdrHistogram: values are recorded
+ * with microsecond resolution into buckets whose width doubles every 16 buckets, so that every value is known within
+ * about 6%.
+ *
+ * Recordings go to the current window. Windows roll over lazily, on the first recording or snapshot after they
+ * expired, and snapshots cover the previous window and the current one, i.e. between one and two windows of data. A
+ * recording that races with a rollover might be accounted for in the previous window.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int MAX_MAGNITUDE = 40;
+    static final long MAX_MICROS = (1L << MAX_MAGNITUDE) - 1;
+    static final int BUCKET_COUNT = index(MAX_MICROS) + 1;
+
+    private static final class Window {
+        final long start;
+        final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        final LongAdder totalMicros = new LongAdder();
+        final AtomicLong maxMicros = new AtomicLong();
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+
+    private final long windowNanos;
+    private final AtomicReference<Window> current;
+    private volatile Window previous;
+
+    /**
+     * @param window the length of a window
+     * @param unit the unit of the window
+     */
+    public LatencyHistogram(long window, TimeUnit unit) {
+        windowNanos = unit.toNanos(window);
+        if (windowNanos <= 0)
+            throw new IllegalArgumentException("window must be positive");
+        current = new AtomicReference<>(new Window(System.nanoTime()));
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_BUCKET_COUNT)
+            return (int) micros;
+        // keep the 5 most significant bits
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (int) (micros >>> shift) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * @return the highest value, in micros, recorded into a bucket
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private Window currentWindow(long now) {
+        while (true) {
+            Window window = current.get();
+            if (now - window.start < windowNanos)
+                return window;
+
+            Window next = new Window(now);
+            if (current.compareAndSet(window, next)) {
+                // a window that ended long ago doesn't describe the recent past
+                previous = now - window.start < 2 * windowNanos ? window : null;
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @param nanos the latency to record, negative values are ignored
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            return;
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_MICROS);
+
+        Window window = currentWindow(System.nanoTime());
+        window.counts.incrementAndGet(index(micros));
+        window.totalMicros.add(micros);
+
+        long max;
+        while (micros > (max = window.maxMicros.get()) && !window.maxMicros.compareAndSet(max, micros))
+            ;
+    }
+
+    /**
+     * @return the values recorded during the previous and the current windows
+     */
+    public HistogramSnapshot snapshot() {
+        Window window = currentWindow(System.nanoTime());
+        Window previousWindow = previous;
+
+        long[] counts = new long[BUCKET_COUNT];
+        long totalMicros = window.totalMicros.sum();
+        long maxMicros = window.maxMicros.get();
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            counts[i] = window.counts.get(i);
+
+        if (previousWindow != null) {
+            totalMicros += previousWindow.totalMicros.sum();
+            maxMicros = Math.max(maxMicros, previousWindow.maxMicros.get());
+            for (int i = 0; i < BUCKET_COUNT; i++)
+                counts[i] += previousWindow.counts.get(i);
+        }
+
+        return new HistogramSnapshot(counts, totalMicros, maxMicros);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.internal.chmv8.LongAdder;
+
+/**
+ * The metrics of one partition, i.e. of one host by default, as recorded by {@link DefaultClientMetrics}. Counters
+ * are cumulative, histograms cover the recent windows.
+ */
+public final class PartitionMetrics {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder aborts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LatencyHistogram connectTime;
+    private final LatencyHistogram timeToFirstByte;
+    private final LatencyHistogram latency;
+    private final LatencyHistogram abortLatency;
+
+    PartitionMetrics(long window, TimeUnit unit) {
+        connectTime = new LatencyHistogram(window, unit);
+        timeToFirstByte = new LatencyHistogram(window, unit);
+        latency = new LatencyHistogram(window, unit);
+        abortLatency = new LatencyHistogram(window, unit);
+    }
+
+    void requestStarted() {
+        requests.increment();
+    }
+
+    void connected(long connectNanos) {
+        connects.increment();
+        connectTime.record(connectNanos);
+    }
+
+    void firstByteReceived(int statusCode, long timeToFirstByteNanos) {
+        responses.increment();
+        if (statusCode >= 500)
+            serverErrors.increment();
+        timeToFirstByte.record(timeToFirstByteNanos);
+    }
+
+    void requestCompleted(long durationNanos) {
+        latency.record(durationNanos);
+    }
+
+    void requestAborted(long durationNanos) {
+        aborts.increment();
+        abortLatency.record(durationNanos);
+    }
+
+    void requestRetried() {
+        retries.increment();
+    }
+
+    /**
+     * @return the number of requests started
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of responses received, including redirects and authentication challenges
+     */
+    public long getResponseCount() {
+        return responses.sum();
+    }
+
+    /**
+     * @return the number of responses with a 5xx status
+     */
+    public long getServerErrorCount() {
+        return serverErrors.sum();
+    }
+
+    /**
+     * @return the number of requests that failed, timed out or were cancelled
+     */
+    public long getAbortCount() {
+        return aborts.sum();
+    }
+
+    /**
+     * @return the number of retries after I/O failures
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return the number of connections opened
+     */
+    public long getConnectCount() {
+        return connects.sum();
+    }
+
+    /**
+     * @return the recent TCP connect durations
+     */
+    public HistogramSnapshot getConnectTime() {
+        return connectTime.snapshot();
+    }
+
+    /**
+     * @return the recent durations between request start and response status line
+     */
+    public HistogramSnapshot getTimeToFirstByte() {
+        return timeToFirstByte.snapshot();
+    }
+
+    /**
+     * @return the recent durations of the completed requests
+     */
+    public HistogramSnapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    /**
+     * @return the recent durations of the aborted requests
+     */
+    public HistogramSnapshot getAbortLatency() {
+        return abortLatency.snapshot();
+    }
+}
@@ -5,6 +5,7 @@ import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.AsyncHttpProvider;
 import org.asynchttpclient.ListenableFuture;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
 
 public class NettyAsyncHttpProvider implements AsyncHttpProvider {
 
@@ -17,6 +18,16 @@ public class NettyAsyncHttpProvider implements AsyncHttpProvider {
         throw new UnsupportedOperationException("This implementation is just a stub");
     }
 
+    @Override
+    public ListenableFuture<Integer> warmUp(Request request, int connections) {
+        throw new UnsupportedOperationException("This implementation is just a stub");
+    }
+
+    @Override
+    public ConnectionPoolSnapshot getConnectionPoolSnapshot() {
+        throw new UnsupportedOperationException("This implementation is just a stub");
+    }
+
     @Override
     public void close() {
         throw new UnsupportedOperationException("This implementation is just a stub");
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.proxy;
+
+import java.util.List;
+
+/**
+ * The non proxy hosts of a {@link ProxyServer}, compiled into two tries, so that checking a host costs one walk over
+ * its characters, whatever the number of patterns, and doesn't allocate.
+ *
+ * Same rules as the JDK <code>http.nonProxyHosts</code>, matching is case insensitive:
+ * <ul>
+ * <li><code>*suffix</code> matches the hosts ending with <code>suffix</code>, walked backwards in the suffix trie</li>
+ * <li><code>prefix*</code> matches the hosts starting with <code>prefix</code>, walked forwards in the prefix trie</li>
+ * <li>anything else matches the host exactly, it's stored in the prefix trie and must end on the host's last char</li>
+ * </ul>
+ */
+final class NonProxyHostsMatcher {
+
+    private final Node prefixes = new Node();
+    private final Node suffixes = new Node();
+
+    NonProxyHostsMatcher(List<String> nonProxyHosts) {
+        for (String nonProxyHost : nonProxyHosts) {
+            int length = nonProxyHost.length();
+            if (length > 1 && nonProxyHost.charAt(0) == '*') {
+                Node node = suffixes;
+                for (int i = length - 1; i > 0; i--)
+                    node = node.getOrAddChild(nonProxyHost.charAt(i));
+                node.wildcard = true;
+
+            } else if (length > 1 && nonProxyHost.charAt(length - 1) == '*') {
+                Node node = prefixes;
+                for (int i = 0; i < length - 1; i++)
+                    node = node.getOrAddChild(nonProxyHost.charAt(i));
+                node.wildcard = true;
+
+            } else {
+                Node node = prefixes;
+                for (int i = 0; i < length; i++)
+                    node = node.getOrAddChild(nonProxyHost.charAt(i));
+                node.exact = true;
+            }
+        }
+    }
+
+    boolean matches(String host) {
+        int length = host.length();
+
+        Node node = prefixes;
+        for (int i = 0; node != null; i++) {
+            if (node.wildcard || (node.exact && i == length))
+                return true;
+            node = i < length ? node.getChild(host.charAt(i)) : null;
+        }
+
+        node = suffixes;
+        for (int i = length - 1; node != null; i--) {
+            if (node.wildcard)
+                return true;
+            node = i >= 0 ? node.getChild(host.charAt(i)) : null;
+        }
+
+        return false;
+    }
+
+    private static char fold(char c) {
+        // same folding as String.regionMatches(true, ...)
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        // hosts are short and the fan-out small, so arrays scanned linearly beat a map
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private boolean wildcard;
+        private boolean exact;
+
+        Node getChild(char c) {
+            char folded = fold(c);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == folded)
+                    return children[i];
+            }
+            return null;
+        }
+
+        Node getOrAddChild(char c) {
+            Node child = getChild(c);
+            if (child == null) {
+                int n = keys.length;
+                char[] newKeys = new char[n + 1];
+                Node[] newChildren = new Node[n + 1];
+                System.arraycopy(keys, 0, newKeys, 0, n);
+                System.arraycopy(children, 0, newChildren, 0, n);
+                newKeys[n] = fold(c);
+                newChildren[n] = child = new Node();
+                keys = newKeys;
+                children = newChildren;
+            }
+            return child;
+        }
+    }
+}
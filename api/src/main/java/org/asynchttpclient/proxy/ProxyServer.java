@@ -32,7 +32,7 @@ import org.asynchttpclient.Realm.AuthScheme;
 public class ProxyServer {
 
     public enum Protocol {
-        HTTP("http"), HTTPS("https"), NTLM("NTLM"), KERBEROS("KERBEROS"), SPNEGO("SPNEGO");
+        HTTP("http"), HTTPS("https"), NTLM("NTLM"), KERBEROS("KERBEROS"), SPNEGO("SPNEGO"), SOCKS4("socks4"), SOCKS5("socks5");
 
         private final String protocol;
 
@@ -44,6 +44,13 @@ public class ProxyServer {
             return protocol;
         }
 
+        /**
+         * @return true for SOCKS proxies, that tunnel the connection instead of relaying HTTP requests
+         */
+        public boolean isSocks() {
+            return this == SOCKS4 || this == SOCKS5;
+        }
+
         @Override
         public String toString() {
             return getProtocol();
@@ -62,6 +69,7 @@ public class ProxyServer {
     private String ntlmHost;
     private AuthScheme scheme = AuthScheme.BASIC;
     private boolean forceHttp10 = false;
+    private volatile NonProxyHostsMatcher nonProxyHostsMatcher;
 
     public ProxyServer(final Protocol protocol, final String host, final int port, String principal, String password) {
         this.protocol = protocol;
@@ -128,11 +136,13 @@ public class ProxyServer {
 
     public ProxyServer addNonProxyHost(String uri) {
         nonProxyHosts.add(uri);
+        nonProxyHostsMatcher = null;
         return this;
     }
 
     public ProxyServer removeNonProxyHost(String uri) {
         nonProxyHosts.remove(uri);
+        nonProxyHostsMatcher = null;
         return this;
     }
 
@@ -140,6 +150,20 @@ public class ProxyServer {
         return Collections.unmodifiableList(nonProxyHosts);
     }
 
+    /**
+     * @param hostname the target host
+     * @return true if the host matches one of the non proxy hosts, i.e. it must be reached directly
+     */
+    public boolean isNonProxyHost(String hostname) {
+        if (nonProxyHosts.isEmpty())
+            return false;
+        NonProxyHostsMatcher matcher = nonProxyHostsMatcher;
+        if (matcher == null)
+            // compiled once, and again only if the list changes
+            nonProxyHostsMatcher = matcher = new NonProxyHostsMatcher(nonProxyHosts);
+        return matcher.matches(hostname);
+    }
+
     public ProxyServer setNtlmDomain(String ntlmDomain) {
         this.ntlmDomain = ntlmDomain;
         return this;
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.retry;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.channels.ClosedChannelException;
+import java.text.ParsePosition;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.cookie.RFC2616DateParser;
+
+/**
+ * A {@link RetryPolicy} with exponential backoff and decorrelated jitter: each delay is picked at random between the
+ * base delay and three times the previous one, capped to the max delay.
+ *
+ * Only connection failures that happened before any response byte was received are retried, and 503 responses that
+ * carry a <code>Retry-After</code> header, in which case the server's delay is honored as long as it doesn't exceed
+ * the max delay.
+ *
+ * Retries are capped by a client-wide budget: every request deposits <code>budgetRatio</code> tokens in a bucket,
+ * every retry withdraws one. So, beyond a small burst, retries can never exceed that fraction of the traffic, which
+ * prevents them from piling up on a backend that's already struggling.
+ */
+public class BackoffRetryPolicy implements RetryPolicy {
+
+    /**
+     * Tokens are stored in millionths, a retry costs one token.
+     */
+    private static final long TOKEN = 1000000L;
+
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long earnedPerRequest;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    protected BackoffRetryPolicy(long baseDelay, long maxDelay, double budgetRatio, int budgetBurst) {
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.earnedPerRequest = (long) (budgetRatio * TOKEN);
+        this.maxTokens = budgetBurst * TOKEN;
+        this.tokens = new AtomicLong(maxTokens);
+    }
+
+    @Override
+    public void onRequest(Request request) {
+        while (true) {
+            long current = tokens.get();
+            if (current >= maxTokens || tokens.compareAndSet(current, Math.min(maxTokens, current + earnedPerRequest)))
+                return;
+        }
+    }
+
+    @Override
+    public long retryDelay(Request request, Throwable cause, int retry, long previousDelay) {
+        return isRetryable(cause) && tryAcquireToken() ? backoff(previousDelay) : DONT_RETRY;
+    }
+
+    @Override
+    public long retryDelay(Request request, HttpResponseStatus status, HttpResponseHeaders headers, int retry, long previousDelay) {
+        if (status.getStatusCode() != 503)
+            return DONT_RETRY;
+
+        long retryAfter = retryAfter(headers.getHeaders().getFirstValue("Retry-After"), System.currentTimeMillis());
+        if (retryAfter < 0 || retryAfter > maxDelay || !tryAcquireToken())
+            return DONT_RETRY;
+        return Math.max(retryAfter, backoff(previousDelay));
+    }
+
+    /**
+     * @param cause a failure that happened before any response was received
+     * @return true if the request can be retried safely, i.e. it didn't reach the server or the server dropped it
+     */
+    protected boolean isRetryable(Throwable cause) {
+        if (cause == null)
+            // remotely closed
+            return true;
+        if (cause instanceof ConnectException || cause instanceof ClosedChannelException)
+            return true;
+        if (cause instanceof IOException) {
+            String message = cause.getMessage();
+            return message != null && (message.contains("Connection reset") || message.contains("Remotely closed"));
+        }
+        return cause.getCause() != null && cause.getCause() != cause && isRetryable(cause.getCause());
+    }
+
+    private long backoff(long previousDelay) {
+        long upper = Math.max(baseDelay, previousDelay * 3);
+        long delay = upper > baseDelay ? baseDelay + ThreadLocalRandom.current().nextLong(upper - baseDelay + 1) : baseDelay;
+        return Math.min(maxDelay, delay);
+    }
+
+    private boolean tryAcquireToken() {
+        while (true) {
+            long current = tokens.get();
+            if (current < TOKEN)
+                return false;
+            if (tokens.compareAndSet(current, current - TOKEN))
+                return true;
+        }
+    }
+
+    /**
+     * @param value the <code>Retry-After</code> value, either a number of seconds or an HTTP-date
+     * @param now the current time in millis
+     * @return the delay in millis, or -1 if missing or invalid
+     */
+    static long retryAfter(String value, long now) {
+        if (value == null)
+            return -1L;
+        value = value.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds >= 0 ? seconds * 1000 : -1L;
+        } catch (NumberFormatException e) {
+            Date date = RFC2616DateParser.get().parse(value, new ParsePosition(0));
+            return date != null ? Math.max(0L, date.getTime() - now) : -1L;
+        }
+    }
+
+    public static class Builder {
+
+        private long baseDelay = 100L;
+        private long maxDelay = 10000L;
+        private double budgetRatio = 0.1;
+        private int budgetBurst = 10;
+
+        /**
+         * @param baseDelay the minimum delay in millis before a retry
+         * @return this
+         */
+        public Builder setBaseDelay(long baseDelay) {
+            this.baseDelay = baseDelay;
+            return this;
+        }
+
+        /**
+         * @param maxDelay the maximum delay in millis before a retry, larger <code>Retry-After</code> aren't retried
+         * @return this
+         */
+        public Builder setMaxDelay(long maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * @param budgetRatio the maximum ratio of retries to requests, e.g. 0.1 for at most 10% extra requests
+         * @return this
+         */
+        public Builder setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        /**
+         * @param budgetBurst the number of retries that can be spent at once, and the initial budget
+         * @return this
+         */
+        public Builder setBudgetBurst(int budgetBurst) {
+            this.budgetBurst = budgetBurst;
+            return this;
+        }
+
+        public BackoffRetryPolicy build() {
+            if (baseDelay < 0 || maxDelay < baseDelay)
+                throw new IllegalArgumentException("Invalid delays: base=" + baseDelay + " max=" + maxDelay);
+            if (budgetRatio < 0 || budgetBurst < 0)
+                throw new IllegalArgumentException("Invalid budget: ratio=" + budgetRatio + " burst=" + budgetBurst);
+            return new BackoffRetryPolicy(baseDelay, maxDelay, budgetRatio, budgetBurst);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.retry;
+
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.Request;
+
+/**
+ * Decides if and when a failed request gets retried. A policy is shared by all the requests of a client, so
+ * implementations must be thread-safe.
+ *
+ * When no policy is configured, providers retry immediately whenever the request can be replayed, up to
+ * {@link org.asynchttpclient.AsyncHttpClientConfig#getMaxRequestRetry()} times.
+ * {@link org.asynchttpclient.AsyncHttpClientConfig#getMaxRequestRetry()} still caps the number of retries when there's one.
+ */
+public interface RetryPolicy {
+
+    long DONT_RETRY = -1L;
+
+    /**
+     * Notified every time a new request is sent, before any retry.
+     *
+     * @param request the request
+     */
+    void onRequest(Request request);
+
+    /**
+     * Called when a request failed before any response was received, e.g. the connection was refused or reset.
+     *
+     * @param request the request
+     * @param cause the failure
+     * @param retry the number of the retry to come, starting at 1
+     * @param previousDelay the delay in millis before the previous retry, or 0 for the first one
+     * @return the delay in millis before retrying, or {@link #DONT_RETRY}
+     */
+    long retryDelay(Request request, Throwable cause, int retry, long previousDelay);
+
+    /**
+     * Called when a response status was received, before the {@link org.asynchttpclient.AsyncHandler} gets notified.
+     *
+     * @param request the request
+     * @param status the response status
+     * @param headers the response headers
+     * @param retry the number of the retry to come, starting at 1
+     * @param previousDelay the delay in millis before the previous retry, or 0 for the first one
+     * @return the delay in millis before retrying, or {@link #DONT_RETRY} to pass the response to the handler
+     */
+    long retryDelay(Request request, HttpResponseStatus status, HttpResponseHeaders headers, int retry, long previousDelay);
+}
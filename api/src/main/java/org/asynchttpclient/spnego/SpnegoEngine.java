@@ -37,6 +37,8 @@
 
 package org.asynchttpclient.spnego;
 
+import static org.asynchttpclient.util.DateUtils.millisTime;
+
 import org.asynchttpclient.util.Base64;
 import org.ietf.jgss.GSSContext;
 import org.ietf.jgss.GSSException;
@@ -47,10 +49,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * SPNEGO (Simple and Protected GSSAPI Negotiation Mechanism) authentication scheme.
  * 
+ * Creating a security context may block on KDC round trips, so providers call {@link #generateToken(String)} off
+ * their I/O threads.
+ * 
+ * Tokens can optionally be cached per service for a bounded time, within the lifetime of their context. Reusing a
+ * token is only possible against servers that don't enforce Kerberos replay detection, hence it's disabled by
+ * default.
+ * 
  * @since 4.1
  */
 public class SpnegoEngine {
@@ -60,25 +70,44 @@ public class SpnegoEngine {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    private static final int MAX_CACHED_TOKENS = 1024;
+
     private final SpnegoTokenGenerator spnegoGenerator;
+    private final long tokenCacheTtl;
+    private final ConcurrentHashMap<String, CachedToken> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * @param spnegoGenerator wraps Kerberos tokens into SPNEGO ones, can be null
+     * @param tokenCacheTtl how long in millis a token can be reused for the same server, 0 to never reuse them
+     */
+    public SpnegoEngine(final SpnegoTokenGenerator spnegoGenerator, long tokenCacheTtl) {
+        this.spnegoGenerator = spnegoGenerator;
+        this.tokenCacheTtl = tokenCacheTtl;
+    }
 
     public SpnegoEngine(final SpnegoTokenGenerator spnegoGenerator) {
-        this.spnegoGenerator = spnegoGenerator;
+        this(spnegoGenerator, 0L);
     }
 
     public SpnegoEngine() {
         this(null);
     }
 
-    private static SpnegoEngine instance;
+    private static final SpnegoEngine INSTANCE = new SpnegoEngine();
 
     public static SpnegoEngine instance() {
-        if (instance == null)
-            instance = new SpnegoEngine();
-        return instance;
+        return INSTANCE;
     }
 
     public String generateToken(String server) throws SpnegoEngineException {
+        if (tokenCacheTtl > 0) {
+            CachedToken cached = tokens.get(server);
+            if (cached != null && cached.expiresAt > millisTime()) {
+                log.debug("Reusing token for {}", server);
+                return cached.token;
+            }
+        }
+
         GSSContext gssContext = null;
         byte[] token = null; // base64 decoded challenge
         Oid negotiationOid = null;
@@ -150,11 +179,15 @@ public class SpnegoEngine {
                 token = spnegoGenerator.generateSpnegoDERObject(token);
             }
 
+            int lifetime = gssContext.getLifetime();
             gssContext.dispose();
 
             String tokenstr = new String(Base64.encode(token));
             log.debug("Sending response '{}' back to the server", tokenstr);
 
+            if (tokenCacheTtl > 0)
+                cacheToken(server, tokenstr, lifetime);
+
             return tokenstr;
         } catch (GSSException gsse) {
             log.error("generateToken", gsse);
@@ -171,4 +204,24 @@ public class SpnegoEngine {
             throw new SpnegoEngineException(ex.getMessage());
         }
     }
+
+    private void cacheToken(String server, String token, int contextLifetime) {
+        long ttl = contextLifetime == GSSContext.INDEFINITE_LIFETIME ? tokenCacheTtl : Math.min(tokenCacheTtl, contextLifetime * 1000L);
+        if (ttl <= 0)
+            return;
+        if (tokens.size() >= MAX_CACHED_TOKENS)
+            tokens.clear();
+        tokens.put(server, new CachedToken(token, millisTime() + ttl));
+    }
+
+    private static final class CachedToken {
+
+        private final String token;
+        private final long expiresAt;
+
+        CachedToken(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
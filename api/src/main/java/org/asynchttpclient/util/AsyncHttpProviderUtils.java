@@ -18,11 +18,17 @@ import static org.asynchttpclient.util.MiscUtils.*;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.Param;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.cookie.Cookie;
+import org.asynchttpclient.cookie.CookieStore;
 import org.asynchttpclient.uri.Uri;
 
 /**
@@ -102,6 +108,32 @@ public class AsyncHttpProviderUtils {
         return request.getFollowRedirect() != null ? request.getFollowRedirect().booleanValue() : config.isFollowRedirect();
     }
 
+    /**
+     * @param config the client config
+     * @param request the request
+     * @return the cookies set on the request, along with the stored ones it matches and doesn't override
+     */
+    public static Collection<Cookie> requestCookies(AsyncHttpClientConfig config, Request request) {
+        CookieStore cookieStore = config.getCookieStore();
+        if (cookieStore == null)
+            return request.getCookies();
+
+        List<Cookie> stored = cookieStore.get(request.getUri());
+        if (stored.isEmpty())
+            return request.getCookies();
+        if (isNonEmpty(request.getCookies())) {
+            List<Cookie> cookies = new ArrayList<>(request.getCookies());
+            Set<String> names = new HashSet<>();
+            for (Cookie cookie : cookies)
+                names.add(cookie.getName());
+            for (Cookie cookie : stored)
+                if (!names.contains(cookie.getName()))
+                    cookies.add(cookie);
+            return cookies;
+        }
+        return stored;
+    }
+
     private static StringBuilder urlEncodeFormParams0(List<Param> params) {
         StringBuilder sb = StringUtils.stringBuilder();
         for (Param param : params) {
@@ -151,7 +151,7 @@ public final class AuthenticatorUtils {
         return proxyAuthorization;
     }
 
-    public static String perConnectionAuthorizationHeader(Request request, ProxyServer proxyServer, Realm realm) {
+    public static String perConnectionAuthorizationHeader(Request request, ProxyServer proxyServer, Realm realm, SpnegoEngine spnegoEngine) {
         String authorizationHeader = null;
 
         if (realm != null && realm.getUsePreemptiveAuth()) {
@@ -170,7 +170,7 @@ public final class AuthenticatorUtils {
                 else
                     host = request.getUri().getHost();
 
-                authorizationHeader = "Negotiate " + SpnegoEngine.instance().generateToken(host);
+                authorizationHeader = "Negotiate " + spnegoEngine.generateToken(host);
                 break;
             default:
                 break;
@@ -12,7 +12,7 @@
  */
 package org.asynchttpclient.util;
 
-import static org.asynchttpclient.util.MiscUtils.isNonEmpty;
+import static org.asynchttpclient.util.DateUtils.millisTime;
 
 import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.Request;
@@ -28,7 +28,11 @@ import java.net.Proxy;
 import java.net.ProxySelector;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -98,19 +102,6 @@ public final class ProxyUtils {
         return avoidProxy(proxyServer, request.getUri().getHost());
     }
 
-    private static boolean matchNonProxyHost(String targetHost, String nonProxyHost) {
-
-        if (nonProxyHost.length() > 1) {
-            if (nonProxyHost.charAt(0) == '*')
-                return targetHost.regionMatches(true, targetHost.length() - nonProxyHost.length() + 1, nonProxyHost, 1,
-                        nonProxyHost.length() - 1);
-            else if (nonProxyHost.charAt(nonProxyHost.length() - 1) == '*')
-                return targetHost.regionMatches(true, 0, nonProxyHost, 0, nonProxyHost.length() - 1);
-        }
-
-        return nonProxyHost.equalsIgnoreCase(targetHost);
-    }
-    
     /**
      * Checks whether proxy should be used according to nonProxyHosts settings of it, or we want to go directly to
      * target host. If <code>null</code> proxy is passed in, this method returns true -- since there is NO proxy, we
@@ -126,16 +117,7 @@ public final class ProxyUtils {
             if (hostname == null)
                 throw new NullPointerException("hostname");
 
-            List<String> nonProxyHosts = proxyServer.getNonProxyHosts();
-
-            if (isNonEmpty(nonProxyHosts)) {
-                for (String nonProxyHost : nonProxyHosts) {
-                    if (matchNonProxyHost(hostname, nonProxyHost))
-                        return true;
-                }
-            }
-
-            return false;
+            return proxyServer.isNonProxyHost(hostname);
         } else {
             return true;
         }
@@ -198,7 +180,25 @@ public final class ProxyUtils {
      * @return The proxy server selector.
      */
     public static ProxyServerSelector createProxyServerSelector(final ProxySelector proxySelector) {
-        return new ProxyServerSelector() {
+        return createProxyServerSelector(proxySelector, 0, 0L);
+    }
+
+    /**
+     * Create a proxy server selector based on the passed in JDK proxy selector, that caches its results.
+     *
+     * The results are cached per scheme, host and port for a given time, least recently used first out, so that the
+     * JDK selector doesn't run on every request, and so that requests to the same target get the same
+     * {@link ProxyServer} instance. The JDK selector must then only depend on the scheme, host and port, and changes
+     * to its configuration are only seen once the cached selections expired.
+     *
+     * @param proxySelector The proxy selector to use.  Must not be null.
+     * @param maxCachedSelections the maximum number of selections to cache, 0 to disable caching
+     * @param selectionTtl how long a selection is cached, in millis
+     * @return The proxy server selector.
+     */
+    public static ProxyServerSelector createProxyServerSelector(final ProxySelector proxySelector, final int maxCachedSelections,
+            final long selectionTtl) {
+        final ProxyServerSelector selector = new ProxyServerSelector() {
             public ProxyServer select(Uri uri) {
                 try {
                     URI javaUri = uri.toJavaNetURI();
@@ -216,6 +216,14 @@ public final class ProxyUtils {
                                     InetSocketAddress address = (InetSocketAddress) proxy.address();
                                     return new ProxyServer(Protocol.HTTP, address.getHostName(), address.getPort());
                                 }
+                            case SOCKS:
+                                if (!(proxy.address() instanceof InetSocketAddress)) {
+                                    log.warn("Don't know how to connect to address " + proxy.address());
+                                    return null;
+                                } else {
+                                    InetSocketAddress address = (InetSocketAddress) proxy.address();
+                                    return new ProxyServer(Protocol.SOCKS5, address.getHostName(), address.getPort());
+                                }
                             case DIRECT:
                                 return null;
                             default:
@@ -231,6 +239,82 @@ public final class ProxyUtils {
                 }
             }
         };
+
+        return maxCachedSelections > 0 && selectionTtl > 0 ? new CachingProxyServerSelector(selector, maxCachedSelections, selectionTtl) : selector;
+    }
+
+    /**
+     * Memoizes the selections of another {@link ProxyServerSelector}, including the absence of proxy.
+     */
+    private static final class CachingProxyServerSelector implements ProxyServerSelector {
+
+        private static final ProxyServer NO_PROXY = new ProxyServer("direct", 0);
+
+        private final ProxyServerSelector delegate;
+        private final long ttl;
+        private final Map<String, Selection> selections;
+        // the same proxy is shared by every target it was selected for
+        private final Map<String, ProxyServer> proxies = new HashMap<>();
+
+        CachingProxyServerSelector(ProxyServerSelector delegate, final int maxSize, long ttl) {
+            this.delegate = delegate;
+            this.ttl = ttl;
+            selections = new LinkedHashMap<String, Selection>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Selection> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        @Override
+        public ProxyServer select(Uri uri) {
+            String key = AsyncHttpProviderUtils.getBaseUrl(uri);
+            long now = millisTime();
+
+            Selection selection;
+            synchronized (selections) {
+                selection = selections.get(key);
+            }
+
+            if (selection == null || selection.expires <= now) {
+                ProxyServer proxyServer = delegate.select(uri);
+                synchronized (selections) {
+                    if (proxyServer == null) {
+                        proxyServer = NO_PROXY;
+                    } else {
+                        ProxyServer shared = proxies.get(proxyServer.getUrl());
+                        if (shared != null)
+                            proxyServer = shared;
+                        else
+                            proxies.put(proxyServer.getUrl(), proxyServer);
+                    }
+                    selection = new Selection(proxyServer, now + ttl);
+                    selections.put(key, selection);
+                    if (proxies.size() > selections.size()) {
+                        List<ProxyServer> selected = new ArrayList<>(selections.size());
+                        for (Selection s : selections.values())
+                            selected.add(s.proxyServer);
+                        proxies.values().retainAll(selected);
+                    }
+                }
+            }
+
+            return selection.proxyServer == NO_PROXY ? null : selection.proxyServer;
+        }
+
+        private static final class Selection {
+
+            private final ProxyServer proxyServer;
+            private final long expires;
+
+            Selection(ProxyServer proxyServer, long expires) {
+                this.proxyServer = proxyServer;
+                this.expires = expires;
+            }
+        }
     }
 
     /**
@@ -31,6 +31,7 @@ import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
 import org.asynchttpclient.HttpResponseBodyPart;
 import org.asynchttpclient.HttpResponseHeaders;
 import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.RequestTimings;
 import org.asynchttpclient.Response;
 import org.asynchttpclient.cookie.Cookie;
 import org.asynchttpclient.uri.Uri;
@@ -229,6 +230,11 @@ public abstract class WebDavCompletionHandlerBase<T> implements AsyncHandler<T>
                 public SocketAddress getLocalAddress() {
                     return wrappedResponse.getLocalAddress();
                 }
+
+                @Override
+                public RequestTimings getTimings() {
+                    return wrappedResponse.getTimings();
+                }
             };
         }
 
@@ -271,6 +277,11 @@ public abstract class WebDavCompletionHandlerBase<T> implements AsyncHandler<T>
         public SocketAddress getLocalAddress() {
             return wrapped.getLocalAddress();
         }
+
+        @Override
+        public RequestTimings getTimings() {
+            return wrapped.getTimings();
+        }
     }
 
     private Document readXMLResponse(InputStream stream) {
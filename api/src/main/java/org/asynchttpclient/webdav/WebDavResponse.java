@@ -20,6 +20,7 @@ import java.nio.charset.Charset;
 import java.util.List;
 
 import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+import org.asynchttpclient.RequestTimings;
 import org.asynchttpclient.Response;
 import org.asynchttpclient.cookie.Cookie;
 import org.asynchttpclient.uri.Uri;
@@ -115,6 +116,10 @@ public class WebDavResponse implements Response {
         return response.getLocalAddress();
     }
 
+    public RequestTimings getTimings() {
+        return response.getTimings();
+    }
+
     public Document getBodyAsXML() {
         return document;
     }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient;
+
+import static org.testng.Assert.*;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public abstract class CallbackOffloadTest extends AbstractBasicTest {
+
+    private static final String THREAD_NAME = "offloaded-callbacks";
+
+    private static ExecutorService newExecutor() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, THREAD_NAME);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Counts the body bytes, slowly, and checks the callbacks never overlap.
+     */
+    private static class SlowHandler implements AsyncHandler<Long> {
+
+        final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final AtomicInteger running = new AtomicInteger();
+        volatile boolean overlapped;
+        volatile boolean statusFirst;
+        long bytes;
+        int parts;
+
+        private void enter() {
+            threads.add(Thread.currentThread().getName());
+            if (running.incrementAndGet() != 1)
+                overlapped = true;
+        }
+
+        private void exit() {
+            running.decrementAndGet();
+        }
+
+        @Override
+        public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+            enter();
+            statusFirst = bytes == 0;
+            exit();
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+            enter();
+            exit();
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+            enter();
+            bytes += bodyPart.length();
+            if (++parts % 8 == 0)
+                Thread.sleep(1);
+            exit();
+            return State.CONTINUE;
+        }
+
+        @Override
+        public Long onCompleted() throws Exception {
+            enter();
+            exit();
+            return bytes;
+        }
+
+        @Override
+        public void onThrowable(Throwable t) {
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void callbacksRunOnTheExecutorInOrder() throws Exception {
+        ExecutorService executor = newExecutor();
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder()//
+                .setExecutorService(executor)//
+                .setOffloadCallbacks(true)//
+                .setMaxQueuedCallbacks(4)//
+                .build();
+
+        byte[] body = new byte[2 * 1024 * 1024];
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            SlowHandler handler = new SlowHandler();
+            long bytes = client.preparePost(getTargetUrl()).setBody(body).execute(handler).get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(bytes, body.length);
+            assertTrue(handler.statusFirst);
+            assertFalse(handler.overlapped);
+            assertEquals(handler.threads.size(), 1, "callbacks ran on " + handler.threads);
+            assertTrue(handler.threads.contains(THREAD_NAME));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void blockedHandlerDoesntStallOtherRequests() throws Exception {
+        ExecutorService executor = newExecutor();
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder()//
+                .setExecutorService(executor)//
+                .setOffloadCallbacks(true)//
+                .build();
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            ListenableFuture<Response> slow = client.prepareGet(getTargetUrl()).execute(new AsyncCompletionHandlerBase() {
+                @Override
+                public State onStatusReceived(HttpResponseStatus status) throws Exception {
+                    blocked.countDown();
+                    release.await(TIMEOUT, TimeUnit.SECONDS);
+                    return super.onStatusReceived(status);
+                }
+            });
+            assertTrue(blocked.await(TIMEOUT, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 10; i++)
+                assertEquals(client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+
+            release.countDown();
+            assertEquals(slow.get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.metrics.DefaultClientMetrics;
+import org.asynchttpclient.metrics.PartitionMetrics;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public abstract class HedgingTest extends AbstractBasicTest {
+
+    private static final long SLOW = 2000L;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private class FirstHitIsSlowHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String target, org.eclipse.jetty.server.Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+                throws IOException, ServletException {
+            int hit = hits.incrementAndGet();
+            if (hit == 1) {
+                try {
+                    Thread.sleep(SLOW);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = ("hit-" + hit).getBytes();
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+            baseRequest.setHandled(true);
+        }
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new FirstHitIsSlowHandler();
+    }
+
+    @BeforeMethod
+    public void resetHits() {
+        hits.set(0);
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void hedgeWinsWhenPrimaryIsSlow() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy.Builder().setDelay(100).setMaxExtraLoad(1).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setHedgingPolicy(policy).build())) {
+            long start = System.currentTimeMillis();
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(response.getStatusCode(), 200);
+            assertEquals(response.getResponseBody(), "hit-2");
+            assertTrue(duration < SLOW, "Hedge should have answered before the primary, took " + duration);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void hedgedRequestIsRecordedOnce() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy.Builder().setDelay(100).setMaxExtraLoad(1).build();
+        DefaultClientMetrics metrics = new DefaultClientMetrics();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setHedgingPolicy(policy).setClientMetrics(metrics).build())) {
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getResponseBody(), "hit-2");
+
+            assertEquals(metrics.getPartitions().size(), 1);
+            PartitionMetrics partition = metrics.getPartitions().values().iterator().next();
+            assertEquals(partition.getRequestCount(), 1);
+            assertEquals(partition.getResponseCount(), 1);
+            assertEquals(partition.getLatency().getCount(), 1);
+            // the losing primary gets cancelled, that's not a failure of the request
+            assertEquals(partition.getAbortCount(), 0);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void noHedgeWithoutBudget() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy.Builder().setDelay(100).setMaxExtraLoad(0).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setHedgingPolicy(policy).build())) {
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getResponseBody(), "hit-1");
+            assertEquals(hits.get(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void unsafeMethodsAreNotHedged() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy.Builder().setDelay(100).setMaxExtraLoad(1).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setHedgingPolicy(policy).build())) {
+            Response response = client.preparePost(getTargetUrl()).setBody("foo").execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getResponseBody(), "hit-1");
+            assertEquals(hits.get(), 1);
+        }
+    }
+}
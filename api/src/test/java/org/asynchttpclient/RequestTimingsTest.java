@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient;
+
+import static org.asynchttpclient.test.TestUtils.findFreePort;
+import static org.testng.Assert.*;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public abstract class RequestTimingsTest extends AbstractBasicTest {
+
+    private static final class Notification {
+        final Request request;
+        final RequestTimings timings;
+        final Throwable cause;
+
+        Notification(Request request, RequestTimings timings, Throwable cause) {
+            this.request = request;
+            this.timings = timings;
+            this.cause = cause;
+        }
+    }
+
+    private static final class RecordingListener implements RequestTimingsListener {
+        final LinkedBlockingQueue<Notification> notifications = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onRequestTimings(Request request, RequestTimings timings, Throwable cause) {
+            notifications.add(new Notification(request, timings, cause));
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void newConnectionPhasesAreRecorded() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            Response response = client.preparePost(getTargetUrl()).setBody("foo").execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getStatusCode(), 200);
+
+            RequestTimings timings = response.getTimings();
+            assertNotNull(timings);
+            assertTrue(timings.getQueueWaitNanos() >= 0);
+            assertTrue(timings.getPoolPollNanos() >= 0);
+            assertTrue(timings.getDnsResolutionNanos() >= 0);
+            assertTrue(timings.getConnectNanos() >= 0);
+            assertEquals(timings.getTlsHandshakeNanos(), -1L);
+            assertTrue(timings.getRequestWriteNanos() >= 0);
+            assertTrue(timings.getTimeToFirstByteNanos() >= 0);
+            assertTrue(timings.getContentDownloadNanos() >= 0);
+            assertTrue(timings.getTotalNanos() >= timings.getConnectNanos() + timings.getTimeToFirstByteNanos());
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void pooledConnectionHasNoConnectPhase() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            assertEquals(client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            RequestTimings timings = response.getTimings();
+            assertTrue(timings.getPoolPollNanos() >= 0);
+            assertEquals(timings.getDnsResolutionNanos(), -1L);
+            assertEquals(timings.getConnectNanos(), -1L);
+            assertTrue(timings.getTimeToFirstByteNanos() >= 0);
+            assertTrue(timings.getTotalNanos() >= 0);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void listenerIsNotifiedOfCompletedRequests() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimingsListener(listener).build())) {
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            Notification notification = listener.notifications.poll(TIMEOUT, TimeUnit.SECONDS);
+            assertNotNull(notification);
+            assertNull(notification.cause);
+            assertEquals(notification.request.getUrl(), getTargetUrl());
+            assertSame(notification.timings, response.getTimings());
+            assertTrue(notification.timings.getTotalNanos() >= 0);
+            assertNull(listener.notifications.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void listenerIsNotifiedOfFailedRequests() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimingsListener(listener).build())) {
+            try {
+                client.prepareGet("http://127.0.0.1:" + findFreePort()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+                fail("connection should have been refused");
+            } catch (ExecutionException expected) {
+            }
+
+            Notification notification = listener.notifications.poll(TIMEOUT, TimeUnit.SECONDS);
+            assertNotNull(notification);
+            assertNotNull(notification.cause);
+            assertTrue(notification.timings.getDnsResolutionNanos() >= 0);
+            assertEquals(notification.timings.getTimeToFirstByteNanos(), -1L);
+        }
+    }
+}
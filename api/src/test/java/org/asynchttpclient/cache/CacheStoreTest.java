@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+import org.testng.annotations.Test;
+
+public class CacheStoreTest {
+
+    private static CacheEntry entry(String body) {
+        FluentCaseInsensitiveStringsMap headers = new FluentCaseInsensitiveStringsMap();
+        headers.add("Cache-Control", "max-age=60");
+        headers.add("ETag", "\"" + body + "\"");
+        return new CacheEntry(200, "OK", headers, ByteBuffer.wrap(body.getBytes()), 1000L, 2000L,
+                Collections.<String, List<String>> singletonMap("Accept", Collections.singletonList("text/plain")));
+    }
+
+    private static String body(CacheEntry entry) {
+        ByteBuffer body = entry.getBody();
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return new String(bytes);
+    }
+
+    @Test(groups = "fast")
+    public void inMemoryStoreEvictsLeastRecentlyUsed() {
+        long entrySize = InMemoryCacheStore.sizeOf(entry("aaaa"));
+        InMemoryCacheStore store = new InMemoryCacheStore(entrySize * 2);
+        store.put("a", entry("aaaa"));
+        store.put("b", entry("bbbb"));
+        store.get("a");
+        store.put("c", entry("cccc"));
+
+        assertNotNull(store.get("a"));
+        assertNull(store.get("b"));
+        assertNotNull(store.get("c"));
+        assertEquals(store.size(), entrySize * 2);
+    }
+
+    @Test(groups = "fast")
+    public void mappedFileStoreSurvivesReopening() throws Exception {
+        File dir = Files.createTempDirectory("ahc-cache").toFile();
+        try {
+            MappedFileCacheStore store = new MappedFileCacheStore(dir, 1024 * 1024);
+            store.put("GET http://localhost/foo", entry("hello"));
+
+            CacheEntry read = new MappedFileCacheStore(dir, 1024 * 1024).get("GET http://localhost/foo");
+            assertNotNull(read);
+            assertEquals(body(read), "hello");
+            assertEquals(read.getETag(), "\"hello\"");
+            assertEquals(read.getRequestTime(), 1000L);
+            assertEquals(read.getResponseTime(), 2000L);
+            assertEquals(read.getVaryHeaders().get("Accept"), Collections.singletonList("text/plain"));
+
+            store.remove("GET http://localhost/foo");
+            assertNull(store.get("GET http://localhost/foo"));
+        } finally {
+            for (File file : dir.listFiles())
+                file.delete();
+            dir.delete();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void mappedFileStoreEntriesOutliveEviction() throws Exception {
+        File dir = Files.createTempDirectory("ahc-cache").toFile();
+        try {
+            MappedFileCacheStore store = new MappedFileCacheStore(dir, 1024 * 1024);
+            store.put("a", entry("aaaa"));
+            CacheEntry read = store.get("a");
+            assertNotNull(store.get("a"));
+
+            store.clear();
+            assertEquals(dir.listFiles().length, 0);
+            assertEquals(body(read), "aaaa");
+        } finally {
+            for (File file : dir.listFiles())
+                file.delete();
+            dir.delete();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void freshnessFollowsMaxAgeThenExpires() {
+        CacheEntry entry = entry("x");
+        assertEquals(entry.freshnessLifetime(), 60000L);
+        assertTrue(entry.isFresh(CacheControl.parse(null), 2000L + 58000L));
+        assertFalse(entry.isFresh(CacheControl.parse(null), 2000L + 61000L));
+        assertTrue(entry.isFresh(CacheControl.parse(Collections.singletonList("max-stale")), 2000L + 61000L));
+
+        FluentCaseInsensitiveStringsMap headers = new FluentCaseInsensitiveStringsMap();
+        headers.add("Date", "Sun, 06 Nov 1994 08:49:37 GMT");
+        headers.add("Expires", "Sun, 06 Nov 1994 08:50:37 GMT");
+        CacheEntry expires = new CacheEntry(200, "OK", headers, ByteBuffer.allocate(0), 0L, 0L, null);
+        assertEquals(expires.freshnessLifetime(), 60000L);
+    }
+}
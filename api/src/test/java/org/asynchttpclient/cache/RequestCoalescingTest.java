@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncCompletionHandlerBase;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.Response;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public abstract class RequestCoalescingTest extends AbstractBasicTest {
+
+    protected final AtomicInteger hits = new AtomicInteger();
+
+    private class SlowHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                ServletException {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("hit-" + hits.incrementAndGet()).getBytes();
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+            baseRequest.setHandled(true);
+        }
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new SlowHandler();
+    }
+
+    @BeforeMethod
+    public void resetHits() {
+        hits.set(0);
+    }
+
+    private AsyncHttpClient newClient() {
+        return getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setCoalesceRequests(true).build());
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void concurrentIdenticalGetsShareOneExchange() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            List<ListenableFuture<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++)
+                futures.add(client.prepareGet(getTargetUrl()).execute());
+
+            for (ListenableFuture<Response> future : futures) {
+                Response response = future.get(TIMEOUT, TimeUnit.SECONDS);
+                assertEquals(response.getStatusCode(), 200);
+                assertEquals(response.getResponseBody(), "hit-1");
+            }
+            assertEquals(hits.get(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void differentHeadersAreNotCoalesced() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            ListenableFuture<Response> f1 = client.prepareGet(getTargetUrl()).setHeader("Accept", "text/plain").execute();
+            ListenableFuture<Response> f2 = client.prepareGet(getTargetUrl()).setHeader("Accept", "text/html").execute();
+
+            assertNotEquals(f1.get(TIMEOUT, TimeUnit.SECONDS).getResponseBody(), f2.get(TIMEOUT, TimeUnit.SECONDS).getResponseBody());
+            assertEquals(hits.get(), 2);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void cancellingOneWaiterDoesNotAffectOthers() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            ListenableFuture<Response> cancelled = client.prepareGet(getTargetUrl()).execute();
+            ListenableFuture<Response> kept = client.prepareGet(getTargetUrl()).execute();
+
+            assertTrue(cancelled.cancel(true));
+            assertTrue(cancelled.isCancelled());
+            try {
+                cancelled.get();
+                fail("Cancelled future should throw");
+            } catch (CancellationException expected) {
+            }
+
+            assertEquals(kept.get(TIMEOUT, TimeUnit.SECONDS).getResponseBody(), "hit-1");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void oversizedResponseIsNotShared() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().build())) {
+            // bodies are 5 bytes long
+            RequestCoalescer coalescer = new RequestCoalescer(client.getProvider(), client.getConfig(), 4);
+            List<ListenableFuture<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+                futures.add(coalescer.execute(new RequestBuilder().setUrl(getTargetUrl()).build(), new AsyncCompletionHandlerBase()));
+
+            List<String> bodies = new ArrayList<>();
+            for (ListenableFuture<Response> future : futures)
+                bodies.add(future.get(TIMEOUT, TimeUnit.SECONDS).getResponseBody());
+
+            assertEquals(hits.get(), 3);
+            assertTrue(bodies.contains("hit-1"));
+            assertTrue(bodies.contains("hit-2"));
+            assertTrue(bodies.contains("hit-3"));
+            assertEquals(coalescer.inFlightCount(), 0);
+        }
+    }
+}
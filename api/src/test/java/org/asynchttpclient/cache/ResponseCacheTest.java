@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cache;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.handler.TransferCompletionHandler;
+import org.asynchttpclient.handler.TransferListener;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public abstract class ResponseCacheTest extends AbstractBasicTest {
+
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    private class CacheHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                ServletException {
+
+            if ("POST".equals(request.getMethod())) {
+                if (target.startsWith("/fail")) {
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } else {
+                    response.setStatus(HttpServletResponse.SC_CREATED);
+                    response.setHeader("Location", "/fresh");
+                }
+                baseRequest.setHandled(true);
+                return;
+
+            } else if (target.startsWith("/fresh")) {
+                response.setHeader("Cache-Control", "max-age=60");
+
+            } else if (target.startsWith("/etag")) {
+                response.setHeader("Cache-Control", "no-cache");
+                response.setHeader("ETag", "\"v1\"");
+                if ("\"v1\"".equals(request.getHeader("If-None-Match"))) {
+                    notModifiedResponses.incrementAndGet();
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    baseRequest.setHandled(true);
+                    return;
+                }
+
+            } else {
+                response.setHeader("Cache-Control", "no-store");
+            }
+
+            byte[] body = (target + "-" + fullResponses.incrementAndGet()).getBytes();
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+            baseRequest.setHandled(true);
+        }
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new CacheHandler();
+    }
+
+    @BeforeMethod
+    public void resetCounters() {
+        fullResponses.set(0);
+        notModifiedResponses.set(0);
+    }
+
+    private AsyncHttpClient newClient() {
+        HttpResponseCache cache = new HttpResponseCache(new InMemoryCacheStore(1024 * 1024));
+        return getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setResponseCache(cache).build());
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + port1 + path;
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void freshResponseIsServedFromCache() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            Response first = client.prepareGet(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            Response second = client.prepareGet(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(first.getStatusCode(), 200);
+            assertEquals(second.getStatusCode(), 200);
+            assertEquals(second.getResponseBody(), first.getResponseBody());
+            assertNotNull(second.getHeader("Age"));
+            assertEquals(fullResponses.get(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void staleResponseIsRevalidated() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            Response first = client.prepareGet(url("/etag")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            Response second = client.prepareGet(url("/etag")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(second.getStatusCode(), 200);
+            assertEquals(second.getResponseBody(), first.getResponseBody());
+            assertEquals(fullResponses.get(), 1);
+            assertEquals(notModifiedResponses.get(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void transferListenersAreNotified() throws Exception {
+        final AtomicInteger headersSent = new AtomicInteger();
+        TransferCompletionHandler handler = new TransferCompletionHandler();
+        handler.addTransferListener(new TransferListener() {
+            @Override
+            public void onRequestHeadersSent(FluentCaseInsensitiveStringsMap headers) {
+                headersSent.incrementAndGet();
+            }
+
+            @Override
+            public void onResponseHeadersReceived(FluentCaseInsensitiveStringsMap headers) {
+            }
+
+            @Override
+            public void onBytesReceived(byte[] bytes) throws IOException {
+            }
+
+            @Override
+            public void onBytesSent(long amount, long current, long total) {
+            }
+
+            @Override
+            public void onRequestResponseCompleted() {
+            }
+
+            @Override
+            public void onThrowable(Throwable t) {
+            }
+        });
+
+        try (AsyncHttpClient client = newClient()) {
+            assertEquals(client.prepareGet(url("/fresh")).execute(handler).get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+            assertEquals(headersSent.get(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void noStoreResponseIsNotCached() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            client.prepareGet(url("/nostore")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            Response second = client.prepareGet(url("/nostore")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(second.getResponseBody(), "/nostore-2");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void unsafeMethodInvalidates() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            client.prepareGet(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            client.preparePost(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            Response third = client.prepareGet(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(third.getResponseBody(), "/fresh-2");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void failedUnsafeMethodDoesntInvalidate() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            client.prepareGet(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            Response post = client.preparePost(url("/fail")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            Response third = client.prepareGet(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(post.getStatusCode(), 500);
+            assertEquals(third.getResponseBody(), "/fresh-1");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void unsafeMethodInvalidatesLocation() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            client.prepareGet(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            Response post = client.preparePost(url("/create")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            Response third = client.prepareGet(url("/fresh")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(post.getStatusCode(), 201);
+            assertEquals(third.getResponseBody(), "/fresh-2");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void onlyIfCachedWithoutEntryGetsGatewayTimeout() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            Response response = client.prepareGet(url("/fresh")).setHeader("Cache-Control", "only-if-cached").execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 504);
+            assertEquals(fullResponses.get(), 0);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.channel;
+
+import static org.asynchttpclient.test.TestUtils.findFreePort;
+import static org.testng.Assert.*;
+
+import java.net.ConnectException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Response;
+import org.testng.annotations.Test;
+
+public abstract class CircuitBreakerTest extends AbstractBasicTest {
+
+    private AsyncHttpClientConfig config(int openDuration) {
+        return new AsyncHttpClientConfig.Builder()//
+                .setCircuitBreakerFailureThreshold(2)//
+                .setCircuitBreakerOpenDuration(openDuration)//
+                .setMaxRequestRetry(0)//
+                .build();
+    }
+
+    private Throwable failure(AsyncHttpClient client, String url) throws Exception {
+        try {
+            client.prepareGet(url).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Request should have failed");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static boolean isCircuitOpen(Throwable t) {
+        return t.getMessage() != null && t.getMessage().contains("Circuit breaker is open");
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void failsFastOnceOpen() throws Exception {
+        String deadUrl = "http://127.0.0.1:" + findFreePort() + "/";
+        try (AsyncHttpClient client = getAsyncHttpClient(config(60000))) {
+            assertTrue(failure(client, deadUrl) instanceof ConnectException);
+            assertTrue(failure(client, deadUrl) instanceof ConnectException);
+            assertTrue(isCircuitOpen(failure(client, deadUrl)));
+
+            // other hosts aren't affected
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getStatusCode(), 200);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void probeIsLetThroughOnceOpenDurationElapsed() throws Exception {
+        String deadUrl = "http://127.0.0.1:" + findFreePort() + "/";
+        try (AsyncHttpClient client = getAsyncHttpClient(config(200))) {
+            failure(client, deadUrl);
+            failure(client, deadUrl);
+            assertTrue(isCircuitOpen(failure(client, deadUrl)));
+
+            Thread.sleep(300);
+            // the probe hits the network and fails, which re-opens the circuit
+            assertTrue(failure(client, deadUrl) instanceof ConnectException);
+            assertTrue(isCircuitOpen(failure(client, deadUrl)));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.channel;
+
+import static org.asynchttpclient.test.TestUtils.findFreePort;
+import static org.testng.Assert.*;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Response;
+import org.testng.annotations.Test;
+
+public abstract class HappyEyeballsTest extends AbstractBasicTest {
+
+    private static NameResolver resolver(final String... addresses) {
+        return new NameResolver() {
+            @Override
+            public List<InetAddress> resolve(String name) throws UnknownHostException {
+                InetAddress[] resolved = new InetAddress[addresses.length];
+                for (int i = 0; i < addresses.length; i++)
+                    resolved[i] = InetAddress.getByName(addresses[i]);
+                return Arrays.asList(resolved);
+            }
+        };
+    }
+
+    private AsyncHttpClientConfig config() {
+        return new AsyncHttpClientConfig.Builder()//
+                .setConnectTimeout(30000)//
+                .setConnectionAttemptDelay(100)//
+                .setMaxRequestRetry(0)//
+                .build();
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void unreachableAddressDoesntCostTheConnectTimeout() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(config())) {
+            long start = System.currentTimeMillis();
+            // 192.0.2.0/24 is reserved for documentation, connecting there either hangs or fails right away
+            Response response = client.prepareGet(getTargetUrl()).setNameResolver(resolver("192.0.2.1", "127.0.0.1")).execute()
+                    .get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 200);
+            assertTrue(System.currentTimeMillis() - start < 5000, "Took the connect timeout");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void failsOnceEveryAddressFailed() throws Exception {
+        String deadUrl = "http://localhost:" + findFreePort() + "/";
+        try (AsyncHttpClient client = getAsyncHttpClient(config())) {
+            client.prepareGet(deadUrl).setNameResolver(resolver("127.0.0.1", "127.0.0.1")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Request should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ConnectException, "Unexpected cause " + e.getCause());
+        }
+    }
+}
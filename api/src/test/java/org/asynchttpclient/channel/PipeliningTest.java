@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.channel;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Response;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public abstract class PipeliningTest extends AbstractBasicTest {
+
+    private final Set<Integer> remotePorts = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    private volatile CountDownLatch slowRequestReceived;
+    private volatile CountDownLatch releaseSlowRequest;
+
+    @BeforeMethod(alwaysRun = true)
+    public void reset() {
+        remotePorts.clear();
+        slowRequestReceived = new CountDownLatch(1);
+        releaseSlowRequest = new CountDownLatch(1);
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                    ServletException {
+                remotePorts.add(request.getRemotePort());
+                if (target.equals("/slow")) {
+                    slowRequestReceived.countDown();
+                    try {
+                        releaseSlowRequest.await(TIMEOUT, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (request.getParameter("close") != null)
+                        response.setHeader("Connection", "close");
+                }
+                response.setStatus(200);
+                byte[] body = (target + (request.getQueryString() != null ? "?" + request.getQueryString() : "")).getBytes();
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+                baseRequest.setHandled(true);
+            }
+        };
+    }
+
+    private String url(String pathAndQuery) {
+        return "http://127.0.0.1:" + port1 + pathAndQuery;
+    }
+
+    private AsyncHttpClient newClient() {
+        return getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setMaxPipelinedRequests(4).build());
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void requestsArePipelinedOnTheBusyConnection() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            ListenableFuture<Response> slow = client.prepareGet(url("/slow")).execute();
+            assertTrue(slowRequestReceived.await(TIMEOUT, TimeUnit.SECONDS));
+
+            List<ListenableFuture<Response>> pipelined = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+                pipelined.add(client.prepareGet(url("/fast?i=" + i)).execute());
+            releaseSlowRequest.countDown();
+
+            assertEquals(slow.get(TIMEOUT, TimeUnit.SECONDS).getResponseBody(), "/slow");
+            for (int i = 0; i < 3; i++)
+                assertEquals(pipelined.get(i).get(TIMEOUT, TimeUnit.SECONDS).getResponseBody(), "/fast?i=" + i);
+            assertEquals(remotePorts.size(), 1, "Requests were sent over several connections");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void requestsWithABodyAreNotPipelined() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            ListenableFuture<Response> slow = client.prepareGet(url("/slow")).execute();
+            assertTrue(slowRequestReceived.await(TIMEOUT, TimeUnit.SECONDS));
+
+            Response post = client.preparePost(url("/post")).setBody("foo").execute().get(TIMEOUT, TimeUnit.SECONDS);
+            releaseSlowRequest.countDown();
+
+            assertEquals(post.getResponseBody(), "/post");
+            assertEquals(slow.get(TIMEOUT, TimeUnit.SECONDS).getResponseBody(), "/slow");
+            assertEquals(remotePorts.size(), 2);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void unansweredRequestsAreReplayedWhenTheConnectionCloses() throws Exception {
+        try (AsyncHttpClient client = newClient()) {
+            ListenableFuture<Response> slow = client.prepareGet(url("/slow?close=true")).execute();
+            assertTrue(slowRequestReceived.await(TIMEOUT, TimeUnit.SECONDS));
+
+            List<ListenableFuture<Response>> pipelined = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+                pipelined.add(client.prepareGet(url("/fast?i=" + i)).execute());
+            releaseSlowRequest.countDown();
+
+            assertEquals(slow.get(TIMEOUT, TimeUnit.SECONDS).getResponseBody(), "/slow?close=true");
+            for (int i = 0; i < 3; i++)
+                assertEquals(pipelined.get(i).get(TIMEOUT, TimeUnit.SECONDS).getResponseBody(), "/fast?i=" + i);
+            assertTrue(remotePorts.size() > 1, "Pipelined requests weren't sent again over a new connection");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.channel;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.test.EventCollectingHandler;
+import org.testng.annotations.Test;
+
+public abstract class WarmUpTest extends AbstractBasicTest {
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void warmConnectionsAreReused() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            assertEquals(client.warmUp(getTargetUrl(), 2).get(TIMEOUT, TimeUnit.SECONDS), Integer.valueOf(2));
+
+            EventCollectingHandler handler = new EventCollectingHandler();
+            Response response = client.prepareGet(getTargetUrl()).execute(handler).get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 200);
+            assertTrue(handler.firedEvents.contains("ConnectionPooled"), "Warm connection wasn't used: " + handler.firedEvents);
+            assertFalse(handler.firedEvents.contains("ConnectionOpen"), "A new connection was opened: " + handler.firedEvents);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void warmUpRespectsMaxConnectionsPerHost() throws Exception {
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setMaxConnectionsPerHost(2).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            assertEquals(client.warmUp(getTargetUrl(), 5).get(TIMEOUT, TimeUnit.SECONDS), Integer.valueOf(2));
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void idleConnectionsAreToppedUp() throws Exception {
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder()//
+                .setMaxConnectionsPerHost(2)//
+                .setMinIdleConnectionsPerHost(2)//
+                .build();
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            assertEquals(client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+
+            // the maintenance runs every second, by then both connections should be idle in the pool
+            Thread.sleep(2500);
+            assertEquals(client.warmUp(getTargetUrl(), 1).get(TIMEOUT, TimeUnit.SECONDS), Integer.valueOf(0));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.channel.pool;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Response;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public abstract class ConnectionPoolStatsTest extends AbstractBasicTest {
+
+    private volatile CountDownLatch slowRequestReceived;
+    private volatile CountDownLatch releaseSlowRequest;
+
+    @BeforeMethod(alwaysRun = true)
+    public void reset() {
+        slowRequestReceived = new CountDownLatch(1);
+        releaseSlowRequest = new CountDownLatch(1);
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                    ServletException {
+                if (target.equals("/slow")) {
+                    slowRequestReceived.countDown();
+                    try {
+                        releaseSlowRequest.await(TIMEOUT, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                response.setStatus(200);
+                response.setContentLength(0);
+                baseRequest.setHandled(true);
+            }
+        };
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + port1 + path;
+    }
+
+    private static ConnectionPoolStats awaitStats(AsyncHttpClient client, long timeout, StatsCondition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        ConnectionPoolStats stats = client.getConnectionPoolSnapshot().getTotal();
+        while (!condition.matches(stats) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            stats = client.getConnectionPoolSnapshot().getTotal();
+        }
+        return stats;
+    }
+
+    private interface StatsCondition {
+        boolean matches(ConnectionPoolStats stats);
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void pooledConnectionIsCountedAsReused() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().build())) {
+            assertEquals(client.getConnectionPoolSnapshot().getTotal().getCreated(), 0L);
+
+            for (int i = 0; i < 3; i++)
+                assertEquals(client.prepareGet(url("/")).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+
+            ConnectionPoolStats stats = awaitStats(client, 5000, new StatsCondition() {
+                @Override
+                public boolean matches(ConnectionPoolStats stats) {
+                    return stats.getIdle() == 1;
+                }
+            });
+            assertEquals(stats.getCreated(), 1L);
+            assertEquals(stats.getReused(), 2L);
+            assertEquals(stats.getIdle(), 1L);
+            assertEquals(stats.getActive(), 0L);
+            assertEquals(stats.getPendingAcquire(), 0L);
+
+            ConnectionPoolSnapshot snapshot = client.getConnectionPoolSnapshot();
+            assertEquals(snapshot.getPartitions().size(), 1);
+            assertEquals(snapshot.getPartitions().values().iterator().next().getReused(), 2L);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void busyConnectionIsCountedAsActive() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().build())) {
+            ListenableFuture<Response> slow = client.prepareGet(url("/slow")).execute();
+            try {
+                assertTrue(slowRequestReceived.await(TIMEOUT, TimeUnit.SECONDS));
+
+                ConnectionPoolStats stats = client.getConnectionPoolSnapshot().getTotal();
+                assertEquals(stats.getActive(), 1L);
+                assertEquals(stats.getIdle(), 0L);
+                assertEquals(stats.getCreated(), 1L);
+            } finally {
+                releaseSlowRequest.countDown();
+            }
+            assertEquals(slow.get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void idleConnectionEvictionIsCounted() throws Exception {
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setPooledConnectionIdleTimeout(300).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            assertEquals(client.prepareGet(url("/")).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+
+            ConnectionPoolStats stats = awaitStats(client, 5000, new StatsCondition() {
+                @Override
+                public boolean matches(ConnectionPoolStats stats) {
+                    return stats.getEvictedIdle() == 1 && stats.getOpen() == 0;
+                }
+            });
+            assertEquals(stats.getEvictedIdle(), 1L);
+            assertEquals(stats.getEvictedTtl(), 0L);
+            assertEquals(stats.getIdle(), 0L);
+            assertEquals(stats.getActive(), 0L);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void ttlEvictionIsCounted() throws Exception {
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setConnectionTTL(300).setPooledConnectionIdleTimeout(60000).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            assertEquals(client.prepareGet(url("/")).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+
+            ConnectionPoolStats stats = awaitStats(client, 5000, new StatsCondition() {
+                @Override
+                public boolean matches(ConnectionPoolStats stats) {
+                    return stats.getEvictedTtl() == 1 && stats.getOpen() == 0;
+                }
+            });
+            assertEquals(stats.getEvictedTtl(), 1L);
+            assertEquals(stats.getEvictedIdle(), 0L);
+            assertEquals(stats.getOpen(), 0L);
+        }
+    }
+}
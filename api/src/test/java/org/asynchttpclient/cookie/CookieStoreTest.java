@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cookie;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Response;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.Test;
+
+public abstract class CookieStoreTest extends AbstractBasicTest {
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                    ServletException {
+                if (target.equals("/login")) {
+                    response.addHeader("Set-Cookie", "session=abc; Path=/");
+                    response.addHeader("Set-Cookie", "admin=1; Path=/admin");
+                } else if (target.equals("/logout")) {
+                    response.addHeader("Set-Cookie", "session=; Max-Age=0; Path=/");
+                } else if (target.equals("/redirect")) {
+                    response.addHeader("Set-Cookie", "redirected=true; Path=/");
+                    response.sendRedirect("/echo");
+                    baseRequest.setHandled(true);
+                    return;
+                } else if (target.equals("/relogin")) {
+                    response.addHeader("Set-Cookie", "session=def; Path=/");
+                    response.sendRedirect("/echo");
+                    baseRequest.setHandled(true);
+                    return;
+                }
+                String cookie = request.getHeader("Cookie");
+                if (cookie != null)
+                    response.addHeader("X-Cookie", cookie);
+                response.setStatus(200);
+                baseRequest.setHandled(true);
+            }
+        };
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + port1 + path;
+    }
+
+    private AsyncHttpClient newClient(CookieStore cookieStore) {
+        return getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setCookieStore(cookieStore).build());
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void receivedCookiesAreSentBackWithMatchingRequests() throws Exception {
+        try (AsyncHttpClient client = newClient(new ThreadSafeCookieStore())) {
+            client.prepareGet(url("/login")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            Response response = client.prepareGet(url("/home")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Cookie"), "session=abc");
+
+            response = client.prepareGet(url("/admin/users")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Cookie"), "admin=1; session=abc");
+
+            client.prepareGet(url("/logout")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            response = client.prepareGet(url("/home")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertNull(response.getHeader("X-Cookie"));
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void requestCookiesOverrideStoredOnes() throws Exception {
+        try (AsyncHttpClient client = newClient(new ThreadSafeCookieStore())) {
+            client.prepareGet(url("/login")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            Response response = client.prepareGet(url("/home")).addCookie(new Cookie("session", "xyz", false, null, null, -1L, false, false))
+                    .execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Cookie"), "session=xyz");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void cookiesSetWithARedirectAreFollowed() throws Exception {
+        CookieStore cookieStore = new ThreadSafeCookieStore();
+        try (AsyncHttpClient client = newClient(cookieStore)) {
+            Response response = client.prepareGet(url("/redirect")).setFollowRedirect(true).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Cookie"), "redirected=true");
+            assertEquals(cookieStore.getAll().size(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void cookiesSetWithARedirectOverrideRequestCookies() throws Exception {
+        try (AsyncHttpClient client = newClient(new ThreadSafeCookieStore())) {
+            Response response = client.prepareGet(url("/relogin")).addCookie(new Cookie("session", "xyz", false, null, null, -1L, false, false))
+                    .setFollowRedirect(true).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Cookie"), "session=def");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void cookiesAreNotKeptWithoutAStore() throws Exception {
+        try (AsyncHttpClient client = newClient(null)) {
+            client.prepareGet(url("/login")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            Response response = client.prepareGet(url("/home")).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertNull(response.getHeader("X-Cookie"));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.cookie;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.asynchttpclient.uri.Uri;
+import org.testng.annotations.Test;
+
+public class ThreadSafeCookieStoreTest {
+
+    private static List<String> names(List<Cookie> cookies) {
+        List<String> names = new ArrayList<>();
+        for (Cookie cookie : cookies)
+            names.add(cookie.getName());
+        return names;
+    }
+
+    @Test(groups = "fast")
+    public void hostOnlyCookiesAreNotSentToSubdomains() {
+        CookieStore store = new ThreadSafeCookieStore();
+        store.add(Uri.create("http://example.com/"), CookieDecoder.decode("foo=bar"));
+
+        assertEquals(names(store.get(Uri.create("http://example.com/"))), Arrays.asList("foo"));
+        assertTrue(store.get(Uri.create("http://www.example.com/")).isEmpty());
+        assertTrue(store.get(Uri.create("http://other.com/")).isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void domainCookiesAreSentToSubdomains() {
+        CookieStore store = new ThreadSafeCookieStore();
+        store.add(Uri.create("http://www.example.com/"), CookieDecoder.decode("foo=bar; Domain=.example.com"));
+
+        assertEquals(names(store.get(Uri.create("http://example.com/"))), Arrays.asList("foo"));
+        assertEquals(names(store.get(Uri.create("http://a.b.example.com/"))), Arrays.asList("foo"));
+        assertTrue(store.get(Uri.create("http://badexample.com/")).isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void cookiesForAnotherDomainOrATopLevelDomainAreRejected() {
+        CookieStore store = new ThreadSafeCookieStore();
+        store.add(Uri.create("http://www.example.com/"), CookieDecoder.decode("foo=bar; Domain=other.com"));
+        store.add(Uri.create("http://www.example.com/"), CookieDecoder.decode("foo=bar; Domain=com"));
+
+        assertTrue(store.getAll().isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void pathsMatchOnSegmentsAndMostSpecificComesFirst() {
+        CookieStore store = new ThreadSafeCookieStore();
+        Uri uri = Uri.create("http://example.com/");
+        store.add(uri, CookieDecoder.decode("root=1; Path=/"));
+        store.add(uri, CookieDecoder.decode("docs=1; Path=/docs"));
+
+        assertEquals(names(store.get(Uri.create("http://example.com/docs/index.html"))), Arrays.asList("docs", "root"));
+        assertEquals(names(store.get(Uri.create("http://example.com/docs"))), Arrays.asList("docs", "root"));
+        assertEquals(names(store.get(Uri.create("http://example.com/docsets"))), Arrays.asList("root"));
+    }
+
+    @Test(groups = "fast")
+    public void defaultPathIsTheRequestDirectory() {
+        CookieStore store = new ThreadSafeCookieStore();
+        store.add(Uri.create("http://example.com/app/login"), CookieDecoder.decode("foo=bar"));
+
+        assertEquals(names(store.get(Uri.create("http://example.com/app/home"))), Arrays.asList("foo"));
+        assertTrue(store.get(Uri.create("http://example.com/other")).isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void secureCookiesAreOnlySentOverHttps() {
+        CookieStore store = new ThreadSafeCookieStore();
+        store.add(Uri.create("https://example.com/"), CookieDecoder.decode("foo=bar; Secure"));
+
+        assertTrue(store.get(Uri.create("http://example.com/")).isEmpty());
+        assertEquals(names(store.get(Uri.create("https://example.com/"))), Arrays.asList("foo"));
+    }
+
+    @Test(groups = "fast")
+    public void cookiesAreReplacedAndDeleted() {
+        CookieStore store = new ThreadSafeCookieStore();
+        Uri uri = Uri.create("http://example.com/");
+        store.add(uri, CookieDecoder.decode("foo=bar"));
+        store.add(uri, CookieDecoder.decode("foo=baz"));
+
+        List<Cookie> cookies = store.get(uri);
+        assertEquals(cookies.size(), 1);
+        assertEquals(cookies.get(0).getValue(), "baz");
+
+        store.add(uri, CookieDecoder.decode("foo=baz; Max-Age=0"));
+        assertTrue(store.get(uri).isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void expiredCookiesAreEvicted() throws InterruptedException {
+        CookieStore store = new ThreadSafeCookieStore();
+        Uri uri = Uri.create("http://example.com/");
+        store.add(uri, new Cookie("foo", "bar", false, null, null, 1L, false, false));
+        store.add(uri, CookieDecoder.decode("session=1"));
+        assertEquals(store.getAll().size(), 2);
+
+        Thread.sleep(1100L);
+        assertEquals(names(store.get(uri)), Arrays.asList("session"));
+        assertEquals(store.getAll().size(), 1);
+    }
+}
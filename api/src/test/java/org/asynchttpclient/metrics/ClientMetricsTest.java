@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.metrics;
+
+import static org.asynchttpclient.test.TestUtils.findFreePort;
+import static org.testng.Assert.*;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.testng.annotations.Test;
+
+public abstract class ClientMetricsTest extends AbstractBasicTest {
+
+    private static PartitionMetrics singlePartition(DefaultClientMetrics metrics) {
+        assertEquals(metrics.getPartitions().size(), 1);
+        return metrics.getPartitions().values().iterator().next();
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void completedRequestsAreRecorded() throws Exception {
+        DefaultClientMetrics metrics = new DefaultClientMetrics();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setClientMetrics(metrics).build())) {
+            for (int i = 0; i < 3; i++)
+                assertEquals(client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+
+            PartitionMetrics partition = singlePartition(metrics);
+            assertEquals(partition.getRequestCount(), 3);
+            assertEquals(partition.getResponseCount(), 3);
+            assertEquals(partition.getServerErrorCount(), 0);
+            assertEquals(partition.getAbortCount(), 0);
+            // the connection is pooled after the first request
+            assertEquals(partition.getConnectCount(), 1);
+            assertEquals(partition.getConnectTime().getCount(), 1);
+            assertEquals(partition.getTimeToFirstByte().getCount(), 3);
+            assertEquals(partition.getLatency().getCount(), 3);
+            assertTrue(partition.getLatency().getValueAtPercentile(50.0) >= partition.getTimeToFirstByte().getValueAtPercentile(0.0));
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void abortedRequestsAreRecorded() throws Exception {
+        DefaultClientMetrics metrics = new DefaultClientMetrics();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setClientMetrics(metrics).build())) {
+            try {
+                client.prepareGet("http://127.0.0.1:" + findFreePort()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+                fail("connection should have been refused");
+            } catch (ExecutionException expected) {
+            }
+
+            PartitionMetrics partition = singlePartition(metrics);
+            assertEquals(partition.getRequestCount(), 1);
+            assertEquals(partition.getResponseCount(), 0);
+            assertEquals(partition.getAbortCount(), 1);
+            assertEquals(partition.getAbortLatency().getCount(), 1);
+            assertEquals(partition.getLatency().getCount(), 0);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.metrics;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+
+    @Test(groups = "fast")
+    public void bucketsBoundTheRelativeError() {
+        for (long micros = 0; micros < 1000000; micros += 7) {
+            int index = LatencyHistogram.index(micros);
+            long highest = LatencyHistogram.highestEquivalentValue(index);
+            assertTrue(highest >= micros, micros + " > " + highest);
+            assertTrue(highest - micros <= micros / 16, micros + " recorded as " + highest);
+            if (index > 0)
+                assertTrue(LatencyHistogram.highestEquivalentValue(index - 1) < micros);
+        }
+        assertEquals(LatencyHistogram.index(LatencyHistogram.MAX_MICROS), LatencyHistogram.BUCKET_COUNT - 1);
+    }
+
+    @Test(groups = "fast")
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.MINUTES);
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        histogram.record(-1L);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(snapshot.getCount(), 1000);
+        assertEquals(snapshot.getMax(), TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals(snapshot.getMean(), TimeUnit.MICROSECONDS.toNanos(500500), 1.0);
+        assertWithin(snapshot.getValueAtPercentile(50.0), TimeUnit.MILLISECONDS.toNanos(500));
+        assertWithin(snapshot.getValueAtPercentile(99.0), TimeUnit.MILLISECONDS.toNanos(990));
+        assertEquals(snapshot.getValueAtPercentile(100.0), snapshot.getMax());
+    }
+
+    @Test(groups = "fast")
+    public void emptySnapshot() {
+        HistogramSnapshot snapshot = new LatencyHistogram(1, TimeUnit.MINUTES).snapshot();
+        assertEquals(snapshot.getCount(), 0);
+        assertEquals(snapshot.getValueAtPercentile(99.0), 0);
+        assertEquals(snapshot.getMean(), 0.0);
+    }
+
+    @Test(groups = "fast")
+    public void expiredWindowsAreForgotten() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(50, TimeUnit.MILLISECONDS);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(histogram.snapshot().getCount(), 1);
+
+        Thread.sleep(150);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(snapshot.getCount(), 1);
+        assertEquals(snapshot.getMax(), TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16, actual + " is not close to " + expected);
+    }
+}
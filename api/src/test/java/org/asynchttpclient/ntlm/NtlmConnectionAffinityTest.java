@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.ntlm;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.Realm;
+import org.asynchttpclient.Realm.AuthScheme;
+import org.asynchttpclient.Response;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.Test;
+
+public abstract class NtlmConnectionAffinityTest extends AbstractBasicTest {
+
+    private static final String TYPE1 = "NTLM TlRMTVNTUAABAAAAAYIIogAAAAAoAAAAAAAAACgAAAAFASgKAAAADw==";
+    private static final String TYPE2 = "NTLM TlRMTVNTUAACAAAAAAAAACgAAAABggAAU3J2Tm9uY2UAAAAAAAAAAA==";
+    private static final String TYPE3 = "NTLM TlRMTVNTUAADAAAAGAAYAEgAAAAYABgAYAAAABQAFAB4AAAADAAMAIwAAAASABIAmAAAAAAAAACqAAAAAYIAAgUBKAoAAAAPrYfKbe/jRoW5xDxHeoxC1gBmfWiS5+iX4OAN4xBKG/IFPwfH3agtPEia6YnhsADTVQBSAFMAQQAtAE0ASQBOAE8AUgBaAGEAcABoAG8AZABMAGkAZwBoAHQAQwBpAHQAeQA=";
+
+    private final AtomicInteger handshakes = new AtomicInteger();
+
+    /**
+     * Like a real NTLM server, authenticates connections: requests on an authenticated connection don't need any
+     * Authorization header. Requests with a "public" parameter don't require authentication.
+     */
+    private class ConnectionAuthenticatingHandler extends AbstractHandler {
+
+        private final Set<EndPoint> authenticated = Collections.newSetFromMap(new ConcurrentHashMap<EndPoint, Boolean>());
+
+        @Override
+        public void handle(String pathInContext, org.eclipse.jetty.server.Request request, HttpServletRequest httpRequest,
+                HttpServletResponse httpResponse) throws IOException, ServletException {
+
+            EndPoint endPoint = request.getHttpChannel().getEndPoint();
+            String authorization = httpRequest.getHeader("Authorization");
+
+            if (httpRequest.getParameter("public") != null) {
+                httpResponse.setStatus(200);
+                httpResponse.setHeader("X-Authenticated", String.valueOf(authenticated.contains(endPoint)));
+
+            } else if (authorization == null) {
+                httpResponse.setStatus(authenticated.contains(endPoint) ? 200 : 401);
+                httpResponse.setHeader("WWW-Authenticate", "NTLM");
+
+            } else if (authorization.equals(TYPE1)) {
+                handshakes.incrementAndGet();
+                httpResponse.setStatus(401);
+                httpResponse.setHeader("WWW-Authenticate", TYPE2);
+
+            } else if (authorization.equals(TYPE3)) {
+                authenticated.add(endPoint);
+                httpResponse.setStatus(200);
+
+            } else {
+                httpResponse.setStatus(401);
+            }
+
+            httpResponse.setContentLength(0);
+            httpResponse.getOutputStream().flush();
+            httpResponse.getOutputStream().close();
+        }
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new ConnectionAuthenticatingHandler();
+    }
+
+    private Realm realm() {
+        return new Realm.RealmBuilder()//
+                .setScheme(AuthScheme.NTLM)//
+                .setNtlmDomain("Ursa-Minor")//
+                .setNtlmHost("LightCity")//
+                .setPrincipal("Zaphod")//
+                .setPassword("Beeblebrox")//
+                .build();
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void authenticatedConnectionsArePreferred() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            // unauthenticated connections in the pool
+            assertEquals(client.warmUp(getTargetUrl(), 3).get(TIMEOUT, TimeUnit.SECONDS), Integer.valueOf(3));
+            handshakes.set(0);
+
+            for (int i = 0; i < 5; i++) {
+                Response response = client.prepareGet(getTargetUrl()).setRealm(realm()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+                assertEquals(response.getStatusCode(), 200);
+            }
+            assertEquals(handshakes.get(), 1, "NTLM handshakes");
+
+            // authenticated connections aren't handed out to requests without the credentials
+            Response response = client.prepareGet(getTargetUrl()).addQueryParam("public", "true").execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Authenticated"), "false");
+        }
+    }
+}
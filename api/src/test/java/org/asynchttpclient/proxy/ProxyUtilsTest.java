@@ -12,12 +12,23 @@
  */
 package org.asynchttpclient.proxy;
 
-import static org.testng.Assert.assertFalse;
-import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.asynchttpclient.Request;
 import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.channel.pool.ConnectionPoolPartitioning.PerHostConnectionPoolPartitioning;
 import org.asynchttpclient.proxy.ProxyServer;
+import org.asynchttpclient.uri.Uri;
 import org.asynchttpclient.util.ProxyUtils;
 import org.testng.annotations.Test;
 
@@ -46,4 +57,112 @@ public class ProxyUtilsTest {
         proxyServer.addNonProxyHost("*.somewhere.org");
         assertFalse(ProxyUtils.avoidProxy(proxyServer, req));
     }
+
+    @Test(groups = "fast")
+    public void proxyPartitionKeysAreValues() {
+        Uri uri = Uri.create("http://somewhere.com/foo");
+        Object key1 = PerHostConnectionPoolPartitioning.INSTANCE.getPartitionKey(uri, null, new ProxyServer("foo", 1234));
+        Object key2 = PerHostConnectionPoolPartitioning.INSTANCE.getPartitionKey(uri, null, new ProxyServer("foo", 1234));
+        assertEquals(key1, key2);
+        assertEquals(key1.hashCode(), key2.hashCode());
+
+        assertNotEquals(key1, PerHostConnectionPoolPartitioning.INSTANCE.getPartitionKey(uri, null, new ProxyServer("bar", 1234)));
+        assertNotEquals(key1, PerHostConnectionPoolPartitioning.INSTANCE.getPartitionKey(Uri.create("http://elsewhere.com/foo"), null,
+                new ProxyServer("foo", 1234)));
+    }
+
+    @Test(groups = "fast")
+    public void proxySelectionsAreCached() {
+        final AtomicInteger selections = new AtomicInteger();
+        ProxySelector jdkSelector = new ProxySelector() {
+            @Override
+            public List<Proxy> select(URI uri) {
+                selections.incrementAndGet();
+                if (uri.getHost().equals("direct.com"))
+                    return Collections.singletonList(Proxy.NO_PROXY);
+                return Collections.singletonList(new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved("proxy", 3128)));
+            }
+
+            @Override
+            public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+            }
+        };
+
+        ProxyServerSelector selector = ProxyUtils.createProxyServerSelector(jdkSelector, 16, 60000L);
+        ProxyServer proxy = selector.select(Uri.create("http://somewhere.com/foo"));
+        assertEquals(proxy.getUrl(), "http://proxy:3128");
+        assertSame(selector.select(Uri.create("http://somewhere.com/bar?baz")), proxy);
+        assertSame(selector.select(Uri.create("http://elsewhere.com/")), proxy);
+        assertNull(selector.select(Uri.create("http://direct.com/")));
+        assertNull(selector.select(Uri.create("http://direct.com/again")));
+        assertEquals(selections.get(), 3);
+
+        // a different scheme is a different selection
+        selector.select(Uri.create("https://somewhere.com/foo"));
+        assertEquals(selections.get(), 4);
+
+        // caching is opt-in
+        ProxyServerSelector uncached = ProxyUtils.createProxyServerSelector(jdkSelector);
+        uncached.select(Uri.create("http://somewhere.com/foo"));
+        uncached.select(Uri.create("http://somewhere.com/foo"));
+        assertEquals(selections.get(), 6);
+    }
+
+    @Test(groups = "fast")
+    public void cachedProxySelectionsExpire() throws Exception {
+        final AtomicInteger selections = new AtomicInteger();
+        ProxySelector jdkSelector = new ProxySelector() {
+            @Override
+            public List<Proxy> select(URI uri) {
+                selections.incrementAndGet();
+                return Collections.singletonList(Proxy.NO_PROXY);
+            }
+
+            @Override
+            public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+            }
+        };
+
+        ProxyServerSelector selector = ProxyUtils.createProxyServerSelector(jdkSelector, 16, 50L);
+        selector.select(Uri.create("http://somewhere.com/foo"));
+        selector.select(Uri.create("http://somewhere.com/foo"));
+        assertEquals(selections.get(), 1);
+
+        Thread.sleep(100L);
+        selector.select(Uri.create("http://somewhere.com/foo"));
+        assertEquals(selections.get(), 2);
+    }
+
+    private static boolean legacyMatchNonProxyHost(String targetHost, String nonProxyHost) {
+        if (nonProxyHost.length() > 1) {
+            if (nonProxyHost.charAt(0) == '*')
+                return targetHost.regionMatches(true, targetHost.length() - nonProxyHost.length() + 1, nonProxyHost, 1,
+                        nonProxyHost.length() - 1);
+            else if (nonProxyHost.charAt(nonProxyHost.length() - 1) == '*')
+                return targetHost.regionMatches(true, 0, nonProxyHost, 0, nonProxyHost.length() - 1);
+        }
+        return nonProxyHost.equalsIgnoreCase(targetHost);
+    }
+
+    @Test(groups = "fast")
+    public void compiledNonProxyHostsMatchLikeWildcardRules() {
+        String[] patterns = { "localhost", "*.internal.corp", "*corp.net", "10.*", "192.168.1.*", "Exact.Example.COM", "*", "*x*", "a*" };
+        String[] hosts = { "localhost", "LOCALHOST", "localhost.localdomain", "svc.internal.corp", ".internal.corp", "internal.corp",
+                "SVC.INTERNAL.CORP", "megacorp.net", "corp.net", "orp.net", "10.0.0.1", "110.0.0.1", "192.168.1.20", "192.168.10.1",
+                "exact.example.com", "exact.example.com.evil", "*", "x*", "ax*", "a", "abc", "b", "" };
+
+        ProxyServer proxyServer = new ProxyServer("foo", 1234);
+        for (String pattern : patterns)
+            proxyServer.addNonProxyHost(pattern);
+
+        for (String host : hosts) {
+            boolean expected = false;
+            for (String pattern : patterns)
+                expected |= legacyMatchNonProxyHost(host, pattern);
+            assertEquals(ProxyUtils.avoidProxy(proxyServer, host), expected, host);
+        }
+
+        proxyServer.removeNonProxyHost("localhost");
+        assertFalse(ProxyUtils.avoidProxy(proxyServer, "localhost"));
+    }
 }
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.proxy;
+
+import static org.asynchttpclient.test.TestUtils.findFreePort;
+import static org.testng.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Response;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public abstract class SocksProxyTest extends AbstractBasicTest {
+
+    private static final String USER = "user";
+    private static final String PASSWORD = "secret";
+
+    private SocksServer socksServer;
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                    ServletException {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.addHeader("X-Request-Uri", request.getRequestURI());
+                response.setContentLength(0);
+                baseRequest.setHandled(true);
+            }
+        };
+    }
+
+    @BeforeClass(alwaysRun = true)
+    public void startSocksServer() throws Exception {
+        socksServer = new SocksServer(findFreePort());
+        socksServer.start();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopSocksServer() throws Exception {
+        socksServer.close();
+    }
+
+    @BeforeMethod
+    public void resetSocksServer() {
+        socksServer.connections.set(0);
+        socksServer.requirePassword = false;
+        socksServer.lastTarget = null;
+    }
+
+    private String targetUrl() {
+        return "http://localhost:" + port1 + "/foo";
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void socks5() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            ProxyServer proxy = new ProxyServer(ProxyServer.Protocol.SOCKS5, "127.0.0.1", socksServer.port);
+            Response response = client.prepareGet(targetUrl()).setProxyServer(proxy).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 200);
+            // origin-form, not the absolute uri sent to HTTP proxies
+            assertEquals(response.getHeader("X-Request-Uri"), "/foo");
+            assertEquals(socksServer.lastTarget, "localhost");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void socks5WithPassword() throws Exception {
+        socksServer.requirePassword = true;
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            ProxyServer proxy = new ProxyServer(ProxyServer.Protocol.SOCKS5, "127.0.0.1", socksServer.port, USER, PASSWORD);
+            Response response = client.prepareGet(targetUrl()).setProxyServer(proxy).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getStatusCode(), 200);
+        }
+
+        // a new client, as the authenticated connection above got pooled
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            ProxyServer wrongPassword = new ProxyServer(ProxyServer.Protocol.SOCKS5, "127.0.0.1", socksServer.port, USER, "wrong");
+            try {
+                client.prepareGet(targetUrl()).setProxyServer(wrongPassword).execute().get(TIMEOUT, TimeUnit.SECONDS);
+                fail("Wrong credentials should have been rejected");
+            } catch (ExecutionException expected) {
+            }
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void socks5SendsIpv6LiteralsAsAddresses() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            ProxyServer proxy = new ProxyServer(ProxyServer.Protocol.SOCKS5, "127.0.0.1", socksServer.port);
+            try {
+                client.prepareGet("http://[::1]:" + port1 + "/foo").setProxyServer(proxy).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                // the test server might not listen on IPv6
+            }
+            assertEquals(socksServer.lastTarget, "0:0:0:0:0:0:0:1");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void socks5RejectsOverlongCredentials() throws Exception {
+        socksServer.requirePassword = true;
+        StringBuilder user = new StringBuilder();
+        for (int i = 0; i < 256; i++)
+            user.append('u');
+
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            ProxyServer proxy = new ProxyServer(ProxyServer.Protocol.SOCKS5, "127.0.0.1", socksServer.port, user.toString(), PASSWORD);
+            try {
+                client.prepareGet(targetUrl()).setProxyServer(proxy).execute().get(TIMEOUT, TimeUnit.SECONDS);
+                fail("A user name longer than 255 bytes can't be sent");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof IOException, String.valueOf(expected.getCause()));
+                assertTrue(expected.getCause().getMessage().contains("longer than 255 bytes"), expected.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void socks4a() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            ProxyServer proxy = new ProxyServer(ProxyServer.Protocol.SOCKS4, "127.0.0.1", socksServer.port, USER, null);
+            Response response = client.prepareGet(targetUrl()).setProxyServer(proxy).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 200);
+            assertEquals(socksServer.lastTarget, "localhost");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void socksConnectionsArePooled() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setProxyServer(
+                new ProxyServer(ProxyServer.Protocol.SOCKS5, "127.0.0.1", socksServer.port)).build())) {
+            for (int i = 0; i < 3; i++)
+                assertEquals(client.prepareGet(targetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+            assertEquals(socksServer.connections.get(), 1);
+        }
+    }
+
+    /**
+     * A minimal blocking SOCKS4a/SOCKS5 server, CONNECT only.
+     */
+    private static final class SocksServer extends Thread {
+
+        private final ServerSocket serverSocket;
+        private final int port;
+        private final AtomicInteger connections = new AtomicInteger();
+        private volatile boolean requirePassword;
+        private volatile String lastTarget;
+
+        SocksServer(int port) throws IOException {
+            super("socks-server");
+            setDaemon(true);
+            this.port = port;
+            serverSocket = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket client = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread handler = new Thread() {
+                        @Override
+                        public void run() {
+                            try {
+                                handle(client);
+                            } catch (IOException e) {
+                                closeQuietly(client);
+                            }
+                        }
+                    };
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        }
+
+        private void handle(Socket client) throws IOException {
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+
+            String host;
+            int port;
+            int version = in.readUnsignedByte();
+            if (version == 5) {
+                byte[] methods = new byte[in.readUnsignedByte()];
+                in.readFully(methods);
+                if (requirePassword) {
+                    out.write(new byte[] { 5, 2 });
+                    in.readUnsignedByte();
+                    String user = readString(in, in.readUnsignedByte());
+                    String password = readString(in, in.readUnsignedByte());
+                    boolean ok = USER.equals(user) && PASSWORD.equals(password);
+                    out.write(new byte[] { 1, (byte) (ok ? 0 : 1) });
+                    if (!ok) {
+                        client.close();
+                        return;
+                    }
+                } else {
+                    out.write(new byte[] { 5, 0 });
+                }
+                in.readUnsignedByte(); // version
+                in.readUnsignedByte(); // command
+                in.readUnsignedByte(); // reserved
+                int addressType = in.readUnsignedByte();
+                if (addressType == 3) {
+                    host = readString(in, in.readUnsignedByte());
+                } else {
+                    byte[] address = new byte[addressType == 1 ? 4 : 16];
+                    in.readFully(address);
+                    host = InetAddress.getByAddress(address).getHostAddress();
+                }
+                port = in.readUnsignedShort();
+
+            } else {
+                in.readUnsignedByte(); // command
+                port = in.readUnsignedShort();
+                byte[] address = new byte[4];
+                in.readFully(address);
+                readNullTerminated(in); // user id
+                host = address[0] == 0 && address[1] == 0 && address[2] == 0 ? readNullTerminated(in) : InetAddress.getByAddress(address)
+                        .getHostAddress();
+            }
+
+            lastTarget = host;
+            Socket target = new Socket(host, port);
+            if (version == 5)
+                out.write(new byte[] { 5, 0, 0, 1, 0, 0, 0, 0, 0, 0 });
+            else
+                out.write(new byte[] { 0, 0x5a, 0, 0, 0, 0, 0, 0 });
+
+            pipe(target.getInputStream(), out, client, target);
+            pipe(in, target.getOutputStream(), client, target);
+        }
+
+        private static String readString(DataInputStream in, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static String readNullTerminated(DataInputStream in) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int b;
+            while ((b = in.readUnsignedByte()) != 0)
+                sb.append((char) b);
+            return sb.toString();
+        }
+
+        private static void pipe(final InputStream in, final OutputStream out, final Socket... sockets) {
+            Thread pipe = new Thread() {
+                @Override
+                public void run() {
+                    byte[] buffer = new byte[8192];
+                    try {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, read);
+                            out.flush();
+                        }
+                    } catch (IOException e) {
+                        // closed
+                    } finally {
+                        for (Socket socket : sockets)
+                            closeQuietly(socket);
+                    }
+                }
+            };
+            pipe.setDaemon(true);
+            pipe.start();
+        }
+
+        private static void closeQuietly(Socket socket) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
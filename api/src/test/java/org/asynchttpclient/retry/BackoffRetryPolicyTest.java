@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.retry;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.net.ConnectException;
+
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.testng.annotations.Test;
+
+public class BackoffRetryPolicyTest {
+
+    private final Request request = new RequestBuilder("GET").setUrl("http://localhost/").build();
+
+    @Test(groups = "fast")
+    public void delaysStayWithinBounds() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy.Builder().setBaseDelay(100).setMaxDelay(1000).setBudgetBurst(100).build();
+        long previous = 0L;
+        for (int i = 1; i <= 50; i++) {
+            long delay = policy.retryDelay(request, new ConnectException("Connection refused"), i, previous);
+            assertTrue(delay >= 100 && delay <= 1000, "Delay out of bounds: " + delay);
+            assertTrue(delay <= Math.max(100, previous * 3), "Delay grew too fast: " + delay + " after " + previous);
+            previous = delay;
+        }
+    }
+
+    @Test(groups = "fast")
+    public void onlyRetryableFailuresAreRetried() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy.Builder().build();
+        assertTrue(policy.retryDelay(request, new ConnectException("Connection refused"), 1, 0L) >= 0);
+        assertTrue(policy.retryDelay(request, new IOException("Connection reset by peer"), 1, 0L) >= 0);
+        assertEquals(policy.retryDelay(request, new IllegalArgumentException("boom"), 1, 0L), RetryPolicy.DONT_RETRY);
+    }
+
+    @Test(groups = "fast")
+    public void budgetCapsRetries() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy.Builder().setBudgetBurst(2).setBudgetRatio(0.5).build();
+        ConnectException refused = new ConnectException("Connection refused");
+
+        assertTrue(policy.retryDelay(request, refused, 1, 0L) >= 0);
+        assertTrue(policy.retryDelay(request, refused, 1, 0L) >= 0);
+        assertEquals(policy.retryDelay(request, refused, 1, 0L), RetryPolicy.DONT_RETRY);
+
+        // two requests earn one retry
+        policy.onRequest(request);
+        policy.onRequest(request);
+        assertTrue(policy.retryDelay(request, refused, 1, 0L) >= 0);
+        assertEquals(policy.retryDelay(request, refused, 1, 0L), RetryPolicy.DONT_RETRY);
+    }
+
+    @Test(groups = "fast")
+    public void parsesRetryAfter() {
+        long now = System.currentTimeMillis();
+        assertEquals(BackoffRetryPolicy.retryAfter("3", now), 3000L);
+        assertEquals(BackoffRetryPolicy.retryAfter(null, now), -1L);
+        assertEquals(BackoffRetryPolicy.retryAfter("soon", now), -1L);
+        assertEquals(BackoffRetryPolicy.retryAfter("Thu, 01 Jan 1970 00:00:00 GMT", now), 0L);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.retry;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Response;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public abstract class RetryPolicyTest extends AbstractBasicTest {
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private class UnavailableOnceHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                ServletException {
+            if (hits.incrementAndGet() == 1) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", "1");
+            } else {
+                response.setStatus(HttpServletResponse.SC_OK);
+            }
+            response.setContentLength(0);
+            baseRequest.setHandled(true);
+        }
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new UnavailableOnceHandler();
+    }
+
+    @BeforeMethod
+    public void resetHits() {
+        hits.set(0);
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void retryAfterIsHonored() throws Exception {
+        RetryPolicy policy = new BackoffRetryPolicy.Builder().setBaseDelay(10).setMaxDelay(5000).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setRetryPolicy(policy).build())) {
+            long start = System.currentTimeMillis();
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 200);
+            assertEquals(hits.get(), 2);
+            assertTrue(System.currentTimeMillis() - start >= 1000, "Retry-After wasn't honored");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void tooLongRetryAfterIsNotRetried() throws Exception {
+        RetryPolicy policy = new BackoffRetryPolicy.Builder().setBaseDelay(10).setMaxDelay(500).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setRetryPolicy(policy).build())) {
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 503);
+            assertEquals(hits.get(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void exhaustedBudgetIsNotRetried() throws Exception {
+        RetryPolicy policy = new BackoffRetryPolicy.Builder().setBudgetBurst(0).setBudgetRatio(0).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setRetryPolicy(policy).build())) {
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 503);
+            assertEquals(hits.get(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void streamedBodyIsNotRetried() throws Exception {
+        RetryPolicy policy = new BackoffRetryPolicy.Builder().setBaseDelay(10).setMaxDelay(5000).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setRetryPolicy(policy).build())) {
+            Response response = client.preparePost(getTargetUrl()).setBody(new ByteArrayInputStream("foo".getBytes())).execute()
+                    .get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 503);
+            assertEquals(hits.get(), 1);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void noPolicyKeepsResponse() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(null)) {
+            Response response = client.prepareGet(getTargetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 503);
+            assertEquals(hits.get(), 1);
+        }
+    }
+}
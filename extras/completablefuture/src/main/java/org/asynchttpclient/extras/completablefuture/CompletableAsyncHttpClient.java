@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.completablefuture;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import org.asynchttpclient.AsyncCompletionHandlerBase;
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.handler.StreamedAsyncHandler;
+import org.asynchttpclient.handler.TransferCompletionHandler;
+import org.asynchttpclient.handler.resumable.ResumableAsyncHandler;
+import org.asynchttpclient.ws.UpgradeHandler;
+
+/**
+ * A {@link CompletionStage} based facade over {@link AsyncHttpClient}.
+ *
+ * The stages are completed right from the provider's calls to {@link AsyncHandler#onCompleted()} and
+ * {@link AsyncHandler#onThrowable(Throwable)}, so that bridging costs neither a {@link ListenableFuture} listener nor
+ * an executor dispatch. Dependent stages that aren't async therefore run on the thread that processes the response:
+ * an I/O thread, that they mustn't block, or the client's executor when
+ * {@link org.asynchttpclient.AsyncHttpClientConfig#isOffloadCallbacks() callbacks are offloaded}. Cancelling a
+ * stage's {@link CompletionStage#toCompletableFuture() CompletableFuture} cancels the request.
+ *
+ * <pre>
+ * try (CompletableAsyncHttpClient client = new CompletableAsyncHttpClient(new DefaultAsyncHttpClient())) {
+ *     client.executeRequest(request).thenApply(Response::getStatusCode).thenAccept(System.out::println);
+ * }
+ * </pre>
+ */
+public class CompletableAsyncHttpClient implements Closeable {
+
+    private final AsyncHttpClient client;
+
+    public CompletableAsyncHttpClient(AsyncHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @return the underlying client
+     */
+    public AsyncHttpClient getAsyncHttpClient() {
+        return client;
+    }
+
+    /**
+     * @param request the request
+     * @return the stage of the response, with its body fully buffered
+     */
+    public CompletionStage<Response> executeRequest(Request request) {
+        return executeRequest(request, new AsyncCompletionHandlerBase());
+    }
+
+    /**
+     * @param request the request
+     * @param handler the handler
+     * @param <T> the result type
+     * @return the stage of the value returned by {@link AsyncHandler#onCompleted()}
+     */
+    public <T> CompletionStage<T> executeRequest(Request request, AsyncHandler<T> handler) {
+        if (!isWrappable(handler))
+            return toCompletableFuture(client.executeRequest(request, handler));
+
+        CompletingAsyncHandler<T> completingHandler = new CompletingAsyncHandler<>(handler);
+        completingHandler.setFuture(client.executeRequest(request, completingHandler));
+        return completingHandler.getCompletableFuture();
+    }
+
+    /**
+     * These handlers change the way the provider drives the exchange, so they can't be hidden behind a wrapper.
+     */
+    private static boolean isWrappable(AsyncHandler<?> handler) {
+        return !(handler instanceof StreamedAsyncHandler)//
+                && !(handler instanceof UpgradeHandler)//
+                && !(handler instanceof ResumableAsyncHandler)//
+                && !(handler instanceof TransferCompletionHandler);
+    }
+
+    /**
+     * Bridge a future that wasn't obtained from this client. Unlike the stages returned by
+     * {@link #executeRequest(Request, AsyncHandler)}, the returned future is completed by a listener, run by the thread
+     * that completed the given future.
+     *
+     * @param future the future
+     * @param <T> the result type
+     * @return a future completed along with the given one, and that cancels it when cancelled
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(final ListenableFuture<T> future) {
+        final CompletableFuture<T> completableFuture = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled)
+                    future.cancel(true);
+                return cancelled;
+            }
+        };
+        future.addListener(() -> {
+            try {
+                completableFuture.complete(future.get());
+            } catch (ExecutionException e) {
+                completableFuture.completeExceptionally(e.getCause());
+            } catch (Throwable t) {
+                completableFuture.completeExceptionally(t);
+            }
+        }, Runnable::run);
+        return completableFuture;
+    }
+
+    /**
+     * Close the underlying client.
+     */
+    @Override
+    public void close() {
+        client.close();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.completablefuture;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.handler.DelegatingAsyncHandler;
+
+/**
+ * Wraps the caller's {@link AsyncHandler} so as to complete a {@link CompletableFuture} from the provider's own calls
+ * to {@link #onCompleted()} and {@link #onThrowable(Throwable)}, without any listener or executor in between.
+ *
+ * @param <T> the result type
+ */
+class CompletingAsyncHandler<T> extends DelegatingAsyncHandler<T> {
+
+    private final CompletableFuture<T> completableFuture = new CompletableFuture<T>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            ListenableFuture<T> f = future;
+            if (cancelled && f != null)
+                f.cancel(true);
+            return cancelled;
+        }
+    };
+    private volatile ListenableFuture<T> future;
+
+    CompletingAsyncHandler(AsyncHandler<T> delegate) {
+        super(delegate);
+    }
+
+    CompletableFuture<T> getCompletableFuture() {
+        return completableFuture;
+    }
+
+    void setFuture(ListenableFuture<T> future) {
+        this.future = future;
+        if (completableFuture.isCancelled())
+            // cancelled before the request was even sent
+            future.cancel(true);
+    }
+
+    @Override
+    public T onCompleted() throws Exception {
+        T value;
+        try {
+            value = delegate.onCompleted();
+        } catch (Throwable t) {
+            completableFuture.completeExceptionally(t);
+            throw t;
+        }
+        completableFuture.complete(value);
+        return value;
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+        try {
+            delegate.onThrowable(t);
+        } finally {
+            completableFuture.completeExceptionally(t);
+        }
+    }
+}
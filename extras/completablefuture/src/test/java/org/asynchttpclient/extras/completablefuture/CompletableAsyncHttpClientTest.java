@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.completablefuture;
+
+import static org.asynchttpclient.test.TestUtils.findFreePort;
+import static org.testng.Assert.*;
+
+import java.net.ConnectException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncCompletionHandler;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.DefaultAsyncHttpClient;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.Response;
+import org.testng.annotations.Test;
+
+public class CompletableAsyncHttpClientTest extends AbstractBasicTest {
+
+    @Override
+    public AsyncHttpClient getAsyncHttpClient(AsyncHttpClientConfig config) {
+        return new DefaultAsyncHttpClient(config);
+    }
+
+    private CompletableAsyncHttpClient client() {
+        return new CompletableAsyncHttpClient(getAsyncHttpClient(new AsyncHttpClientConfig.Builder().build()));
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void stageIsCompletedByTheThreadThatProcessesTheResponse() throws Exception {
+        try (CompletableAsyncHttpClient client = client()) {
+            final CountDownLatch dependentStageRegistered = new CountDownLatch(1);
+            final AtomicReference<Thread> processor = new AtomicReference<>();
+            final AtomicReference<Thread> completer = new AtomicReference<>();
+            Request request = new RequestBuilder("GET").setUrl(getTargetUrl()).build();
+
+            CompletionStage<Integer> stage = client.executeRequest(request, new AsyncCompletionHandler<Integer>() {
+                @Override
+                public Integer onCompleted(Response response) throws Exception {
+                    processor.set(Thread.currentThread());
+                    // otherwise, the dependent stage might run on the caller thread, when registered on a completed stage
+                    dependentStageRegistered.await(TIMEOUT, TimeUnit.SECONDS);
+                    return response.getStatusCode();
+                }
+            });
+            CompletableFuture<Integer> status = stage.thenApply(statusCode -> {
+                completer.set(Thread.currentThread());
+                return statusCode;
+            }).toCompletableFuture();
+            dependentStageRegistered.countDown();
+
+            assertEquals(status.get(TIMEOUT, TimeUnit.SECONDS).intValue(), 200);
+            assertNotSame(completer.get(), Thread.currentThread());
+            assertSame(completer.get(), processor.get());
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void stageCarriesTheHandlerResult() throws Exception {
+        try (CompletableAsyncHttpClient client = client()) {
+            Request request = new RequestBuilder("GET").setUrl(getTargetUrl()).setHeader("Foo", "bar").build();
+            String foo = client.executeRequest(request, new AsyncCompletionHandler<String>() {
+                @Override
+                public String onCompleted(Response response) throws Exception {
+                    return response.getHeader("X-Foo");
+                }
+            }).toCompletableFuture().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(foo, "bar");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void stageFailsWithTheRequest() throws Exception {
+        try (CompletableAsyncHttpClient client = client()) {
+            Request request = new RequestBuilder("GET").setUrl("http://localhost:" + findFreePort() + "/").build();
+            try {
+                client.executeRequest(request).toCompletableFuture().get(TIMEOUT, TimeUnit.SECONDS);
+                fail("The request should have failed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ConnectException, "Unexpected exception: " + e.getCause());
+            }
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void cancellingTheStageCancelsTheRequest() throws Exception {
+        try (CompletableAsyncHttpClient client = client()) {
+            final CompletableFuture<Throwable> handlerFailure = new CompletableFuture<>();
+            Request request = new RequestBuilder("GET").setUrl(getTargetUrl()).setHeader("LockThread", "true").build();
+            CompletableFuture<Response> future = client.executeRequest(request, new AsyncCompletionHandler<Response>() {
+                @Override
+                public Response onCompleted(Response response) throws Exception {
+                    return response;
+                }
+
+                @Override
+                public void onThrowable(Throwable t) {
+                    handlerFailure.complete(t);
+                }
+            }).toCompletableFuture();
+
+            assertTrue(future.cancel(true));
+            assertTrue(future.isCancelled());
+            assertTrue(handlerFailure.get(TIMEOUT, TimeUnit.SECONDS) instanceof CancellationException);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void listenableFutureIsBridged() throws Exception {
+        try (CompletableAsyncHttpClient client = client()) {
+            Request request = new RequestBuilder("GET").setUrl(getTargetUrl()).build();
+            CompletableFuture<Response> future = CompletableAsyncHttpClient.toCompletableFuture(client.getAsyncHttpClient().executeRequest(request));
+            assertEquals(future.get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+        }
+    }
+}
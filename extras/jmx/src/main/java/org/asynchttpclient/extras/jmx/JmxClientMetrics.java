@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.jmx;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.asynchttpclient.metrics.DefaultClientMetrics;
+import org.asynchttpclient.metrics.PartitionMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DefaultClientMetrics} that registers the metrics of every partition as a {@link PartitionMetricsMXBean}
+ * named {@code org.asynchttpclient:type=ClientMetrics,client=<name>,partition=<partition key>}.
+ *
+ * <pre>
+ * JmxClientMetrics metrics = new JmxClientMetrics("backend");
+ * AsyncHttpClient client = new DefaultAsyncHttpClient(new AsyncHttpClientConfig.Builder().setClientMetrics(metrics).build());
+ * ...
+ * client.close();
+ * metrics.close();
+ * </pre>
+ */
+public class JmxClientMetrics extends DefaultClientMetrics implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxClientMetrics.class);
+
+    private final String name;
+    private final MBeanServer server;
+    private final List<ObjectName> registered = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param name the client name, unique in the JVM
+     */
+    public JmxClientMetrics(String name) {
+        this(name, 1, TimeUnit.MINUTES, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * @param name the client name, unique in the JVM
+     * @param window the length of the histogram windows
+     * @param unit the unit of the window
+     * @param server the server where to register the MXBeans
+     */
+    public JmxClientMetrics(String name, long window, TimeUnit unit, MBeanServer server) {
+        super(window, unit);
+        this.name = name;
+        this.server = server;
+    }
+
+    /**
+     * @param partitionKey a partition key
+     * @return the name of the MXBean of the partition
+     * @throws JMException if the name is invalid
+     */
+    public ObjectName objectName(Object partitionKey) throws JMException {
+        return new ObjectName("org.asynchttpclient:type=ClientMetrics,client=" + ObjectName.quote(name) + ",partition="
+                + ObjectName.quote(String.valueOf(partitionKey)));
+    }
+
+    @Override
+    protected void onNewPartition(Object partitionKey, PartitionMetrics metrics) {
+        try {
+            ObjectName objectName = objectName(partitionKey);
+            server.registerMBean(new JmxPartitionMetrics(metrics), objectName);
+            registered.add(objectName);
+        } catch (JMException e) {
+            LOGGER.warn("Could not register the metrics of partition " + partitionKey, e);
+        }
+    }
+
+    /**
+     * Unregister the MXBeans.
+     */
+    @Override
+    public void close() {
+        for (ObjectName objectName : registered) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.debug("Could not unregister " + objectName, e);
+            }
+        }
+        registered.clear();
+    }
+}
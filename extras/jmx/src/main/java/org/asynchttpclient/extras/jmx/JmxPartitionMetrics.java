@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.jmx;
+
+import org.asynchttpclient.metrics.PartitionMetrics;
+
+/**
+ * Exposes {@link PartitionMetrics} as a {@link PartitionMetricsMXBean}.
+ */
+public class JmxPartitionMetrics implements PartitionMetricsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final PartitionMetrics metrics;
+
+    public JmxPartitionMetrics(PartitionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return metrics.getRequestCount();
+    }
+
+    @Override
+    public long getResponseCount() {
+        return metrics.getResponseCount();
+    }
+
+    @Override
+    public long getServerErrorCount() {
+        return metrics.getServerErrorCount();
+    }
+
+    @Override
+    public long getAbortCount() {
+        return metrics.getAbortCount();
+    }
+
+    @Override
+    public long getRetryCount() {
+        return metrics.getRetryCount();
+    }
+
+    @Override
+    public long getConnectCount() {
+        return metrics.getConnectCount();
+    }
+
+    @Override
+    public double getConnectTimeP99Millis() {
+        return metrics.getConnectTime().getValueAtPercentile(99.0) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getTimeToFirstByteP50Millis() {
+        return metrics.getTimeToFirstByte().getValueAtPercentile(50.0) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getTimeToFirstByteP99Millis() {
+        return metrics.getTimeToFirstByte().getValueAtPercentile(99.0) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return metrics.getLatency().getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return metrics.getLatency().getValueAtPercentile(50.0) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return metrics.getLatency().getValueAtPercentile(90.0) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return metrics.getLatency().getValueAtPercentile(99.0) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return metrics.getLatency().getMax() / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.jmx;
+
+/**
+ * The metrics of one partition of a client. Counters are cumulative, durations are in milliseconds and cover the
+ * recent histogram windows.
+ */
+public interface PartitionMetricsMXBean {
+
+    long getRequestCount();
+
+    long getResponseCount();
+
+    long getServerErrorCount();
+
+    long getAbortCount();
+
+    long getRetryCount();
+
+    long getConnectCount();
+
+    double getConnectTimeP99Millis();
+
+    double getTimeToFirstByteP50Millis();
+
+    double getTimeToFirstByteP99Millis();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP90Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyMaxMillis();
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.jmx;
+
+import static org.testng.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.testng.annotations.Test;
+
+public class JmxClientMetricsTest {
+
+    @Test(groups = "fast")
+    public void partitionsAreExported() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        JmxClientMetrics metrics = new JmxClientMetrics("test", 1, TimeUnit.MINUTES, server);
+        ObjectName name = metrics.objectName("http://localhost:80");
+        try {
+            metrics.requestStarted("http://localhost:80");
+            metrics.connected("http://localhost:80", TimeUnit.MILLISECONDS.toNanos(3));
+            metrics.firstByteReceived("http://localhost:80", 503, TimeUnit.MILLISECONDS.toNanos(10));
+            metrics.requestCompleted("http://localhost:80", TimeUnit.MILLISECONDS.toNanos(20));
+
+            assertTrue(server.isRegistered(name));
+            assertEquals(server.getAttribute(name, "RequestCount"), 1L);
+            assertEquals(server.getAttribute(name, "ResponseCount"), 1L);
+            assertEquals(server.getAttribute(name, "ServerErrorCount"), 1L);
+            assertEquals(server.getAttribute(name, "ConnectCount"), 1L);
+            assertEquals((Double) server.getAttribute(name, "LatencyMaxMillis"), 20.0, 0.01);
+            assertEquals((Double) server.getAttribute(name, "TimeToFirstByteP99Millis"), 10.0, 1.0);
+        } finally {
+            metrics.close();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
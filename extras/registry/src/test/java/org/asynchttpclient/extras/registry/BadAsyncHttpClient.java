@@ -21,6 +21,7 @@ import org.asynchttpclient.ListenableFuture;
 import org.asynchttpclient.Request;
 import org.asynchttpclient.Response;
 import org.asynchttpclient.SignatureCalculator;
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
 
 public class BadAsyncHttpClient implements AsyncHttpClient {
 
@@ -134,4 +135,13 @@ public class BadAsyncHttpClient implements AsyncHttpClient {
         return null;
     }
 
+    @Override
+    public ListenableFuture<Integer> warmUp(String url, int connections) {
+        return null;
+    }
+
+    @Override
+    public ConnectionPoolSnapshot getConnectionPoolSnapshot() {
+        return null;
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.virtualthreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Reads the body parts of a {@link BodyPartQueue}.
+ */
+final class BodyInputStream extends InputStream {
+
+    private final BodyPartQueue queue;
+    private byte[] current = new byte[0];
+    private int position;
+    private boolean end;
+
+    BodyInputStream(BodyPartQueue queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * @return false at the end of the body
+     */
+    private boolean fill() throws IOException {
+        if (position < current.length)
+            return true;
+        if (end)
+            return false;
+
+        byte[] next = queue.take();
+        if (next == null) {
+            end = true;
+            return false;
+        }
+        current = next;
+        position = 0;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0)
+            return 0;
+        if (!fill())
+            return -1;
+
+        int read = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() {
+        if (!end) {
+            end = true;
+            current = new byte[0];
+            queue.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.virtualthreads;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.Response;
+
+/**
+ * Pipes the body parts of a response to a reader, like {@link org.asynchttpclient.handler.BodyDeferringAsyncHandler}
+ * does with piped streams, but without monitors that would pin virtual threads. The queue is bounded: once full,
+ * {@link #onBodyPartReceived(HttpResponseBodyPart)} parks its offloaded callback thread, which in turn pauses reading
+ * from the connection.
+ */
+final class BodyPartQueue implements AsyncHandler<Void> {
+
+    private static final byte[] END = new byte[0];
+
+    private final Response.ResponseBuilder builder = new Response.ResponseBuilder();
+    private final CompletableFuture<Response> response = new CompletableFuture<>();
+    private final BlockingQueue<byte[]> parts;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    BodyPartQueue(int capacity) {
+        parts = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    Response awaitResponse() throws IOException, InterruptedException {
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            throw VirtualThreadHttpClient.asIOException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the next body part, or null at the end of the body
+     * @throws IOException if the request failed
+     */
+    byte[] take() throws IOException {
+        try {
+            byte[] bytes = parts.take();
+            if (bytes == END) {
+                checkFailure();
+                return null;
+            }
+            return bytes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t != null)
+            throw VirtualThreadHttpClient.asIOException(t);
+    }
+
+    /**
+     * The reader is gone, stop the download. Clearing the queue releases a callback blocked on a full queue, which
+     * then sees it's closed.
+     */
+    void close() {
+        closed = true;
+        parts.clear();
+    }
+
+    private void publishResponse() {
+        if (!response.isDone())
+            response.complete(builder.build());
+    }
+
+    @Override
+    public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+        builder.accumulate(responseStatus);
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+        builder.accumulate(headers);
+        publishResponse();
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+        publishResponse();
+        byte[] bytes = bodyPart.getBodyPartBytes();
+        if (bytes.length > 0 && !closed)
+            parts.put(bytes);
+        return closed ? State.ABORT : State.CONTINUE;
+    }
+
+    @Override
+    public Void onCompleted() throws Exception {
+        publishResponse();
+        if (!closed)
+            parts.put(END);
+        return null;
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+        failure = t;
+        response.completeExceptionally(t);
+        // might run on an I/O thread, so never block: the body is lost anyway, drop it to make room for the end marker
+        // that wakes up the reader
+        do {
+            parts.clear();
+        } while (!parts.offer(END));
+    }
+}
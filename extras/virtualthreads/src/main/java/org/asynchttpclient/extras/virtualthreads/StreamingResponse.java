@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.virtualthreads;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.asynchttpclient.Response;
+
+/**
+ * A response whose body is read while it's downloaded. Closing it before the end of the body discards the rest.
+ */
+public class StreamingResponse implements Closeable {
+
+    private final Response response;
+    private final InputStream body;
+
+    StreamingResponse(Response response, InputStream body) {
+        this.response = response;
+        this.body = body;
+    }
+
+    /**
+     * @return the status and the headers, without the body
+     */
+    public Response getResponse() {
+        return response;
+    }
+
+    public int getStatusCode() {
+        return response.getStatusCode();
+    }
+
+    /**
+     * @return the body, reads park the calling thread until the next part is received
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
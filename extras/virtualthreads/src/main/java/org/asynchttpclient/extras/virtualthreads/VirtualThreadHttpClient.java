@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.virtualthreads;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.DefaultAsyncHttpClient;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.Response;
+
+/**
+ * A blocking facade over {@link AsyncHttpClient}, meant for code running on virtual threads, so that thread per
+ * request code scales to tens of thousands of concurrent calls.
+ *
+ * Calls park the calling thread until the response is received. Response futures wait on a
+ * {@link java.util.concurrent.CountDownLatch}, not on a monitor, so a parked virtual thread doesn't pin its carrier
+ * thread. The {@link AsyncHandler} callbacks are offloaded from the I/O threads to virtual threads as well: a handler
+ * that blocks, e.g. because a {@link StreamingResponse} body isn't read fast enough, pauses reading from its
+ * connection instead of stalling the event loop.
+ *
+ * <pre>
+ * try (VirtualThreadHttpClient client = new VirtualThreadHttpClient()) {
+ *     Request request = new RequestBuilder("GET").setUrl("http://localhost/").build();
+ *     Future&lt;Response&gt; response = client.submit(() -&gt; client.execute(request));
+ *     ...
+ * }
+ * </pre>
+ */
+public class VirtualThreadHttpClient implements Closeable {
+
+    private static final int DEFAULT_BUFFERED_PARTS = 16;
+
+    private final ExecutorService virtualThreads;
+    private final AsyncHttpClient client;
+
+    public VirtualThreadHttpClient() {
+        this(new AsyncHttpClientConfig.Builder().build());
+    }
+
+    /**
+     * @param config the client config, its executor service is replaced with virtual threads and callback offloading
+     *            is enabled
+     */
+    public VirtualThreadHttpClient(AsyncHttpClientConfig config) {
+        virtualThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(config.getNameOrDefault() + "-virtual-", 0).factory());
+        client = new DefaultAsyncHttpClient(new AsyncHttpClientConfig.Builder(config)//
+                .setExecutorService(virtualThreads)//
+                .setOffloadCallbacks(true)//
+                .build());
+    }
+
+    /**
+     * @return the underlying asynchronous client
+     */
+    public AsyncHttpClient getAsyncHttpClient() {
+        return client;
+    }
+
+    /**
+     * Run a task on a new virtual thread, e.g. a sequence of blocking calls.
+     *
+     * @param task the task
+     * @param <T> the result type
+     * @return the future result of the task
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return virtualThreads.submit(task);
+    }
+
+    /**
+     * @param request the request
+     * @return the response, with its body fully buffered
+     * @throws IOException if the request failed
+     * @throws InterruptedException if the calling thread was interrupted, the request is then cancelled
+     */
+    public Response execute(Request request) throws IOException, InterruptedException {
+        return await(client.executeRequest(request));
+    }
+
+    /**
+     * @param request the request
+     * @param handler the handler, invoked on a virtual thread
+     * @param <T> the result type
+     * @return the value returned by {@link AsyncHandler#onCompleted()}
+     * @throws IOException if the request failed
+     * @throws InterruptedException if the calling thread was interrupted, the request is then cancelled
+     */
+    public <T> T execute(Request request, AsyncHandler<T> handler) throws IOException, InterruptedException {
+        return await(client.executeRequest(request, handler));
+    }
+
+    /**
+     * @param request the request
+     * @return the response as soon as its headers are received, its body is read as it's downloaded
+     * @throws IOException if the request failed before the headers were received
+     * @throws InterruptedException if the calling thread was interrupted, the request is then cancelled
+     */
+    public StreamingResponse stream(Request request) throws IOException, InterruptedException {
+        return stream(request, DEFAULT_BUFFERED_PARTS);
+    }
+
+    /**
+     * @param request the request
+     * @param bufferedParts the number of body parts buffered ahead of the reader before the download is paused
+     * @return the response as soon as its headers are received, its body is read as it's downloaded
+     * @throws IOException if the request failed before the headers were received
+     * @throws InterruptedException if the calling thread was interrupted, the request is then cancelled
+     */
+    public StreamingResponse stream(Request request, int bufferedParts) throws IOException, InterruptedException {
+        BodyPartQueue queue = new BodyPartQueue(bufferedParts);
+        ListenableFuture<Void> future = client.executeRequest(request, queue);
+        Response response;
+        try {
+            response = queue.awaitResponse();
+        } catch (InterruptedException | IOException e) {
+            future.cancel(true);
+            throw e;
+        }
+        return new StreamingResponse(response, new BodyInputStream(queue));
+    }
+
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        }
+    }
+
+    static IOException asIOException(Throwable t) {
+        return t instanceof IOException ? (IOException) t : new IOException(t);
+    }
+
+    /**
+     * Close the underlying client, then stop accepting tasks.
+     */
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } finally {
+            virtualThreads.shutdown();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.extras.virtualthreads;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.cache.CachedResponseBodyPart;
+import org.testng.annotations.Test;
+
+public class VirtualThreadHttpClientTest extends AbstractBasicTest {
+
+    @Override
+    public AsyncHttpClient getAsyncHttpClient(AsyncHttpClientConfig config) {
+        throw new UnsupportedOperationException();
+    }
+
+    private static byte[] body(int length) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++)
+            body[i] = (byte) i;
+        return body;
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void concurrentBlockingCalls() throws Exception {
+        try (VirtualThreadHttpClient client = new VirtualThreadHttpClient()) {
+            final Request request = new RequestBuilder("GET").setUrl(getTargetUrl()).build();
+            List<Future<Response>> responses = new ArrayList<>();
+            for (int i = 0; i < 1000; i++)
+                responses.add(client.submit(() -> client.execute(request)));
+
+            for (Future<Response> response : responses)
+                assertEquals(response.get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void streamedBodyIsReadInOrder() throws Exception {
+        byte[] body = body(1024 * 1024);
+        try (VirtualThreadHttpClient client = new VirtualThreadHttpClient()) {
+            Request request = new RequestBuilder("POST").setUrl(getTargetUrl()).setBody(body).build();
+            byte[] read = client.submit(() -> {
+                try (StreamingResponse response = client.stream(request, 2)) {
+                    assertEquals(response.getStatusCode(), 200);
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    InputStream in = response.getBody();
+                    byte[] buffer = new byte[1000];
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        bytes.write(buffer, 0, n);
+                        // a slow reader
+                        Thread.sleep(1);
+                    }
+                    return bytes.toByteArray();
+                }
+            }).get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertTrue(Arrays.equals(read, body));
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void closingTheBodyEarlyDiscardsTheRest() throws Exception {
+        try (VirtualThreadHttpClient client = new VirtualThreadHttpClient()) {
+            Request post = new RequestBuilder("POST").setUrl(getTargetUrl()).setBody(body(1024 * 1024)).build();
+            try (StreamingResponse response = client.stream(post, 1)) {
+                assertEquals(response.getBody().read(), 0);
+            }
+
+            Request get = new RequestBuilder("GET").setUrl(getTargetUrl()).build();
+            assertEquals(client.execute(get).getStatusCode(), 200);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void failureWakesUpTheReader() throws Exception {
+        try (VirtualThreadHttpClient client = new VirtualThreadHttpClient()) {
+            // a reader blocked on an empty queue
+            BodyPartQueue empty = new BodyPartQueue(1);
+            Future<byte[]> blocked = client.submit(empty::take);
+            Thread.sleep(100);
+            empty.onThrowable(new IOException("reset"));
+            try {
+                blocked.get(TIMEOUT, TimeUnit.SECONDS);
+                fail("the failure should have been reported");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+
+            // a failure while the queue is full
+            BodyPartQueue full = new BodyPartQueue(1);
+            full.onBodyPartReceived(new CachedResponseBodyPart(ByteBuffer.wrap(body(10)), false));
+            full.onThrowable(new IOException("reset"));
+            try {
+                full.take();
+                fail("the failure should have been reported");
+            } catch (IOException expected) {
+            }
+        }
+    }
+}
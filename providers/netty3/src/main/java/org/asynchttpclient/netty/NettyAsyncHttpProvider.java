@@ -13,6 +13,7 @@
  */
 package org.asynchttpclient.netty;
 
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.asynchttpclient.AsyncHandler;
@@ -20,6 +21,8 @@ import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.AsyncHttpProvider;
 import org.asynchttpclient.ListenableFuture;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
+import org.asynchttpclient.channel.pool.ConnectionPoolStats;
 import org.asynchttpclient.netty.channel.ChannelManager;
 import org.asynchttpclient.netty.channel.pool.ChannelPoolPartitionSelector;
 import org.asynchttpclient.netty.request.NettyRequestSender;
@@ -64,6 +67,19 @@ public class NettyAsyncHttpProvider extends SimpleChannelUpstreamHandler impleme
         return timer;
     }
 
+    @Override
+    public ListenableFuture<Integer> warmUp(Request request, int connections) {
+        // connections are only opened on demand with this provider
+        LOGGER.debug("Connection warm-up is not supported by the Netty 3 provider");
+        return new ListenableFuture.CompletedSuccess<>(0);
+    }
+
+    @Override
+    public ConnectionPoolSnapshot getConnectionPoolSnapshot() {
+        // connections are not accounted for with this provider
+        return new ConnectionPoolSnapshot(Collections.<Object, ConnectionPoolStats> emptyMap());
+    }
+
     public void close() {
         if (closed.compareAndSet(false, true)) {
             try {
@@ -43,7 +43,6 @@ import org.asynchttpclient.netty.channel.ChannelManager;
 import org.asynchttpclient.netty.request.NettyRequestSender;
 import org.asynchttpclient.ntlm.NtlmEngine;
 import org.asynchttpclient.proxy.ProxyServer;
-import org.asynchttpclient.spnego.SpnegoEngine;
 import org.asynchttpclient.spnego.SpnegoEngineException;
 import org.asynchttpclient.uri.Uri;
 import org.jboss.netty.channel.Channel;
@@ -75,7 +74,7 @@ public final class HttpProtocol extends Protocol {
         Uri uri = request.getUri();
         String host = request.getVirtualHost() == null ? uri.getHost() : request.getVirtualHost();
         try {
-            String challengeHeader = SpnegoEngine.instance().generateToken(host);
+            String challengeHeader = config.getSpnegoEngine().generateToken(host);
             headers.remove(HttpHeaders.Names.AUTHORIZATION);
             headers.add(HttpHeaders.Names.AUTHORIZATION, "Negotiate " + challengeHeader);
 
@@ -104,7 +103,7 @@ public final class HttpProtocol extends Protocol {
             NettyResponseFuture<?> future) {
 
         try {
-            String challengeHeader = SpnegoEngine.instance().generateToken(proxyServer.getHost());
+            String challengeHeader = config.getSpnegoEngine().generateToken(proxyServer.getHost());
             headers.remove(HttpHeaders.Names.AUTHORIZATION);
             headers.add(HttpHeaders.Names.AUTHORIZATION, "Negotiate " + challengeHeader);
 
@@ -426,6 +425,8 @@ public final class HttpProtocol extends Protocol {
         Realm realm = request.getRealm() != null ? request.getRealm() : config.getRealm();
         NettyResponseHeaders responseHeaders = new NettyResponseHeaders(response.headers());
 
+        storeCookies(future.getUri(), response.headers());
+
         return exitAfterProcessingFilters(channel, future, handler, status, responseHeaders)
                 || exitAfterHandling401(channel, future, response, request, statusCode, realm, proxyServer) || //
                 exitAfterHandling407(channel, future, response, request, statusCode, realm, proxyServer) || //
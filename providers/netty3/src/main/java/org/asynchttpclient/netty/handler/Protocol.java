@@ -36,6 +36,7 @@ import org.asynchttpclient.Request;
 import org.asynchttpclient.RequestBuilder;
 import org.asynchttpclient.cookie.Cookie;
 import org.asynchttpclient.cookie.CookieDecoder;
+import org.asynchttpclient.cookie.CookieStore;
 import org.asynchttpclient.filter.FilterContext;
 import org.asynchttpclient.filter.FilterException;
 import org.asynchttpclient.filter.ResponseFilter;
@@ -104,6 +105,17 @@ public abstract class Protocol {
         return headers;
     }
 
+    protected void storeCookies(Uri uri, HttpHeaders responseHeaders) {
+        CookieStore cookieStore = config.getCookieStore();
+        if (cookieStore != null) {
+            for (String cookieStr : responseHeaders.getAll(HttpHeaders.Names.SET_COOKIE)) {
+                Cookie c = CookieDecoder.decode(cookieStr);
+                if (c != null)
+                    cookieStore.add(uri, c);
+            }
+        }
+    }
+
     protected boolean exitAfterHandlingRedirect(//
             Channel channel,//
             NettyResponseFuture<?> future,//
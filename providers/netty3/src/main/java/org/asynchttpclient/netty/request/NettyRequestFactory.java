@@ -15,6 +15,7 @@ package org.asynchttpclient.netty.request;
 
 import static org.asynchttpclient.util.AsyncHttpProviderUtils.DEFAULT_CHARSET;
 import static org.asynchttpclient.util.AsyncHttpProviderUtils.hostHeader;
+import static org.asynchttpclient.util.AsyncHttpProviderUtils.requestCookies;
 import static org.asynchttpclient.util.AsyncHttpProviderUtils.urlEncodeFormParams;
 import static org.asynchttpclient.util.AuthenticatorUtils.perRequestAuthorizationHeader;
 import static org.asynchttpclient.util.AuthenticatorUtils.perRequestProxyAuthorizationHeader;
@@ -39,12 +40,14 @@ import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.UPGRADE;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.USER_AGENT;
 
 import java.nio.charset.Charset;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
 
 import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.Realm;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.cookie.Cookie;
 import org.asynchttpclient.cookie.CookieEncoder;
 import org.asynchttpclient.netty.request.body.NettyBody;
 import org.asynchttpclient.netty.request.body.NettyBodyBody;
@@ -171,8 +174,9 @@ public final class NettyRequestFactory extends NettyRequestFactoryBase {
                 headers.set(header.getKey(), header.getValue());
             }
 
-            if (isNonEmpty(request.getCookies()))
-                headers.set(COOKIE, CookieEncoder.encode(request.getCookies()));
+            Collection<Cookie> cookies = requestCookies(config, request);
+            if (isNonEmpty(cookies))
+                headers.set(COOKIE, CookieEncoder.encode(cookies));
 
             if (config.isCompressionEnforced() && !headers.contains(ACCEPT_ENCODING))
                 headers.set(ACCEPT_ENCODING, GZIP_DEFLATE);
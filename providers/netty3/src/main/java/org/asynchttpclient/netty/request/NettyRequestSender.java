@@ -95,6 +95,11 @@ public final class NettyRequestSender {
         validateWebSocketRequest(request, asyncHandler);
 
         ProxyServer proxyServer = getProxyServer(config, request);
+        if (proxyServer != null && proxyServer.getProtocol().isSocks()) {
+            NettyResponseFuture<T> newFuture = newNettyRequestAndResponseFuture(request, asyncHandler, future, null, false);
+            abort(null, newFuture, new IOException("SOCKS proxies are not supported by the Netty 3 provider"));
+            return newFuture;
+        }
         boolean resultOfAConnect = future != null && future.getNettyRequest() != null && future.getNettyRequest().getHttpRequest().getMethod() == HttpMethod.CONNECT;
         boolean useProxy = proxyServer != null && !resultOfAConnect;
 
@@ -223,7 +228,7 @@ public final class NettyRequestSender {
         HttpHeaders headers = future.getNettyRequest().getHttpRequest().headers();
         Realm realm = request.getRealm() != null ? request.getRealm() : config.getRealm();
         boolean connect = future.getNettyRequest().getHttpRequest().getMethod() == HttpMethod.CONNECT;
-        requestFactory.addAuthorizationHeader(headers, perConnectionAuthorizationHeader(request, proxy, realm));
+        requestFactory.addAuthorizationHeader(headers, perConnectionAuthorizationHeader(request, proxy, realm, config.getSpnegoEngine()));
         requestFactory.setProxyAuthorizationHeader(headers, perConnectionProxyAuthorizationHeader(request, proxy, connect));
 
         // Do not throw an exception when we need an extra connection for a
@@ -319,10 +324,10 @@ public final class NettyRequestSender {
             address = request.getInetAddress();
 
         } else if (!useProxy || avoidProxy(proxy, uri.getHost())) {
-            address = request.getNameResolver().resolve(uri.getHost());
+            address = request.getNameResolver().resolve(uri.getHost()).get(0);
 
         } else {
-            address = request.getNameResolver().resolve(proxy.getHost());
+            address = request.getNameResolver().resolve(proxy.getHost()).get(0);
             port = proxy.getPort();
         }
 
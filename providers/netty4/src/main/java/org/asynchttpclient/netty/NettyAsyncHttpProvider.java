@@ -21,10 +21,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.asynchttpclient.AsyncHandler;
 import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.AsyncHttpProvider;
+import org.asynchttpclient.HedgingPolicy;
 import org.asynchttpclient.ListenableFuture;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
 import org.asynchttpclient.netty.channel.ChannelManager;
 import org.asynchttpclient.netty.channel.pool.ChannelPoolPartitionSelector;
+import org.asynchttpclient.netty.request.NettyRequestHedger;
 import org.asynchttpclient.netty.request.NettyRequestSender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,13 +37,17 @@ public class NettyAsyncHttpProvider implements AsyncHttpProvider {
     private static final Logger LOGGER = LoggerFactory.getLogger(NettyAsyncHttpProvider.class);
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AsyncHttpClientConfig config;
     private final ChannelManager channelManager;
     private final NettyRequestSender requestSender;
+    private final NettyRequestHedger requestHedger;
     private final boolean allowStopNettyTimer;
     private final Timer nettyTimer;
 
     public NettyAsyncHttpProvider(AsyncHttpClientConfig config) {
 
+        this.config = config;
+
         NettyAsyncHttpProviderConfig nettyConfig = config.getAsyncHttpProviderConfig() instanceof NettyAsyncHttpProviderConfig ? //
         (NettyAsyncHttpProviderConfig) config.getAsyncHttpProviderConfig()
                 : new NettyAsyncHttpProviderConfig();
@@ -51,6 +58,7 @@ public class NettyAsyncHttpProvider implements AsyncHttpProvider {
         channelManager = new ChannelManager(config, nettyConfig, nettyTimer);
         requestSender = new NettyRequestSender(config, channelManager, nettyTimer, closed);
         channelManager.configureBootstraps(requestSender, closed);
+        requestHedger = new NettyRequestHedger(config, requestSender);
     }
 
     private Timer newNettyTimer() {
@@ -77,6 +85,9 @@ public class NettyAsyncHttpProvider implements AsyncHttpProvider {
     @Override
     public <T> ListenableFuture<T> execute(Request request, final AsyncHandler<T> asyncHandler) {
         try {
+            HedgingPolicy hedgingPolicy = request.getHedgingPolicy() != null ? request.getHedgingPolicy() : config.getHedgingPolicy();
+            if (hedgingPolicy != null && NettyRequestHedger.isHedgeable(request, asyncHandler))
+                return requestHedger.sendRequest(request, asyncHandler, hedgingPolicy);
             return requestSender.sendRequest(request, asyncHandler, null, false);
         } catch (Exception e) {
             asyncHandler.onThrowable(e);
@@ -84,6 +95,16 @@ public class NettyAsyncHttpProvider implements AsyncHttpProvider {
         }
     }
 
+    @Override
+    public ListenableFuture<Integer> warmUp(Request request, int connections) {
+        return requestSender.warmUp(request, connections);
+    }
+
+    @Override
+    public ConnectionPoolSnapshot getConnectionPoolSnapshot() {
+        return channelManager.getConnectionPoolSnapshot();
+    }
+
     public void flushChannelPoolPartition(String partitionId) {
         channelManager.flushPartition(partitionId);
     }
@@ -15,14 +15,17 @@ package org.asynchttpclient.netty;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.ssl.SslProvider;
 import io.netty.util.Timer;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,6 +34,7 @@ import org.asynchttpclient.AsyncHttpProviderConfig;
 import org.asynchttpclient.channel.pool.ConnectionStrategy;
 import org.asynchttpclient.netty.channel.pool.ChannelPool;
 import org.asynchttpclient.netty.handler.DefaultConnectionStrategy;
+import org.asynchttpclient.netty.handler.ZstdDecoder;
 import org.asynchttpclient.netty.ws.NettyWebSocket;
 
 /**
@@ -115,6 +119,17 @@ public class NettyAsyncHttpProviderConfig implements AsyncHttpProviderConfig<Cha
         }
     }
 
+    /**
+     * Creates the decoders of a content coding, e.g. br, one per response.
+     */
+    public static interface ContentDecoderFactory {
+
+        /**
+         * @return a handler that turns the encoded content ByteBufs into decoded ByteBufs
+         */
+        ChannelHandler newContentDecoder();
+    }
+
     public static interface NettyWebSocketFactory {
         NettyWebSocket newNettyWebSocket(Channel channel, AsyncHttpClientConfig config);
     }
@@ -147,6 +162,17 @@ public class NettyAsyncHttpProviderConfig implements AsyncHttpProviderConfig<Cha
 
     private ConnectionStrategy<HttpRequest, HttpResponse> connectionStrategy = new DefaultConnectionStrategy();
 
+    private SslProvider sslProvider;
+
+    private final Map<String, ContentDecoderFactory> contentDecoderFactories = defaultContentDecoderFactories();
+
+    private static Map<String, ContentDecoderFactory> defaultContentDecoderFactories() {
+        Map<String, ContentDecoderFactory> factories = new HashMap<>();
+        if (ZstdDecoder.isAvailable())
+            factories.put("zstd", ZstdDecoder.FACTORY);
+        return factories;
+    }
+
     public EventLoopGroup getEventLoopGroup() {
         return eventLoopGroup;
     }
@@ -218,4 +244,39 @@ public class NettyAsyncHttpProviderConfig implements AsyncHttpProviderConfig<Cha
     public void setConnectionStrategy(ConnectionStrategy<HttpRequest, HttpResponse> connectionStrategy) {
         this.connectionStrategy = connectionStrategy;
     }
+
+    public SslProvider getSslProvider() {
+        return sslProvider;
+    }
+
+    /**
+     * Have TLS engines created from a Netty SslContext built once for the client, so that sessions are shared across
+     * connections. OPENSSL falls back to JDK when netty-tcnative is not available. Ignored when the
+     * {@link AsyncHttpClientConfig} has an SSLContext or an SSLEngineFactory.
+     *
+     * @param sslProvider the provider, or null to use the {@link AsyncHttpClientConfig} SSL settings only
+     */
+    public void setSslProvider(SslProvider sslProvider) {
+        this.sslProvider = sslProvider;
+    }
+
+    /**
+     * @return the decoder factories of the content codings not natively supported by Netty, by lower case coding
+     */
+    public Map<String, ContentDecoderFactory> getContentDecoderFactories() {
+        return contentDecoderFactories;
+    }
+
+    /**
+     * Decode an additional content coding. gzip and deflate are always supported, zstd is when zstd-jni is on the
+     * classpath and the JVM is Java 8 or later, as zstd-jni is built for Java 8. The coding is only advertised if listed in {@link AsyncHttpClientConfig#getAcceptEncodings()}.
+     *
+     * @param contentCoding the content coding, e.g. br
+     * @param factory the decoder factory
+     * @return this
+     */
+    public NettyAsyncHttpProviderConfig addContentDecoderFactory(String contentCoding, ContentDecoderFactory factory) {
+        contentDecoderFactories.put(contentCoding.toLowerCase(Locale.ENGLISH), factory);
+        return this;
+    }
 }
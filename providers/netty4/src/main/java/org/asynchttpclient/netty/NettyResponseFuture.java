@@ -31,6 +31,9 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.asynchttpclient.AsyncHandler;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestTimings;
+import org.asynchttpclient.RequestTimingsListener;
+import org.asynchttpclient.metrics.ClientMetrics;
 import org.asynchttpclient.channel.pool.ConnectionPoolPartitioning;
 import org.asynchttpclient.future.AbstractListenableFuture;
 import org.asynchttpclient.netty.channel.Channels;
@@ -74,7 +77,11 @@ public final class NettyResponseFuture<V> extends AbstractListenableFuture<V> {
     private final AtomicBoolean onThrowableCalled = new AtomicBoolean(false);
     private final AtomicReference<V> content = new AtomicReference<>();
     private final AtomicReference<ExecutionException> exEx = new AtomicReference<>();
+    private final RequestTimings timings = new RequestTimings();
+    private volatile RequestTimingsListener timingsListener;
+    private volatile ClientMetrics clientMetrics;
     private volatile TimeoutsHolder timeoutsHolder;
+    private volatile long retryDelay;
 
     // state mutated only inside the event loop
     private Channel channel;
@@ -138,6 +145,7 @@ public final class NettyResponseFuture<V> extends AbstractListenableFuture<V> {
                 LOGGER.warn("cancel", t);
             }
         }
+        notifyCompletion(new CancellationException());
         latch.countDown();
         runListeners();
         return true;
@@ -216,6 +224,9 @@ public final class NettyResponseFuture<V> extends AbstractListenableFuture<V> {
             exEx.compareAndSet(null, new ExecutionException(exception));
 
         } finally {
+            // reported before waiters are released, so that they observe up to date metrics
+            ExecutionException failure = exEx.get();
+            notifyCompletion(failure != null ? failure.getCause() : null);
             latch.countDown();
         }
 
@@ -236,10 +247,34 @@ public final class NettyResponseFuture<V> extends AbstractListenableFuture<V> {
                 LOGGER.debug("asyncHandler.onThrowable", te);
             }
         }
+        notifyCompletion(t);
         latch.countDown();
         runListeners();
     }
 
+    private void notifyCompletion(Throwable cause) {
+        ClientMetrics metrics = clientMetrics;
+        if (metrics != null) {
+            try {
+                if (cause == null)
+                    metrics.requestCompleted(getPartitionKey(), timings.getTotalNanos());
+                else
+                    metrics.requestAborted(getPartitionKey(), cause, System.nanoTime() - timings.getTimestamp(RequestTimings.Event.REQUEST_START));
+            } catch (Throwable t) {
+                LOGGER.debug("clientMetrics", t);
+            }
+        }
+
+        RequestTimingsListener listener = timingsListener;
+        if (listener != null) {
+            try {
+                listener.onRequestTimings(request, timings, cause);
+            } catch (Throwable t) {
+                LOGGER.debug("timingsListener.onRequestTimings", t);
+            }
+        }
+    }
+
     @Override
     public void touch() {
         touch.set(millisTime());
@@ -261,6 +296,22 @@ public final class NettyResponseFuture<V> extends AbstractListenableFuture<V> {
         return proxyServer;
     }
 
+    public RequestTimings getTimings() {
+        return timings;
+    }
+
+    public void setTimingsListener(RequestTimingsListener timingsListener) {
+        this.timingsListener = timingsListener;
+    }
+
+    public ClientMetrics getClientMetrics() {
+        return clientMetrics;
+    }
+
+    public void setClientMetrics(ClientMetrics clientMetrics) {
+        this.clientMetrics = clientMetrics;
+    }
+
     public void setAsyncHandler(AsyncHandler<V> asyncHandler) {
         this.asyncHandler = asyncHandler;
     }
@@ -395,6 +446,22 @@ public final class NettyResponseFuture<V> extends AbstractListenableFuture<V> {
         return maxRetry > 0 && currentRetry.incrementAndGet() <= maxRetry;
     }
 
+    public int getCurrentRetry() {
+        return currentRetry.get();
+    }
+
+    public int getMaxRetry() {
+        return maxRetry;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    public void setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
     public SocketAddress getChannelRemoteAddress() {
         return channel != null ? channel.remoteAddress() : null;
     }
@@ -23,6 +23,7 @@ import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.HttpResponseBodyPart;
 import org.asynchttpclient.HttpResponseHeaders;
 import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.RequestTimings;
 import org.asynchttpclient.Response;
 import org.asynchttpclient.uri.Uri;
 
@@ -34,10 +35,16 @@ public class NettyResponseStatus extends HttpResponseStatus {
     private final HttpResponse response;
     private final SocketAddress remoteAddress;
     private final SocketAddress localAddress;
+    private final RequestTimings timings;
 
     public NettyResponseStatus(Uri uri, AsyncHttpClientConfig config, HttpResponse response, Channel channel) {
+        this(uri, config, response, channel, null);
+    }
+
+    public NettyResponseStatus(Uri uri, AsyncHttpClientConfig config, HttpResponse response, Channel channel, RequestTimings timings) {
         super(uri, config);
         this.response = response;
+        this.timings = timings;
         if (channel != null) {
             remoteAddress = channel.remoteAddress();
             localAddress = channel.localAddress();
@@ -47,6 +54,11 @@ public class NettyResponseStatus extends HttpResponseStatus {
         }
     }
 
+    @Override
+    public RequestTimings getTimings() {
+        return timings;
+    }
+
     @Override
     public Response prepareResponse(HttpResponseHeaders headers, List<HttpResponseBodyPart> bodyParts) {
         return new NettyResponse(this, headers, bodyParts);
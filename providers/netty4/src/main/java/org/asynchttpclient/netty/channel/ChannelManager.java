@@ -31,7 +31,6 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.oio.OioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.HttpClientCodec;
-import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.websocketx.WebSocket08FrameDecoder;
 import io.netty.handler.codec.http.websocketx.WebSocket08FrameEncoder;
 import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
@@ -39,31 +38,43 @@ import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.util.Timer;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.chmv8.ConcurrentHashMapV8;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
 
 import org.asynchttpclient.AsyncHandler;
 import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Realm;
+import org.asynchttpclient.Realm.AuthScheme;
 import org.asynchttpclient.channel.SSLEngineFactory;
 import org.asynchttpclient.channel.pool.ConnectionPoolPartitioning;
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
 import org.asynchttpclient.handler.AsyncHandlerExtensions;
+import org.asynchttpclient.metrics.ClientMetrics;
 import org.asynchttpclient.netty.Callback;
 import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig;
 import org.asynchttpclient.netty.NettyResponseFuture;
 import org.asynchttpclient.netty.channel.pool.ChannelPool;
 import org.asynchttpclient.netty.channel.pool.ChannelPoolPartitionSelector;
+import org.asynchttpclient.netty.channel.pool.ConnectionPoolCounters;
 import org.asynchttpclient.netty.channel.pool.DefaultChannelPool;
 import org.asynchttpclient.netty.channel.pool.NoopChannelPool;
+import org.asynchttpclient.netty.handler.ContentDecompressor;
 import org.asynchttpclient.netty.handler.HttpProtocol;
 import org.asynchttpclient.netty.handler.Processor;
 import org.asynchttpclient.netty.handler.WebSocketProtocol;
+import org.asynchttpclient.netty.request.NettyRequestFactory;
 import org.asynchttpclient.netty.request.NettyRequestSender;
 import org.asynchttpclient.proxy.ProxyServer;
 import org.asynchttpclient.uri.Uri;
@@ -75,6 +86,7 @@ public class ChannelManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(ChannelManager.class);
     public static final String HTTP_HANDLER = "httpHandler";
     public static final String SSL_HANDLER = "sslHandler";
+    public static final String SOCKS_HANDLER = "socksHandler";
     public static final String HTTP_PROCESSOR = "httpProcessor";
     public static final String WS_PROCESSOR = "wsProcessor";
     public static final String DEFLATER_HANDLER = "deflater";
@@ -96,6 +108,7 @@ public class ChannelManager {
     private final IOException tooManyConnections;
     private final IOException tooManyConnectionsPerHost;
     private final IOException poolAlreadyClosed;
+    private final IOException circuitOpen;
 
     private final ChannelPool channelPool;
     private final boolean maxTotalConnectionsEnabled;
@@ -105,6 +118,10 @@ public class ChannelManager {
     private final ConcurrentHashMapV8<Object, Semaphore> freeChannelsPerHost;
     private final ConcurrentHashMapV8<Channel, Object> channelId2PartitionKey;
     private final ConcurrentHashMapV8.Fun<Object, Semaphore> semaphoreComputer;
+    private final CircuitBreakers circuitBreakers;
+    private final PipelinedChannels pipelinedChannels;
+    private final ConnectionPoolCounters connectionPoolCounters;
+    private final String acceptEncoding;
 
     private Processor wsProcessor;
 
@@ -112,11 +129,22 @@ public class ChannelManager {
 
         this.config = config;
         this.nettyConfig = nettyConfig;
-        this.sslEngineFactory = config.getSslEngineFactory() != null? config.getSslEngineFactory() : new SSLEngineFactory.DefaultSSLEngineFactory(config);
+        this.sslEngineFactory = sslEngineFactory(config, nettyConfig);
+
+        connectionPoolCounters = new ConnectionPoolCounters() {
+            @Override
+            protected Object partitionKey(Object poolKey) {
+                // NTLM sub-partitions are accounted for with their partition
+                return poolKey instanceof NtlmPartitionKey ? NtlmPartitionKey.class.cast(poolKey).partitionKey : poolKey;
+            }
+        };
+
+        acceptEncoding = config.getAcceptEncodings() != null ? ContentDecompressor.acceptEncoding(config.getAcceptEncodings(),
+                nettyConfig.getContentDecoderFactories()) : NettyRequestFactory.GZIP_DEFLATE;
 
         ChannelPool channelPool = nettyConfig.getChannelPool();
         if (channelPool == null && config.isAllowPoolingConnections()) {
-            channelPool = new DefaultChannelPool(config, nettyTimer);
+            channelPool = new DefaultChannelPool(config, nettyTimer, connectionPoolCounters);
         } else if (channelPool == null) {
             channelPool = new NoopChannelPool();
         }
@@ -125,8 +153,11 @@ public class ChannelManager {
         tooManyConnections = buildStaticIOException(String.format("Too many connections %s", config.getMaxConnections()));
         tooManyConnectionsPerHost = buildStaticIOException(String.format("Too many connections per host %s", config.getMaxConnectionsPerHost()));
         poolAlreadyClosed = buildStaticIOException("Pool is already closed");
+        circuitOpen = buildStaticIOException("Circuit breaker is open");
         maxTotalConnectionsEnabled = config.getMaxConnections() > 0;
         maxConnectionsPerHostEnabled = config.getMaxConnectionsPerHost() > 0;
+        circuitBreakers = new CircuitBreakers(config.getCircuitBreakerFailureThreshold(), config.getCircuitBreakerOpenDuration());
+        pipelinedChannels = config.getMaxPipelinedRequests() > 1 ? new PipelinedChannels(config.getMaxPipelinedRequests()) : null;
 
         if (maxTotalConnectionsEnabled || maxConnectionsPerHostEnabled) {
             openChannels = new CleanupChannelGroup("asyncHttpClient") {
@@ -215,7 +246,7 @@ public class ChannelManager {
             protected void initChannel(Channel ch) throws Exception {
                 ch.pipeline()//
                         .addLast(HTTP_HANDLER, newHttpClientCodec())//
-                        .addLast(INFLATER_HANDLER, newHttpContentDecompressor())//
+                        .addLast(INFLATER_HANDLER, new ContentDecompressor(nettyConfig.getContentDecoderFactories(), config.isKeepEncodingHeader()))//
                         .addLast(CHUNKED_WRITER_HANDLER, new ChunkedWriteHandler())//
                         .addLast(HTTP_PROCESSOR, httpProcessor);
 
@@ -239,26 +270,30 @@ public class ChannelManager {
         });
     }
 
-    private HttpContentDecompressor newHttpContentDecompressor() {
-        if (config.isKeepEncodingHeader())
-            return new HttpContentDecompressor() {
-                @Override
-                protected String getTargetContentEncoding(String contentEncoding) throws Exception {
-                    return contentEncoding;
-                }
-            };
-        else
-            return new HttpContentDecompressor();
+    /**
+     * @return the Accept-Encoding header to send when compression is enforced, or null
+     */
+    public String getAcceptEncoding() {
+        return acceptEncoding;
     }
 
     public final void tryToOfferChannelToPool(Channel channel, AsyncHandler<?> handler, boolean keepAlive, Object partitionKey) {
+        if (channel.isActive() && keepAlive && pipelinedChannels != null && pipelinedChannels.next(channel)) {
+            // still busy with the responses to pipelined requests
+            LOGGER.debug("Channel {} handed over to the next pipelined request", channel);
+            return;
+        }
+
         if (channel.isActive() && keepAlive && channel.isActive()) {
-            LOGGER.debug("Adding key: {} for channel {}", partitionKey, channel);
+            // NTLM authenticated channels are only handed out to requests with the same credentials
+            String ntlmIdentity = Channels.getNtlmIdentity(channel);
+            Object poolKey = ntlmIdentity != null ? new NtlmPartitionKey(partitionKey, ntlmIdentity) : partitionKey;
+            LOGGER.debug("Adding key: {} for channel {}", poolKey, channel);
             Channels.setDiscard(channel);
             if (handler instanceof AsyncHandlerExtensions) {
                 AsyncHandlerExtensions.class.cast(handler).onConnectionOffer(channel);
             }
-            channelPool.offer(channel, partitionKey);
+            channelPool.offer(channel, poolKey);
             if (maxConnectionsPerHostEnabled)
                 channelId2PartitionKey.putIfAbsent(channel, partitionKey);
         } else {
@@ -267,9 +302,70 @@ public class ChannelManager {
         }
     }
 
-    public Channel poll(Uri uri, String virtualHost, ProxyServer proxy, ConnectionPoolPartitioning connectionPoolPartitioning) {
+    public Channel poll(Uri uri, String virtualHost, ProxyServer proxy, ConnectionPoolPartitioning connectionPoolPartitioning, Realm realm) {
         Object partitionKey = connectionPoolPartitioning.getPartitionKey(uri, virtualHost, proxy);
-        return channelPool.poll(partitionKey);
+        if (realm != null && realm.getScheme() == AuthScheme.NTLM) {
+            // a channel that already authenticated these credentials saves the whole handshake
+            Channel channel = channelPool.poll(new NtlmPartitionKey(partitionKey, ntlmIdentity(realm)));
+            if (channel != null) {
+                connectionPoolCounters.channelReused(partitionKey);
+                return channel;
+            }
+        }
+        Channel channel = channelPool.poll(partitionKey);
+        if (channel != null)
+            connectionPoolCounters.channelReused(partitionKey);
+        return channel;
+    }
+
+    public ConnectionPoolCounters getConnectionPoolCounters() {
+        return connectionPoolCounters;
+    }
+
+    public ConnectionPoolSnapshot getConnectionPoolSnapshot() {
+        return connectionPoolCounters.snapshot(channelPool.idleChannelCounts());
+    }
+
+    /**
+     * @return the channels accepting pipelined requests, or null if pipelining is disabled
+     */
+    public PipelinedChannels getPipelinedChannels() {
+        return pipelinedChannels;
+    }
+
+    /**
+     * @param channel a channel
+     * @return the requests that were pipelined on the channel and not answered, now that it can't be used anymore
+     */
+    public List<NettyResponseFuture<?>> unansweredPipelinedRequests(Channel channel) {
+        return pipelinedChannels != null ? pipelinedChannels.close(channel) : Collections.<NettyResponseFuture<?>> emptyList();
+    }
+
+    /**
+     * @param channel a channel
+     * @return true if requests can be pipelined on the channel, i.e. other requests might wait for a response
+     */
+    public boolean isPipelined(Channel channel) {
+        return pipelinedChannels != null && pipelinedChannels.isPipelined(channel);
+    }
+
+    /**
+     * NTLM authenticates connections, not requests: tag the channel so that it's pooled apart from the others.
+     *
+     * @param channel a channel that completed NTLM authentication
+     * @param realm the realm it authenticated
+     */
+    public void markNtlmAuthenticated(Channel channel, Realm realm) {
+        Channels.setNtlmIdentity(channel, ntlmIdentity(realm));
+    }
+
+    private static String ntlmIdentity(Realm realm) {
+        String domain = realm.getNtlmDomain();
+        return (domain != null ? domain : "") + '\\' + realm.getPrincipal();
+    }
+
+    public int idleChannelCount(Object partitionKey) {
+        return channelPool.idleChannelCount(partitionKey);
     }
 
     public boolean removeAll(Channel connection) {
@@ -291,6 +387,8 @@ public class ChannelManager {
     public void preemptChannel(Object partitionKey) throws IOException {
         if (!channelPool.isOpen())
             throw poolAlreadyClosed;
+        if (circuitBreakers.isEnabled() && !circuitBreakers.allowRequest(partitionKey))
+            throw circuitOpen;
         if (!tryAcquireGlobal())
             throw tooManyConnections;
         if (!tryAcquirePerHost(partitionKey)) {
@@ -333,13 +431,49 @@ public class ChannelManager {
             getFreeConnectionsForHost(partitionKey).release();
     }
 
+    public void reportSuccess(NettyResponseFuture<?> future) {
+        if (circuitBreakers.isEnabled())
+            circuitBreakers.onSuccess(future.getPartitionKey());
+    }
+
+    public void reportFailure(NettyResponseFuture<?> future) {
+        if (circuitBreakers.isEnabled())
+            circuitBreakers.onFailure(future.getPartitionKey());
+    }
+
+    public void reportConnected(NettyResponseFuture<?> future) {
+        ClientMetrics clientMetrics = future.getClientMetrics();
+        if (clientMetrics != null)
+            clientMetrics.connected(future.getPartitionKey(), future.getTimings().getConnectNanos());
+    }
+
+    public CircuitBreakers getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
     public void registerOpenChannel(Channel channel, Object partitionKey) {
         openChannels.add(channel);
+        connectionPoolCounters.channelOpened(channel, partitionKey);
         if (maxConnectionsPerHostEnabled) {
             channelId2PartitionKey.put(channel, partitionKey);
         }
     }
 
+    private static SSLEngineFactory sslEngineFactory(AsyncHttpClientConfig config, NettyAsyncHttpProviderConfig nettyConfig) {
+        if (config.getSslEngineFactory() != null)
+            return config.getSslEngineFactory();
+
+        if (nettyConfig.getSslProvider() != null && config.getSSLContext() == null) {
+            try {
+                return new SslContextEngineFactory(config, nettyConfig.getSslProvider());
+            } catch (SSLException e) {
+                throw new IllegalArgumentException("Can't build a SslContext", e);
+            }
+        }
+
+        return new SSLEngineFactory.DefaultSSLEngineFactory(config);
+    }
+
     private HttpClientCodec newHttpClientCodec() {
         return new HttpClientCodec(//
                 config.getHttpClientCodecMaxInitialLineLength(),//
@@ -360,6 +494,10 @@ public class ChannelManager {
         return pipeline.get(SSL_HANDLER) != null;
     }
 
+    public static boolean isRequestCompressorConfigured(ChannelPipeline pipeline) {
+        return pipeline.get(DEFLATER_HANDLER) != null;
+    }
+
     public void upgradeProtocol(ChannelPipeline pipeline, String scheme, String host, int port) throws GeneralSecurityException {
         if (pipeline.get(HTTP_HANDLER) != null)
             pipeline.remove(HTTP_HANDLER);
@@ -405,6 +543,20 @@ public class ChannelManager {
         return sslHandler;
     }
 
+    /**
+     * Establish a tunnel through a SOCKS proxy, before anything else is written, TLS handshake included.
+     *
+     * @param pipeline the pipeline of a channel connected to the proxy
+     * @param proxyServer the SOCKS proxy
+     * @param uri the target uri
+     * @return a future completed once the tunnel is established
+     */
+    public Future<Channel> addSocksHandler(ChannelPipeline pipeline, ProxyServer proxyServer, Uri uri) {
+        Promise<Channel> promise = pipeline.channel().eventLoop().newPromise();
+        pipeline.addFirst(SOCKS_HANDLER, new SocksHandshakeHandler(proxyServer, uri.getHost(), getExplicitPort(uri), handshakeTimeout, promise));
+        return promise;
+    }
+
     /**
      * Always make sure the channel who got cached support the proper protocol.
      * It could only occurs when a HttpMethod. CONNECT is used against a proxy
@@ -450,11 +602,56 @@ public class ChannelManager {
         Channels.setAttribute(channel, newDrainCallback(future, channel, keepAlive, partitionKey));
     }
 
-    public void flushPartition(String partitionId) {
+    public void flushPartition(final String partitionId) {
         channelPool.flushPartition(partitionId);
-    } 
+        channelPool.flushPartitions(new ChannelPoolPartitionSelector() {
+            @Override
+            public boolean select(Object partitionKey) {
+                return partitionKey instanceof NtlmPartitionKey && NtlmPartitionKey.class.cast(partitionKey).partitionKey.equals(partitionId);
+            }
+        });
+    }
+
+    public void flushPartitions(final ChannelPoolPartitionSelector selector) {
+        // selectors only know about the keys produced by the ConnectionPoolPartitioning
+        channelPool.flushPartitions(new ChannelPoolPartitionSelector() {
+            @Override
+            public boolean select(Object partitionKey) {
+                if (partitionKey instanceof NtlmPartitionKey)
+                    partitionKey = NtlmPartitionKey.class.cast(partitionKey).partitionKey;
+                return selector.select(partitionKey);
+            }
+        });
+    }
 
-    public void flushPartitions(ChannelPoolPartitionSelector selector) {
-        channelPool.flushPartitions(selector);
+    private static final class NtlmPartitionKey {
+
+        private final Object partitionKey;
+        private final String identity;
+
+        NtlmPartitionKey(Object partitionKey, String identity) {
+            this.partitionKey = partitionKey;
+            this.identity = identity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof NtlmPartitionKey))
+                return false;
+            NtlmPartitionKey other = (NtlmPartitionKey) o;
+            return partitionKey.equals(other.partitionKey) && identity.equals(other.identity);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * partitionKey.hashCode() + identity.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return partitionKey + " (NTLM " + identity + ")";
+        }
     }
 }
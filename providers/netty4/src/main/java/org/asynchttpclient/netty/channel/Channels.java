@@ -26,6 +26,7 @@ public class Channels {
     private static final Logger LOGGER = LoggerFactory.getLogger(Channels.class);
 
     private static final AttributeKey<Object> DEFAULT_ATTRIBUTE = AttributeKey.valueOf("default");
+    private static final AttributeKey<String> NTLM_IDENTITY_ATTRIBUTE = AttributeKey.valueOf("ntlmIdentity");
 
     public static Object getAttribute(Channel channel) {
         Attribute<Object> attr = channel.attr(DEFAULT_ATTRIBUTE);
@@ -36,6 +37,18 @@ public class Channels {
         channel.attr(DEFAULT_ATTRIBUTE).set(o);
     }
 
+    /**
+     * @param channel the channel
+     * @return the identity the channel completed NTLM authentication for, or null
+     */
+    public static String getNtlmIdentity(Channel channel) {
+        return channel.attr(NTLM_IDENTITY_ATTRIBUTE).get();
+    }
+
+    public static void setNtlmIdentity(Channel channel, String identity) {
+        channel.attr(NTLM_IDENTITY_ATTRIBUTE).set(identity);
+    }
+
     public static void setDiscard(Channel channel) {
         setAttribute(channel, DiscardEvent.INSTANCE);
     }
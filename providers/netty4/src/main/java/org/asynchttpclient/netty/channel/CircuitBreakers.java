@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.channel;
+
+import static org.asynchttpclient.util.DateUtils.millisTime;
+import io.netty.util.internal.chmv8.ConcurrentHashMapV8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One circuit breaker per partition key.
+ *
+ * A circuit opens after a given number of consecutive failures, i.e. connect failures and timeouts. Requests then
+ * fail fast until the open duration has elapsed, then a single probe is let through (half-open). The probe's outcome
+ * closes the circuit again or re-opens it. A probe that never reports is replaced after another open duration.
+ *
+ * Only hosts with failures are tracked: a success removes the breaker.
+ */
+public class CircuitBreakers {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreakers.class);
+
+    private final int failureThreshold;
+    private final long openDuration;
+    private final ConcurrentHashMapV8<Object, Breaker> breakers = new ConcurrentHashMapV8<>();
+    private final ConcurrentHashMapV8.Fun<Object, Breaker> breakerComputer = new ConcurrentHashMapV8.Fun<Object, Breaker>() {
+        @Override
+        public Breaker apply(Object partitionKey) {
+            return new Breaker();
+        }
+    };
+
+    public CircuitBreakers(int failureThreshold, long openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    public boolean isEnabled() {
+        return failureThreshold > 0;
+    }
+
+    /**
+     * @param partitionKey the partition key
+     * @return true if a request can be sent, false if it has to fail fast
+     */
+    public boolean allowRequest(Object partitionKey) {
+        Breaker breaker = breakers.get(partitionKey);
+        return breaker == null || breaker.allowRequest(millisTime());
+    }
+
+    public void onSuccess(Object partitionKey) {
+        Breaker breaker = breakers.get(partitionKey);
+        if (breaker != null && breaker.onSuccess())
+            breakers.remove(partitionKey, breaker);
+    }
+
+    public void onFailure(Object partitionKey) {
+        if (breakers.computeIfAbsent(partitionKey, breakerComputer).onFailure(millisTime()))
+            LOGGER.debug("Circuit opened for {}", partitionKey);
+    }
+
+    public State getState(Object partitionKey) {
+        Breaker breaker = breakers.get(partitionKey);
+        return breaker == null ? State.CLOSED : breaker.state;
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final class Breaker {
+
+        // guarded by this
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private long probeStartedAt;
+
+        synchronized boolean allowRequest(long now) {
+            switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAt < openDuration)
+                    return false;
+                state = State.HALF_OPEN;
+                probeStartedAt = now;
+                return true;
+            default:
+                // one probe at a time, unless it got lost
+                if (now - probeStartedAt < openDuration)
+                    return false;
+                probeStartedAt = now;
+                return true;
+            }
+        }
+
+        /**
+         * @return true if the breaker is back to its initial state
+         */
+        synchronized boolean onSuccess() {
+            if (state == State.OPEN)
+                // a late success from before the circuit opened
+                return false;
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            return true;
+        }
+
+        /**
+         * @return true if the circuit just opened
+         */
+        synchronized boolean onFailure(long now) {
+            switch (state) {
+            case CLOSED:
+                if (++consecutiveFailures < failureThreshold)
+                    return false;
+                break;
+            case OPEN:
+                return false;
+            default:
+                // the probe failed
+            }
+            state = State.OPEN;
+            openedAt = now;
+            return true;
+        }
+    }
+}
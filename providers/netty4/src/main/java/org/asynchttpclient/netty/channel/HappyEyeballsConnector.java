@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.channel;
+
+import static org.asynchttpclient.util.DateUtils.millisTime;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.internal.chmv8.ConcurrentHashMapV8;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connects to the first reachable address of a host, following RFC 8305 (Happy Eyeballs v2).
+ *
+ * Addresses are interleaved by family, starting with the family of the preferred one. A new attempt is started every
+ * connection attempt delay while the previous ones are still pending, or right away when one fails. The first
+ * channel to connect is handed to the listener, as if it came from a plain {@link Bootstrap#connect}, and the other
+ * attempts are closed. Addresses that failed recently are tried last.
+ */
+public class HappyEyeballsConnector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HappyEyeballsConnector.class);
+
+    private static final long FAILURE_MEMORY = 30000L;
+    private static final int MAX_REMEMBERED_FAILURES = 1024;
+
+    private final Timer nettyTimer;
+    private final long attemptDelay;
+    private final ConcurrentHashMapV8<InetAddress, Long> failures = new ConcurrentHashMapV8<>();
+
+    public HappyEyeballsConnector(Timer nettyTimer, long attemptDelay) {
+        this.nettyTimer = nettyTimer;
+        this.attemptDelay = attemptDelay;
+    }
+
+    /**
+     * @param bootstrap the bootstrap
+     * @param remoteAddresses the addresses of the remote host, in order of preference, not empty
+     * @param localAddress the local address to bind to, or null
+     * @param listener notified with the winning connect future, or with the last failed one if none succeeded
+     */
+    public void connect(Bootstrap bootstrap, List<InetSocketAddress> remoteAddresses, InetSocketAddress localAddress, ChannelFutureListener listener) {
+        if (remoteAddresses.size() == 1)
+            connect(bootstrap, remoteAddresses.get(0), localAddress).addListener(listener);
+        else
+            new Race(bootstrap, sortAddresses(remoteAddresses), localAddress, listener).startNextAttempt();
+    }
+
+    private static ChannelFuture connect(Bootstrap bootstrap, InetSocketAddress remoteAddress, InetSocketAddress localAddress) {
+        return localAddress != null ? bootstrap.connect(remoteAddress, localAddress) : bootstrap.connect(remoteAddress);
+    }
+
+    /**
+     * @param addresses the addresses in order of preference
+     * @return the addresses in the order they should be tried in
+     */
+    List<InetSocketAddress> sortAddresses(List<InetSocketAddress> addresses) {
+        long now = millisTime();
+        List<InetSocketAddress> healthy = new ArrayList<>(addresses.size());
+        List<InetSocketAddress> failed = new ArrayList<>(0);
+        for (InetSocketAddress address : addresses) {
+            if (hasFailedRecently(address.getAddress(), now))
+                failed.add(address);
+            else
+                healthy.add(address);
+        }
+
+        List<InetSocketAddress> sorted = interleave(healthy);
+        sorted.addAll(interleave(failed));
+        return sorted;
+    }
+
+    private static List<InetSocketAddress> interleave(List<InetSocketAddress> addresses) {
+        List<InetSocketAddress> sorted = new ArrayList<>(addresses.size());
+        if (addresses.isEmpty())
+            return sorted;
+
+        boolean firstFamilyIsV6 = addresses.get(0).getAddress() instanceof Inet6Address;
+        List<InetSocketAddress> first = new ArrayList<>(addresses.size());
+        List<InetSocketAddress> second = new ArrayList<>(addresses.size());
+        for (InetSocketAddress address : addresses) {
+            if (address.getAddress() instanceof Inet6Address == firstFamilyIsV6)
+                first.add(address);
+            else
+                second.add(address);
+        }
+
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size())
+                sorted.add(first.get(i));
+            if (i < second.size())
+                sorted.add(second.get(i));
+        }
+        return sorted;
+    }
+
+    boolean hasFailedRecently(InetAddress address, long now) {
+        Long failedAt = failures.get(address);
+        return failedAt != null && now - failedAt < FAILURE_MEMORY;
+    }
+
+    private void onFailure(InetAddress address) {
+        long now = millisTime();
+        if (failures.size() >= MAX_REMEMBERED_FAILURES) {
+            for (Iterator<Map.Entry<InetAddress, Long>> it = failures.entrySet().iterator(); it.hasNext();) {
+                if (now - it.next().getValue() >= FAILURE_MEMORY)
+                    it.remove();
+            }
+            if (failures.size() >= MAX_REMEMBERED_FAILURES)
+                return;
+        }
+        failures.put(address, now);
+    }
+
+    private void onSuccess(InetAddress address) {
+        failures.remove(address);
+    }
+
+    /**
+     * The connection attempts for one request.
+     */
+    private final class Race implements TimerTask {
+
+        private final Bootstrap bootstrap;
+        private final List<InetSocketAddress> addresses;
+        private final InetSocketAddress localAddress;
+        private final ChannelFutureListener listener;
+        private final List<ChannelFuture> attempts = new ArrayList<>();
+
+        // guarded by this
+        private int next;
+        private int pending;
+        private boolean done;
+        private Timeout attemptTimeout;
+
+        Race(Bootstrap bootstrap, List<InetSocketAddress> addresses, InetSocketAddress localAddress, ChannelFutureListener listener) {
+            this.bootstrap = bootstrap;
+            this.addresses = addresses;
+            this.localAddress = localAddress;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            startNextAttempt();
+        }
+
+        void startNextAttempt() {
+            final InetSocketAddress address;
+            synchronized (this) {
+                if (done || next == addresses.size())
+                    return;
+                address = addresses.get(next++);
+                pending++;
+                if (attemptTimeout != null)
+                    attemptTimeout.cancel();
+                attemptTimeout = next < addresses.size() ? nettyTimer.newTimeout(this, attemptDelay, TimeUnit.MILLISECONDS) : null;
+            }
+
+            LOGGER.debug("Connecting to {}", address);
+            ChannelFuture attempt = connect(bootstrap, address, localAddress);
+            boolean lost;
+            synchronized (this) {
+                attempts.add(attempt);
+                lost = done;
+            }
+            if (lost)
+                attempt.channel().close();
+
+            attempt.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    onAttemptComplete(future, address);
+                }
+            });
+        }
+
+        private void onAttemptComplete(ChannelFuture future, InetSocketAddress address) throws Exception {
+            boolean won = false;
+            boolean lost = false;
+            boolean moveOn = false;
+            boolean failed;
+            List<ChannelFuture> losers = null;
+
+            synchronized (this) {
+                pending--;
+                // attempts closed because another one won are not failures of their address
+                failed = !done && !future.isSuccess();
+                if (!done) {
+                    if (future.isSuccess()) {
+                        done = won = true;
+                        losers = new ArrayList<>(attempts);
+                        losers.remove(future);
+                        if (attemptTimeout != null)
+                            attemptTimeout.cancel();
+                    } else if (next < addresses.size()) {
+                        moveOn = true;
+                    } else if (pending == 0) {
+                        done = lost = true;
+                    }
+                }
+            }
+
+            if (won) {
+                onSuccess(address.getAddress());
+                for (ChannelFuture loser : losers)
+                    loser.channel().close();
+                listener.operationComplete(future);
+
+            } else if (future.isSuccess()) {
+                // another attempt already won
+                future.channel().close();
+
+            } else {
+                if (failed)
+                    onFailure(address.getAddress());
+                LOGGER.debug("Failed to connect to {}", address, future.cause());
+                if (moveOn)
+                    startNextAttempt();
+                else if (lost)
+                    listener.operationComplete(future);
+            }
+        }
+    }
+}
@@ -26,10 +26,12 @@ import java.net.ConnectException;
 
 import org.asynchttpclient.AsyncHandler;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestTimings;
 import org.asynchttpclient.handler.AsyncHandlerExtensions;
 import org.asynchttpclient.netty.NettyResponseFuture;
 import org.asynchttpclient.netty.future.StackTraceInspector;
 import org.asynchttpclient.netty.request.NettyRequestSender;
+import org.asynchttpclient.proxy.ProxyServer;
 import org.asynchttpclient.uri.Uri;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,7 +76,15 @@ public final class NettyConnectListener<T> implements ChannelFutureListener {
         Channels.setAttribute(channel, future);
         
         if (future.isDone()) {
-            abortChannelPreemption();
+            // e.g. the losing attempt of a hedged request, cancelled while connecting
+            if (future.getProxyServer() == null || future.getProxyServer().getProtocol().isSocks()) {
+                // nothing was written yet: the connection is clean and can be reused
+                channelManager.registerOpenChannel(channel, partitionKey);
+                channelManager.tryToOfferChannelToPool(channel, future.getAsyncHandler(), true, partitionKey);
+            } else {
+                abortChannelPreemption();
+                Channels.silentlyCloseChannel(channel);
+            }
             return;
         }
 
@@ -87,18 +97,42 @@ public final class NettyConnectListener<T> implements ChannelFutureListener {
     }
 
     private void onFutureSuccess(final Channel channel) throws Exception {
-        
+
+        ProxyServer proxyServer = future.getProxyServer();
+        if (proxyServer != null && proxyServer.getProtocol().isSocks()) {
+            channelManager.addSocksHandler(channel.pipeline(), proxyServer, future.getUri()).addListener(new GenericFutureListener<Future<Channel>>() {
+                @Override
+                public void operationComplete(Future<Channel> socksFuture) throws Exception {
+                    if (socksFuture.isSuccess())
+                        onChannelReady(channel, true);
+                    else
+                        onFutureFailure(channel, socksFuture.cause());
+                }
+            });
+        } else {
+            onChannelReady(channel, proxyServer == null);
+        }
+    }
+
+    /**
+     * @param channel the connected channel
+     * @param tunnelled true if the channel reaches the target, either directly or through a SOCKS proxy
+     */
+    private void onChannelReady(final Channel channel, boolean tunnelled) throws Exception {
+
         Request request = future.getRequest();
         Uri uri = request.getUri();
 
-        // in case of proxy tunneling, we'll add the SslHandler later, after the CONNECT request
-        if (future.getProxyServer() == null && isSecure(uri)) {
+        // in case of HTTP proxy tunneling, we'll add the SslHandler later, after the CONNECT request
+        if (tunnelled && isSecure(uri)) {
+            future.getTimings().record(RequestTimings.Event.TLS_HANDSHAKE_START);
             SslHandler sslHandler = channelManager.addSslHandler(channel.pipeline(), uri, request.getVirtualHost());
             sslHandler.handshakeFuture().addListener(new GenericFutureListener<Future<Channel>>() {
                 @Override
                 public void operationComplete(Future<Channel> handshakeFuture) throws Exception {
                  
                     if (handshakeFuture.isSuccess()) {
+                        future.getTimings().record(RequestTimings.Event.TLS_HANDSHAKE_END);
                         final AsyncHandler<T> asyncHandler = future.getAsyncHandler();
                         if (asyncHandler instanceof AsyncHandlerExtensions)
                             AsyncHandlerExtensions.class.cast(asyncHandler).onSslHandshakeCompleted();
@@ -118,14 +152,16 @@ public final class NettyConnectListener<T> implements ChannelFutureListener {
     private void onFutureFailure(Channel channel, Throwable cause) {
 
         abortChannelPreemption();
+        channelManager.reportFailure(future);
 
         boolean canRetry = future.canRetry();
         LOGGER.debug("Trying to recover from failing to connect channel {} with a retry value of {} ", channel, canRetry);
         if (canRetry//
                 && cause != null//
-                && (future.getState() != NettyResponseFuture.STATE.NEW || StackTraceInspector.recoverOnNettyDisconnectException(cause))) {
+                && (future.getState() != NettyResponseFuture.STATE.NEW || requestSender.hasRetryPolicy() || StackTraceInspector
+                        .recoverOnNettyDisconnectException(cause))) {
 
-            if (requestSender.retry(future)) {
+            if (requestSender.retry(future, cause)) {
                 return;
             }
         }
@@ -141,9 +177,13 @@ public final class NettyConnectListener<T> implements ChannelFutureListener {
     }
 
     public final void operationComplete(ChannelFuture f) throws Exception {
-        if (f.isSuccess())
+        channelManager.getConnectionPoolCounters().acquireCompleted(partitionKey);
+        if (f.isSuccess()) {
+            future.getTimings().record(RequestTimings.Event.CONNECT_END);
+            channelManager.reportConnected(future);
             onFutureSuccess(f.channel());
-        else
+        } else {
             onFutureFailure(f.channel(), f.cause());
+        }
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.channel;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.asynchttpclient.netty.NettyResponseFuture;
+
+/**
+ * HTTP/1.1 pipelining: the channels that are waiting for a response and accept more requests meanwhile, per partition.
+ *
+ * The request whose response is expected is the channel attribute, as usual. The ones written after it wait in a FIFO,
+ * so that responses get matched in order: once the current response is complete, the channel is handed over to the
+ * next request instead of going back to the pool.
+ */
+public class PipelinedChannels {
+
+    private static final AttributeKey<RequestPipeline> PIPELINE_ATTRIBUTE = AttributeKey.valueOf("pipeline");
+
+    private final int maxPipelinedRequests;
+    private final ConcurrentHashMap<Object, Queue<RequestPipeline>> openPipelines = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxPipelinedRequests the maximum number of requests waiting for a response on a channel
+     */
+    public PipelinedChannels(int maxPipelinedRequests) {
+        this.maxPipelinedRequests = maxPipelinedRequests;
+    }
+
+    /**
+     * Start accepting pipelined requests on a channel. The caller must hold the lock on the pipeline while writing the
+     * current request, so that no pipelined request gets written before it.
+     *
+     * @param channel a channel a pipelinable request is about to be written to
+     * @param partitionKey the partition of the channel
+     * @return the pipeline of the channel
+     */
+    public RequestPipeline open(Channel channel, Object partitionKey) {
+        RequestPipeline pipeline = channel.attr(PIPELINE_ATTRIBUTE).get();
+        if (pipeline != null)
+            return pipeline;
+
+        pipeline = new RequestPipeline(channel, partitionKey);
+        channel.attr(PIPELINE_ATTRIBUTE).set(pipeline);
+
+        Queue<RequestPipeline> pipelines = openPipelines.get(partitionKey);
+        if (pipelines == null) {
+            pipelines = new ConcurrentLinkedQueue<>();
+            Queue<RequestPipeline> previous = openPipelines.putIfAbsent(partitionKey, pipelines);
+            if (previous != null)
+                pipelines = previous;
+        }
+        pipelines.add(pipeline);
+        return pipeline;
+    }
+
+    /**
+     * @param partitionKey the partition
+     * @return a pipeline that will probably accept one more request, or null
+     */
+    public RequestPipeline poll(Object partitionKey) {
+        Queue<RequestPipeline> pipelines = openPipelines.get(partitionKey);
+        if (pipelines != null) {
+            for (RequestPipeline pipeline : pipelines) {
+                if (!pipeline.isOpen())
+                    pipelines.remove(pipeline);
+                else if (pipeline.hasRoom())
+                    return pipeline;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The response being received on a channel is complete: hand the channel over to the next pipelined request, if
+     * any, otherwise stop pipelining on it.
+     *
+     * @param channel the channel
+     * @return true if the channel now receives the response to the next request, false if it's free
+     */
+    public boolean next(Channel channel) {
+        RequestPipeline pipeline = channel.attr(PIPELINE_ATTRIBUTE).get();
+        if (pipeline == null)
+            return false;
+
+        synchronized (pipeline) {
+            NettyResponseFuture<?> next = pipeline.queued.poll();
+            if (next != null) {
+                Channels.setAttribute(channel, next);
+                return true;
+            }
+            close(pipeline);
+            return false;
+        }
+    }
+
+    /**
+     * Stop pipelining on a channel, e.g. because it was closed.
+     *
+     * @param channel the channel
+     * @return the requests that were written but not answered
+     */
+    public List<NettyResponseFuture<?>> close(Channel channel) {
+        RequestPipeline pipeline = channel.attr(PIPELINE_ATTRIBUTE).get();
+        if (pipeline == null)
+            return Collections.emptyList();
+
+        synchronized (pipeline) {
+            List<NettyResponseFuture<?>> unanswered = new ArrayList<>(pipeline.queued);
+            pipeline.queued.clear();
+            close(pipeline);
+            return unanswered;
+        }
+    }
+
+    /**
+     * @param channel the channel
+     * @return true if requests can be pipelined on the channel
+     */
+    public boolean isPipelined(Channel channel) {
+        return channel.attr(PIPELINE_ATTRIBUTE).get() != null;
+    }
+
+    private void close(RequestPipeline pipeline) {
+        pipeline.open = false;
+        pipeline.channel.attr(PIPELINE_ATTRIBUTE).remove();
+        Queue<RequestPipeline> pipelines = openPipelines.get(pipeline.partitionKey);
+        if (pipelines != null)
+            pipelines.remove(pipeline);
+    }
+
+    /**
+     * The requests pipelined on a channel. Callers lock on the pipeline while offering a request and writing it, so that
+     * requests are written in the order of the FIFO.
+     */
+    public final class RequestPipeline {
+
+        private final Channel channel;
+        private final Object partitionKey;
+        private final Queue<NettyResponseFuture<?>> queued = new ArrayDeque<>();
+        private volatile boolean open = true;
+
+        private RequestPipeline(Channel channel, Object partitionKey) {
+            this.channel = channel;
+            this.partitionKey = partitionKey;
+        }
+
+        public Channel getChannel() {
+            return channel;
+        }
+
+        private boolean isOpen() {
+            return open && channel.isActive();
+        }
+
+        private boolean hasRoom() {
+            // the current request is not in the queue
+            return queued.size() + 1 < maxPipelinedRequests;
+        }
+
+        /**
+         * @param future a request to write on the channel
+         * @return true if the request was queued and must be written while holding the lock on the pipeline
+         */
+        public boolean offer(NettyResponseFuture<?> future) {
+            if (!isOpen() || !hasRoom())
+                return false;
+            queued.add(future);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.channel;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.proxy.ProxyServer;
+
+/**
+ * Client side of the SOCKS4a and SOCKS5 handshakes. Installed first in the pipeline once the connection to the proxy
+ * is established, it asks the proxy to connect to the target, then removes itself, so that TLS and HTTP run through
+ * the tunnel as if the connection was direct.
+ *
+ * The target host is sent as a name, so the proxy resolves it, unless it's an IP literal. SOCKS5 authenticates with username/password when the
+ * {@link ProxyServer} has a principal, SOCKS4a sends the principal as user id.
+ */
+public class SocksHandshakeHandler extends ByteToMessageDecoder {
+
+    private static final byte SOCKS4_VERSION = 4;
+    private static final byte SOCKS5_VERSION = 5;
+    private static final byte CMD_CONNECT = 1;
+    private static final byte AUTH_NONE = 0;
+    private static final byte AUTH_PASSWORD = 2;
+    private static final byte AUTH_PASSWORD_VERSION = 1;
+    private static final byte ADDRESS_IPV4 = 1;
+    private static final byte ADDRESS_DOMAIN = 3;
+    private static final byte ADDRESS_IPV6 = 4;
+    private static final int MAX_FIELD_LENGTH = 255;
+
+    private enum State {
+        SOCKS5_METHOD, SOCKS5_AUTH, SOCKS5_CONNECT, SOCKS4_CONNECT, DONE
+    }
+
+    private final ProxyServer proxyServer;
+    private final String targetHost;
+    private final int targetPort;
+    private final long handshakeTimeout;
+    private final Promise<Channel> promise;
+    private State state;
+    private ScheduledFuture<?> timeout;
+
+    public SocksHandshakeHandler(ProxyServer proxyServer, String targetHost, int targetPort, long handshakeTimeout, Promise<Channel> promise) {
+        this.proxyServer = proxyServer;
+        // IPv6 literals come bracketed from the uri
+        this.targetHost = targetHost.startsWith("[") && targetHost.endsWith("]") ? targetHost.substring(1, targetHost.length() - 1) : targetHost;
+        this.targetPort = targetPort;
+        this.handshakeTimeout = handshakeTimeout;
+        this.promise = promise;
+    }
+
+    @Override
+    public void handlerAdded(final ChannelHandlerContext ctx) throws Exception {
+        if (handshakeTimeout > 0) {
+            timeout = ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    fail(ctx, new IOException("SOCKS handshake with " + proxyServer + " timed out after " + handshakeTimeout + " ms"));
+                }
+            }, handshakeTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        if (proxyServer.getProtocol() == ProxyServer.Protocol.SOCKS4) {
+            state = State.SOCKS4_CONNECT;
+            if (NetUtil.isValidIpV6Address(targetHost)) {
+                fail(ctx, new IOException("SOCKS4 proxy " + proxyServer + " can't connect to IPv6 address " + targetHost));
+                return;
+            }
+            ctx.writeAndFlush(socks4ConnectRequest(ctx));
+        } else {
+            state = State.SOCKS5_METHOD;
+            ByteBuf greeting = ctx.alloc().buffer(4);
+            greeting.writeByte(SOCKS5_VERSION);
+            if (proxyServer.getPrincipal() != null)
+                greeting.writeByte(2).writeByte(AUTH_NONE).writeByte(AUTH_PASSWORD);
+            else
+                greeting.writeByte(1).writeByte(AUTH_NONE);
+            ctx.writeAndFlush(greeting);
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        switch (state) {
+        case SOCKS5_METHOD:
+            if (in.readableBytes() < 2)
+                return;
+            checkVersion(in.readByte(), SOCKS5_VERSION);
+            byte method = in.readByte();
+            if (method == AUTH_NONE) {
+                sendSocks5Connect(ctx);
+            } else if (method == AUTH_PASSWORD && proxyServer.getPrincipal() != null) {
+                state = State.SOCKS5_AUTH;
+                byte[] user = checkLength(proxyServer.getPrincipal().getBytes(UTF_8), "user name");
+                byte[] password = checkLength((proxyServer.getPassword() != null ? proxyServer.getPassword() : "").getBytes(UTF_8), "password");
+                ByteBuf auth = ctx.alloc().buffer(3 + user.length + password.length);
+                auth.writeByte(AUTH_PASSWORD_VERSION).writeByte(user.length).writeBytes(user).writeByte(password.length).writeBytes(password);
+                ctx.writeAndFlush(auth);
+            } else {
+                throw new IOException("SOCKS proxy " + proxyServer + " accepts none of the offered authentication methods");
+            }
+            break;
+
+        case SOCKS5_AUTH:
+            if (in.readableBytes() < 2)
+                return;
+            in.skipBytes(1);
+            if (in.readByte() != 0)
+                throw new IOException("SOCKS proxy " + proxyServer + " rejected the credentials of " + proxyServer.getPrincipal());
+            sendSocks5Connect(ctx);
+            break;
+
+        case SOCKS5_CONNECT:
+            if (in.readableBytes() < 5)
+                return;
+            int start = in.readerIndex();
+            int length;
+            switch (in.getByte(start + 3)) {
+            case ADDRESS_IPV4:
+                length = 4 + 4 + 2;
+                break;
+            case ADDRESS_IPV6:
+                length = 4 + 16 + 2;
+                break;
+            case ADDRESS_DOMAIN:
+                length = 4 + 1 + (in.getByte(start + 4) & 0xff) + 2;
+                break;
+            default:
+                throw new IOException("SOCKS proxy " + proxyServer + " replied with an unknown address type");
+            }
+            if (in.readableBytes() < length)
+                return;
+            checkVersion(in.getByte(start), SOCKS5_VERSION);
+            byte reply = in.getByte(start + 1);
+            in.skipBytes(length);
+            if (reply != 0)
+                throw new ConnectException("SOCKS proxy " + proxyServer + " couldn't connect to " + targetHost + ":" + targetPort + ", reply " + reply);
+            succeed(ctx);
+            break;
+
+        case SOCKS4_CONNECT:
+            if (in.readableBytes() < 8)
+                return;
+            in.skipBytes(1);
+            byte status = in.readByte();
+            in.skipBytes(6);
+            if (status != 0x5a)
+                throw new ConnectException("SOCKS proxy " + proxyServer + " couldn't connect to " + targetHost + ":" + targetPort + ", status "
+                        + (status & 0xff));
+            succeed(ctx);
+            break;
+
+        default:
+            // handshake done, leftover bytes get forwarded when the handler is removed
+        }
+    }
+
+    private void checkVersion(byte version, byte expected) throws IOException {
+        if (version != expected)
+            throw new IOException("SOCKS proxy " + proxyServer + " replied with version " + version);
+    }
+
+    private byte[] checkLength(byte[] field, String name) throws IOException {
+        // SOCKS5 fields are prefixed with a one byte length
+        if (field.length > MAX_FIELD_LENGTH)
+            throw new IOException("SOCKS5 " + name + " for proxy " + proxyServer + " is longer than " + MAX_FIELD_LENGTH + " bytes");
+        return field;
+    }
+
+    private void sendSocks5Connect(ChannelHandlerContext ctx) throws IOException {
+        state = State.SOCKS5_CONNECT;
+        byte[] ipv4 = ipv4(targetHost);
+        byte[] ipv6 = ipv4 == null && NetUtil.isValidIpV6Address(targetHost) ? NetUtil.createByteArrayFromIpAddressString(targetHost) : null;
+        byte[] host = ipv4 == null && ipv6 == null ? checkLength(targetHost.getBytes(US_ASCII), "target host") : null;
+        ByteBuf connect = ctx.alloc().buffer(7 + (host != null ? host.length : 16));
+        connect.writeByte(SOCKS5_VERSION).writeByte(CMD_CONNECT).writeByte(0);
+        if (ipv4 != null)
+            connect.writeByte(ADDRESS_IPV4).writeBytes(ipv4);
+        else if (ipv6 != null)
+            connect.writeByte(ipv6.length == 16 ? ADDRESS_IPV6 : ADDRESS_IPV4).writeBytes(ipv6);
+        else
+            connect.writeByte(ADDRESS_DOMAIN).writeByte(host.length).writeBytes(host);
+        connect.writeShort(targetPort);
+        ctx.writeAndFlush(connect);
+    }
+
+    private ByteBuf socks4ConnectRequest(ChannelHandlerContext ctx) {
+        byte[] ipv4 = ipv4(targetHost);
+        byte[] userId = proxyServer.getPrincipal() != null ? proxyServer.getPrincipal().getBytes(UTF_8) : new byte[0];
+        byte[] host = targetHost.getBytes(US_ASCII);
+        ByteBuf connect = ctx.alloc().buffer(10 + userId.length + host.length);
+        connect.writeByte(SOCKS4_VERSION).writeByte(CMD_CONNECT).writeShort(targetPort);
+        if (ipv4 != null) {
+            connect.writeBytes(ipv4).writeBytes(userId).writeByte(0);
+        } else {
+            // SOCKS4a: an invalid 0.0.0.x address means that the host name follows
+            connect.writeInt(1).writeBytes(userId).writeByte(0).writeBytes(host).writeByte(0);
+        }
+        return connect;
+    }
+
+    private static byte[] ipv4(String host) {
+        String[] parts = host.split("\\.", -1);
+        if (parts.length != 4)
+            return null;
+        byte[] address = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3)
+                return null;
+            int value = 0;
+            for (int j = 0; j < part.length(); j++) {
+                char c = part.charAt(j);
+                if (c < '0' || c > '9')
+                    return null;
+                value = value * 10 + c - '0';
+            }
+            if (value > 255)
+                return null;
+            address[i] = (byte) value;
+        }
+        return address;
+    }
+
+    private void succeed(ChannelHandlerContext ctx) {
+        state = State.DONE;
+        cancelTimeout();
+        ctx.pipeline().remove(this);
+        promise.trySuccess(ctx.channel());
+    }
+
+    private void fail(ChannelHandlerContext ctx, Throwable cause) {
+        state = State.DONE;
+        cancelTimeout();
+        if (promise.tryFailure(cause))
+            ctx.close();
+    }
+
+    private void cancelTimeout() {
+        if (timeout != null)
+            timeout.cancel(false);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        if (promise.isDone())
+            super.exceptionCaught(ctx, cause);
+        else
+            fail(ctx, cause.getCause() instanceof IOException ? cause.getCause() : cause);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (!promise.isDone())
+            fail(ctx, new IOException("SOCKS proxy " + proxyServer + " closed the connection during the handshake"));
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.channel;
+
+import static org.asynchttpclient.util.MiscUtils.isNonEmpty;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+
+import java.util.Arrays;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.channel.SSLEngineFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link SSLEngineFactory} backed by a single Netty {@link SslContext}, so that every connection of the client
+ * shares the same session cache and session tickets.
+ *
+ * The OpenSSL provider requires netty-tcnative on the classpath, e.g. the statically linked BoringSSL flavor. When
+ * it's not available, the JDK provider is used instead.
+ */
+public class SslContextEngineFactory implements SSLEngineFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SslContextEngineFactory.class);
+
+    private final AsyncHttpClientConfig config;
+    private final SslContext sslContext;
+
+    public SslContextEngineFactory(AsyncHttpClientConfig config, SslProvider sslProvider) throws SSLException {
+        this.config = config;
+
+        if (sslProvider == SslProvider.OPENSSL && !OpenSsl.isAvailable()) {
+            LOGGER.info("OpenSSL is not available ({}), falling back to the JDK provider", OpenSsl.unavailabilityCause());
+            sslProvider = SslProvider.JDK;
+        }
+
+        SslContextBuilder builder = SslContextBuilder.forClient().sslProvider(sslProvider);
+        if (config.isAcceptAnyCertificate())
+            builder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+        if (isNonEmpty(config.getEnabledCipherSuites()))
+            builder.ciphers(Arrays.asList(config.getEnabledCipherSuites()));
+        if (config.getSslSessionCacheSize() != null)
+            builder.sessionCacheSize(config.getSslSessionCacheSize());
+        if (config.getSslSessionTimeout() != null)
+            builder.sessionTimeout(config.getSslSessionTimeout());
+        sslContext = builder.build();
+    }
+
+    public SslContext getSslContext() {
+        return sslContext;
+    }
+
+    @Override
+    public SSLEngine newSSLEngine(String peerHost, int peerPort) {
+        SSLEngine sslEngine = sslContext.newEngine(ByteBufAllocator.DEFAULT, peerHost, peerPort);
+        if (!config.isAcceptAnyCertificate()) {
+            SSLParameters params = sslEngine.getSSLParameters();
+            params.setEndpointIdentificationAlgorithm("HTTPS");
+            sslEngine.setSSLParameters(params);
+        }
+
+        if (isNonEmpty(config.getEnabledProtocols()))
+            sslEngine.setEnabledProtocols(config.getEnabledProtocols());
+
+        return sslEngine;
+    }
+}
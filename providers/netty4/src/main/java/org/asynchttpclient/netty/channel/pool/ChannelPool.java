@@ -13,6 +13,8 @@
  */
 package org.asynchttpclient.netty.channel.pool;
 
+import java.util.Map;
+
 import org.asynchttpclient.netty.channel.pool.ChannelPoolPartitionSelector;
 
 import io.netty.channel.Channel;
@@ -70,4 +72,19 @@ public interface ChannelPool {
      * @param selector
      */
     void flushPartitions(ChannelPoolPartitionSelector selector);
+
+    /**
+     * Count the idle channels of a partition
+     * 
+     * @param partitionKey
+     * @return the number of channels in the partition
+     */
+    int idleChannelCount(Object partitionKey);
+
+    /**
+     * Count the idle channels of every partition
+     * 
+     * @return the number of channels per partition key
+     */
+    Map<Object, Integer> idleChannelCounts();
 }
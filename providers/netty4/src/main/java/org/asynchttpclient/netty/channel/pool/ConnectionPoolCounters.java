@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.channel.pool;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.internal.chmv8.ConcurrentHashMapV8;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.asynchttpclient.channel.pool.ConnectionPoolSnapshot;
+import org.asynchttpclient.channel.pool.ConnectionPoolStats;
+import org.asynchttpclient.internal.chmv8.LongAdder;
+
+/**
+ * Connection counters per partition. Counters are striped {@link LongAdder}s so that recording never contends
+ * between event loops; they are only summed up when a snapshot is taken.
+ */
+public class ConnectionPoolCounters {
+
+    private static final ConcurrentHashMapV8.Fun<Object, PartitionCounters> PARTITION_COMPUTER = new ConcurrentHashMapV8.Fun<Object, PartitionCounters>() {
+        @Override
+        public PartitionCounters apply(Object partitionKey) {
+            return new PartitionCounters();
+        }
+    };
+
+    private static final class PartitionCounters {
+        final LongAdder open = new LongAdder();
+        final LongAdder pendingAcquire = new LongAdder();
+        final LongAdder created = new LongAdder();
+        final LongAdder reused = new LongAdder();
+        final LongAdder evictedIdle = new LongAdder();
+        final LongAdder evictedTtl = new LongAdder();
+        final LongAdder closedRemotely = new LongAdder();
+    }
+
+    private final ConcurrentHashMapV8<Object, PartitionCounters> partitions = new ConcurrentHashMapV8<>();
+
+    /**
+     * Map a key used by the pool to the partition key exposed in the statistics, e.g. to merge sub-partitions.
+     *
+     * @param poolKey the key used by the pool
+     * @return the partition key
+     */
+    protected Object partitionKey(Object poolKey) {
+        return poolKey;
+    }
+
+    private PartitionCounters counters(Object poolKey) {
+        return partitions.computeIfAbsent(partitionKey(poolKey), PARTITION_COMPUTER);
+    }
+
+    public void channelOpened(Channel channel, Object poolKey) {
+        final PartitionCounters counters = counters(poolKey);
+        counters.created.increment();
+        counters.open.increment();
+        channel.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                counters.open.decrement();
+            }
+        });
+    }
+
+    public void acquireStarted(Object poolKey) {
+        counters(poolKey).pendingAcquire.increment();
+    }
+
+    public void acquireCompleted(Object poolKey) {
+        counters(poolKey).pendingAcquire.decrement();
+    }
+
+    public void channelReused(Object poolKey) {
+        counters(poolKey).reused.increment();
+    }
+
+    public void channelEvictedIdle(Object poolKey) {
+        counters(poolKey).evictedIdle.increment();
+    }
+
+    public void channelEvictedTtl(Object poolKey) {
+        counters(poolKey).evictedTtl.increment();
+    }
+
+    public void channelClosedRemotely(Object poolKey) {
+        counters(poolKey).closedRemotely.increment();
+    }
+
+    /**
+     * @param idleChannelCounts the number of idle channels per key used by the pool
+     * @return a snapshot of the counters
+     */
+    public ConnectionPoolSnapshot snapshot(Map<Object, Integer> idleChannelCounts) {
+        Map<Object, Long> idle = new HashMap<>();
+        for (Map.Entry<Object, Integer> entry : idleChannelCounts.entrySet()) {
+            Object partitionKey = partitionKey(entry.getKey());
+            Long count = idle.get(partitionKey);
+            idle.put(partitionKey, (count != null ? count : 0L) + entry.getValue());
+        }
+
+        Map<Object, ConnectionPoolStats> stats = new HashMap<>();
+        for (Map.Entry<Object, PartitionCounters> entry : partitions.entrySet()) {
+            PartitionCounters counters = entry.getValue();
+            Long idleCount = idle.get(entry.getKey());
+            long idleChannels = idleCount != null ? idleCount : 0L;
+            // counters are read one after the other, the channels might have moved in the meantime
+            long activeChannels = Math.max(0L, counters.open.sum() - idleChannels);
+            stats.put(entry.getKey(), new ConnectionPoolStats(idleChannels,//
+                    activeChannels,//
+                    Math.max(0L, counters.pendingAcquire.sum()),//
+                    counters.created.sum(),//
+                    counters.reused.sum(),//
+                    counters.evictedIdle.sum(),//
+                    counters.evictedTtl.sum(),//
+                    counters.closedRemotely.sum()));
+        }
+        return new ConnectionPoolSnapshot(stats);
+    }
+}
@@ -23,6 +23,7 @@ import io.netty.util.internal.chmv8.ConcurrentHashMapV8;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -62,12 +63,18 @@ public final class DefaultChannelPool implements ChannelPool {
     private final long maxIdleTime;
     private final boolean maxIdleTimeDisabled;
     private final long cleanerPeriod;
+    private final ConnectionPoolCounters counters;
 
     public DefaultChannelPool(AsyncHttpClientConfig config, Timer hashedWheelTimer) {
+        this(config, hashedWheelTimer, null);
+    }
+
+    public DefaultChannelPool(AsyncHttpClientConfig config, Timer hashedWheelTimer, ConnectionPoolCounters counters) {
         this(config.getPooledConnectionIdleTimeout(),//
                 config.getConnectionTTL(),//
                 config.isAllowPoolingSslConnections(),//
-                hashedWheelTimer);
+                hashedWheelTimer,//
+                counters);
     }
 
     private int channelId(Channel channel) {
@@ -78,6 +85,16 @@ public final class DefaultChannelPool implements ChannelPool {
             int maxConnectionTTL,//
             boolean sslConnectionPoolEnabled,//
             Timer nettyTimer) {
+        this(maxIdleTime, maxConnectionTTL, sslConnectionPoolEnabled, nettyTimer, null);
+    }
+
+    public DefaultChannelPool(long maxIdleTime,//
+            int maxConnectionTTL,//
+            boolean sslConnectionPoolEnabled,//
+            Timer nettyTimer,//
+            ConnectionPoolCounters counters) {
+        // nobody reads the counters when none were provided
+        this.counters = counters != null ? counters : new ConnectionPoolCounters();
         this.sslConnectionPoolEnabled = sslConnectionPoolEnabled;
         this.maxIdleTime = maxIdleTime;
         this.maxConnectionTTL = maxConnectionTTL;
@@ -173,27 +190,37 @@ public final class DefaultChannelPool implements ChannelPool {
             return true;
         }
 
-        private final List<IdleChannel> closeChannels(List<IdleChannel> candidates) {
+        private void recordEviction(Object partitionKey, IdleChannel idleChannel, long now) {
+            if (isRemotelyClosed(idleChannel.channel))
+                counters.channelClosedRemotely(partitionKey);
+            else if (isTTLExpired(idleChannel.channel, now))
+                counters.channelEvictedTtl(partitionKey);
+            else
+                counters.channelEvictedIdle(partitionKey);
+        }
+
+        private final List<IdleChannel> closeChannels(Object partitionKey, List<IdleChannel> candidates, long now) {
 
             // lazy create, only if we have a non-closeable channel
             List<IdleChannel> closedChannels = null;
             for (int i = 0; i < candidates.size(); i++) {
                 IdleChannel idleChannel = candidates.get(i);
-                if (!isChannelCloseable(idleChannel.channel))
-                    if (isChannelCloseable(idleChannel.channel)) {
-                        LOGGER.debug("Closing Idle Channel {}", idleChannel.channel);
-                        close(idleChannel.channel);
-                        if (closedChannels != null) {
-                            closedChannels.add(idleChannel);
-                        }
-
-                    } else if (closedChannels == null) {
-                        // first non closeable to be skipped, copy all
-                        // previously skipped closeable channels
-                        closedChannels = new ArrayList<>(candidates.size());
-                        for (int j = 0; j < i; j++)
-                            closedChannels.add(candidates.get(j));
+                if (isChannelCloseable(idleChannel.channel)) {
+                    LOGGER.debug("Closing Idle Channel {}", idleChannel.channel);
+                    // before closing, or the channel would look remotely closed
+                    recordEviction(partitionKey, idleChannel, now);
+                    close(idleChannel.channel);
+                    if (closedChannels != null) {
+                        closedChannels.add(idleChannel);
                     }
+
+                } else if (closedChannels == null) {
+                    // first non closeable to be skipped, copy all
+                    // previously skipped closeable channels
+                    closedChannels = new ArrayList<>(candidates.size());
+                    for (int j = 0; j < i; j++)
+                        closedChannels.add(candidates.get(j));
+                }
             }
 
             return closedChannels != null ? closedChannels : candidates;
@@ -214,14 +241,15 @@ public final class DefaultChannelPool implements ChannelPool {
                 int closedCount = 0;
                 int totalCount = 0;
 
-                for (ConcurrentLinkedQueue<IdleChannel> partition : partitions.values()) {
+                for (Map.Entry<Object, ConcurrentLinkedQueue<IdleChannel>> partitionsEntry : partitions.entrySet()) {
+                    ConcurrentLinkedQueue<IdleChannel> partition = partitionsEntry.getValue();
 
                     // store in intermediate unsynchronized lists to minimize
                     // the impact on the ConcurrentLinkedQueue
                     if (LOGGER.isDebugEnabled())
                         totalCount += partition.size();
 
-                    List<IdleChannel> closedChannels = closeChannels(expiredChannels(partition, start));
+                    List<IdleChannel> closedChannels = closeChannels(partitionsEntry.getKey(), expiredChannels(partition, start), start);
 
                     if (!closedChannels.isEmpty()) {
                         for (IdleChannel closedChannel : closedChannels)
@@ -279,6 +307,7 @@ public final class DefaultChannelPool implements ChannelPool {
                     break;
                 else if (isRemotelyClosed(idleChannel.channel)) {
                     idleChannel = null;
+                    counters.channelClosedRemotely(partitionKey);
                     LOGGER.trace("Channel not connected or not opened, probably remotely closed!");
                 }
             }
@@ -346,4 +375,21 @@ public final class DefaultChannelPool implements ChannelPool {
                 flushPartition(partitionKey, partitionsEntry.getValue());
         }
     }
+
+    @Override
+    public int idleChannelCount(Object partitionKey) {
+        ConcurrentLinkedQueue<IdleChannel> partition = partitions.get(partitionKey);
+        return partition != null ? partition.size() : 0;
+    }
+
+    @Override
+    public Map<Object, Integer> idleChannelCounts() {
+        Map<Object, Integer> idleChannelCounts = new HashMap<>();
+        for (Map.Entry<Object, ConcurrentLinkedQueue<IdleChannel>> partitionsEntry : partitions.entrySet()) {
+            int size = partitionsEntry.getValue().size();
+            if (size > 0)
+                idleChannelCounts.put(partitionsEntry.getKey(), size);
+        }
+        return idleChannelCounts;
+    }
 }
@@ -13,6 +13,9 @@
  */
 package org.asynchttpclient.netty.channel.pool;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.asynchttpclient.netty.channel.pool.ChannelPoolPartitionSelector;
 
 import io.netty.channel.Channel;
@@ -50,4 +53,14 @@ public class NoopChannelPool implements ChannelPool {
     @Override
     public void flushPartitions(ChannelPoolPartitionSelector selector) {
     }
+
+    @Override
+    public int idleChannelCount(Object partitionKey) {
+        return 0;
+    }
+
+    @Override
+    public Map<Object, Integer> idleChannelCounts() {
+        return Collections.emptyMap();
+    }
 }
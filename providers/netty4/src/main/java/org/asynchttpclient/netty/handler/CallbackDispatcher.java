@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.handler;
+
+import io.netty.channel.Channel;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the events of a channel on an {@link Executor}, one at a time and in order, so that the event loop never waits
+ * for user callbacks. When too many events are queued, the channel stops reading until the queue is half empty.
+ */
+final class CallbackDispatcher implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallbackDispatcher.class);
+
+    private final Channel channel;
+    private final Executor executor;
+    private final int maxQueued;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean readingSuspended = new AtomicBoolean();
+
+    CallbackDispatcher(Channel channel, Executor executor, int maxQueued) {
+        this.channel = channel;
+        this.executor = executor;
+        this.maxQueued = Math.max(1, maxQueued);
+    }
+
+    /**
+     * @return true if no event is queued or running
+     */
+    boolean isIdle() {
+        return queued.get() == 0;
+    }
+
+    void dispatch(Runnable task) {
+        tasks.add(task);
+        if (queued.getAndIncrement() == 0) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // e.g. the executor was shut down: still deliver the events, on the caller thread
+                LOGGER.debug("Executor rejected the callbacks of channel {}, running them inline", channel);
+                run();
+            }
+        }
+    }
+
+    /**
+     * Called by the event loop before requesting more data.
+     *
+     * @return true if the channel must not read for now, it will be resumed once the queue is drained
+     */
+    boolean suspendReadingIfFull() {
+        if (queued.get() < maxQueued)
+            return false;
+
+        readingSuspended.set(true);
+        // the queue might have been drained in the meantime, without noticing the suspension
+        return queued.get() > maxQueued / 2 || !readingSuspended.compareAndSet(true, false);
+    }
+
+    @Override
+    public void run() {
+        int remaining;
+        do {
+            try {
+                tasks.poll().run();
+            } catch (Throwable t) {
+                LOGGER.warn("Callback failed on channel {}", channel, t);
+            }
+            remaining = queued.decrementAndGet();
+            if (remaining <= maxQueued / 2 && readingSuspended.compareAndSet(true, false))
+                channel.read();
+        } while (remaining > 0);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.handler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig.ContentDecoderFactory;
+
+/**
+ * An {@link HttpContentDecompressor} that also decodes the content codings of the configured
+ * {@link ContentDecoderFactory}s. Decoding happens before body parts are created, so it works with every
+ * {@link org.asynchttpclient.netty.NettyAsyncHttpProviderConfig.ResponseBodyPartFactory}.
+ */
+public class ContentDecompressor extends HttpContentDecompressor {
+
+    private static final Set<String> NETTY_CODINGS = new HashSet<>(Arrays.asList("gzip", "x-gzip", "deflate", "x-deflate", "identity"));
+
+    private final Map<String, ContentDecoderFactory> contentDecoderFactories;
+    private final boolean keepEncodingHeader;
+
+    /**
+     * @param contentDecoderFactories the decoder factories, by lower case content coding
+     * @param keepEncodingHeader true to keep the Content-Encoding header of decoded responses
+     */
+    public ContentDecompressor(Map<String, ContentDecoderFactory> contentDecoderFactories, boolean keepEncodingHeader) {
+        this.contentDecoderFactories = contentDecoderFactories;
+        this.keepEncodingHeader = keepEncodingHeader;
+    }
+
+    @Override
+    protected EmbeddedChannel newContentDecoder(String contentEncoding) throws Exception {
+        ContentDecoderFactory factory = contentDecoderFactories.get(contentEncoding.toLowerCase(Locale.ENGLISH));
+        return factory != null ? new EmbeddedChannel(factory.newContentDecoder()) : super.newContentDecoder(contentEncoding);
+    }
+
+    @Override
+    protected String getTargetContentEncoding(String contentEncoding) throws Exception {
+        return keepEncodingHeader ? contentEncoding : super.getTargetContentEncoding(contentEncoding);
+    }
+
+    /**
+     * @param preferences the content codings to advertise, most preferred first, possibly with a quality value
+     * @param contentDecoderFactories the decoder factories, by lower case content coding
+     * @return the Accept-Encoding header value, without the codings that can't be decoded, or null if none is left
+     */
+    public static String acceptEncoding(String[] preferences, Map<String, ContentDecoderFactory> contentDecoderFactories) {
+        StringBuilder sb = new StringBuilder();
+        for (String preference : preferences) {
+            int semicolon = preference.indexOf(';');
+            String coding = (semicolon < 0 ? preference : preference.substring(0, semicolon)).trim().toLowerCase(Locale.ENGLISH);
+            if (NETTY_CODINGS.contains(coding) || contentDecoderFactories.containsKey(coding)) {
+                if (sb.length() > 0)
+                    sb.append(',');
+                sb.append(preference.trim());
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+}
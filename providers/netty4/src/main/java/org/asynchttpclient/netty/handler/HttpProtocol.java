@@ -31,6 +31,7 @@ import io.netty.handler.codec.http.LastHttpContent;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.asynchttpclient.AsyncHandler;
 import org.asynchttpclient.AsyncHandler.State;
@@ -40,7 +41,9 @@ import org.asynchttpclient.Realm;
 import org.asynchttpclient.Realm.AuthScheme;
 import org.asynchttpclient.Request;
 import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.RequestTimings;
 import org.asynchttpclient.channel.pool.ConnectionStrategy;
+import org.asynchttpclient.handler.AsyncHandlerExtensions;
 import org.asynchttpclient.handler.StreamedAsyncHandler;
 import org.asynchttpclient.netty.Callback;
 import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig;
@@ -53,7 +56,8 @@ import org.asynchttpclient.netty.channel.Channels;
 import org.asynchttpclient.netty.request.NettyRequestSender;
 import org.asynchttpclient.ntlm.NtlmEngine;
 import org.asynchttpclient.proxy.ProxyServer;
-import org.asynchttpclient.spnego.SpnegoEngine;
+import org.asynchttpclient.request.body.generator.ReactiveStreamsBodyGenerator;
+import org.asynchttpclient.retry.RetryPolicy;
 import org.asynchttpclient.spnego.SpnegoEngineException;
 import org.asynchttpclient.uri.Uri;
 
@@ -67,62 +71,71 @@ public final class HttpProtocol extends Protocol {
         connectionStrategy = nettyConfig.getConnectionStrategy();
     }
 
-    private Realm kerberosChallenge(Channel channel,//
-            List<String> authHeaders,//
-            Request request,//
-            FluentCaseInsensitiveStringsMap headers,//
-            Realm realm,//
-            NettyResponseFuture<?> future) {
+    /**
+     * Creating a security context may block on KDC round trips: the token is generated on the client executor,
+     * meanwhile the channel is released and the event loop goes on with other channels.
+     *
+     * @param server the host to authenticate against
+     * @param proxyServer the proxy to authenticate against, or null for the target
+     */
+    private void kerberosChallenge(final Channel channel,//
+            final List<String> authHeaders,//
+            HttpResponse response,//
+            final Request request,//
+            final Realm realm,//
+            final String server,//
+            final ProxyServer proxyServer,//
+            final NettyResponseFuture<?> future) {
 
-        Uri uri = request.getUri();
-        String host = request.getVirtualHost() == null ? uri.getHost() : request.getVirtualHost();
-        try {
-            String challengeHeader = SpnegoEngine.instance().generateToken(host);
-            headers.remove(HttpHeaders.Names.AUTHORIZATION);
-            headers.add(HttpHeaders.Names.AUTHORIZATION, "Negotiate " + challengeHeader);
+        if (future.isKeepAlive() && !HttpHeaders.isTransferEncodingChunked(response))
+            channelManager.drainChannelAndOffer(channel, future);
+        else
+            channelManager.closeChannel(channel);
 
-            return new Realm.RealmBuilder().clone(realm)//
-                    .setUri(uri)//
-                    .setMethodName(request.getMethod())//
-                    .setScheme(Realm.AuthScheme.KERBEROS)//
-                    .build();
+        Runnable challenge = new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone())
+                    return;
 
+                FluentCaseInsensitiveStringsMap headers = request.getHeaders();
+                Realm newRealm;
+                try {
+                    String challengeHeader = config.getSpnegoEngine().generateToken(server);
+                    headers.remove(HttpHeaders.Names.AUTHORIZATION);
+                    headers.add(HttpHeaders.Names.AUTHORIZATION, "Negotiate " + challengeHeader);
 
-        } catch (SpnegoEngineException throwable) {
-            String ntlmAuthenticate = getNTLM(authHeaders);
-            if (ntlmAuthenticate != null) {
-                return ntlmChallenge(ntlmAuthenticate, request, headers, realm, future);
-            }
-            requestSender.abort(channel, future, throwable);
-            return null;
-        }
-    }
+                    Realm.RealmBuilder realmBuilder = proxyServer != null ? proxyServer.realmBuilder() : new Realm.RealmBuilder().clone(realm);
+                    newRealm = realmBuilder//
+                            .setUri(request.getUri())//
+                            .setMethodName(request.getMethod())//
+                            .setScheme(Realm.AuthScheme.KERBEROS)//
+                            .build();
 
-    private Realm kerberosProxyChallenge(Channel channel,//
-            List<String> proxyAuth,//
-            Request request,//
-            ProxyServer proxyServer,//
-            FluentCaseInsensitiveStringsMap headers,//
-            NettyResponseFuture<?> future) {
+                } catch (SpnegoEngineException e) {
+                    String ntlmAuthenticate = getNTLM(authHeaders);
+                    if (ntlmAuthenticate == null) {
+                        requestSender.abort(null, future, e);
+                        return;
+                    }
+                    newRealm = proxyServer != null ? ntlmProxyChallenge(ntlmAuthenticate, request, proxyServer, headers, future)
+                            : ntlmChallenge(ntlmAuthenticate, request, headers, realm, future);
+                }
 
-        try {
-            String challengeHeader = SpnegoEngine.instance().generateToken(proxyServer.getHost());
-            headers.remove(HttpHeaders.Names.AUTHORIZATION);
-            headers.add(HttpHeaders.Names.AUTHORIZATION, "Negotiate " + challengeHeader);
-
-            return proxyServer.realmBuilder()//
-                    .setUri(request.getUri())//
-                    .setMethodName(request.getMethod())//
-                    .setScheme(Realm.AuthScheme.KERBEROS)//
-                    .build();
-
-        } catch (SpnegoEngineException throwable) {
-            String ntlmAuthenticate = getNTLM(proxyAuth);
-            if (ntlmAuthenticate != null) {
-                return ntlmProxyChallenge(ntlmAuthenticate, request, proxyServer, headers, future);
+                Request nextRequest = new RequestBuilder(future.getRequest()).setHeaders(headers).setRealm(newRealm).build();
+                logger.debug("Sending authentication to {}", request.getUri());
+                try {
+                    requestSender.sendNextRequest(nextRequest, future);
+                } catch (Exception e) {
+                    requestSender.abort(null, future, e);
+                }
             }
-            requestSender.abort(channel, future, throwable);
-            return null;
+        };
+
+        try {
+            config.getExecutorService().execute(challenge);
+        } catch (RejectedExecutionException e) {
+            requestSender.abort(null, future, e);
         }
     }
 
@@ -189,6 +202,7 @@ public final class HttpProtocol extends Protocol {
 
     private void finishUpdate(final NettyResponseFuture<?> future, Channel channel, boolean expectOtherChunks) throws IOException {
 
+        future.getTimings().record(RequestTimings.Event.LAST_BYTE);
         future.cancelTimeouts();
 
         boolean keepAlive = future.isKeepAlive();
@@ -235,10 +249,10 @@ public final class HttpProtocol extends Protocol {
                     newRealm = ntlmChallenge(ntlmAuthenticate, request, request.getHeaders(), realm, future);
 
                 } else if (negociate) {
-                    newRealm = kerberosChallenge(channel, wwwAuthHeaders, request, request.getHeaders(), realm, future);
                     // SPNEGO KERBEROS
-                    if (newRealm == null)
-                        return true;
+                    String host = request.getVirtualHost() == null ? request.getUri().getHost() : request.getVirtualHost();
+                    kerberosChallenge(channel, wwwAuthHeaders, response, request, realm, host, null, future);
+                    return true;
 
                 } else {
                     // BASIC or DIGEST
@@ -269,6 +283,43 @@ public final class HttpProtocol extends Protocol {
         return false;
     }
 
+    private boolean exitAfterHandlingRetry(//
+            Channel channel,//
+            NettyResponseFuture<?> future,//
+            HttpResponse response,//
+            Request request,//
+            NettyResponseStatus status,//
+            NettyResponseHeaders responseHeaders) {
+
+        RetryPolicy retryPolicy = requestSender.getRetryPolicy();
+        if (retryPolicy == null || future.getCurrentRetry() >= future.getMaxRetry() || !isBodyReplayable(future, request))
+            return false;
+
+        long delay = retryPolicy.retryDelay(request, status, responseHeaders, future.getCurrentRetry() + 1, future.getRetryDelay());
+        if (delay < 0 || !future.canRetry())
+            return false;
+
+        future.setRetryDelay(delay);
+        future.setState(NettyResponseFuture.STATE.NEW);
+        if (future.getAsyncHandler() instanceof AsyncHandlerExtensions)
+            AsyncHandlerExtensions.class.cast(future.getAsyncHandler()).onRetry();
+
+        logger.debug("Retrying {} after a {} status", request.getUri(), status.getStatusCode());
+        if (future.isKeepAlive() && !HttpHeaders.isTransferEncodingChunked(response))
+            channelManager.drainChannelAndOffer(channel, future);
+        else
+            channelManager.closeChannel(channel);
+        requestSender.sendNextRequestLater(request, future, delay);
+        return true;
+    }
+
+    // streamed bodies can't be read twice
+    private boolean isBodyReplayable(NettyResponseFuture<?> future, Request request) {
+        return request.getStreamData() == null//
+                && !(request.getBodyGenerator() instanceof ReactiveStreamsBodyGenerator)//
+                && !future.isStreamWasAlreadyConsumed();
+    }
+
     private boolean exitAfterHandling100(final Channel channel, final NettyResponseFuture<?> future, int statusCode) {
         if (statusCode == CONTINUE.code()) {
             future.setHeadersAlreadyWrittenOnContinue(true);
@@ -314,9 +365,8 @@ public final class HttpProtocol extends Protocol {
 
                 } else if (negociate) {
                     // SPNEGO KERBEROS
-                    newRealm = kerberosProxyChallenge(channel, proxyAuthHeaders, request, proxyServer, requestHeaders, future);
-                    if (newRealm == null)
-                        return true;
+                    kerberosChallenge(channel, proxyAuthHeaders, response, request, realm, proxyServer.getHost(), proxyServer, future);
+                    return true;
 
                 } else {
                     // BASIC or DIGEST
@@ -417,6 +467,8 @@ public final class HttpProtocol extends Protocol {
 
     private boolean handleHttpResponse(final HttpResponse response, final Channel channel, final NettyResponseFuture<?> future, AsyncHandler<?> handler) throws Exception {
 
+        future.getTimings().record(RequestTimings.Event.FIRST_BYTE);
+
         HttpRequest httpRequest = future.getNettyRequest().getHttpRequest();
         ProxyServer proxyServer = future.getProxyServer();
         logger.debug("\n\nRequest {}\n\nResponse {}\n", httpRequest, response);
@@ -426,15 +478,25 @@ public final class HttpProtocol extends Protocol {
         future.setHttpHeaders(response.headers());
 
         future.setKeepAlive(connectionStrategy.keepAlive(httpRequest, response));
+        channelManager.reportSuccess(future);
+        if (future.getClientMetrics() != null)
+            future.getClientMetrics().firstByteReceived(future.getPartitionKey(), response.getStatus().code(),
+                    future.getTimings().between(RequestTimings.Event.REQUEST_START, RequestTimings.Event.FIRST_BYTE));
 
-        NettyResponseStatus status = new NettyResponseStatus(future.getUri(), config, response, channel);
+        NettyResponseStatus status = new NettyResponseStatus(future.getUri(), config, response, channel, future.getTimings());
         int statusCode = response.getStatus().code();
         Request request = future.getRequest();
         Realm realm = request.getRealm() != null ? request.getRealm() : config.getRealm();
         NettyResponseHeaders responseHeaders = new NettyResponseHeaders(response.headers());
 
+        if (statusCode != UNAUTHORIZED.code() && realm != null && realm.getScheme() == AuthScheme.NTLM && !realm.isTargetProxy())
+            channelManager.markNtlmAuthenticated(channel, realm);
+
+        storeCookies(future.getUri(), response.headers());
+
         return exitAfterProcessingFilters(channel, future, handler, status, responseHeaders)
-                || exitAfterHandling401(channel, future, response, request, statusCode, realm, proxyServer) || //
+                || exitAfterHandlingRetry(channel, future, response, request, status, responseHeaders) || //
+                exitAfterHandling401(channel, future, response, request, statusCode, realm, proxyServer) || //
                 exitAfterHandling407(channel, future, response, request, statusCode, realm, proxyServer) || //
                 exitAfterHandling100(channel, future, statusCode) || //
                 exitAfterHandlingRedirect(channel, future, response, request, statusCode, realm) || //
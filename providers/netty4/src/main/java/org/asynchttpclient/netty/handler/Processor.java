@@ -23,12 +23,15 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.PrematureChannelClosureException;
 import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 
 import io.netty.util.ReferenceCountUtil;
 import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.handler.StreamedAsyncHandler;
 import org.asynchttpclient.netty.*;
 import org.asynchttpclient.netty.channel.ChannelManager;
 import org.asynchttpclient.netty.channel.Channels;
@@ -41,12 +44,14 @@ import org.slf4j.LoggerFactory;
 public class Processor extends ChannelInboundHandlerAdapter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Processor.class);
+    private static final AttributeKey<CallbackDispatcher> CALLBACK_DISPATCHER_ATTRIBUTE = AttributeKey.valueOf("callbackDispatcher");
 
     private final AsyncHttpClientConfig config;
     private final NettyAsyncHttpProviderConfig nettyConfig;
     private final ChannelManager channelManager;
     private final NettyRequestSender requestSender;
     private final Protocol protocol;
+    private final boolean offloadCallbacks;
 
     public Processor(AsyncHttpClientConfig config,
             NettyAsyncHttpProviderConfig nettyConfig,
@@ -58,10 +63,56 @@ public class Processor extends ChannelInboundHandlerAdapter {
         this.channelManager = channelManager;
         this.requestSender = requestSender;
         this.protocol = protocol;
+        // WebSocket upgrades swap the pipeline handlers, they have to happen before the next read
+        offloadCallbacks = config.isOffloadCallbacks() && protocol instanceof HttpProtocol;
+    }
+
+    /**
+     * Only called from the event loop.
+     *
+     * @return the dispatcher of the channel, or null if callbacks run on the event loop
+     */
+    private CallbackDispatcher callbackDispatcher(Channel channel) {
+        if (!offloadCallbacks)
+            return null;
+
+        Attribute<CallbackDispatcher> attr = channel.attr(CALLBACK_DISPATCHER_ATTRIBUTE);
+        CallbackDispatcher dispatcher = attr.get();
+        if (dispatcher == null) {
+            dispatcher = new CallbackDispatcher(channel, config.getExecutorService(), config.getMaxQueuedCallbacks());
+            attr.set(dispatcher);
+        }
+        return dispatcher;
+    }
+
+    private static boolean isOffloadable(Object attribute) {
+        // reactive streams subscribers are already decoupled from the event loop
+        return attribute instanceof NettyResponseFuture
+                && !(NettyResponseFuture.class.cast(attribute).getAsyncHandler() instanceof StreamedAsyncHandler);
     }
 
     @Override
-    public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+
+        CallbackDispatcher dispatcher = callbackDispatcher(ctx.channel());
+        // once an event is queued, the following ones have to be queued too so that they're processed in order
+        if (dispatcher != null && (!dispatcher.isIdle() || isOffloadable(Channels.getAttribute(ctx.channel())))) {
+            dispatcher.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        read(ctx, msg);
+                    } catch (Throwable t) {
+                        handleException(ctx, t);
+                    }
+                }
+            });
+        } else {
+            read(ctx, msg);
+        }
+    }
+
+    private void read(ChannelHandlerContext ctx, Object msg) throws Exception {
 
         Channel channel = ctx.channel();
         Object attribute = Channels.getAttribute(channel);
@@ -117,14 +168,38 @@ public class Processor extends ChannelInboundHandlerAdapter {
         }
     }
 
-    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
 
         if (requestSender.isClosed())
             return;
 
+        CallbackDispatcher dispatcher = callbackDispatcher(ctx.channel());
+        if (dispatcher != null && !dispatcher.isIdle()) {
+            // the response might be complete, only its callbacks are pending
+            dispatcher.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handleInactive(ctx);
+                    } catch (Throwable t) {
+                        LOGGER.debug("channelInactive", t);
+                    }
+                }
+            });
+        } else {
+            handleInactive(ctx);
+        }
+    }
+
+    private void handleInactive(ChannelHandlerContext ctx) throws Exception {
+
         Channel channel = ctx.channel();
         channelManager.removeAll(channel);
 
+        // the requests that were pipelined behind the current one were sent but not answered
+        for (NettyResponseFuture<?> pipelined : channelManager.unansweredPipelinedRequests(channel))
+            requestSender.handleUnexpectedClosedChannel(channel, pipelined);
+
         try {
             super.channelInactive(ctx);
         } catch (Exception ex) {
@@ -155,7 +230,21 @@ public class Processor extends ChannelInboundHandlerAdapter {
     }
 
     @Override
-    public void exceptionCaught(ChannelHandlerContext ctx, Throwable e) throws Exception {
+    public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable e) throws Exception {
+        CallbackDispatcher dispatcher = callbackDispatcher(ctx.channel());
+        if (dispatcher != null && !dispatcher.isIdle()) {
+            dispatcher.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    handleException(ctx, e);
+                }
+            });
+        } else {
+            handleException(ctx, e);
+        }
+    }
+
+    private void handleException(ChannelHandlerContext ctx, Throwable e) {
         Throwable cause = e.getCause() != null ? e.getCause() : e;
 
         if (cause instanceof PrematureChannelClosureException || cause instanceof ClosedChannelException)
@@ -223,7 +312,10 @@ public class Processor extends ChannelInboundHandlerAdapter {
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
         if (!isHandledByReactiveStreams(ctx)) {
-            ctx.read();
+            CallbackDispatcher dispatcher = ctx.channel().attr(CALLBACK_DISPATCHER_ATTRIBUTE).get();
+            // when the handler lags behind, stop reading until it catches up
+            if (dispatcher == null || !dispatcher.suspendReadingIfFull())
+                ctx.read();
         } else {
             ctx.fireChannelReadComplete();
         }
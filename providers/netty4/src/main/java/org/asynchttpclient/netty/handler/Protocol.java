@@ -39,6 +39,7 @@ import org.asynchttpclient.Request;
 import org.asynchttpclient.RequestBuilder;
 import org.asynchttpclient.cookie.Cookie;
 import org.asynchttpclient.cookie.CookieDecoder;
+import org.asynchttpclient.cookie.CookieStore;
 import org.asynchttpclient.filter.FilterContext;
 import org.asynchttpclient.filter.FilterException;
 import org.asynchttpclient.filter.ResponseFilter;
@@ -104,6 +105,17 @@ public abstract class Protocol {
         return headers;
     }
 
+    protected void storeCookies(Uri uri, HttpHeaders responseHeaders) {
+        CookieStore cookieStore = config.getCookieStore();
+        if (cookieStore != null) {
+            for (String cookieStr : responseHeaders.getAll(HttpHeaders.Names.SET_COOKIE)) {
+                Cookie c = CookieDecoder.decode(cookieStr);
+                if (c != null)
+                    cookieStore.add(uri, c);
+            }
+        }
+    }
+
     protected boolean exitAfterHandlingRedirect(//
             Channel channel,//
             NettyResponseFuture<?> future,//
@@ -182,7 +194,8 @@ public abstract class Protocol {
 
                 if (future.isKeepAlive() && !HttpHeaders.isTransferEncodingChunked(response)) {
 
-                    if (sameBase) {
+                    // a pipelined channel has to receive the responses to the requests queued on it first
+                    if (sameBase && !channelManager.isPipelined(channel)) {
                         future.setReuseChannel(true);
                         // we can't directly send the next request because we still have to received LastContent
                         requestSender.drainChannelAndExecuteNextRequest(channel, future, nextRequest);
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compresses the content of a streamed request body on its way to the HttpClientCodec, as the chunks are written, into
+ * buffers of the channel's allocator. Installed for one request by
+ * {@link org.asynchttpclient.netty.request.body.NettyCompressedBody} and removed once the last content went through.
+ */
+public class RequestBodyCompressor extends MessageToMessageEncoder<Object> {
+
+    private final String contentEncoding;
+    private EmbeddedChannel encoder;
+
+    /**
+     * @param contentEncoding the content coding, see {@link #isSupported(String)}
+     */
+    public RequestBodyCompressor(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @param contentEncoding a content coding
+     * @return true if request bodies can be compressed with this content coding
+     */
+    public static boolean isSupported(String contentEncoding) {
+        switch (contentEncoding.toLowerCase(Locale.ENGLISH)) {
+        case "gzip":
+        case "x-gzip":
+        case "deflate":
+        case "x-deflate":
+            return true;
+        case "zstd":
+            return ZstdDecoder.isAvailable();
+        default:
+            return false;
+        }
+    }
+
+    private static ChannelHandler newEncoder(String contentEncoding) {
+        switch (contentEncoding.toLowerCase(Locale.ENGLISH)) {
+        case "gzip":
+        case "x-gzip":
+            return ZlibCodecFactory.newZlibEncoder(ZlibWrapper.GZIP);
+        case "deflate":
+        case "x-deflate":
+            return ZlibCodecFactory.newZlibEncoder(ZlibWrapper.ZLIB);
+        case "zstd":
+            return new ZstdEncoder();
+        default:
+            throw new IllegalArgumentException("Unsupported request compression: " + contentEncoding);
+        }
+    }
+
+    /**
+     * Compress a body that's already in memory at once, so that its compressed length is known upfront.
+     *
+     * The compressed body is made of the encoder's output buffers, without copying them. They're unpooled, as the body
+     * might never be written and released, e.g. when the connection can't be established.
+     *
+     * @param content the body, released
+     * @param contentEncoding the content coding
+     * @return the compressed body
+     */
+    public static ByteBuf compress(ByteBuf content, String contentEncoding) {
+        EmbeddedChannel encoder = new EmbeddedChannel(newEncoder(contentEncoding));
+        encoder.config().setAllocator(UnpooledByteBufAllocator.DEFAULT);
+        encoder.writeOutbound(content);
+        encoder.finish();
+
+        CompositeByteBuf compressed = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (ByteBuf buf = (ByteBuf) encoder.readOutbound(); buf != null; buf = (ByteBuf) encoder.readOutbound()) {
+            if (buf.isReadable())
+                compressed.addComponent(buf).writerIndex(compressed.writerIndex() + buf.readableBytes());
+            else
+                buf.release();
+        }
+        return compressed;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        encoder = new EmbeddedChannel(newEncoder(contentEncoding));
+        encoder.config().setAllocator(ctx.alloc());
+    }
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        // the request headers go through untouched
+        return (msg instanceof ByteBuf || msg instanceof HttpContent) && !(msg instanceof HttpMessage);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        boolean last = msg instanceof LastHttpContent && acceptOutboundMessage(msg);
+        super.write(ctx, msg, promise);
+        if (last)
+            ctx.pipeline().remove(this);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+        ByteBuf content = msg instanceof HttpContent ? HttpContent.class.cast(msg).content() : (ByteBuf) msg;
+        if (content.isReadable()) {
+            encoder.writeOutbound(content.retain());
+            drain(out);
+        }
+
+        if (msg instanceof LastHttpContent) {
+            encoder.finish();
+            drain(out);
+            encoder = null;
+
+            LastHttpContent last = (LastHttpContent) msg;
+            if (last.trailingHeaders().isEmpty()) {
+                out.add(LastHttpContent.EMPTY_LAST_CONTENT);
+            } else {
+                LastHttpContent trailer = new DefaultLastHttpContent();
+                trailer.trailingHeaders().set(last.trailingHeaders());
+                out.add(trailer);
+            }
+
+        } else if (out.isEmpty()) {
+            // the encoder buffered everything, but an encoder has to produce something
+            out.add(Unpooled.EMPTY_BUFFER);
+        }
+    }
+
+    private void drain(List<Object> out) {
+        for (ByteBuf buf = (ByteBuf) encoder.readOutbound(); buf != null; buf = (ByteBuf) encoder.readOutbound()) {
+            if (buf.isReadable())
+                out.add(new DefaultHttpContent(buf));
+            else
+                buf.release();
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (encoder != null) {
+            // the body was interrupted
+            if (encoder.finish()) {
+                for (Object msg = encoder.readOutbound(); msg != null; msg = encoder.readOutbound())
+                    ReferenceCountUtil.release(msg);
+            }
+            encoder = null;
+        }
+    }
+}
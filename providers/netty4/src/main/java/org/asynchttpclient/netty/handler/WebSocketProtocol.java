@@ -85,7 +85,7 @@ public final class WebSocketProtocol extends Protocol {
             WebSocketUpgradeHandler handler = WebSocketUpgradeHandler.class.cast(future.getAsyncHandler());
             Request request = future.getRequest();
             
-            HttpResponseStatus status = new NettyResponseStatus(future.getUri(), config, response, channel);
+            HttpResponseStatus status = new NettyResponseStatus(future.getUri(), config, response, channel, future.getTimings());
             HttpResponseHeaders responseHeaders = new NettyResponseHeaders(response.headers());
             Realm realm = request.getRealm() != null ? request.getRealm() : config.getRealm();
 
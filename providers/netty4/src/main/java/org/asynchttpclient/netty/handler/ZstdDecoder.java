@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig.ContentDecoderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.util.Native;
+
+/**
+ * Decodes a Zstandard stream, possibly made of several frames, with the optional zstd-jni library. zstd-jni is built
+ * for Java 8, so zstd is only available on a Java 8 or later runtime.
+ */
+public class ZstdDecoder extends MessageToMessageDecoder<ByteBuf> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZstdDecoder.class);
+
+    public static final ContentDecoderFactory FACTORY = new ContentDecoderFactory() {
+        @Override
+        public ChannelHandler newContentDecoder() {
+            return new ZstdDecoder();
+        }
+    };
+
+    private static final int OUTPUT_CHUNK_SIZE = 64 * 1024;
+
+    private ZstdDecompressCtx context = new ZstdDecompressCtx();
+
+    /**
+     * @return true if zstd-jni is on the classpath, runs on this JVM and its native library can be loaded on this platform
+     */
+    public static boolean isAvailable() {
+        try {
+            Native.load();
+            return true;
+        } catch (Throwable t) {
+            LOGGER.debug("zstd decoding is not available", t);
+            return false;
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        // the native decoder only works with direct buffers
+        ByteBuf input = in.isDirect() && in.nioBufferCount() == 1 ? in : ctx.alloc().directBuffer(in.readableBytes()).writeBytes(in, in.readerIndex(), in.readableBytes());
+        try {
+            ByteBuffer src = input.nioBuffer(input.readerIndex(), input.readableBytes());
+            while (true) {
+                ByteBuf output = ctx.alloc().directBuffer(OUTPUT_CHUNK_SIZE);
+                ByteBuffer dst = output.nioBuffer(0, OUTPUT_CHUNK_SIZE);
+                try {
+                    context.decompressDirectByteBufferStream(dst, src);
+                } catch (RuntimeException e) {
+                    output.release();
+                    throw e;
+                }
+
+                int produced = dst.position();
+                if (produced > 0)
+                    out.add(output.writerIndex(produced));
+                else
+                    output.release();
+
+                // a full output buffer means the decoder might hold more data
+                if (!src.hasRemaining() && produced < OUTPUT_CHUNK_SIZE)
+                    break;
+            }
+        } finally {
+            if (input != in)
+                input.release();
+        }
+        in.skipBytes(in.readableBytes());
+    }
+
+    private void closeContext() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        closeContext();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        closeContext();
+        super.handlerRemoved(ctx);
+    }
+}
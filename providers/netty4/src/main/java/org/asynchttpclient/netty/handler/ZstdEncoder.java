@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.luben.zstd.EndDirective;
+import com.github.luben.zstd.ZstdCompressCtx;
+
+/**
+ * Encodes a Zstandard frame with the optional zstd-jni library. The frame is ended when the channel is closed.
+ */
+public class ZstdEncoder extends MessageToMessageEncoder<ByteBuf> {
+
+    private static final int OUTPUT_CHUNK_SIZE = 64 * 1024;
+
+    private ZstdCompressCtx context = new ZstdCompressCtx();
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        // the native encoder only works with direct buffers
+        ByteBuf input = in.isDirect() && in.nioBufferCount() == 1 ? in : ctx.alloc().directBuffer(in.readableBytes()).writeBytes(in, in.readerIndex(), in.readableBytes());
+        try {
+            compress(ctx.alloc(), input.nioBuffer(input.readerIndex(), input.readableBytes()), EndDirective.CONTINUE, out);
+        } finally {
+            if (input != in)
+                input.release();
+        }
+        in.skipBytes(in.readableBytes());
+
+        // the encoder usually buffers small inputs
+        if (out.isEmpty())
+            out.add(Unpooled.EMPTY_BUFFER);
+    }
+
+    private void compress(ByteBufAllocator alloc, ByteBuffer src, EndDirective directive, List<Object> out) {
+        while (true) {
+            ByteBuf output = alloc.directBuffer(OUTPUT_CHUNK_SIZE);
+            ByteBuffer dst = output.nioBuffer(0, OUTPUT_CHUNK_SIZE);
+            boolean flushed;
+            try {
+                flushed = context.compressDirectByteBufferStream(dst, src, directive);
+            } catch (RuntimeException e) {
+                output.release();
+                throw e;
+            }
+
+            int produced = dst.position();
+            if (produced > 0)
+                out.add(output.writerIndex(produced));
+            else
+                output.release();
+
+            // CONTINUE only has to consume the input, END has to drain the encoder
+            if (directive == EndDirective.END ? flushed : !src.hasRemaining() && produced < OUTPUT_CHUNK_SIZE)
+                break;
+        }
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        if (context != null) {
+            List<Object> out = new ArrayList<>();
+            try {
+                compress(ctx.alloc(), ByteBuffer.allocateDirect(0), EndDirective.END, out);
+            } finally {
+                closeContext();
+            }
+            for (Object msg : out)
+                ctx.write(msg);
+            ctx.flush();
+        }
+        ctx.close(promise);
+    }
+
+    private void closeContext() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        closeContext();
+        super.handlerRemoved(ctx);
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.request;
+
+import static org.asynchttpclient.util.DateUtils.millisTime;
+import static org.asynchttpclient.util.HttpUtils.isSecure;
+import static org.asynchttpclient.util.HttpUtils.isWebSocket;
+import static org.asynchttpclient.util.HttpUtils.useProxyConnect;
+import static org.asynchttpclient.util.ProxyUtils.getProxyServer;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.internal.chmv8.ConcurrentHashMapV8;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.future.AbstractListenableFuture;
+import org.asynchttpclient.netty.NettyResponseFuture;
+import org.asynchttpclient.netty.channel.ChannelManager;
+import org.asynchttpclient.netty.channel.Channels;
+import org.asynchttpclient.proxy.ProxyServer;
+import org.asynchttpclient.uri.Uri;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens connections ahead of requests and offers them to the pool: on demand, and periodically for the hosts in use
+ * when {@link AsyncHttpClientConfig#getMinIdleConnectionsPerHost()} is set. Warm connections go through the same
+ * bootstrap, SOCKS and TLS handshakes as regular ones, and are subject to the same connection limits.
+ *
+ * HTTPS targets behind an HTTP proxy are not warmed up, as their tunnel is bound to the CONNECT request.
+ */
+public final class ConnectionWarmer implements TimerTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionWarmer.class);
+
+    private static final long MAINTENANCE_PERIOD = 1000L;
+    private static final long FAILURE_BACKOFF = 10000L;
+    private static final int MAX_MAINTAINED_HOSTS = 1024;
+
+    private final AsyncHttpClientConfig config;
+    private final ChannelManager channelManager;
+    private final NettyRequestSender requestSender;
+    private final int minIdleConnections;
+    private final ConcurrentHashMapV8<Object, MaintainedHost> maintainedHosts = new ConcurrentHashMapV8<>();
+    private final AtomicBoolean maintenanceScheduled = new AtomicBoolean();
+
+    public ConnectionWarmer(AsyncHttpClientConfig config, ChannelManager channelManager, NettyRequestSender requestSender) {
+        this.config = config;
+        this.channelManager = channelManager;
+        this.requestSender = requestSender;
+        minIdleConnections = config.getMinIdleConnectionsPerHost();
+    }
+
+    /**
+     * Register the host of a request for maintenance.
+     *
+     * @param future the future of a request about to be sent
+     */
+    public void track(NettyResponseFuture<?> future) {
+        if (minIdleConnections <= 0)
+            return;
+
+        Object partitionKey = future.getPartitionKey();
+        MaintainedHost host = maintainedHosts.get(partitionKey);
+        if (host != null) {
+            host.lastRequested = millisTime();
+
+        } else if (maintainedHosts.size() < MAX_MAINTAINED_HOSTS && isWarmable(future.getRequest().getUri(), future.getProxyServer())) {
+            Request request = future.getRequest();
+            Request template = new RequestBuilder("GET")//
+                    .setUri(request.getUri())//
+                    .setVirtualHost(request.getVirtualHost())//
+                    .setProxyServer(future.getProxyServer())//
+                    .setConnectionPoolPartitioning(request.getConnectionPoolPartitioning())//
+                    .setNameResolver(request.getNameResolver())//
+                    .setInetAddress(request.getInetAddress())//
+                    .build();
+            maintainedHosts.putIfAbsent(partitionKey, new MaintainedHost(template));
+
+            if (maintenanceScheduled.compareAndSet(false, true))
+                requestSender.newTimeout(this, MAINTENANCE_PERIOD);
+        }
+    }
+
+    @Override
+    public void run(Timeout timeout) throws Exception {
+        if (requestSender.isClosed())
+            return;
+
+        try {
+            long now = millisTime();
+            long hostExpiry = config.getPooledConnectionIdleTimeout();
+            for (Iterator<Map.Entry<Object, MaintainedHost>> it = maintainedHosts.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Object, MaintainedHost> entry = it.next();
+                MaintainedHost host = entry.getValue();
+
+                if (hostExpiry > 0 && now - host.lastRequested > hostExpiry) {
+                    // nobody would have used the connections before they were evicted
+                    it.remove();
+                    continue;
+                }
+
+                if (now < host.backoffUntil)
+                    continue;
+
+                int missing = minIdleConnections - channelManager.idleChannelCount(entry.getKey()) - host.pending.get();
+                if (missing > 0) {
+                    LOGGER.debug("Opening {} connections for {}", missing, entry.getKey());
+                    host.pending.addAndGet(missing);
+                    warmUp(host.request, missing, host);
+                }
+            }
+        } catch (Throwable t) {
+            LOGGER.error("Connection maintenance crashed", t);
+        }
+
+        requestSender.newTimeout(this, MAINTENANCE_PERIOD);
+    }
+
+    private boolean isWarmable(Uri uri, ProxyServer proxy) {
+        if (isWebSocket(uri.getScheme()))
+            return false;
+        if (isSecure(uri) && !config.isAllowPoolingSslConnections())
+            return false;
+        return proxy == null || proxy.getProtocol().isSocks() || !useProxyConnect(uri);
+    }
+
+    /**
+     * @param request the request whose target, proxy and partitioning are used
+     * @param connections the number of connections to open
+     * @return a future of the number of connections that were opened and pooled
+     */
+    public ListenableFuture<Integer> warmUp(Request request, int connections) {
+        return warmUp(request, connections, null);
+    }
+
+    private ListenableFuture<Integer> warmUp(Request request, int connections, MaintainedHost host) {
+        WarmUpFuture result = new WarmUpFuture(connections, host);
+        ProxyServer proxy = getProxyServer(config, request);
+        Uri uri = request.getUri();
+
+        if (!isWarmable(uri, proxy)) {
+            for (int i = 0; i < connections; i++)
+                result.onConnection(false, false);
+            return result;
+        }
+
+        Object partitionKey = request.getConnectionPoolPartitioning().getPartitionKey(uri, request.getVirtualHost(), proxy);
+        for (int i = 0; i < connections; i++)
+            openConnection(request, proxy, partitionKey, result);
+        return result;
+    }
+
+    private void openConnection(final Request request, final ProxyServer proxy, final Object partitionKey, final WarmUpFuture result) {
+        try {
+            channelManager.preemptChannel(partitionKey);
+        } catch (IOException e) {
+            // limits reached or circuit open: nothing to warm up
+            result.onConnection(false, false);
+            return;
+        }
+
+        try {
+            boolean httpProxy = proxy != null && !proxy.getProtocol().isSocks();
+            Bootstrap bootstrap = channelManager.getBootstrap(request.getUri(), httpProxy);
+            requestSender.connect(request, proxy, proxy != null, bootstrap, null, null, new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (future.isSuccess())
+                        onConnected(future.channel(), request, proxy, partitionKey, result);
+                    else
+                        onFailure(future.channel(), partitionKey, result, future.cause());
+                }
+            });
+        } catch (Throwable t) {
+            onFailure(null, partitionKey, result, t);
+        }
+    }
+
+    private void onConnected(final Channel channel, final Request request, ProxyServer proxy, final Object partitionKey, final WarmUpFuture result) {
+        if (proxy != null && proxy.getProtocol().isSocks()) {
+            channelManager.addSocksHandler(channel.pipeline(), proxy, request.getUri()).addListener(new GenericFutureListener<Future<Channel>>() {
+                @Override
+                public void operationComplete(Future<Channel> socksFuture) throws Exception {
+                    if (socksFuture.isSuccess())
+                        onTunnelReady(channel, request, partitionKey, result);
+                    else
+                        onFailure(channel, partitionKey, result, socksFuture.cause());
+                }
+            });
+        } else if (proxy == null) {
+            onTunnelReady(channel, request, partitionKey, result);
+        } else {
+            offer(channel, partitionKey, result);
+        }
+    }
+
+    private void onTunnelReady(final Channel channel, Request request, final Object partitionKey, final WarmUpFuture result) {
+        if (!isSecure(request.getUri())) {
+            offer(channel, partitionKey, result);
+            return;
+        }
+
+        try {
+            channelManager.addSslHandler(channel.pipeline(), request.getUri(), request.getVirtualHost()).handshakeFuture()
+                    .addListener(new GenericFutureListener<Future<Channel>>() {
+                        @Override
+                        public void operationComplete(Future<Channel> handshakeFuture) throws Exception {
+                            if (handshakeFuture.isSuccess())
+                                offer(channel, partitionKey, result);
+                            else
+                                onFailure(channel, partitionKey, result, handshakeFuture.cause());
+                        }
+                    });
+        } catch (Exception e) {
+            onFailure(channel, partitionKey, result, e);
+        }
+    }
+
+    private void offer(Channel channel, Object partitionKey, WarmUpFuture result) {
+        channelManager.registerOpenChannel(channel, partitionKey);
+        channelManager.tryToOfferChannelToPool(channel, null, true, partitionKey);
+        result.onConnection(true, false);
+    }
+
+    private void onFailure(Channel channel, Object partitionKey, WarmUpFuture result, Throwable cause) {
+        LOGGER.debug("Failed to warm up a connection for {}", partitionKey, cause);
+        channelManager.abortChannelPreemption(partitionKey);
+        if (channel != null)
+            Channels.silentlyCloseChannel(channel);
+        result.onConnection(false, true);
+    }
+
+    private static final class MaintainedHost {
+
+        private final Request request;
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile long lastRequested = millisTime();
+        private volatile long backoffUntil;
+
+        MaintainedHost(Request request) {
+            this.request = request;
+        }
+    }
+
+    private static final class WarmUpFuture extends AbstractListenableFuture<Integer> {
+
+        private final MaintainedHost host;
+        private final AtomicInteger remaining;
+        private final AtomicInteger opened = new AtomicInteger();
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        WarmUpFuture(int connections, MaintainedHost host) {
+            this.host = host;
+            remaining = new AtomicInteger(connections);
+            if (connections <= 0)
+                latch.countDown();
+        }
+
+        void onConnection(boolean success, boolean failure) {
+            if (success)
+                opened.incrementAndGet();
+            if (host != null) {
+                host.pending.decrementAndGet();
+                if (failure)
+                    host.backoffUntil = millisTime() + FAILURE_BACKOFF;
+            }
+            if (remaining.decrementAndGet() == 0) {
+                latch.countDown();
+                runListeners();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        @Override
+        public Integer get() throws InterruptedException {
+            latch.await();
+            return opened.get();
+        }
+
+        @Override
+        public Integer get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            if (!latch.await(timeout, unit))
+                throw new TimeoutException();
+            return opened.get();
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public void abort(Throwable t) {
+        }
+
+        @Override
+        public void touch() {
+        }
+    }
+}
@@ -17,6 +17,7 @@ import static io.netty.handler.codec.http.HttpHeaders.Names.ACCEPT;
 import static io.netty.handler.codec.http.HttpHeaders.Names.ACCEPT_ENCODING;
 import static io.netty.handler.codec.http.HttpHeaders.Names.AUTHORIZATION;
 import static io.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_ENCODING;
 import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
 import static io.netty.handler.codec.http.HttpHeaders.Names.COOKIE;
@@ -30,11 +31,13 @@ import static io.netty.handler.codec.http.HttpHeaders.Names.UPGRADE;
 import static io.netty.handler.codec.http.HttpHeaders.Names.USER_AGENT;
 import static org.asynchttpclient.util.AsyncHttpProviderUtils.DEFAULT_CHARSET;
 import static org.asynchttpclient.util.AsyncHttpProviderUtils.hostHeader;
+import static org.asynchttpclient.util.AsyncHttpProviderUtils.requestCookies;
 import static org.asynchttpclient.util.AsyncHttpProviderUtils.urlEncodeFormParams;
 import static org.asynchttpclient.util.AuthenticatorUtils.perRequestAuthorizationHeader;
 import static org.asynchttpclient.util.AuthenticatorUtils.perRequestProxyAuthorizationHeader;
 import static org.asynchttpclient.util.HttpUtils.isSecure;
 import static org.asynchttpclient.util.HttpUtils.isWebSocket;
+import static org.asynchttpclient.util.MiscUtils.closeSilently;
 import static org.asynchttpclient.util.MiscUtils.isNonEmpty;
 import static org.asynchttpclient.ws.WebSocketUtils.getKey;
 import io.netty.buffer.ByteBuf;
@@ -45,25 +48,35 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpVersion;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
 
 import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.Realm;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.cookie.Cookie;
 import org.asynchttpclient.cookie.CookieEncoder;
+import org.asynchttpclient.netty.handler.RequestBodyCompressor;
 import org.asynchttpclient.netty.request.body.NettyBody;
 import org.asynchttpclient.netty.request.body.NettyBodyBody;
 import org.asynchttpclient.netty.request.body.NettyByteArrayBody;
+import org.asynchttpclient.netty.request.body.NettyByteBufBody;
 import org.asynchttpclient.netty.request.body.NettyByteBufferBody;
 import org.asynchttpclient.netty.request.body.NettyCompositeByteArrayBody;
+import org.asynchttpclient.netty.request.body.NettyCompressedBody;
 import org.asynchttpclient.netty.request.body.NettyDirectBody;
 import org.asynchttpclient.netty.request.body.NettyFileBody;
 import org.asynchttpclient.netty.request.body.NettyInputStreamBody;
 import org.asynchttpclient.netty.request.body.NettyMultipartBody;
 import org.asynchttpclient.netty.request.body.NettyReactiveStreamsBody;
 import org.asynchttpclient.proxy.ProxyServer;
+import org.asynchttpclient.request.body.Body;
+import org.asynchttpclient.request.body.generator.ByteArrayBodyGenerator;
 import org.asynchttpclient.request.body.generator.FileBodyGenerator;
 import org.asynchttpclient.request.body.generator.InputStreamBodyGenerator;
 import org.asynchttpclient.request.body.generator.ReactiveStreamsBodyGenerator;
@@ -75,11 +88,98 @@ public final class NettyRequestFactory extends NettyRequestFactoryBase {
 
     public static final String GZIP_DEFLATE = HttpHeaders.Values.GZIP + "," + HttpHeaders.Values.DEFLATE;
 
-    public NettyRequestFactory(AsyncHttpClientConfig config) {
+    /**
+     * Bodies up to this size are read upfront and sent along with the headers as a FullHttpRequest, i.e. in a single
+     * write.
+     */
+    private static final int MAX_INLINED_BODY_SIZE = 8 * 1024;
+
+    private final String acceptEncoding;
+    private final String requestCompression;
+
+    /**
+     * @param config the client config
+     * @param acceptEncoding the Accept-Encoding header to send when compression is enforced, or null
+     */
+    public NettyRequestFactory(AsyncHttpClientConfig config, String acceptEncoding) {
         super(config);
+        this.acceptEncoding = acceptEncoding;
+        requestCompression = config.getRequestCompression();
+        if (requestCompression != null && !RequestBodyCompressor.isSupported(requestCompression))
+            throw new IllegalArgumentException("Unsupported request compression: " + requestCompression);
     }
 
     private NettyBody body(Request request, boolean connect) {
+        NettyBody nettyBody = newBody(request, connect);
+        if (nettyBody != null && isInlinable(request, nettyBody)) {
+            byte[] bytes = readFully(nettyBody);
+            // a body that couldn't be read at once is streamed instead
+            nettyBody = bytes != null ? new NettyByteArrayBody(bytes, nettyBody.getContentType()) : newBody(request, connect);
+        }
+        return nettyBody;
+    }
+
+    private boolean isInlinable(Request request, NettyBody nettyBody) {
+        long length = nettyBody.getContentLength();
+        if (length < 0 || length > MAX_INLINED_BODY_SIZE)
+            return false;
+
+        // the body has to wait for the 100 status
+        String expect = request.getHeaders().getFirstValue(HttpHeaders.Names.EXPECT);
+        if (expect != null && expect.equalsIgnoreCase(HttpHeaders.Values.CONTINUE))
+            return false;
+
+        // other generators might suspend, e.g. feedable ones
+        return nettyBody instanceof NettyFileBody || nettyBody instanceof NettyMultipartBody
+                || request.getBodyGenerator() instanceof ByteArrayBodyGenerator;
+    }
+
+    private boolean isCompressible(Request request, NettyBody nettyBody) {
+        if (requestCompression == null || request.getHeaders().containsKey(CONTENT_ENCODING))
+            return false;
+
+        long length = nettyBody.getContentLength();
+        return length < 0 || length >= config.getRequestCompressionThreshold();
+    }
+
+    private NettyBody compress(NettyBody nettyBody) {
+        // bodies in memory are compressed at once so that their compressed length is known.
+        // compress releases the buffer it's given: it's a fresh one, byteBuf() wraps the body on each call
+        if (nettyBody instanceof NettyDirectBody)
+            return new NettyByteBufBody(RequestBodyCompressor.compress(NettyDirectBody.class.cast(nettyBody).byteBuf(), requestCompression),
+                    nettyBody.getContentType());
+        else
+            return new NettyCompressedBody(nettyBody, requestCompression);
+    }
+
+    private byte[] readFully(NettyBody nettyBody) {
+        byte[] bytes = new byte[(int) nettyBody.getContentLength()];
+
+        if (nettyBody instanceof NettyFileBody) {
+            NettyFileBody fileBody = (NettyFileBody) nettyBody;
+            try (RandomAccessFile raf = new RandomAccessFile(fileBody.getFile(), "r")) {
+                raf.seek(fileBody.getOffset());
+                raf.readFully(bytes);
+                return bytes;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        Body body = NettyBodyBody.class.cast(nettyBody).getBody();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            while (buffer.hasRemaining() && body.read(buffer) == Body.State.Continue)
+                ;
+            return buffer.hasRemaining() ? null : bytes;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeSilently(body);
+        }
+    }
+
+    private NettyBody newBody(Request request, boolean connect) {
         NettyBody nettyBody = null;
         if (!connect) {
 
@@ -152,6 +252,9 @@ public final class NettyRequestFactory extends NettyRequestFactoryBase {
         String requestUri = requestUri(uri, proxyServer, connect);
 
         NettyBody body = body(request, connect);
+        boolean compressed = body != null && isCompressible(request, body);
+        if (compressed)
+            body = compress(body);
 
         HttpRequest httpRequest;
         NettyRequest nettyRequest;
@@ -178,11 +281,12 @@ public final class NettyRequestFactory extends NettyRequestFactoryBase {
                 headers.set(header.getKey(), header.getValue());
             }
 
-            if (isNonEmpty(request.getCookies()))
-                headers.set(COOKIE, CookieEncoder.encode(request.getCookies()));
+            Collection<Cookie> cookies = requestCookies(config, request);
+            if (isNonEmpty(cookies))
+                headers.set(COOKIE, CookieEncoder.encode(cookies));
 
-            if (config.isCompressionEnforced() && !headers.contains(ACCEPT_ENCODING))
-                headers.set(ACCEPT_ENCODING, GZIP_DEFLATE);
+            if (config.isCompressionEnforced() && acceptEncoding != null && !headers.contains(ACCEPT_ENCODING))
+                headers.set(ACCEPT_ENCODING, acceptEncoding);
         }
 
         if (body != null) {
@@ -193,6 +297,13 @@ public final class NettyRequestFactory extends NettyRequestFactoryBase {
 
             if (body.getContentType() != null)
                 headers.set(CONTENT_TYPE, body.getContentType());
+
+            if (compressed) {
+                headers.set(CONTENT_ENCODING, requestCompression);
+                // a Content-Length set on the request would be the uncompressed one
+                if (body.getContentLength() < 0)
+                    headers.remove(CONTENT_LENGTH);
+            }
         }
 
         // connection header and friends
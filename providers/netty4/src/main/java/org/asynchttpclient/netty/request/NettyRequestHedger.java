@@ -0,0 +1,579 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.request;
+
+import io.netty.channel.Channel;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.internal.chmv8.ConcurrentHashMapV8;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.HedgingPolicy;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.channel.NameResolver;
+import org.asynchttpclient.channel.pool.ConnectionPoolPartitioning;
+import org.asynchttpclient.future.AbstractListenableFuture;
+import org.asynchttpclient.handler.DelegatingAsyncHandler;
+import org.asynchttpclient.handler.StreamedAsyncHandler;
+import org.asynchttpclient.handler.TransferCompletionHandler;
+import org.asynchttpclient.handler.resumable.ResumableAsyncHandler;
+import org.asynchttpclient.metrics.ClientMetrics;
+import org.asynchttpclient.netty.NettyResponseFuture;
+import org.asynchttpclient.proxy.ProxyServer;
+import org.asynchttpclient.uri.Uri;
+import org.asynchttpclient.util.ProxyUtils;
+import org.asynchttpclient.ws.UpgradeHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends hedged requests according to a {@link HedgingPolicy}.
+ *
+ * The hedge goes to another address of the host when the {@link NameResolver} returns several, otherwise to the same
+ * address. Either way, it uses a dedicated pool partition so that it never shares a connection
+ * with the primary attempt. A loser that was still connecting gets its fresh connection pooled, otherwise its channel
+ * is closed as it's in the middle of an exchange.
+ *
+ * {@link ClientMetrics} see a hedged request as a single one, whatever the number of attempts.
+ */
+public final class NettyRequestHedger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NettyRequestHedger.class);
+
+    /**
+     * Hedge tokens are stored in millionths, a hedge costs one token.
+     */
+    private static final long TOKEN = 1000000L;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    private final AsyncHttpClientConfig config;
+    private final NettyRequestSender requestSender;
+    private final AtomicLong tokens = new AtomicLong();
+    private final ConcurrentHashMapV8<String, LatencyTracker> latencies = new ConcurrentHashMapV8<>();
+    private final ConcurrentHashMapV8.Fun<String, LatencyTracker> latencyTrackerComputer = new ConcurrentHashMapV8.Fun<String, LatencyTracker>() {
+        @Override
+        public LatencyTracker apply(String host) {
+            return new LatencyTracker();
+        }
+    };
+
+    public NettyRequestHedger(AsyncHttpClientConfig config, NettyRequestSender requestSender) {
+        this.config = config;
+        this.requestSender = requestSender;
+    }
+
+    static boolean isAttempt(AsyncHandler<?> asyncHandler) {
+        return asyncHandler instanceof Attempt;
+    }
+
+    public static boolean isHedgeable(Request request, AsyncHandler<?> asyncHandler) {
+        String method = request.getMethod();
+        return (method.equals("GET") || method.equals("HEAD") || method.equals("OPTIONS"))//
+                && request.getRangeOffset() == 0//
+                && request.getStreamData() == null && request.getBodyGenerator() == null//
+                && !(asyncHandler instanceof StreamedAsyncHandler)//
+                && !(asyncHandler instanceof ResumableAsyncHandler)//
+                && !(asyncHandler instanceof UpgradeHandler)//
+                && !(asyncHandler instanceof TransferCompletionHandler);
+    }
+
+    public <T> ListenableFuture<T> sendRequest(Request request, AsyncHandler<T> asyncHandler, HedgingPolicy policy) {
+
+        // every hedgeable request earns a fraction of a hedge
+        long earned = (long) (policy.getMaxExtraLoad() * TOKEN);
+        while (true) {
+            long current = tokens.get();
+            if (current >= MAX_TOKENS || tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + earned)))
+                break;
+        }
+
+        LatencyTracker latencyTracker = latencies.computeIfAbsent(request.getUri().getHost(), latencyTrackerComputer);
+        HedgedFuture<T> hedged = new HedgedFuture<>(request, asyncHandler, latencyTracker);
+
+        ListenableFuture<T> primary = requestSender.sendRequest(request, hedged.primary, null, false);
+        hedged.attach(hedged.primary, primary);
+
+        long delay = latencyTracker.delay(policy);
+        if (!primary.isDone())
+            hedged.hedgeTimeout = requestSender.newTimeout(new HedgeTimerTask<>(hedged), delay);
+        return hedged;
+    }
+
+    private boolean tryAcquireToken() {
+        while (true) {
+            long current = tokens.get();
+            if (current < TOKEN)
+                return false;
+            if (tokens.compareAndSet(current, current - TOKEN))
+                return true;
+        }
+    }
+
+    private Request hedgeRequest(Request request, ListenableFuture<?> primary) {
+        ProxyServer proxy = request.getProxyServer();
+        if (proxy != null || request.getInetAddress() != null)
+            // hedge on a new connection to the same target
+            return withPartition(request, null);
+
+        InetAddress primaryAddress = null;
+        if (primary instanceof NettyResponseFuture) {
+            Channel channel = NettyResponseFuture.class.cast(primary).channel();
+            SocketAddress remoteAddress = channel != null ? channel.remoteAddress() : null;
+            if (remoteAddress instanceof InetSocketAddress)
+                primaryAddress = InetSocketAddress.class.cast(remoteAddress).getAddress();
+        }
+
+        try {
+            List<InetAddress> addresses = request.getNameResolver().resolve(request.getUri().getHost());
+            if (primaryAddress == null)
+                primaryAddress = addresses.get(0);
+
+            for (InetAddress address : addresses) {
+                if (!address.equals(primaryAddress))
+                    return withPartition(request, address);
+            }
+            return withPartition(request, primaryAddress);
+
+        } catch (UnknownHostException e) {
+            LOGGER.debug("Can't resolve an alternative address for {}", request.getUri(), e);
+            return withPartition(request, null);
+        }
+    }
+
+    private static Request withPartition(Request request, InetAddress address) {
+        RequestBuilder builder = new RequestBuilder(request)//
+                .setConnectionPoolPartitioning(new HedgePartitioning(request.getConnectionPoolPartitioning(), address));
+        if (address != null)
+            builder.setInetAddress(address);
+        return builder.build();
+    }
+
+    private static final class HedgeTimerTask<T> implements TimerTask {
+
+        private final HedgedFuture<T> hedged;
+
+        HedgeTimerTask(HedgedFuture<T> hedged) {
+            this.hedged = hedged;
+        }
+
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            hedged.launchHedge();
+        }
+    }
+
+    /**
+     * Keeps hedges out of the partitions of regular requests.
+     */
+    private static final class HedgePartitioning implements ConnectionPoolPartitioning {
+
+        private final ConnectionPoolPartitioning delegate;
+        private final InetAddress address;
+
+        HedgePartitioning(ConnectionPoolPartitioning delegate, InetAddress address) {
+            this.delegate = delegate;
+            this.address = address;
+        }
+
+        @Override
+        public Object getPartitionKey(Uri uri, String virtualHost, ProxyServer proxyServer) {
+            return new HedgePartitionKey(delegate.getPartitionKey(uri, virtualHost, proxyServer), address);
+        }
+    }
+
+    private static final class HedgePartitionKey {
+
+        private final Object partitionKey;
+        private final InetAddress address;
+
+        HedgePartitionKey(Object partitionKey, InetAddress address) {
+            this.partitionKey = partitionKey;
+            this.address = address;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof HedgePartitionKey))
+                return false;
+            HedgePartitionKey other = (HedgePartitionKey) o;
+            return partitionKey.equals(other.partitionKey) && (address == null ? other.address == null : address.equals(other.address));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * partitionKey.hashCode() + (address != null ? address.hashCode() : 0);
+        }
+
+        @Override
+        public String toString() {
+            return "HedgePartitionKey(partitionKey=" + partitionKey + ", address=" + address + ")";
+        }
+    }
+
+    /**
+     * A window of the most recent time-to-status-line of a host.
+     */
+    private static final class LatencyTracker {
+
+        private static final int SIZE = 256;
+        private static final int MIN_SAMPLES = 32;
+
+        private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile long cachedDelay = -1L;
+
+        void record(long latency) {
+            int n = count.getAndIncrement();
+            samples.set(n & (SIZE - 1), latency);
+            if ((n & (MIN_SAMPLES - 1)) == 0)
+                // percentile is recomputed lazily
+                cachedDelay = -1L;
+        }
+
+        long delay(HedgingPolicy policy) {
+            int n = Math.min(count.get(), SIZE);
+            if (policy.getLatencyPercentile() <= 0 || n < MIN_SAMPLES)
+                return policy.getDelay();
+
+            long delay = cachedDelay;
+            if (delay < 0) {
+                long[] sorted = new long[n];
+                for (int i = 0; i < n; i++)
+                    sorted[i] = samples.get(i);
+                Arrays.sort(sorted);
+                delay = sorted[(int) Math.min(n - 1, Math.floor(policy.getLatencyPercentile() / 100 * n))];
+                cachedDelay = delay;
+            }
+            return delay;
+        }
+    }
+
+    /**
+     * The future handed to the caller, completed by whichever attempt gets a status line first.
+     */
+    private final class HedgedFuture<T> extends AbstractListenableFuture<T> {
+
+        private final Request request;
+        private final AsyncHandler<T> asyncHandler;
+        private final LatencyTracker latencyTracker;
+        private final long start = System.nanoTime();
+        private final Attempt<T> primary;
+        private final Attempt<T> hedge;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final ClientMetrics clientMetrics = config.getClientMetrics();
+        private final Object partitionKey;
+
+        // guarded by this
+        private Attempt<T> winner;
+        private int launched = 1;
+        private int failed;
+        private boolean finished;
+        private boolean cancelled;
+
+        private volatile Timeout hedgeTimeout;
+        private volatile T value;
+        private volatile ExecutionException exception;
+
+        HedgedFuture(Request request, AsyncHandler<T> asyncHandler, LatencyTracker latencyTracker) {
+            this.request = request;
+            this.asyncHandler = asyncHandler;
+            this.latencyTracker = latencyTracker;
+            primary = new Attempt<>(this);
+            hedge = new Attempt<>(this);
+            partitionKey = clientMetrics != null ? request.getConnectionPoolPartitioning().getPartitionKey(request.getUri(),
+                    request.getVirtualHost(), ProxyUtils.getProxyServer(config, request)) : null;
+            if (clientMetrics != null)
+                clientMetrics.requestStarted(partitionKey);
+        }
+
+        void launchHedge() {
+            synchronized (this) {
+                if (winner != null || finished || failed > 0 || !tryAcquireToken())
+                    return;
+                launched = 2;
+            }
+
+            LOGGER.debug("Hedging request {}", request.getUri());
+            try {
+                attach(hedge, requestSender.sendRequest(hedgeRequest(request, primary.future), hedge, null, false));
+            } catch (Exception e) {
+                hedge.onThrowable(e);
+            }
+        }
+
+        /**
+         * The future of an attempt is only known once the request was sent, by then the attempt might have already
+         * lost or the caller cancelled.
+         */
+        void attach(Attempt<T> attempt, ListenableFuture<T> future) {
+            boolean lost;
+            synchronized (this) {
+                attempt.future = future;
+                lost = winner != null ? winner != attempt : finished;
+            }
+            if (lost)
+                future.cancel(true);
+        }
+
+        synchronized boolean claim(Attempt<T> attempt) {
+            if (winner != null || finished)
+                return winner == attempt;
+            winner = attempt;
+            return true;
+        }
+
+        void won(Attempt<T> attempt, HttpResponseStatus responseStatus) {
+            long latency = System.nanoTime() - start;
+            latencyTracker.record(TimeUnit.NANOSECONDS.toMillis(latency));
+            if (clientMetrics != null) {
+                try {
+                    clientMetrics.firstByteReceived(partitionKey, responseStatus.getStatusCode(), latency);
+                } catch (Throwable t) {
+                    LOGGER.debug("clientMetrics", t);
+                }
+            }
+            cancelHedgeTimeout();
+            ListenableFuture<T> loser;
+            synchronized (this) {
+                loser = (attempt == primary ? hedge : primary).future;
+            }
+            // otherwise cancelled once attached
+            if (loser != null)
+                loser.cancel(true);
+        }
+
+        synchronized boolean isWinner(Attempt<T> attempt) {
+            return winner == attempt;
+        }
+
+        void attemptCompleted(Attempt<T> attempt, T result) {
+            synchronized (this) {
+                if (finished)
+                    return;
+                finished = true;
+            }
+            value = result;
+            notifyCompletion(null);
+            finish();
+        }
+
+        void attemptFailed(Attempt<T> attempt, Throwable t) {
+            synchronized (this) {
+                if (finished || (winner != null && winner != attempt))
+                    // losers get cancelled
+                    return;
+                if (winner == null && ++failed < launched)
+                    // the other attempt might still succeed
+                    return;
+                finished = true;
+            }
+            cancelHedgeTimeout();
+            try {
+                asyncHandler.onThrowable(t);
+            } finally {
+                exception = new ExecutionException(t);
+                notifyCompletion(t);
+                finish();
+            }
+        }
+
+        private void cancelHedgeTimeout() {
+            Timeout timeout = hedgeTimeout;
+            if (timeout != null)
+                timeout.cancel();
+        }
+
+        private void notifyCompletion(Throwable cause) {
+            if (clientMetrics != null) {
+                try {
+                    if (cause == null)
+                        clientMetrics.requestCompleted(partitionKey, System.nanoTime() - start);
+                    else
+                        clientMetrics.requestAborted(partitionKey, cause, System.nanoTime() - start);
+                } catch (Throwable t) {
+                    LOGGER.debug("clientMetrics", t);
+                }
+            }
+        }
+
+        private void finish() {
+            latch.countDown();
+            runListeners();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            ListenableFuture<T> primaryFuture;
+            ListenableFuture<T> hedgeFuture;
+            synchronized (this) {
+                if (finished)
+                    return false;
+                finished = true;
+                cancelled = true;
+                primaryFuture = primary.future;
+                hedgeFuture = hedge.future;
+            }
+            cancelHedgeTimeout();
+            try {
+                asyncHandler.onThrowable(new CancellationException());
+            } catch (Throwable t) {
+                LOGGER.warn("cancel", t);
+            }
+            if (primaryFuture != null)
+                primaryFuture.cancel(true);
+            if (hedgeFuture != null)
+                hedgeFuture.cancel(true);
+            notifyCompletion(new CancellationException());
+            finish();
+            return true;
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return result();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!latch.await(timeout, unit))
+                throw new TimeoutException();
+            return result();
+        }
+
+        private T result() throws ExecutionException {
+            if (isCancelled())
+                throw new CancellationException();
+            if (exception != null)
+                throw exception;
+            return value;
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public void abort(Throwable t) {
+            Attempt<T> current;
+            synchronized (this) {
+                current = winner;
+            }
+            if (current != null && current.future != null) {
+                current.future.abort(t);
+            } else {
+                if (primary.future != null)
+                    primary.future.abort(t);
+                if (hedge.future != null)
+                    hedge.future.abort(t);
+            }
+        }
+
+        @Override
+        public void touch() {
+            if (primary.future != null)
+                primary.future.touch();
+            if (hedge.future != null)
+                hedge.future.touch();
+        }
+    }
+
+    /**
+     * The handler of one of the attempts, that only forwards to the caller's handler once it has won.
+     */
+    private static final class Attempt<T> extends DelegatingAsyncHandler<T> {
+
+        private final HedgedFuture<T> hedged;
+        private volatile ListenableFuture<T> future;
+
+        Attempt(HedgedFuture<T> hedged) {
+            super(hedged.asyncHandler);
+            this.hedged = hedged;
+        }
+
+        @Override
+        public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+            if (!hedged.claim(this))
+                return State.ABORT;
+            hedged.won(this, responseStatus);
+            return delegate.onStatusReceived(responseStatus);
+        }
+
+        @Override
+        public State onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+            return hedged.isWinner(this) ? delegate.onHeadersReceived(headers) : State.ABORT;
+        }
+
+        @Override
+        public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+            return hedged.isWinner(this) ? delegate.onBodyPartReceived(bodyPart) : State.ABORT;
+        }
+
+        @Override
+        public T onCompleted() throws Exception {
+            if (!hedged.isWinner(this))
+                return null;
+            T result = delegate.onCompleted();
+            hedged.attemptCompleted(this, result);
+            return result;
+        }
+
+        @Override
+        public void onThrowable(Throwable t) {
+            hedged.attemptFailed(this, t);
+        }
+
+        /**
+         * Only the primary attempt, or the winner, reports progress and connection events.
+         */
+        @Override
+        protected AsyncHandler<T> eventDelegate() {
+            synchronized (hedged) {
+                return hedged.winner == this || (hedged.winner == null && this == hedged.primary) ? delegate : null;
+            }
+        }
+    }
+}
@@ -19,15 +19,21 @@ import static org.asynchttpclient.util.AsyncHttpProviderUtils.requestTimeout;
 import static org.asynchttpclient.util.AuthenticatorUtils.perConnectionAuthorizationHeader;
 import static org.asynchttpclient.util.AuthenticatorUtils.perConnectionProxyAuthorizationHeader;
 import static org.asynchttpclient.util.HttpUtils.WS;
+import static org.asynchttpclient.util.HttpUtils.isWebSocket;
 import static org.asynchttpclient.util.HttpUtils.useProxyConnect;
 import static org.asynchttpclient.util.ProxyUtils.avoidProxy;
 import static org.asynchttpclient.util.ProxyUtils.getProxyServer;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelProgressivePromise;
+import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
 import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import io.netty.util.TimerTask;
@@ -36,7 +42,11 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -46,6 +56,7 @@ import org.asynchttpclient.FluentCaseInsensitiveStringsMap;
 import org.asynchttpclient.ListenableFuture;
 import org.asynchttpclient.Realm;
 import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestTimings;
 import org.asynchttpclient.filter.FilterContext;
 import org.asynchttpclient.filter.FilterException;
 import org.asynchttpclient.filter.IOExceptionFilter;
@@ -55,11 +66,14 @@ import org.asynchttpclient.netty.Callback;
 import org.asynchttpclient.netty.NettyResponseFuture;
 import org.asynchttpclient.netty.channel.ChannelManager;
 import org.asynchttpclient.netty.channel.Channels;
+import org.asynchttpclient.netty.channel.HappyEyeballsConnector;
 import org.asynchttpclient.netty.channel.NettyConnectListener;
+import org.asynchttpclient.netty.channel.PipelinedChannels.RequestPipeline;
 import org.asynchttpclient.netty.timeout.ReadTimeoutTimerTask;
 import org.asynchttpclient.netty.timeout.RequestTimeoutTimerTask;
 import org.asynchttpclient.netty.timeout.TimeoutsHolder;
 import org.asynchttpclient.proxy.ProxyServer;
+import org.asynchttpclient.retry.RetryPolicy;
 import org.asynchttpclient.uri.Uri;
 import org.asynchttpclient.ws.WebSocketUpgradeHandler;
 import org.slf4j.Logger;
@@ -74,6 +88,9 @@ public final class NettyRequestSender {
     private final Timer nettyTimer;
     private final AtomicBoolean closed;
     private final NettyRequestFactory requestFactory;
+    private final RetryPolicy retryPolicy;
+    private final HappyEyeballsConnector connector;
+    private final ConnectionWarmer connectionWarmer;
 
     public NettyRequestSender(AsyncHttpClientConfig config,//
             ChannelManager channelManager,//
@@ -83,7 +100,10 @@ public final class NettyRequestSender {
         this.channelManager = channelManager;
         this.nettyTimer = nettyTimer;
         this.closed = closed;
-        requestFactory = new NettyRequestFactory(config);
+        requestFactory = new NettyRequestFactory(config, channelManager.getAcceptEncoding());
+        retryPolicy = config.getRetryPolicy();
+        connector = new HappyEyeballsConnector(nettyTimer, config.getConnectionAttemptDelay());
+        connectionWarmer = new ConnectionWarmer(config, channelManager, this);
     }
 
     public <T> ListenableFuture<T> sendRequest(final Request request,//
@@ -96,7 +116,14 @@ public final class NettyRequestSender {
 
         validateWebSocketRequest(request, asyncHandler);
 
+        if (future == null && retryPolicy != null)
+            retryPolicy.onRequest(request);
+
         ProxyServer proxyServer = getProxyServer(config, request);
+        if (proxyServer != null && proxyServer.getProtocol().isSocks())
+            // connections are tunnelled, so requests are the same as direct ones
+            return sendRequestWithCertainForceConnect(request, asyncHandler, future, reclaimCache, proxyServer, true, false);
+
         boolean resultOfAConnect = future != null && future.getNettyRequest() != null && future.getNettyRequest().getHttpRequest().getMethod() == HttpMethod.CONNECT;
         boolean useProxy = proxyServer != null && !resultOfAConnect;
 
@@ -126,8 +153,14 @@ public final class NettyRequestSender {
             boolean forceConnect) {
 
         NettyResponseFuture<T> newFuture = newNettyRequestAndResponseFuture(request, asyncHandler, future, proxyServer, forceConnect);
+        connectionWarmer.track(newFuture);
+
+        newFuture.getTimings().record(RequestTimings.Event.POOL_POLL_START);
+        if ((future == null || !future.reuseChannel()) && isPipelinable(newFuture) && sendRequestWithPipelinedChannel(newFuture, asyncHandler))
+            return newFuture;
 
         Channel channel = getCachedChannel(future, request, proxyServer, asyncHandler);
+        newFuture.getTimings().record(RequestTimings.Event.POOL_POLL_END);
 
         if (Channels.isChannelValid(channel))
             return sendRequestWithCachedChannel(request, proxyServer, newFuture, asyncHandler, channel);
@@ -171,7 +204,7 @@ public final class NettyRequestSender {
     private <T> NettyResponseFuture<T> newNettyRequestAndResponseFuture(final Request request, final AsyncHandler<T> asyncHandler, NettyResponseFuture<T> originalFuture,
             ProxyServer proxy, boolean forceConnect) {
 
-        NettyRequest nettyRequest = requestFactory.newNettyRequest(request, forceConnect, proxy);
+        NettyRequest nettyRequest = requestFactory.newNettyRequest(request, forceConnect, httpProxy(proxy));
 
         if (originalFuture == null) {
             return newNettyResponseFuture(request, asyncHandler, nettyRequest, proxy);
@@ -182,6 +215,13 @@ public final class NettyRequestSender {
         }
     }
 
+    /**
+     * @return the proxy if it relays HTTP requests, null if there's none or if it's a SOCKS one
+     */
+    private static ProxyServer httpProxy(ProxyServer proxy) {
+        return proxy != null && !proxy.getProtocol().isSocks() ? proxy : null;
+    }
+
     private Channel getCachedChannel(NettyResponseFuture<?> future, Request request, ProxyServer proxyServer, AsyncHandler<?> asyncHandler) {
 
         if (future != null && future.reuseChannel() && Channels.isChannelValid(future.channel()))
@@ -213,6 +253,56 @@ public final class NettyRequestSender {
         return future;
     }
 
+    /**
+     * @return true if the request could be written on a channel that is still waiting for the responses to previous
+     *         requests
+     */
+    private <T> boolean sendRequestWithPipelinedChannel(NettyResponseFuture<T> future, AsyncHandler<T> asyncHandler) {
+
+        RequestPipeline pipeline = channelManager.getPipelinedChannels().poll(future.getPartitionKey());
+        if (pipeline == null)
+            return false;
+
+        // requests have to be written in the order they're queued, as that's the order of the responses
+        synchronized (pipeline) {
+            if (!pipeline.offer(future))
+                return false;
+
+            Channel channel = pipeline.getChannel();
+            if (asyncHandler instanceof AsyncHandlerExtensions)
+                AsyncHandlerExtensions.class.cast(asyncHandler).onConnectionPooled(channel);
+
+            future.getTimings().record(RequestTimings.Event.POOL_POLL_END);
+            future.setState(NettyResponseFuture.STATE.POOLED);
+            future.attachChannel(channel, false);
+
+            LOGGER.debug("Pipelining {} '{}' on Channel {}", future.getNettyRequest().getHttpRequest().getMethod(), future.getNettyRequest().getHttpRequest()
+                    .getUri(), channel);
+            writeRequest(future, channel);
+        }
+        return true;
+    }
+
+    /**
+     * Only requests whose response can be matched by order, and that can be replayed if the connection drops, are
+     * pipelined: idempotent ones without a body, that don't go through a proxy or an authentication handshake.
+     */
+    private boolean isPipelinable(NettyResponseFuture<?> future) {
+        if (channelManager.getPipelinedChannels() == null)
+            return false;
+
+        HttpRequest httpRequest = future.getNettyRequest().getHttpRequest();
+        HttpMethod method = httpRequest.getMethod();
+        Request request = future.getRequest();
+        return (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS)//
+                && httpRequest.getProtocolVersion() == HttpVersion.HTTP_1_1//
+                && future.getNettyRequest().getBody() == null//
+                && !(httpRequest instanceof FullHttpRequest && FullHttpRequest.class.cast(httpRequest).content().isReadable())//
+                && future.getProxyServer() == null//
+                && !isWebSocket(request.getUri().getScheme())//
+                && request.getRealm() == null && config.getRealm() == null;
+    }
+
     private <T> ListenableFuture<T> sendRequestWithNewChannel(//
             Request request,//
             ProxyServer proxy,//
@@ -225,15 +315,16 @@ public final class NettyRequestSender {
         HttpHeaders headers = future.getNettyRequest().getHttpRequest().headers();
         Realm realm = request.getRealm() != null ? request.getRealm() : config.getRealm();
         boolean connect = future.getNettyRequest().getHttpRequest().getMethod() == HttpMethod.CONNECT;
-        requestFactory.addAuthorizationHeader(headers, perConnectionAuthorizationHeader(request, proxy, realm));
-        requestFactory.setProxyAuthorizationHeader(headers, perConnectionProxyAuthorizationHeader(request, proxy, connect));
+        requestFactory.addAuthorizationHeader(headers, perConnectionAuthorizationHeader(request, proxy, realm, config.getSpnegoEngine()));
+        requestFactory.setProxyAuthorizationHeader(headers, perConnectionProxyAuthorizationHeader(request, httpProxy(proxy), connect));
 
         // Do not throw an exception when we need an extra connection for a
         // redirect
         // FIXME why? This violate the max connection per host handling, right?
-        Bootstrap bootstrap = channelManager.getBootstrap(request.getUri(), useProxy);
+        Bootstrap bootstrap = channelManager.getBootstrap(request.getUri(), useProxy && httpProxy(proxy) != null);
 
         boolean channelPreempted = false;
+        boolean acquiring = false;
         Object partitionKey = future.getPartitionKey();
 
         try {
@@ -247,10 +338,13 @@ public final class NettyRequestSender {
             if (asyncHandler instanceof AsyncHandlerExtensions)
                 AsyncHandlerExtensions.class.cast(asyncHandler).onConnectionOpen();
 
-            ChannelFuture channelFuture = connect(request, proxy, useProxy, bootstrap, asyncHandler);
-            channelFuture.addListener(new NettyConnectListener<T>(future, this, channelManager, channelPreempted, partitionKey));
+            channelManager.getConnectionPoolCounters().acquireStarted(partitionKey);
+            acquiring = true;
+            connect(request, proxy, useProxy, bootstrap, asyncHandler, future.getTimings(), new NettyConnectListener<T>(future, this, channelManager, channelPreempted, partitionKey));
 
         } catch (Throwable t) {
+            if (acquiring)
+                channelManager.getConnectionPoolCounters().acquireCompleted(partitionKey);
             if (channelPreempted)
                 channelManager.abortChannelPreemption(partitionKey);
 
@@ -269,6 +363,12 @@ public final class NettyRequestSender {
                 config.getMaxRequestRetry(),//
                 request.getConnectionPoolPartitioning(),//
                 proxyServer);
+        future.setTimingsListener(config.getRequestTimingsListener());
+        // the attempts of a hedged request are reported once, by the hedged future
+        if (config.getClientMetrics() != null && !NettyRequestHedger.isAttempt(asyncHandler)) {
+            future.setClientMetrics(config.getClientMetrics());
+            config.getClientMetrics().requestStarted(future.getPartitionKey());
+        }
 
         String expectHeader = request.getHeaders().getFirstValue(HttpHeaders.Names.EXPECT);
         if (expectHeader != null && expectHeader.equalsIgnoreCase(HttpHeaders.Values.CONTINUE))
@@ -277,6 +377,18 @@ public final class NettyRequestSender {
     }
 
     public <T> void writeRequest(NettyResponseFuture<T> future, Channel channel) {
+        if (Channels.getAttribute(channel) == future && isPipelinable(future)) {
+            // the next pipelinable requests can be queued right away, but only written after this one
+            RequestPipeline pipeline = channelManager.getPipelinedChannels().open(channel, future.getPartitionKey());
+            synchronized (pipeline) {
+                writeRequest0(future, channel);
+            }
+        } else {
+            writeRequest0(future, channel);
+        }
+    }
+
+    private <T> void writeRequest0(NettyResponseFuture<T> future, Channel channel) {
 
         NettyRequest nettyRequest = future.getNettyRequest();
         HttpRequest httpRequest = nettyRequest.getHttpRequest();
@@ -292,14 +404,30 @@ public final class NettyRequestSender {
             if (handler instanceof TransferCompletionHandler)
                 configureTransferAdapter(handler, httpRequest);
 
+            boolean writeBody = !future.isDontWriteBodyBecauseExpectContinue() && httpRequest.getMethod() != HttpMethod.CONNECT && nettyRequest.getBody() != null;
+
             if (!future.isHeadersAlreadyWrittenOnContinue()) {
                 if (future.getAsyncHandler() instanceof AsyncHandlerExtensions)
                     AsyncHandlerExtensions.class.cast(future.getAsyncHandler()).onRequestSend(nettyRequest);
 
-                channel.writeAndFlush(httpRequest, channel.newProgressivePromise()).addListener(new ProgressListener(config, future.getAsyncHandler(), future, true, 0L));
+                // the content of a full request is written along with the headers
+                boolean inlinedContent = httpRequest instanceof FullHttpRequest && FullHttpRequest.class.cast(httpRequest).content().isReadable();
+                ChannelProgressivePromise promise = channel.newProgressivePromise();
+                ChannelFuture headersFuture;
+                if (writeBody) {
+                    // the headers are flushed along with the first chunk of the body: ChunkedWriteHandler flushes every
+                    // message, so they bypass it
+                    ChannelHandlerContext chunkedWriter = channel.pipeline().context(ChannelManager.CHUNKED_WRITER_HANDLER);
+                    headersFuture = chunkedWriter != null ? chunkedWriter.write(httpRequest, promise) : channel.write(httpRequest, promise);
+                } else {
+                    headersFuture = channel.writeAndFlush(httpRequest, promise);
+                }
+                headersFuture.addListener(new ProgressListener(config, future.getAsyncHandler(), future, true, 0L));
+                if (inlinedContent)
+                    headersFuture.addListener(new ProgressListener(config, future.getAsyncHandler(), future, false, 0L));
             }
 
-            if (!future.isDontWriteBodyBecauseExpectContinue() && httpRequest.getMethod() != HttpMethod.CONNECT && nettyRequest.getBody() != null)
+            if (writeBody)
                 nettyRequest.getBody().write(channel, future);
 
             // don't bother scheduling timeouts if channel became invalid
@@ -312,36 +440,47 @@ public final class NettyRequestSender {
         }
     }
 
-    private InetSocketAddress remoteAddress(Request request, ProxyServer proxy, boolean useProxy) throws UnknownHostException {
+    private List<InetSocketAddress> remoteAddresses(Request request, ProxyServer proxy, boolean useProxy) throws UnknownHostException {
 
-        InetAddress address;
+        List<InetAddress> addresses;
         Uri uri = request.getUri();
         int port = getExplicitPort(uri);
 
         if (request.getInetAddress() != null) {
-            address = request.getInetAddress();
+            addresses = Collections.singletonList(request.getInetAddress());
 
         } else if (!useProxy || avoidProxy(proxy, uri.getHost())) {
-            address = request.getNameResolver().resolve(uri.getHost());
+            addresses = request.getNameResolver().resolve(uri.getHost());
 
         } else {
-            address = request.getNameResolver().resolve(proxy.getHost());
+            addresses = request.getNameResolver().resolve(proxy.getHost());
             port = proxy.getPort();
         }
 
-        return new InetSocketAddress(address, port);
+        List<InetSocketAddress> remoteAddresses = new ArrayList<>(addresses.size());
+        for (InetAddress address : addresses)
+            remoteAddresses.add(new InetSocketAddress(address, port));
+        return remoteAddresses;
     }
 
-    private ChannelFuture connect(Request request, ProxyServer proxy, boolean useProxy, Bootstrap bootstrap, AsyncHandler<?> asyncHandler) throws UnknownHostException {
-        InetSocketAddress remoteAddress = remoteAddress(request, proxy, useProxy);
+    /**
+     * @param timings where to record DNS resolution and connect start, may be null
+     */
+    void connect(Request request, ProxyServer proxy, boolean useProxy, Bootstrap bootstrap, AsyncHandler<?> asyncHandler, RequestTimings timings,
+            ChannelFutureListener listener) throws UnknownHostException {
+        if (timings != null)
+            timings.record(RequestTimings.Event.DNS_START);
+        List<InetSocketAddress> remoteAddresses = remoteAddresses(request, proxy, useProxy);
+        if (timings != null)
+            timings.record(RequestTimings.Event.DNS_END);
 
         if (asyncHandler instanceof AsyncHandlerExtensions)
-            AsyncHandlerExtensions.class.cast(asyncHandler).onDnsResolved(remoteAddress.getAddress());
+            AsyncHandlerExtensions.class.cast(asyncHandler).onDnsResolved(remoteAddresses.get(0).getAddress());
 
-        if (request.getLocalAddress() != null)
-            return bootstrap.connect(remoteAddress, new InetSocketAddress(request.getLocalAddress(), 0));
-        else
-            return bootstrap.connect(remoteAddress);
+        InetSocketAddress localAddress = request.getLocalAddress() != null ? new InetSocketAddress(request.getLocalAddress(), 0) : null;
+        if (timings != null)
+            timings.record(RequestTimings.Event.CONNECT_START);
+        connector.connect(bootstrap, remoteAddresses, localAddress, listener);
     }
 
     private void configureTransferAdapter(AsyncHandler<?> handler, HttpRequest httpRequest) {
@@ -372,14 +511,25 @@ public final class NettyRequestSender {
         nettyResponseFuture.setTimeoutsHolder(timeoutsHolder);
     }
 
+    public ListenableFuture<Integer> warmUp(Request request, int connections) {
+        if (closed.get())
+            throw new IllegalStateException("Closed");
+        return connectionWarmer.warmUp(request, connections);
+    }
+
     public Timeout newTimeout(TimerTask task, long delay) {
         return nettyTimer.newTimeout(task, delay, TimeUnit.MILLISECONDS);
     }
 
     public void abort(Channel channel, NettyResponseFuture<?> future, Throwable t) {
 
-        if (channel != null)
-            channelManager.closeChannel(channel);
+        if (channel != null) {
+            if (Channels.getAttribute(channel) != future && channelManager.isPipelined(channel))
+                // the request waited behind another one: that one gets replayed once the channel is closed
+                Channels.silentlyCloseChannel(channel);
+            else
+                channelManager.closeChannel(channel);
+        }
 
         if (!future.isDone()) {
             future.setState(NettyResponseFuture.STATE.CLOSED);
@@ -398,18 +548,41 @@ public final class NettyRequestSender {
     }
 
     public boolean retry(NettyResponseFuture<?> future) {
+        return retry(future, null);
+    }
+
+    public boolean retry(NettyResponseFuture<?> future, Throwable cause) {
 
         if (isClosed())
             return false;
 
         if (future.canBeReplayed()) {
+            boolean responseStarted = future.getAndSetStatusReceived(false);
+
+            long delay = 0L;
+            if (retryPolicy != null) {
+                delay = responseStarted ? RetryPolicy.DONT_RETRY : retryPolicy.retryDelay(future.getRequest(), cause, future.getCurrentRetry(),
+                        future.getRetryDelay());
+                if (delay < 0) {
+                    LOGGER.debug("Retry policy declined to recover future {}\n", future);
+                    return false;
+                }
+                future.setRetryDelay(delay);
+            }
+
             future.setState(NettyResponseFuture.STATE.RECONNECTED);
-            future.getAndSetStatusReceived(false);
 
             LOGGER.debug("Trying to recover request {}\n", future.getNettyRequest().getHttpRequest());
             if (future.getAsyncHandler() instanceof AsyncHandlerExtensions) {
                 AsyncHandlerExtensions.class.cast(future.getAsyncHandler()).onRetry();
             }
+            if (future.getClientMetrics() != null)
+                future.getClientMetrics().requestRetried(future.getPartitionKey());
+
+            if (delay > 0) {
+                sendNextRequestLater(future.getRequest(), future, delay);
+                return true;
+            }
 
             try {
                 sendNextRequest(future.getRequest(), future);
@@ -450,7 +623,55 @@ public final class NettyRequestSender {
     }
 
     public <T> void sendNextRequest(final Request request, final NettyResponseFuture<T> future) {
-        sendRequest(request, future.getAsyncHandler(), future, true);
+        if (isPreemptiveNegotiate(request)) {
+            // a new connection would get a SPNEGO token, that might take a KDC round trip: not on an I/O or timer thread
+            Runnable send = new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isDone())
+                        return;
+                    try {
+                        sendRequest(request, future.getAsyncHandler(), future, true);
+                    } catch (Exception e) {
+                        abort(null, future, e);
+                    }
+                }
+            };
+
+            try {
+                config.getExecutorService().execute(send);
+            } catch (RejectedExecutionException e) {
+                abort(null, future, e);
+            }
+        } else {
+            sendRequest(request, future.getAsyncHandler(), future, true);
+        }
+    }
+
+    private boolean isPreemptiveNegotiate(Request request) {
+        Realm realm = request.getRealm() != null ? request.getRealm() : config.getRealm();
+        return realm != null && realm.getUsePreemptiveAuth()
+                && (realm.getScheme() == Realm.AuthScheme.KERBEROS || realm.getScheme() == Realm.AuthScheme.SPNEGO);
+    }
+
+    /**
+     * Send the next request after a delay, e.g. a backoff before a retry. The request timeout keeps on running
+     * meanwhile.
+     */
+    public <T> void sendNextRequestLater(final Request request, final NettyResponseFuture<T> future, long delay) {
+        LOGGER.debug("Sending {} again in {} ms", request.getUri(), delay);
+        newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                if (future.isDone())
+                    return;
+                try {
+                    sendNextRequest(request, future);
+                } catch (Exception e) {
+                    abort(null, future, e);
+                }
+            }
+        }, delay);
     }
 
     private void validateWebSocketRequest(Request request, AsyncHandler<?> asyncHandler) {
@@ -473,7 +694,8 @@ public final class NettyRequestSender {
 
         Uri uri = request.getUri();
         String virtualHost = request.getVirtualHost();
-        final Channel channel = channelManager.poll(uri, virtualHost, proxy, request.getConnectionPoolPartitioning());
+        Realm realm = request.getRealm() != null ? request.getRealm() : config.getRealm();
+        final Channel channel = channelManager.poll(uri, virtualHost, proxy, request.getConnectionPoolPartitioning(), realm);
 
         if (channel != null) {
             LOGGER.debug("Using cached Channel {}\n for uri {}\n", channel, uri);
@@ -507,6 +729,18 @@ public final class NettyRequestSender {
         return closed.get();
     }
 
+    public ChannelManager getChannelManager() {
+        return channelManager;
+    }
+
+    public boolean hasRetryPolicy() {
+        return retryPolicy != null;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     public final Callback newExecuteNextRequestCallback(final NettyResponseFuture<?> future, final Request nextRequest) {
 
         return new Callback(future) {
@@ -22,6 +22,7 @@ import java.nio.channels.ClosedChannelException;
 import org.asynchttpclient.AsyncHandler;
 import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.Realm;
+import org.asynchttpclient.RequestTimings;
 import org.asynchttpclient.handler.ProgressAsyncHandler;
 import org.asynchttpclient.netty.NettyResponseFuture;
 import org.asynchttpclient.netty.channel.Channels;
@@ -75,6 +76,7 @@ public class ProgressListener implements ChannelProgressiveFutureListener {
         if (!abortOnThrowable(cf.cause(), cf.channel())) {
 
             future.touch();
+            future.getTimings().record(RequestTimings.Event.REQUEST_WRITTEN);
 
             /**
              * We need to make sure we aren't in the middle of an authorization
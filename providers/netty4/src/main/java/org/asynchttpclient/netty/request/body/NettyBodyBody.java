@@ -60,7 +60,8 @@ public class NettyBodyBody implements NettyBody {
     public void write(final Channel channel, NettyResponseFuture<?> future) throws IOException {
 
         Object msg;
-        if (body instanceof RandomAccessBody && !ChannelManager.isSslHandlerConfigured(channel.pipeline()) && !config.isDisableZeroCopy()) {
+        if (body instanceof RandomAccessBody && !ChannelManager.isSslHandlerConfigured(channel.pipeline())
+                && !ChannelManager.isRequestCompressorConfigured(channel.pipeline()) && !config.isDisableZeroCopy()) {
             msg = new BodyFileRegion((RandomAccessBody) body);
 
         } else {
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.request.body;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A body that's already in a buffer, e.g. a compressed one. The buffer is handed over to the request that writes it,
+ * so this body can only be sent once.
+ */
+public class NettyByteBufBody extends NettyDirectBody {
+
+    private final ByteBuf buf;
+    private final String contentType;
+    private final long length;
+
+    public NettyByteBufBody(ByteBuf buf, String contentType) {
+        this.buf = buf;
+        length = buf.readableBytes();
+        this.contentType = contentType;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public ByteBuf byteBuf() {
+        return buf;
+    }
+}
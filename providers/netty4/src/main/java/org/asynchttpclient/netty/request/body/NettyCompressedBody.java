@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.request.body;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+
+import java.io.IOException;
+
+import org.asynchttpclient.netty.NettyResponseFuture;
+import org.asynchttpclient.netty.channel.ChannelManager;
+import org.asynchttpclient.netty.handler.RequestBodyCompressor;
+
+/**
+ * Compresses a streamed body while it's being written. The compressed length is unknown, so the body is sent with
+ * chunked transfer encoding.
+ */
+public class NettyCompressedBody implements NettyBody {
+
+    private final NettyBody body;
+    private final String contentEncoding;
+
+    public NettyCompressedBody(NettyBody body, String contentEncoding) {
+        this.body = body;
+        this.contentEncoding = contentEncoding;
+    }
+
+    public NettyBody getBody() {
+        return body;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1L;
+    }
+
+    @Override
+    public String getContentType() {
+        return body.getContentType();
+    }
+
+    @Override
+    public void write(Channel channel, NettyResponseFuture<?> future) throws IOException {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (ChannelManager.isRequestCompressorConfigured(pipeline))
+            // left over by an interrupted body
+            pipeline.remove(ChannelManager.DEFLATER_HANDLER);
+        pipeline.addAfter(ChannelManager.HTTP_HANDLER, ChannelManager.DEFLATER_HANDLER, new RequestBodyCompressor(contentEncoding));
+        body.write(channel, future);
+    }
+}
@@ -64,6 +64,7 @@ public class NettyInputStreamBody implements NettyBody {
                 is.reset();
             else {
                 LOGGER.warn("Stream has already been consumed and cannot be reset");
+                channel.flush();
                 return;
             }
         } else {
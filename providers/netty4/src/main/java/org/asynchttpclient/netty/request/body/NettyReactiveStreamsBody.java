@@ -60,6 +60,7 @@ public class NettyReactiveStreamsBody implements NettyBody {
     public void write(Channel channel, NettyResponseFuture<?> future) throws IOException {
         if (future.isStreamWasAlreadyConsumed()) {
             LOGGER.warn("Stream has already been consumed and cannot be reset");
+            channel.flush();
         } else {
             future.setStreamWasAlreadyConsumed(true);
             NettySubscriber subscriber = new NettySubscriber(channel, future);
@@ -45,6 +45,7 @@ public abstract class TimeoutTimerTask implements TimerTask {
 
     protected void expire(String message, long time) {
         LOGGER.debug("{} for {} after {} ms", message, nettyResponseFuture, time);
+        requestSender.getChannelManager().reportFailure(nettyResponseFuture);
         requestSender.abort(nettyResponseFuture.channel(), nettyResponseFuture, new TimeoutException(message));
     }
 
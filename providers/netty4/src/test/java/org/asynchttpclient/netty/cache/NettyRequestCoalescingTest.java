@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.cache.RequestCoalescingTest;
+import org.asynchttpclient.netty.LazyNettyResponseBodyPart;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig;
+import org.asynchttpclient.netty.NettyProviderUtil;
+import org.testng.annotations.Test;
+
+@Test
+public class NettyRequestCoalescingTest extends RequestCoalescingTest {
+    @Override
+    public AsyncHttpClient getAsyncHttpClient(AsyncHttpClientConfig config) {
+        return NettyProviderUtil.nettyProvider(config);
+    }
+
+    private static class LazyBodyHandler implements AsyncHandler<String> {
+
+        private final StringBuilder body = new StringBuilder();
+
+        @Override
+        public void onThrowable(Throwable t) {
+        }
+
+        @Override
+        public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+            body.append(LazyNettyResponseBodyPart.class.cast(bodyPart).getBuf().toString(UTF_8));
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+            return State.CONTINUE;
+        }
+
+        @Override
+        public String onCompleted() throws Exception {
+            return body.toString();
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void lazyBodyPartsDisableCoalescing() throws Exception {
+        NettyAsyncHttpProviderConfig providerConfig = new NettyAsyncHttpProviderConfig();
+        providerConfig.setBodyPartFactory(new NettyAsyncHttpProviderConfig.LazyResponseBodyPartFactory());
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setCoalesceRequests(true)
+                .setAsyncHttpClientProviderConfig(providerConfig).build();
+
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            ListenableFuture<String> f1 = client.prepareGet(getTargetUrl()).execute(new LazyBodyHandler());
+            ListenableFuture<String> f2 = client.prepareGet(getTargetUrl()).execute(new LazyBodyHandler());
+
+            assertTrue(f1.get(TIMEOUT, TimeUnit.SECONDS).startsWith("hit-"));
+            assertTrue(f2.get(TIMEOUT, TimeUnit.SECONDS).startsWith("hit-"));
+            assertEquals(hits.get(), 2);
+
+            assertTrue(client.prepareGet(getTargetUrl()).execute(new LazyBodyHandler()).get(TIMEOUT, TimeUnit.SECONDS).startsWith("hit-"));
+            assertEquals(hits.get(), 3);
+        }
+    }
+}
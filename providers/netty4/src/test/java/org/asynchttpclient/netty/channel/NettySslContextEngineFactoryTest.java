@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.channel;
+
+import static org.testng.Assert.*;
+import io.netty.handler.ssl.SslProvider;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AbstractBasicHttpsTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig;
+import org.asynchttpclient.netty.NettyProviderUtil;
+import org.testng.annotations.Test;
+
+@Test
+public class NettySslContextEngineFactoryTest extends AbstractBasicHttpsTest {
+
+    @Override
+    public AsyncHttpClient getAsyncHttpClient(AsyncHttpClientConfig config) {
+        return NettyProviderUtil.nettyProvider(config);
+    }
+
+    private String targetUrl() {
+        return String.format("https://127.0.0.1:%d/foo/test", port1);
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void openSslFallsBackToJdk() throws Exception {
+        NettyAsyncHttpProviderConfig nettyConfig = new NettyAsyncHttpProviderConfig();
+        nettyConfig.setSslProvider(SslProvider.OPENSSL);
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder()//
+                .setAcceptAnyCertificate(true)//
+                .setAsyncHttpClientProviderConfig(nettyConfig)//
+                .build();
+
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            Response response = client.prepareGet(targetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getStatusCode(), 200);
+        }
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void sessionsAreSharedAcrossConnections() throws Exception {
+        AsyncHttpClientConfig sslConfig = new AsyncHttpClientConfig.Builder().setAcceptAnyCertificate(true).build();
+        SslContextEngineFactory factory = new SslContextEngineFactory(sslConfig, SslProvider.JDK);
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder(sslConfig)//
+                .setSslEngineFactory(factory)//
+                .setAllowPoolingSslConnections(false)//
+                .build();
+
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            for (int i = 0; i < 3; i++)
+                assertEquals(client.prepareGet(targetUrl()).execute().get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+        }
+
+        // the 2 other handshakes resumed the first session
+        assertEquals(Collections.list(factory.getSslContext().sessionContext().getIds()).size(), 1);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.channel;
+
+import static org.asynchttpclient.test.TestUtils.findFreePort;
+import static org.asynchttpclient.test.TestUtils.newJettyHttpsServer;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslProvider;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig;
+import org.asynchttpclient.netty.NettyProviderUtil;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+/**
+ * Compares the TLS engines against a loopback Jetty server: handshakes per second with pooling disabled, then
+ * response throughput over pooled connections.
+ *
+ * Run with netty-tcnative on the classpath to measure the OpenSSL engine, e.g.
+ * <code>mvn test-compile exec:java -Dexec.mainClass=org.asynchttpclient.netty.channel.SslEngineBenchmark -Dexec.classpathScope=test</code>
+ */
+public class SslEngineBenchmark {
+
+    private static final int HANDSHAKES = 500;
+    private static final int TRANSFERS = 200;
+    private static final int PAYLOAD_SIZE = 1024 * 1024;
+    private static final byte[] PAYLOAD = new byte[PAYLOAD_SIZE];
+
+    public static void main(String[] args) throws Exception {
+        int port = findFreePort();
+        Server server = newJettyHttpsServer(port);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                    ServletException {
+                response.setStatus(HttpServletResponse.SC_OK);
+                if (target.endsWith("/payload")) {
+                    response.setContentLength(PAYLOAD_SIZE);
+                    response.getOutputStream().write(PAYLOAD);
+                } else {
+                    response.setContentLength(0);
+                }
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+
+        try {
+            String url = "https://127.0.0.1:" + port;
+            System.out.println("OpenSSL available: " + OpenSsl.isAvailable() + (OpenSsl.isAvailable() ? " (" + OpenSsl.versionString() + ")" : ""));
+            run("default JDK engine", null, url);
+            run("SslContext JDK", SslProvider.JDK, url);
+            if (OpenSsl.isAvailable())
+                run("SslContext OpenSSL", SslProvider.OPENSSL, url);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static AsyncHttpClientConfig config(SslProvider sslProvider, boolean pooling) {
+        NettyAsyncHttpProviderConfig nettyConfig = new NettyAsyncHttpProviderConfig();
+        nettyConfig.setSslProvider(sslProvider);
+        return new AsyncHttpClientConfig.Builder()//
+                .setAcceptAnyCertificate(true)//
+                .setAllowPoolingSslConnections(pooling)//
+                .setAsyncHttpClientProviderConfig(nettyConfig)//
+                .build();
+    }
+
+    private static void run(String name, SslProvider sslProvider, String url) throws Exception {
+        try (AsyncHttpClient client = NettyProviderUtil.nettyProvider(config(sslProvider, false))) {
+            // warm up
+            for (int i = 0; i < HANDSHAKES / 5; i++)
+                client.prepareGet(url + "/empty").execute().get(10, TimeUnit.SECONDS);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < HANDSHAKES; i++)
+                client.prepareGet(url + "/empty").execute().get(10, TimeUnit.SECONDS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-20s handshakes: %8.1f /s%n", name, HANDSHAKES / seconds);
+        }
+
+        try (AsyncHttpClient client = NettyProviderUtil.nettyProvider(config(sslProvider, true))) {
+            for (int i = 0; i < TRANSFERS / 5; i++)
+                client.prepareGet(url + "/payload").execute().get(10, TimeUnit.SECONDS);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < TRANSFERS; i++)
+                client.prepareGet(url + "/payload").execute().get(10, TimeUnit.SECONDS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-20s throughput: %8.1f MB/s%n", name, TRANSFERS * (double) PAYLOAD_SIZE / (1024 * 1024) / seconds);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.handler;
+
+import static org.testng.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig.ContentDecoderFactory;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig.EagerResponseBodyPartFactory;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig.LazyResponseBodyPartFactory;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig.ResponseBodyPartFactory;
+import org.asynchttpclient.netty.NettyProviderUtil;
+import org.asynchttpclient.netty.LazyNettyResponseBodyPart;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.Test;
+
+import com.github.luben.zstd.Zstd;
+
+@Test
+public class NettyContentDecodingTest extends AbstractBasicTest {
+
+    private static final byte[] CONTENT = content();
+
+    private static byte[] content() {
+        // bigger than a decoder output chunk
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 200 * 1024; i++)
+            sb.append("line ").append(i).append('\n');
+        return sb.toString().getBytes();
+    }
+
+    private static byte[] xor(byte[] bytes) {
+        byte[] xored = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++)
+            xored[i] = (byte) (bytes[i] ^ 0xFF);
+        return xored;
+    }
+
+    @Override
+    public AsyncHttpClient getAsyncHttpClient(AsyncHttpClientConfig config) {
+        return NettyProviderUtil.nettyProvider(config);
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new AbstractHandler() {
+            @Override
+            public void handle(String target, Request r, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                    ServletException {
+                String contentEncoding = request.getParameter("coding");
+                byte[] body = contentEncoding.equals("zstd") ? Zstd.compress(CONTENT) : xor(CONTENT);
+                response.setStatus(200);
+                response.setHeader("Content-Encoding", contentEncoding);
+                if (request.getHeader("Accept-Encoding") != null)
+                    response.setHeader("X-Accept-Encoding", request.getHeader("Accept-Encoding"));
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+                response.getOutputStream().flush();
+                r.setHandled(true);
+            }
+        };
+    }
+
+    /**
+     * Collects the body bytes of both eager and lazy parts.
+     */
+    private static class BodyCollector implements AsyncHandler<byte[]> {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+            if (bodyPart instanceof LazyNettyResponseBodyPart) {
+                ByteBuf buf = LazyNettyResponseBodyPart.class.cast(bodyPart).getBuf();
+                buf.getBytes(buf.readerIndex(), bytes, buf.readableBytes());
+            } else {
+                bodyPart.writeTo(bytes);
+            }
+            return State.CONTINUE;
+        }
+
+        @Override
+        public byte[] onCompleted() throws Exception {
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public void onThrowable(Throwable t) {
+        }
+    }
+
+    private byte[] fetch(NettyAsyncHttpProviderConfig nettyConfig, String contentEncoding) throws Exception {
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setAsyncHttpClientProviderConfig(nettyConfig).build();
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            return client.prepareGet(getTargetUrl() + "?coding=" + contentEncoding).execute(new BodyCollector()).get(TIMEOUT, TimeUnit.SECONDS);
+        }
+    }
+
+    private void testZstd(ResponseBodyPartFactory bodyPartFactory) throws Exception {
+        NettyAsyncHttpProviderConfig nettyConfig = new NettyAsyncHttpProviderConfig();
+        nettyConfig.setBodyPartFactory(bodyPartFactory);
+        assertTrue(nettyConfig.getContentDecoderFactories().containsKey("zstd"));
+        assertEquals(fetch(nettyConfig, "zstd"), CONTENT);
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void zstdIsDecodedWithEagerBodyParts() throws Exception {
+        testZstd(new EagerResponseBodyPartFactory());
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void zstdIsDecodedWithLazyBodyParts() throws Exception {
+        testZstd(new LazyResponseBodyPartFactory());
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void customDecoderIsUsed() throws Exception {
+        NettyAsyncHttpProviderConfig nettyConfig = new NettyAsyncHttpProviderConfig();
+        nettyConfig.addContentDecoderFactory("X-Xor", new ContentDecoderFactory() {
+            @Override
+            public ChannelHandler newContentDecoder() {
+                return new MessageToMessageDecoder<ByteBuf>() {
+                    @Override
+                    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+                        ByteBuf decoded = ctx.alloc().buffer(msg.readableBytes());
+                        while (msg.isReadable())
+                            decoded.writeByte(msg.readByte() ^ 0xFF);
+                        out.add(decoded);
+                    }
+                };
+            }
+        });
+        assertEquals(fetch(nettyConfig, "x-xor"), CONTENT);
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void acceptEncodingOnlyListsDecodableCodings() throws Exception {
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setCompressionEnforced(true)
+                .setAcceptEncodings("zstd", "gzip;q=0.5", "br").build();
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            Response response = client.prepareGet(getTargetUrl() + "?coding=zstd").execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Accept-Encoding"), "zstd,gzip;q=0.5");
+            assertEquals(response.getResponseBodyAsBytes(), CONTENT);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void acceptEncodingDefaultsToGzipDeflate() throws Exception {
+        try (AsyncHttpClient client = getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setCompressionEnforced(true).build())) {
+            Response response = client.prepareGet(getTargetUrl() + "?coding=zstd").execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Accept-Encoding"), "gzip,deflate");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.request;
+
+import static org.asynchttpclient.test.TestUtils.createTempFile;
+import static org.testng.Assert.*;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig.AdditionalPipelineInitializer;
+import org.asynchttpclient.netty.NettyProviderUtil;
+import org.asynchttpclient.request.body.generator.ByteArrayBodyGenerator;
+import org.asynchttpclient.request.body.generator.InputStreamBodyGenerator;
+import org.testng.annotations.Test;
+
+@Test
+public class NettyRequestWriteTest extends AbstractBasicTest {
+
+    @Override
+    public AsyncHttpClient getAsyncHttpClient(AsyncHttpClientConfig config) {
+        return NettyProviderUtil.nettyProvider(config);
+    }
+
+    /**
+     * Records what reaches the socket: W for a write, F for a flush.
+     */
+    private AsyncHttpClient recordingClient(final List<String> events) {
+        NettyAsyncHttpProviderConfig nettyConfig = new NettyAsyncHttpProviderConfig();
+        nettyConfig.setHttpAdditionalPipelineInitializer(new AdditionalPipelineInitializer() {
+            @Override
+            public void initPipeline(ChannelPipeline pipeline) throws Exception {
+                pipeline.addFirst(new ChannelOutboundHandlerAdapter() {
+                    @Override
+                    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                        events.add("W");
+                        super.write(ctx, msg, promise);
+                    }
+
+                    @Override
+                    public void flush(ChannelHandlerContext ctx) throws Exception {
+                        events.add("F");
+                        super.flush(ctx);
+                    }
+                });
+            }
+        });
+        return getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setAsyncHttpClientProviderConfig(nettyConfig).build());
+    }
+
+    private static int flushes(List<String> events) {
+        int flushes = 0;
+        for (String event : events)
+            if (event.equals("F"))
+                flushes++;
+        return flushes;
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void smallGeneratedBodyIsWrittenAlongWithHeaders() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        try (AsyncHttpClient client = recordingClient(events)) {
+            Response response = client.preparePost(getTargetUrl()).setBody(new ByteArrayBodyGenerator("small body".getBytes()))
+                    .execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getResponseBody(), "small body");
+            assertEquals(flushes(events), 1, "Events " + events);
+        }
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void smallFileIsWrittenAlongWithHeaders() throws Exception {
+        File file = createTempFile(1024);
+        List<String> events = new CopyOnWriteArrayList<>();
+        try (AsyncHttpClient client = recordingClient(events)) {
+            Response response = client.preparePost(getTargetUrl()).setBody(file).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getResponseBodyAsBytes(), Files.readAllBytes(file.toPath()));
+            assertEquals(flushes(events), 1, "Events " + events);
+        }
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void headersAreFlushedWithTheFirstChunk() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        try (AsyncHttpClient client = recordingClient(events)) {
+            Response response = client.preparePost(getTargetUrl())
+                    .setBody(new InputStreamBodyGenerator(new ByteArrayInputStream("streamed body".getBytes()))).execute()
+                    .get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getResponseBody(), "streamed body");
+            assertTrue(events.size() > 2, "Events " + events);
+            assertEquals(events.subList(0, 2), Arrays.asList("W", "W"), "Headers were flushed alone: " + events);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.request.body;
+
+import static org.asynchttpclient.test.TestUtils.createTempFile;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.netty.NettyProviderUtil;
+import org.asynchttpclient.request.body.generator.FeedableBodyGenerator;
+import org.asynchttpclient.request.body.generator.InputStreamBodyGenerator;
+import org.asynchttpclient.request.body.generator.SimpleFeedableBodyGenerator;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.Test;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+public class NettyRequestCompressionTest extends AbstractBasicTest {
+
+    private static final byte[] CONTENT = content();
+
+    private static byte[] content() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 100 * 1024; i++)
+            sb.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\"}\n");
+        return sb.toString().getBytes();
+    }
+
+    @Override
+    public AsyncHttpClient getAsyncHttpClient(AsyncHttpClientConfig config) {
+        return NettyProviderUtil.nettyProvider(config);
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new AbstractHandler() {
+            @Override
+            public void handle(String target, Request r, HttpServletRequest request, HttpServletResponse response) throws IOException,
+                    ServletException {
+                String contentEncoding = request.getHeader("Content-Encoding");
+                InputStream is = request.getInputStream();
+                if ("gzip".equals(contentEncoding))
+                    is = new GZIPInputStream(is);
+                else if ("deflate".equals(contentEncoding))
+                    is = new InflaterInputStream(is);
+                else if ("zstd".equals(contentEncoding))
+                    is = new ZstdInputStream(is);
+
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int read = is.read(buffer); read != -1; read = is.read(buffer))
+                    body.write(buffer, 0, read);
+
+                response.setStatus(200);
+                if (contentEncoding != null)
+                    response.setHeader("X-Content-Encoding", contentEncoding);
+                if (request.getHeader("Transfer-Encoding") != null)
+                    response.setHeader("X-Transfer-Encoding", request.getHeader("Transfer-Encoding"));
+                if (request.getHeader("Content-Length") != null)
+                    response.setHeader("X-Content-Length", request.getHeader("Content-Length"));
+                response.setContentLength(body.size());
+                response.getOutputStream().write(body.toByteArray());
+                response.getOutputStream().flush();
+                r.setHandled(true);
+            }
+        };
+    }
+
+    private AsyncHttpClient client(String requestCompression) {
+        return getAsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestCompression(requestCompression).build());
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void streamedBodyIsCompressedWithChunkedTransferEncoding() throws Exception {
+        try (AsyncHttpClient client = client("gzip")) {
+            Response response = client.preparePost(getTargetUrl()).setBody(new InputStreamBodyGenerator(new ByteArrayInputStream(CONTENT))).execute()
+                    .get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Content-Encoding"), "gzip");
+            assertEquals(response.getHeader("X-Transfer-Encoding"), "chunked");
+            assertNull(response.getHeader("X-Content-Length"));
+            assertEquals(response.getResponseBodyAsBytes(), CONTENT);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void bodyInMemoryIsCompressedWithContentLength() throws Exception {
+        try (AsyncHttpClient client = client("deflate")) {
+            Response response = client.preparePost(getTargetUrl()).setBody(CONTENT).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Content-Encoding"), "deflate");
+            assertNull(response.getHeader("X-Transfer-Encoding"));
+            assertTrue(Integer.parseInt(response.getHeader("X-Content-Length")) < CONTENT.length);
+            assertEquals(response.getResponseBodyAsBytes(), CONTENT);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void feedableBodyIsCompressedWithZstd() throws Exception {
+        try (AsyncHttpClient client = client("zstd")) {
+            FeedableBodyGenerator generator = new SimpleFeedableBodyGenerator();
+            ListenableFuture<Response> future = client.preparePost(getTargetUrl()).setBody(generator).execute();
+            for (int offset = 0; offset < CONTENT.length; offset += 10000)
+                generator.feed(ByteBuffer.wrap(CONTENT, offset, Math.min(10000, CONTENT.length - offset)), false);
+            generator.feed(ByteBuffer.allocate(0), true);
+
+            Response response = future.get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Content-Encoding"), "zstd");
+            assertEquals(response.getResponseBodyAsBytes(), CONTENT);
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void fileBodyIsCompressed() throws Exception {
+        File file = createTempFile(1024 * 1024);
+        try (AsyncHttpClient client = client("gzip")) {
+            Response response = client.preparePut(getTargetUrl()).setBody(file).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Content-Encoding"), "gzip");
+            assertEquals(response.getResponseBodyAsBytes(), Files.readAllBytes(file.toPath()));
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void smallBodyIsNotCompressed() throws Exception {
+        try (AsyncHttpClient client = client("gzip")) {
+            Response response = client.preparePost(getTargetUrl()).setBody("small").execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertNull(response.getHeader("X-Content-Encoding"));
+            assertEquals(response.getResponseBody(), "small");
+        }
+    }
+
+    @Test(groups = { "standalone", "default_provider" })
+    public void encodedBodyIsNotCompressedAgain() throws Exception {
+        try (AsyncHttpClient client = client("zstd")) {
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream os = new GZIPOutputStream(gzipped)) {
+                os.write(CONTENT);
+            }
+            Response response = client.preparePost(getTargetUrl()).setHeader("Content-Encoding", "gzip").setBody(gzipped.toByteArray()).execute()
+                    .get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(response.getHeader("X-Content-Encoding"), "gzip");
+            assertEquals(response.getResponseBodyAsBytes(), CONTENT);
+        }
+    }
+
+    @Test(groups = "fast", expectedExceptions = IllegalArgumentException.class)
+    public void unsupportedCompressionIsRejected() {
+        client("br").close();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2015 AsyncHttpClient Project. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package org.asynchttpclient.netty.spnego;
+
+import static org.testng.Assert.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.FastThreadLocalThread;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.asynchttpclient.AbstractBasicTest;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.Realm;
+import org.asynchttpclient.Realm.AuthScheme;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.netty.NettyAsyncHttpProviderConfig;
+import org.asynchttpclient.netty.NettyProviderUtil;
+import org.asynchttpclient.spnego.SpnegoEngine;
+import org.asynchttpclient.spnego.SpnegoEngineException;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.Test;
+
+@Test
+public class NettySpnegoTest extends AbstractBasicTest {
+
+    private static final String TOKEN = "YIIGhwYGKwYBBQUCoIIGezCCBnegDTALBgkqhkiG9xIBAgKiggZk";
+
+    @Override
+    public AsyncHttpClient getAsyncHttpClient(AsyncHttpClientConfig config) {
+        return NettyProviderUtil.nettyProvider(config);
+    }
+
+    public static class NegotiateHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String pathInContext, org.eclipse.jetty.server.Request request, HttpServletRequest httpRequest,
+                HttpServletResponse httpResponse) throws IOException, ServletException {
+
+            if (httpRequest.getParameter("redirect") != null) {
+                httpResponse.setStatus(302);
+                httpResponse.setHeader("Location", "/?public=true");
+                // the redirect goes through a new connection
+                httpResponse.setHeader("Connection", "close");
+            } else if (httpRequest.getParameter("public") != null || ("Negotiate " + TOKEN).equals(httpRequest.getHeader("Authorization"))) {
+                httpResponse.setStatus(200);
+            } else {
+                httpResponse.setStatus(401);
+                httpResponse.setHeader("WWW-Authenticate", "Negotiate");
+            }
+            httpResponse.setContentLength(0);
+            httpResponse.getOutputStream().flush();
+            httpResponse.getOutputStream().close();
+        }
+    }
+
+    @Override
+    public AbstractHandler configureHandler() throws Exception {
+        return new NegotiateHandler();
+    }
+
+    /**
+     * Stands for a GSS-API implementation talking to a KDC.
+     */
+    private static class BlockingSpnegoEngine extends SpnegoEngine {
+
+        private final CountDownLatch kdcReply = new CountDownLatch(1);
+        private final CountDownLatch called = new CountDownLatch(1);
+        private volatile Thread thread;
+        private volatile String server;
+
+        @Override
+        public String generateToken(String server) throws SpnegoEngineException {
+            this.thread = Thread.currentThread();
+            this.server = server;
+            called.countDown();
+            try {
+                if (!kdcReply.await(TIMEOUT, TimeUnit.SECONDS))
+                    throw new SpnegoEngineException("KDC timeout");
+            } catch (InterruptedException e) {
+                throw new SpnegoEngineException("Interrupted");
+            }
+            return TOKEN;
+        }
+    }
+
+    private Realm realm() {
+        return new Realm.RealmBuilder().setScheme(AuthScheme.SPNEGO).build();
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void tokenIsGeneratedOffTheEventLoop() throws Exception {
+        BlockingSpnegoEngine engine = new BlockingSpnegoEngine();
+        engine.kdcReply.countDown();
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setSpnegoEngine(engine).build();
+
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            Response response = client.prepareGet(getTargetUrl()).setRealm(realm()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 200);
+            assertEquals(engine.server, "127.0.0.1");
+            assertFalse(engine.thread instanceof FastThreadLocalThread, "Token generated on " + engine.thread);
+        }
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void slowTokenGenerationDoesntStallTheEventLoop() throws Exception {
+        BlockingSpnegoEngine engine = new BlockingSpnegoEngine();
+        NioEventLoopGroup eventLoop = new NioEventLoopGroup(1);
+        NettyAsyncHttpProviderConfig nettyConfig = new NettyAsyncHttpProviderConfig();
+        nettyConfig.setEventLoopGroup(eventLoop);
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder()//
+                .setSpnegoEngine(engine)//
+                .setAsyncHttpClientProviderConfig(nettyConfig)//
+                .build();
+
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            Future<Response> authenticated = client.prepareGet(getTargetUrl()).setRealm(realm()).execute();
+            assertTrue(engine.called.await(TIMEOUT, TimeUnit.SECONDS));
+
+            // same and only event loop
+            Response other = client.prepareGet(getTargetUrl()).addQueryParam("public", "true").execute().get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(other.getStatusCode(), 200);
+            assertFalse(authenticated.isDone());
+
+            engine.kdcReply.countDown();
+            assertEquals(authenticated.get(TIMEOUT, TimeUnit.SECONDS).getStatusCode(), 200);
+        } finally {
+            eventLoop.shutdownGracefully();
+        }
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void preemptiveTokenOfARedirectIsGeneratedOffTheEventLoop() throws Exception {
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        SpnegoEngine engine = new SpnegoEngine() {
+            @Override
+            public String generateToken(String server) throws SpnegoEngineException {
+                threads.add(Thread.currentThread());
+                return TOKEN;
+            }
+        };
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setSpnegoEngine(engine).setFollowRedirect(true).build();
+        Realm realm = new Realm.RealmBuilder().setScheme(AuthScheme.SPNEGO).setUsePreemptiveAuth(true).build();
+
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            Response response = client.prepareGet(getTargetUrl()).addQueryParam("redirect", "true").setRealm(realm).execute()
+                    .get(TIMEOUT, TimeUnit.SECONDS);
+
+            assertEquals(response.getStatusCode(), 200);
+            assertEquals(threads.size(), 2);
+            for (Thread thread : threads)
+                assertFalse(thread instanceof FastThreadLocalThread, "Token generated on " + thread);
+        }
+    }
+
+    @Test(groups = { "standalone", "netty_provider" })
+    public void tokenGenerationFailureFailsTheRequest() throws Exception {
+        SpnegoEngine engine = new SpnegoEngine() {
+            @Override
+            public String generateToken(String server) throws SpnegoEngineException {
+                throw new SpnegoEngineException("No credentials");
+            }
+        };
+        AsyncHttpClientConfig config = new AsyncHttpClientConfig.Builder().setSpnegoEngine(engine).build();
+
+        try (AsyncHttpClient client = getAsyncHttpClient(config)) {
+            client.prepareGet(getTargetUrl()).setRealm(realm()).execute().get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Request should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SpnegoEngineException, "Unexpected cause " + e.getCause());
+        }
+    }
+}